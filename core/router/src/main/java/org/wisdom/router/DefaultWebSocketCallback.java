@@ -28,6 +28,8 @@ import org.wisdom.api.router.RouteUtils;
 import org.wisdom.api.router.parameters.ActionParameter;
 import org.wisdom.api.router.parameters.Source;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -44,6 +46,7 @@ public class DefaultWebSocketCallback {
 
     private final Controller controller;
     private final Method method;
+    private final String uri;
     private final Pattern regex;
     private final ImmutableList<String> parameterNames;
     protected final WebSocketRouter router;
@@ -62,10 +65,18 @@ public class DefaultWebSocketCallback {
         this.router = router;
         this.controller = controller;
         this.method = method;
+        this.uri = uri;
         this.regex = Pattern.compile(RouteUtils.convertRawUriToRegex(uri));
         this.parameterNames = ImmutableList.copyOf(RouteUtils.extractParameters(uri));
     }
 
+    /**
+     * @return the listened uri, as declared (it may contain dynamic parts).
+     */
+    public String getUri() {
+        return uri;
+    }
+
     /**
      * @return the controller.
      */
@@ -187,6 +198,28 @@ public class DefaultWebSocketCallback {
     public void invoke(String uri, String client, byte[] content) throws
             InvocationTargetException,
             IllegalAccessException {
+        invoke(uri, client, (Object) content);
+    }
+
+    /**
+     * Invokes the callback with a message received as a stream. The stream is injected in the {@link InputStream}
+     * parameter annotated with {@link org.wisdom.api.annotations.Body}, if any.
+     *
+     * @param uri     the uri
+     * @param client  the client identifier (the one having sent the message)
+     * @param content the stream delivering the payload of the message
+     * @throws InvocationTargetException when the callback throws an exception
+     * @throws IllegalAccessException    when the callback cannot be called
+     */
+    public void invoke(String uri, String client, InputStream content) throws
+            InvocationTargetException,
+            IllegalAccessException {
+        invoke(uri, client, (Object) content);
+    }
+
+    private void invoke(String uri, String client, Object content) throws
+            InvocationTargetException,
+            IllegalAccessException {
         Map<String, String> values = getPathParametersEncoded(uri);
         Object[] parameters = new Object[arguments.size()];
         for (int i = 0; i < arguments.size(); i++) {
@@ -206,7 +239,19 @@ public class DefaultWebSocketCallback {
         getMethod().invoke(getController(), parameters);
     }
 
-    private Object transform(ActionParameter parameter, byte[] content) {
+    private Object transform(ActionParameter parameter, Object payload) {
+        if (InputStream.class.equals(parameter.getRawType())) {
+            if (payload == null || payload instanceof InputStream) {
+                return payload;
+            }
+            return new ByteArrayInputStream((byte[]) payload);
+        }
+        if (payload instanceof InputStream) {
+            // The router only streams the messages to the callbacks having an InputStream parameter.
+            throw new IllegalArgumentException("The message is streamed, it cannot be injected in a parameter of " +
+                    "type " + parameter.getRawType().getName());
+        }
+        byte[] content = (byte[]) payload;
         String data = new String(content, Charset.defaultCharset());
         try {
             return router.converter().convertValue(data, parameter.getRawType(), parameter.getGenericType(), null);
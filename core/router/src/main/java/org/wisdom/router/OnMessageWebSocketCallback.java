@@ -19,6 +19,7 @@
  */
 package org.wisdom.router;
 
+import java.io.InputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
@@ -36,8 +37,62 @@ import org.wisdom.api.router.parameters.Source;
  */
 public class OnMessageWebSocketCallback extends DefaultWebSocketCallback {
 
+    private final boolean inline;
+
     public OnMessageWebSocketCallback(Controller controller, Method method, String uri, WebSocketRouter router) {
+        this(controller, method, uri, router, false);
+    }
+
+    /**
+     * Creates the callback object.
+     *
+     * @param controller the controller
+     * @param method     the method to call
+     * @param uri        the listened uri
+     * @param router     the web socket router
+     * @param inline     whether the callback is called from the thread having received the message
+     */
+    public OnMessageWebSocketCallback(Controller controller, Method method, String uri, WebSocketRouter router,
+                                      boolean inline) {
         super(controller, method, uri, router);
+        this.inline = inline;
+    }
+
+    /**
+     * @return whether the callback is called from the thread having received the message, instead of being called
+     * from the system executor.
+     */
+    public boolean isInline() {
+        return inline;
+    }
+
+    /**
+     * @return whether the callback receives the messages as streams, i.e. its payload parameter is an
+     * {@link InputStream}. Such callbacks receive the fragmented messages as soon as the first fragment is received.
+     */
+    public boolean isStreaming() {
+        if (arguments != null) {
+            for (ActionParameter argument : arguments) {
+                if (argument.getSource() == Source.BODY && InputStream.class.equals(argument.getRawType())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean check() {
+        if (!super.check()) {
+            return false;
+        }
+        if (inline && isStreaming()) {
+            WebSocketRouter.getLogger().error("The method {} receives the web socket messages as streams, " +
+                            "it cannot be inline as reading the stream would block the thread receiving the message",
+                    getMethod().getName());
+            return false;
+        }
+        return true;
     }
 
     @Override
@@ -85,6 +85,12 @@ public class RequestRouter extends AbstractRouter {
      */
     private Set<Filter> filters = new FilterSet();
 
+    /**
+     * An immutable copy of the filters, replaced when filters arrive or leave. Routes keep the filters matching
+     * their URL as long as this copy is not replaced.
+     */
+    private volatile Set<Filter> filterSnapshot = ImmutableSet.of();
+
     @Requires(optional = true, specification = Interceptor.class)
     private List<Interceptor<?>> interceptors;
 
@@ -417,8 +423,14 @@ public class RequestRouter extends AbstractRouter {
         this.validator = validator;
     }
 
+    /**
+     * Gets the current filters. The returned set is immutable, and the same instance is returned until a filter
+     * arrives or leaves.
+     *
+     * @return the filters
+     */
     protected Set<Filter> getFilters() {
-        return ImmutableSet.copyOf(filters);
+        return filterSnapshot;
     }
 
     /**
@@ -443,8 +455,9 @@ public class RequestRouter extends AbstractRouter {
      * @param filter the filter
      */
     @Bind(aggregate = true, optional = true)
-    public void bindFilter(Filter filter) {
+    public synchronized void bindFilter(Filter filter) {
         filters.add(filter);
+        filterSnapshot = ImmutableSet.copyOf(filters);
     }
 
     /**
@@ -455,6 +468,7 @@ public class RequestRouter extends AbstractRouter {
     @Unbind
     public synchronized void unbindFilter(Filter filter) {
         filters.remove(filter);
+        filterSnapshot = ImmutableSet.copyOf(filters);
     }
 
     /**
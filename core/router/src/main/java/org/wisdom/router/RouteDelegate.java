@@ -28,7 +28,10 @@ import org.wisdom.api.interception.Filter;
 import org.wisdom.api.interception.Interceptor;
 import org.wisdom.api.interception.RequestContext;
 import org.wisdom.api.router.Route;
+import org.wisdom.api.router.RouteUtils;
 import org.wisdom.api.router.parameters.ActionParameter;
+import org.wisdom.api.tracing.Span;
+import org.wisdom.api.tracing.Tracing;
 import org.wisdom.router.parameter.Bindings;
 
 import javax.validation.Constraint;
@@ -52,6 +55,11 @@ public class RouteDelegate extends Route {
     private final boolean mustValidate;
     private final Map<String, Object> interceptors;
 
+    /**
+     * The filters matching the route URL, computed from the last filter set returned by the router.
+     */
+    private volatile ResolvedFilters resolvedFilters;
+
     /**
      * Creates a new instance of {@link org.wisdom.router.RouteDelegate}.
      *
@@ -219,15 +227,11 @@ public class RouteDelegate extends Route {
         Preconditions.checkNotNull(context);
 
         // Build chain if needed.
-        // We get an immutable copy of the set.
-        Set<Filter> filters = router.getFilters();
-        // Interceptors will be handled after filters.
-        List<Filter> chain = filters.stream()
-                .filter(filter -> !(filter instanceof Interceptor)  && filter.uri().matcher(route.getUrl()).matches())
-                .collect(Collectors.toList());
+        List<Filter> chain = getFilters();
 
         Map<Interceptor<?>, Object> itcpConfiguration = new LinkedHashMap<>();
         if (!interceptors.isEmpty()) {
+            chain = new ArrayList<>(chain);
             for (Map.Entry<String, Object> entry : interceptors.entrySet()) {
                 final Interceptor<?> interceptor = getInterceptorForAnnotation(entry.getKey());
                 if (interceptor == null) {
@@ -241,7 +245,44 @@ public class RouteDelegate extends Route {
         // Ready to call the action.
         Filter endOfChain = new EndOfChainInvoker();
         RequestContext ctx = new RequestContext(this, chain, itcpConfiguration, null, endOfChain);
-        return ctx.proceed();
+        Span span = Tracing.start("invoke");
+        if (span.isRecording()) {
+            span.tag("route", getHttpMethod() + " " + getUrl());
+        }
+        try {
+            Result result = ctx.proceed();
+            if (result != null && result.getStatusCode() >= Status.INTERNAL_SERVER_ERROR) {
+                span.fail("HTTP " + result.getStatusCode());
+            }
+            return result;
+        } catch (Exception e) {
+            span.fail(e);
+            throw e;
+        } finally {
+            span.finish();
+        }
+    }
+
+    /**
+     * Gets the filters handling the route. The filters are matched against the route URL only when the filter set
+     * has changed since the last call.
+     *
+     * @return the filters, sorted by priority
+     */
+    private List<Filter> getFilters() {
+        // We get an immutable copy of the set, replaced when the filters change.
+        Set<Filter> filters = router.getFilters();
+        ResolvedFilters resolved = resolvedFilters;
+        if (resolved == null || resolved.source != filters) {
+            // Interceptors will be handled after filters.
+            List<Filter> matching = filters.stream()
+                    .filter(filter -> !(filter instanceof Interceptor)
+                            && filter.uri().matcher(route.getUrl()).matches())
+                    .collect(Collectors.toList());
+            resolved = new ResolvedFilters(filters, Collections.unmodifiableList(matching));
+            resolvedFilters = resolved;
+        }
+        return resolved.filters;
     }
 
     private Interceptor<?> getInterceptorForAnnotation(String className) {
@@ -283,6 +324,19 @@ public class RouteDelegate extends Route {
         return route.isUnbound();
     }
 
+    /**
+     * The filters matching the route, and the filter set they were computed from.
+     */
+    private static final class ResolvedFilters {
+        private final Set<Filter> source;
+        private final List<Filter> filters;
+
+        private ResolvedFilters(Set<Filter> source, List<Filter> filters) {
+            this.source = source;
+            this.filters = filters;
+        }
+    }
+
     private class EndOfChainInvoker implements Filter {
         /**
          * We are the end of the chain, so we call the action method.
@@ -300,7 +354,10 @@ public class RouteDelegate extends Route {
                 return new Result().status(route.getUnboundStatus()).noContentIfNone();
             } else {
 
+                final RequestTimings timings = RequestTimings.of(context.context());
+
                 // The interceptor and filter may have change some values, compute the parameters.
+                long start = System.nanoTime();
                 final List<ActionParameter> arguments = getArguments();
                 Object[] parameters = new Object[arguments.size()];
                 for (int i = 0; i < arguments.size(); i++) {
@@ -308,14 +365,21 @@ public class RouteDelegate extends Route {
                     parameters[i] = Bindings.create(argument, context.context(),
                             router.getParameterConverterEngine());
                 }
+                if (timings != null) {
+                    timings.record(RequestTimings.Phase.BINDING, start);
+                }
 
                 // Validate if needed.
                 if (mustValidate) {
                     Validator validator = router.getValidator();
                     if (validator != null) {
+                        start = System.nanoTime();
                         Set<ConstraintViolation<Controller>> violations =
                                 validator.forExecutables().validateParameters(getControllerObject(), getControllerMethod(),
                                         parameters);
+                        if (timings != null) {
+                            timings.record(RequestTimings.Phase.VALIDATION, start);
+                        }
 
                         if (!violations.isEmpty()) {
                             return Results.badRequest(violations).json();
@@ -327,8 +391,15 @@ public class RouteDelegate extends Route {
                 context.setParameters(parameters);
 
                 // Invoke the action method.
-                final Result result = (Result) getControllerMethod().invoke(
-                        getControllerObject(), parameters);
+                start = System.nanoTime();
+                final Result result;
+                try {
+                    result = RouteUtils.toResult(getControllerMethod().invoke(getControllerObject(), parameters));
+                } finally {
+                    if (timings != null) {
+                        timings.record(RequestTimings.Phase.ACTION, start);
+                    }
+                }
 
                 // Manage the VARY header if the route has a 'consume' set:
                 if (! result.getHeaders().containsKey(HeaderNames.VARY)) {
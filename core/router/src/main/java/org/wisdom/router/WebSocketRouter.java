@@ -21,6 +21,7 @@ package org.wisdom.router;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.NullNode;
+import com.google.common.io.ByteStreams;
 import org.apache.felix.ipojo.annotations.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,30 +34,63 @@ import org.wisdom.api.content.ContentEngine;
 import org.wisdom.api.content.ParameterFactories;
 import org.wisdom.api.http.websockets.Publisher;
 import org.wisdom.api.http.websockets.WebSocketDispatcher;
-import org.wisdom.api.http.websockets.WebSocketListener;
+import org.wisdom.api.http.websockets.WebSocketStreamListener;
 import org.wisdom.api.router.RouteUtils;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.*;
-import java.util.concurrent.Callable;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Component handling web socket frame routing.
+ * <p>
+ * The messages received from a client are delivered in order: each connection has a mailbox, drained by a single
+ * task at a time on the system executor. Callbacks marked as {@link OnMessage#inline()} are called directly when the
+ * message is received.
+ * <p>
+ * Callbacks receiving the payload as an {@link InputStream} get the fragmented messages as soon as the first fragment
+ * is received. The stream is closed once the callback returns.
  */
 @Component(immediate = true)
 @Provides(specifications = Publisher.class)
 @Instantiate(name = "WebSocketRouter")
-public class WebSocketRouter implements WebSocketListener, Publisher {
+public class WebSocketRouter implements WebSocketStreamListener, Publisher {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(WebSocketRouter.class);
 
+    /**
+     * The maximum number of messages of a connection processed by a single task. When reached, the task is
+     * re-submitted, letting the other connections progress.
+     */
+    static final int BATCH_SIZE = 64;
+
+    /**
+     * The maximum number of uris for which the matching callbacks are kept. Uris come from clients, so they are not
+     * bounded.
+     */
+    static final int MAX_CACHED_URIS = 1024;
+
     @Requires
     WebSocketDispatcher[] dispatchers;
 
-    Set<DefaultWebSocketCallback> opens = new LinkedHashSet<>();
-    Set<DefaultWebSocketCallback> closes = new LinkedHashSet<>();
-    Set<OnMessageWebSocketCallback> listeners = new LinkedHashSet<>();
+    Set<DefaultWebSocketCallback> opens = new CopyOnWriteArraySet<>();
+    Set<DefaultWebSocketCallback> closes = new CopyOnWriteArraySet<>();
+    Set<OnMessageWebSocketCallback> listeners = new CopyOnWriteArraySet<>();
+
+    /**
+     * Uri -> matching {@link OnMessage} callbacks. Replaced when controllers arrive or leave.
+     */
+    private volatile ConcurrentMap<String, List<OnMessageWebSocketCallback>> callbacksByUri =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Connection (uri and client) -> mailbox.
+     */
+    private final ConcurrentMap<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
 
     @Requires(optional = true)
     private ContentEngine contentEngine;
@@ -95,6 +129,7 @@ public class WebSocketRouter implements WebSocketListener, Publisher {
         for (WebSocketDispatcher dispatcher : dispatchers) {
             dispatcher.unregister(this);
         }
+        mailboxes.clear();
     }
 
     /**
@@ -105,6 +140,7 @@ public class WebSocketRouter implements WebSocketListener, Publisher {
     @Bind(aggregate = true)
     public synchronized void bindController(Controller controller) {
         analyze(controller);
+        callbacksByUri = new ConcurrentHashMap<>();
     }
 
     /**
@@ -150,8 +186,8 @@ public class WebSocketRouter implements WebSocketListener, Publisher {
             }
             if (on != null) {
                 OnMessageWebSocketCallback callback = new OnMessageWebSocketCallback(controller, method,
-                        RouteUtils.getPrefixedUri(prefix, on.value()), this);
-                if (callback.check()) {
+                        RouteUtils.getPrefixedUri(prefix, on.value()), this, on.inline());
+                if (callback.check() && !conflicts(callback)) {
                     listeners.add(callback);
                 }
             }
@@ -159,6 +195,30 @@ public class WebSocketRouter implements WebSocketListener, Publisher {
 
     }
 
+    /**
+     * Checks whether the given callback can be registered with the other callbacks listening the same uri. A
+     * streamed message can only be read once, so a callback receiving the messages as streams must be the only
+     * {@link OnMessage} callback of its uri.
+     *
+     * @param callback the callback
+     * @return {@code true} if the callback conflicts with an existing one, and must not be registered
+     */
+    private boolean conflicts(OnMessageWebSocketCallback callback) {
+        for (OnMessageWebSocketCallback listener : listeners) {
+            if (listener.getUri().equals(callback.getUri())
+                    && (listener.isStreaming() || callback.isStreaming())) {
+                LOGGER.error("The @OnMessage method {}#{} cannot listen {}, {}#{} already does and one of them " +
+                                "receives the messages as InputStream. A callback receiving the messages as " +
+                                "streams must be the only @OnMessage callback of its uri",
+                        callback.getController().getClass().getName(), callback.getMethod().getName(),
+                        callback.getUri(), listener.getController().getClass().getName(),
+                        listener.getMethod().getName());
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Unbinds the controller.
      *
@@ -189,36 +249,199 @@ public class WebSocketRouter implements WebSocketListener, Publisher {
             }
         }
         listeners.removeAll(toRemove);  //NOSONAR type is correct here.
+        callbacksByUri = new ConcurrentHashMap<>();
     }
 
     /**
      * Handles the reception of a message.
      *
      * @param uri     the url of the web socket
-     * @param from    the client having sent the message (octal id).
+     * @param from    the client having sent the message.
      * @param content the received content
      */
     @Override
     public void received(final String uri, final String from, final byte[] content) {
-        for (final OnMessageWebSocketCallback listener : listeners) {
-            if (listener.matches(uri)) {
-                 executor.submit(new Callable<Void>() {
-                     @Override
-                     public Void call() throws Exception {
-                         try {
-                             listener.invoke(uri, from, content);
-                         } catch (InvocationTargetException e) { //NOSONAR
-                             LOGGER.error("An error occurred in the @OnMessage callback {}#{} : {}",
-                                     listener.getController().getClass().getName(), listener.getMethod().getName
-                                             (), e.getTargetException().getMessage(), e.getTargetException()
-                             );
-                         } catch (Exception e) {
-                             LOGGER.error("An error occurred in the @OnMessage callback {}#{} : {}",
-                                     listener.getController().getClass().getName(), listener.getMethod().getName(), e.getMessage(), e);
-                         }
-                         return null;
-                     }
-                 });
+        boolean queued = false;
+        for (OnMessageWebSocketCallback listener : callbacks(uri)) {
+            if (listener.isInline()) {
+                invoke(listener, uri, from, content);
+            } else {
+                queued = true;
+            }
+        }
+        if (queued) {
+            mailbox(uri, from).post(content);
+        }
+    }
+
+    /**
+     * Checks whether the messages received on the given uri are delivered as streams. It's the case when the only
+     * {@link OnMessage} callback matching the uri receives the messages as streams. Otherwise, the messages are
+     * assembled, and the streaming callbacks get a stream on the assembled message.
+     *
+     * @param uri the url of the web socket
+     * @return {@code true} if the messages are delivered as streams
+     */
+    @Override
+    public boolean isStreaming(String uri) {
+        return isStreaming(callbacks(uri));
+    }
+
+    private static boolean isStreaming(List<OnMessageWebSocketCallback> callbacks) {
+        return callbacks.size() == 1 && callbacks.get(0).isStreaming();
+    }
+
+    /**
+     * Handles the reception of a message delivered as a stream. The message is delivered in order with the other
+     * messages of the client, to the callback receiving the messages as streams.
+     *
+     * @param uri     the url of the web socket
+     * @param from    the client having sent the message.
+     * @param content the received content
+     */
+    @Override
+    public void received(String uri, String from, InputStream content) {
+        mailbox(uri, from).post(content);
+    }
+
+    private Mailbox mailbox(String uri, String client) {
+        Mailbox mailbox = mailboxes.get(key(uri, client));
+        if (mailbox == null) {
+            Mailbox newMailbox = new Mailbox(uri, client);
+            mailbox = mailboxes.putIfAbsent(key(uri, client), newMailbox);
+            if (mailbox == null) {
+                mailbox = newMailbox;
+            }
+        }
+        return mailbox;
+    }
+
+    /**
+     * Gets the {@link OnMessage} callbacks matching the given uri.
+     *
+     * @param uri the uri
+     * @return the callbacks, empty if none
+     */
+    List<OnMessageWebSocketCallback> callbacks(String uri) {
+        // Read the cache before the listeners, as controllers update the listeners before replacing the cache.
+        ConcurrentMap<String, List<OnMessageWebSocketCallback>> cache = callbacksByUri;
+        List<OnMessageWebSocketCallback> callbacks = cache.get(uri);
+        if (callbacks == null) {
+            callbacks = new ArrayList<>();
+            for (OnMessageWebSocketCallback listener : listeners) {
+                if (listener.matches(uri)) {
+                    callbacks.add(listener);
+                }
+            }
+            if (cache.size() < MAX_CACHED_URIS) {
+                cache.put(uri, callbacks);
+            }
+        }
+        return callbacks;
+    }
+
+    private static String key(String uri, String client) {
+        return client + " " + uri;
+    }
+
+    private static void invoke(OnMessageWebSocketCallback listener, String uri, String from, Object content) {
+        try {
+            if (content instanceof InputStream) {
+                listener.invoke(uri, from, (InputStream) content);
+            } else {
+                listener.invoke(uri, from, (byte[]) content);
+            }
+        } catch (InvocationTargetException e) { //NOSONAR
+            LOGGER.error("An error occurred in the @OnMessage callback {}#{} : {}",
+                    listener.getController().getClass().getName(), listener.getMethod().getName
+                            (), e.getTargetException().getMessage(), e.getTargetException()
+            );
+        } catch (Exception e) {
+            LOGGER.error("An error occurred in the @OnMessage callback {}#{} : {}",
+                    listener.getController().getClass().getName(), listener.getMethod().getName(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The messages received from a client, and not yet delivered to the (non-inline) callbacks. At most one task
+     * drains the mailbox at a given time, so the messages are delivered in order.
+     */
+    private final class Mailbox implements Callable<Void> {
+
+        private final String uri;
+        private final String client;
+        /**
+         * The messages, either {@code byte[]} or {@link InputStream}.
+         */
+        private final Queue<Object> messages = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private Mailbox(String uri, String client) {
+            this.uri = uri;
+            this.client = client;
+        }
+
+        private void post(Object content) {
+            messages.add(content);
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.submit(this);
+                } catch (RejectedExecutionException e) {
+                    // Delivered with the next message.
+                    scheduled.set(false);
+                    LOGGER.error("Cannot deliver the web socket messages received on {} by {}", uri, client, e);
+                }
+            }
+        }
+
+        @Override
+        public Void call() {
+            Object content;
+            int count = 0;
+            while (count < BATCH_SIZE && (content = messages.poll()) != null) {
+                if (content instanceof InputStream) {
+                    deliver((InputStream) content);
+                } else {
+                    for (OnMessageWebSocketCallback listener : callbacks(uri)) {
+                        if (!listener.isInline()) {
+                            invoke(listener, uri, client, content);
+                        }
+                    }
+                }
+                count++;
+            }
+            scheduled.set(false);
+            if (!messages.isEmpty()) {
+                schedule();
+            }
+            return null;
+        }
+
+        private void deliver(InputStream stream) {
+            try {
+                List<OnMessageWebSocketCallback> callbacks = callbacks(uri);
+                if (isStreaming(callbacks)) {
+                    invoke(callbacks.get(0), uri, client, stream);
+                } else if (!callbacks.isEmpty()) {
+                    // The callbacks have changed since the reception of the first fragment, the message is assembled.
+                    byte[] content = ByteStreams.toByteArray(stream);
+                    for (OnMessageWebSocketCallback listener : callbacks) {
+                        invoke(listener, uri, client, content);
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.error("Cannot read the web socket message received on {} by {}", uri, client, e);
+            } finally {
+                // Discards the unread part of the message, resuming the reception of the next messages.
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    LOGGER.debug("Cannot close the web socket message stream received on {} by {}", uri, client, e);
+                }
             }
         }
     }
@@ -234,7 +457,7 @@ public class WebSocketRouter implements WebSocketListener, Publisher {
         for (DefaultWebSocketCallback open : opens) {
             if (open.matches(uri)) {
                 try {
-                    open.invoke(uri, client, null);
+                    open.invoke(uri, client, (byte[]) null);
                 } catch (InvocationTargetException e) { //NOSONAR
                     LOGGER.error("An error occurred in the @Open callback {}#{} : {}",
                             open.getController().getClass().getName(), open.getMethod().getName
@@ -256,10 +479,11 @@ public class WebSocketRouter implements WebSocketListener, Publisher {
      */
     @Override
     public void closed(String uri, String client) {
+        mailboxes.remove(key(uri, client));
         for (DefaultWebSocketCallback close : closes) {
             if (close.matches(uri)) {
                 try {
-                    close.invoke(uri, client, null);
+                    close.invoke(uri, client, (byte[]) null);
                 } catch (InvocationTargetException e) { //NOSONAR
                     LOGGER.error("An error occurred in the @Close callback {}#{} : {}",
                             close.getController().getClass().getName(), close.getMethod().getName
@@ -318,12 +542,10 @@ public class WebSocketRouter implements WebSocketListener, Publisher {
      */
     @Override
     public void publish(String uri, JsonNode message) {
+        // Serialize the message once for all the dispatchers.
+        String data = message == null ? NullNode.getInstance().toString() : message.toString();
         for (WebSocketDispatcher dispatcher : dispatchers) {
-            if (message == null) {
-                dispatcher.publish(uri, NullNode.getInstance().toString());
-            } else {
-                dispatcher.publish(uri, message.toString());
-            }
+            dispatcher.publish(uri, data);
         }
     }
 
@@ -357,12 +579,10 @@ public class WebSocketRouter implements WebSocketListener, Publisher {
      */
     @Override
     public void send(String uri, String client, JsonNode message) {
+        // Serialize the message once for all the dispatchers.
+        String data = message == null ? NullNode.getInstance().toString() : message.toString();
         for (WebSocketDispatcher dispatcher : dispatchers) {
-            if (message == null) {
-                dispatcher.send(uri, client, NullNode.getInstance().toString());
-            } else {
-                dispatcher.send(uri, client, message.toString());
-            }
+            dispatcher.send(uri, client, data);
         }
     }
 
@@ -35,10 +35,12 @@ import org.wisdom.api.content.ParameterFactory;
 import org.wisdom.api.http.websockets.WebSocketDispatcher;
 import org.wisdom.content.converters.ParamConverterEngine;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.Charset;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.Callable;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -131,6 +133,185 @@ public class WebSocketRouterTest {
         router.unbindController(controller);
     }
 
+    @Test
+    public void testMessagesAreDeliveredInOrderAndInBatches() throws Exception {
+        WebSocketRouter router = new WebSocketRouter();
+        router.dispatchers = new WebSocketDispatcher[]{mock(WebSocketDispatcher.class)};
+        router.converter = new ParamConverterEngine(
+                Collections.<ParameterConverter>emptyList(),
+                Collections.<ParameterFactory>emptyList());
+        // Tasks are executed later.
+        final List<Callable<Void>> tasks = new ArrayList<>();
+        router.executor = mock(ManagedExecutorService.class);
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                tasks.add((Callable<Void>) invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(router.executor).submit(any(Callable.class));
+
+        final List<String> received = new ArrayList<>();
+        final List<String> inline = new ArrayList<>();
+        final DefaultController controller = new DefaultController() {
+
+            @OnMessage("/ws")
+            public void foo(@Body String message, @Parameter("client") String client) {
+                received.add(client + ":" + message);
+            }
+
+            @OnMessage(value = "/ws", inline = true)
+            public void bar(@Body String message) {
+                inline.add(message);
+            }
+
+        };
+        router.bindController(controller);
+
+        for (int i = 0; i < 3; i++) {
+            router.received("/ws", "a", ("" + i).getBytes(Charset.defaultCharset()));
+            router.received("/ws", "b", ("" + i).getBytes(Charset.defaultCharset()));
+        }
+
+        // Inline callbacks are called directly.
+        assertThat(inline).containsExactly("0", "0", "1", "1", "2", "2");
+        // A single task per client.
+        assertThat(tasks).hasSize(2);
+        assertThat(received).isEmpty();
+
+        tasks.remove(0).call();
+        assertThat(received).containsExactly("a:0", "a:1", "a:2");
+        tasks.remove(0).call();
+        assertThat(received).containsExactly("a:0", "a:1", "a:2", "b:0", "b:1", "b:2");
+
+        // Once drained, a new message schedules a new task.
+        router.received("/ws", "a", "3".getBytes(Charset.defaultCharset()));
+        assertThat(tasks).hasSize(1);
+
+        router.unbindController(controller);
+    }
+
+    @Test
+    public void testStreamingCallbacks() throws Exception {
+        WebSocketRouter router = new WebSocketRouter();
+        router.dispatchers = new WebSocketDispatcher[]{mock(WebSocketDispatcher.class)};
+        router.converter = new ParamConverterEngine(
+                Collections.<ParameterConverter>emptyList(),
+                Collections.<ParameterFactory>emptyList());
+        router.executor = mock(ManagedExecutorService.class);
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                ((Callable<Void>) invocation.getArguments()[0]).call();
+                return null;
+            }
+        }).when(router.executor).submit(any(Callable.class));
+
+        final List<String> received = new ArrayList<>();
+        final DefaultController controller = new DefaultController() {
+
+            @OnMessage("/stream")
+            public void stream(@Body InputStream message, @Parameter("client") String client) throws IOException {
+                received.add(client + ":" + read(message));
+            }
+
+            // Rejected, reading the stream would block the thread receiving the message.
+            @OnMessage(value = "/stream", inline = true)
+            public void inline(@Body InputStream message) {
+                received.add("inline");
+            }
+
+            @OnMessage("/ws")
+            public void foo(@Body String message) {
+                received.add(message);
+            }
+
+        };
+        router.bindController(controller);
+
+        assertThat(router.callbacks("/stream")).hasSize(1);
+        assertThat(router.isStreaming("/stream")).isTrue();
+        assertThat(router.isStreaming("/ws")).isFalse();
+
+        // Messages received in a single frame.
+        router.received("/stream", "a", "hello".getBytes(Charset.defaultCharset()));
+        assertThat(received).containsExactly("a:hello");
+
+        // Messages received as streams, closed once delivered.
+        InputStream stream = spy(new ByteArrayInputStream("world".getBytes(Charset.defaultCharset())));
+        router.received("/stream", "b", stream);
+        assertThat(received).containsExactly("a:hello", "b:world");
+        verify(stream).close();
+
+        router.unbindController(controller);
+        assertThat(router.isStreaming("/stream")).isFalse();
+    }
+
+    @Test
+    public void testStreamingCallbacksSharingTheirUri() throws Exception {
+        WebSocketRouter router = new WebSocketRouter();
+        router.dispatchers = new WebSocketDispatcher[]{mock(WebSocketDispatcher.class)};
+        router.converter = new ParamConverterEngine(
+                Collections.<ParameterConverter>emptyList(),
+                Collections.<ParameterFactory>emptyList());
+        router.executor = mock(ManagedExecutorService.class);
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                ((Callable<Void>) invocation.getArguments()[0]).call();
+                return null;
+            }
+        }).when(router.executor).submit(any(Callable.class));
+
+        final List<String> received = new ArrayList<>();
+        final DefaultController streaming = new DefaultController() {
+            @OnMessage("/ws/{name}")
+            public void stream(@Body InputStream message) throws IOException {
+                received.add("stream:" + read(message));
+            }
+        };
+        final DefaultController regular = new DefaultController() {
+            // Rejected, the uri is already streamed.
+            @OnMessage("/ws/{name}")
+            public void rejected(@Body String message) {
+                received.add("rejected:" + message);
+            }
+
+            @OnMessage("/ws/foo")
+            public void foo(@Body String message) {
+                received.add("foo:" + message);
+            }
+        };
+        router.bindController(streaming);
+        router.bindController(regular);
+
+        assertThat(router.callbacks("/ws/bar")).hasSize(1);
+        assertThat(router.isStreaming("/ws/bar")).isTrue();
+        // Two callbacks match, the messages are assembled and delivered to both.
+        assertThat(router.callbacks("/ws/foo")).hasSize(2);
+        assertThat(router.isStreaming("/ws/foo")).isFalse();
+        router.received("/ws/foo", "a", "hello".getBytes(Charset.defaultCharset()));
+        assertThat(received).containsOnly("stream:hello", "foo:hello");
+
+        // A stream received while the callbacks were changing is assembled.
+        received.clear();
+        router.received("/ws/foo", "a", new ByteArrayInputStream("world".getBytes(Charset.defaultCharset())));
+        assertThat(received).containsOnly("stream:world", "foo:world");
+
+        router.unbindController(streaming);
+        router.unbindController(regular);
+    }
+
+    private static String read(InputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[2];
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), Charset.defaultCharset());
+    }
+
     @Test
     public void testControllerWithOnMessageAnnotationWithParameters() {
         WebSocketRouter router = new WebSocketRouter();
@@ -47,4 +47,13 @@ public @interface OnMessage {
      * open / close events to detect when all sockets are closed.
      */
     String value();
+
+    /**
+     * Whether the callback is called directly by the thread having received the message (an I/O thread), instead of
+     * being called from the system executor. Only enable it for callbacks that never block, as the other
+     * connections handled by the same thread are not served until the callback returns.
+     * <p>
+     * In both cases, the messages sent by a client are delivered in order, one at a time.
+     */
+    boolean inline() default false;
 }
@@ -32,10 +32,22 @@ public interface AssetProvider {
     Collection<Asset<?>> assets();
 
     /**
-     * Retrieves an asset.
+     * Retrieves an asset. Providers serving the assets should also accept the fingerprinted url of the asset (see
+     * {@link Assets#getFingerprintedPath(Asset)}) in their routes.
      *
      * @param path the asset path
      * @return the Asset object, or {@literal null} if the current provider can't serve this asset.
      */
     Asset assetAt(String path);
+
+    /**
+     * Gets the fingerprinted url of an asset served by this provider (see {@link Assets#getFingerprintedPath(Asset)}).
+     *
+     * @param asset the asset
+     * @return the fingerprinted url, {@code null} if the asset is not served by this provider, or if the provider does
+     * not support fingerprinted urls
+     */
+    default String getFingerprintedPath(Asset<?> asset) {
+        return null;
+    }
 }
@@ -50,4 +50,17 @@ public interface Assets {
      */
     Collection<Asset<?>> assets(boolean useCache);
 
+    /**
+     * Gets the fingerprinted url of the given asset. This url contains a hash of the asset's content (such as
+     * {@literal /assets/app.3f9ac1e2b4.js} for {@literal /assets/app.js}), so it changes when the content changes and
+     * responses can be cached forever by browsers. Implementations not supporting fingerprinting return the path of
+     * the asset.
+     *
+     * @param asset the asset
+     * @return the url to retrieve the asset
+     */
+    default String getFingerprintedPath(Asset<?> asset) {
+        return asset.getPath();
+    }
+
 }
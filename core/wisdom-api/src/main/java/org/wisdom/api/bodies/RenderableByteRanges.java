@@ -0,0 +1,270 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.api.bodies;
+
+import com.google.common.base.Charsets;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.wisdom.api.http.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Renders some ranges of the content of another renderable object, to build a {@literal 206 - Partial Content}
+ * response. The wrapped renderable is rendered once per range, so it must return a new stream on each call (this is
+ * the case of {@link RenderableFile}, {@link RenderableURL} and {@link RenderableByteArray}).
+ * <p>
+ * With a single range, the selected bytes are sent as they are (the {@literal Content-Range} header must be set on
+ * the result). With several ranges, a {@literal multipart/byteranges} body is built, each part having its own
+ * {@literal Content-Type} and {@literal Content-Range} headers.
+ */
+public class RenderableByteRanges implements Renderable<Object> {
+
+    private static final String CRLF = "\r\n";
+
+    private final Renderable<?> source;
+    private final List<ByteRange> ranges;
+    private final long total;
+    private final String contentType;
+    private final String boundary;
+    private final List<byte[]> partHeaders;
+    private final long length;
+
+    /**
+     * Creates a new instance of {@link RenderableByteRanges}.
+     *
+     * @param source      the renderable providing the complete content
+     * @param ranges      the ranges to send, must not be empty
+     * @param total       the length of the complete content
+     * @param contentType the content type of the complete content, used in the headers of each part when several
+     *                    ranges are sent
+     */
+    public RenderableByteRanges(Renderable<?> source, List<ByteRange> ranges, long total, String contentType) {
+        if (ranges == null || ranges.isEmpty()) {
+            throw new IllegalArgumentException("At least one range must be given");
+        }
+        this.source = source;
+        this.ranges = Collections.unmodifiableList(new ArrayList<>(ranges));
+        this.total = total;
+        this.contentType = contentType;
+        if (ranges.size() == 1) {
+            this.boundary = null;
+            this.partHeaders = Collections.emptyList();
+            this.length = ranges.get(0).length();
+        } else {
+            this.boundary = UUID.randomUUID().toString().replace("-", "");
+            this.partHeaders = new ArrayList<>(ranges.size() + 1);
+            long size = 0;
+            for (ByteRange range : ranges) {
+                StringBuilder header = new StringBuilder();
+                header.append(CRLF).append("--").append(boundary).append(CRLF);
+                if (contentType != null) {
+                    header.append(HeaderNames.CONTENT_TYPE).append(": ").append(contentType).append(CRLF);
+                }
+                header.append(HeaderNames.CONTENT_RANGE).append(": ").append(range.toContentRange(total))
+                        .append(CRLF).append(CRLF);
+                byte[] bytes = header.toString().getBytes(Charsets.US_ASCII);
+                partHeaders.add(bytes);
+                size += bytes.length + range.length();
+            }
+            byte[] end = (CRLF + "--" + boundary + "--" + CRLF).getBytes(Charsets.US_ASCII);
+            partHeaders.add(end);
+            this.length = size + end.length;
+        }
+    }
+
+    /**
+     * Renders the ranges.
+     *
+     * @param context the HTTP context
+     * @param result  the result having built this renderable object
+     * @return the stream containing the selected bytes, or the multipart body.
+     * @throws RenderableException if the wrapped renderable cannot be rendered
+     */
+    @Override
+    public InputStream render(Context context, Result result) throws RenderableException {
+        if (!isMultipart()) {
+            return open(ranges.get(0), context, result);
+        }
+        return new PartsInputStream(context, result);
+    }
+
+    private InputStream open(ByteRange range, Context context, Result result) throws RenderableException {
+        InputStream stream = source.render(context, result);
+        try {
+            IOUtils.skipFully(stream, range.getStart());
+        } catch (IOException e) {
+            IOUtils.closeQuietly(stream);
+            throw new RenderableException("Cannot move to the beginning of the range " + range, e);
+        }
+        return new BoundedInputStream(stream, range.length());
+    }
+
+    /**
+     * @return the number of bytes of the response body.
+     */
+    @Override
+    public long length() {
+        return length;
+    }
+
+    /**
+     * @return the mime type of the response: the one of the wrapped content for a single range, or {@literal
+     * multipart/byteranges} (with the boundary) for several ranges.
+     */
+    @Override
+    public String mimetype() {
+        if (isMultipart()) {
+            return "multipart/byteranges; boundary=" + boundary;
+        }
+        return contentType;
+    }
+
+    /**
+     * @return the content of the wrapped renderable.
+     */
+    @Override
+    public Object content() {
+        return source.content();
+    }
+
+    /**
+     * @return the wrapped renderable.
+     */
+    public Renderable<?> getSource() {
+        return source;
+    }
+
+    /**
+     * @return the file containing the bytes to send if the wrapped renderable is a {@link RenderableFile}, {@code
+     * null} otherwise. It lets engines send single ranges without copy.
+     */
+    public File getFile() {
+        if (source instanceof RenderableFile) {
+            return ((RenderableFile) source).content();
+        }
+        return null;
+    }
+
+    /**
+     * @return the ranges.
+     */
+    public List<ByteRange> getRanges() {
+        return ranges;
+    }
+
+    /**
+     * @return the length of the complete content.
+     */
+    public long getTotalLength() {
+        return total;
+    }
+
+    /**
+     * @return whether or not several ranges are sent (and so a multipart body is built).
+     */
+    public boolean isMultipart() {
+        return ranges.size() > 1;
+    }
+
+    @Override
+    public boolean requireSerializer() {
+        return false;
+    }
+
+    @Override
+    public void setSerializedForm(String serialized) {
+        // Nothing because serialization is not supported for this renderable class.
+    }
+
+    @Override
+    public boolean mustBeChunked() {
+        return source.mustBeChunked();
+    }
+
+    /**
+     * The stream of a multipart body, opening the stream of each range lazily.
+     */
+    private class PartsInputStream extends InputStream {
+
+        private final Context context;
+        private final Result result;
+        // Even indexes are part headers, odd indexes are ranges.
+        private int index;
+        private InputStream current;
+
+        PartsInputStream(Context context, Result result) {
+            this.context = context;
+            this.result = result;
+        }
+
+        private InputStream current() throws IOException {
+            while (current == null && index < partHeaders.size() + ranges.size()) {
+                if (index % 2 == 0) {
+                    current = new ByteArrayInputStream(partHeaders.get(index / 2));
+                } else {
+                    try {
+                        current = open(ranges.get(index / 2), context, result);
+                    } catch (RenderableException e) {
+                        throw new IOException(e);
+                    }
+                }
+                index++;
+            }
+            return current;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int read = read(b, 0, 1);
+            return read == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            while (current() != null) {
+                int read = current.read(b, off, len);
+                if (read != -1) {
+                    return read;
+                }
+                current.close();
+                current = null;
+            }
+            return -1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+            index = partHeaders.size() + ranges.size();
+        }
+    }
+}
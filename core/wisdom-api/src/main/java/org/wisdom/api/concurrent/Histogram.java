@@ -0,0 +1,144 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.api.concurrent;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of positive {@code long} values, used to compute percentiles.
+ * <p>
+ * Values are stored in buckets following an HDR-like layout: values lower than {@code 64} have their own bucket,
+ * larger values are grouped in 32 buckets per power of two. The relative error of the reported percentiles is
+ * therefore bounded by about 3%. Values are recorded using atomic increments, so recording never blocks, and
+ * reading while values are recorded gives an approximation.
+ * <p>
+ * Values greater than {@link #MAX_TRACKABLE_VALUE} are recorded as {@link #MAX_TRACKABLE_VALUE}, negative values
+ * as {@code 0}.
+ */
+public class Histogram {
+
+    /**
+     * The largest value that can be distinguished by the histogram (2^36 - 1, more than 2 years in milliseconds).
+     */
+    public static final long MAX_TRACKABLE_VALUE = (1L << 36) - 1;
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Values lower than this bound are stored in their own bucket.
+     */
+    private static final int LINEAR_BOUND = SUB_BUCKET_COUNT << 1;
+
+    private static final int LINEAR_BOUND_EXPONENT = SUB_BUCKET_BITS + 1;
+
+    private static final int BUCKET_COUNT = LINEAR_BOUND
+            + (63 - Long.numberOfLeadingZeros(MAX_TRACKABLE_VALUE) - LINEAR_BOUND_EXPONENT + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * Records a value.
+     *
+     * @param value the value
+     */
+    public void record(long value) {
+        counts.incrementAndGet(indexOf(value));
+    }
+
+    /**
+     * Adds all the values recorded by the given histogram to the current histogram.
+     *
+     * @param other the other histogram, must not be {@code null}
+     */
+    public void add(Histogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+    }
+
+    /**
+     * @return the number of recorded values.
+     */
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Gets the value at the given percentile. The returned value is the highest value equivalent to the bucket
+     * containing the percentile, so the real value is lower or equal.
+     *
+     * @param percentile the percentile, between {@code 0} and {@code 100} (for instance {@code 99.9})
+     * @return the value at the given percentile, {@code 0} if no values were recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Invalid percentile: " + percentile);
+        }
+        // Takes a snapshot to have a consistent view while iterating.
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulative += snapshot[i];
+            if (cumulative >= target) {
+                return highestEquivalentValue(i);
+            }
+        }
+        return highestEquivalentValue(BUCKET_COUNT - 1);
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR_BOUND) {
+            return value < 0 ? 0 : (int) value;
+        }
+        long v = Math.min(value, MAX_TRACKABLE_VALUE);
+        int exponent = 63 - Long.numberOfLeadingZeros(v);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int sub = (int) (v >>> shift) - SUB_BUCKET_COUNT;
+        return LINEAR_BOUND + (exponent - LINEAR_BOUND_EXPONENT) * SUB_BUCKET_COUNT + sub;
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < LINEAR_BOUND) {
+            return index;
+        }
+        int exponent = (index - LINEAR_BOUND) / SUB_BUCKET_COUNT + LINEAR_BOUND_EXPONENT;
+        int sub = (index - LINEAR_BOUND) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (((long) sub + 1) << shift) - 1;
+    }
+}
@@ -26,6 +26,8 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Executor Service exposed as a service to execute tasks. This interface
@@ -52,7 +54,35 @@ public interface ManagedExecutorService extends ListeningExecutorService {
      */
     enum ThreadType {
         POOLED,
-        DAEMON
+        DAEMON,
+        /**
+         * Runs each task on a virtual thread. Virtual threads are only available on recent JVMs, on older JVMs
+         * executors fall back to {@link #POOLED} threads. Schedulers do not support this type and use
+         * {@link #POOLED} threads.
+         */
+        VIRTUAL
+    }
+
+    /**
+     * The policy applied when a task is submitted to an executor that cannot accept it (because its queue is full,
+     * or because it has been shut down).
+     */
+    enum RejectionPolicy {
+        /**
+         * The returned future is completed immediately with a
+         * {@link RejectedExecutionException}.
+         */
+        ABORT,
+        /**
+         * The task is executed in the thread having submitted it. Be aware that it blocks the caller, so it should
+         * not be used for executors receiving tasks from event loops.
+         */
+        CALLER_RUNS,
+        /**
+         * The oldest task waiting in the queue is cancelled, and the submitted task is queued instead. When no task is
+         * waiting (empty or synchronous queue), the submitted task is rejected as with {@link #ABORT}.
+         */
+        DISCARD_OLDEST
     }
 
     /**
@@ -72,8 +102,8 @@ public interface ManagedExecutorService extends ListeningExecutorService {
      *
      * @param task the task
      * @return a {@code ManagedFutureTask} representing pending completion of
-     * the task
-     * @throws RejectedExecutionException when the pool cannot accept the task.
+     * the task. It fails with a {@link RejectedExecutionException} when the pool cannot accept the task (depending
+     * on the configured {@link RejectionPolicy}).
      */
     @Override
     <T> ManagedFutureTask<T> submit(Callable<T> task);
@@ -83,16 +113,15 @@ public interface ManagedExecutorService extends ListeningExecutorService {
      *
      * @param task the task
      * @return a {@code ManagedFutureTask} representing pending completion of
-     * the task
-     * @throws RejectedExecutionException when the pool cannot accept the task.
+     * the task. It fails with a {@link RejectedExecutionException} when the pool cannot accept the task (depending
+     * on the configured {@link RejectionPolicy}).
      */
     @Override
-    ManagedFutureTask submit(Runnable task)
-            throws RejectedExecutionException;
+    ManagedFutureTask submit(Runnable task);
 
     /**
-     * Submits a task. Submission may throws a {@link RejectedExecutionException} is the underlying executor is not
-     * able to accept the task.
+     * Submits a task. If the underlying executor is not able to accept the task, the returned future fails with a
+     * {@link RejectedExecutionException} (depending on the configured {@link RejectionPolicy}).
      *
      * @param task   the task
      * @param result the result to return on task completion
@@ -182,19 +211,61 @@ public interface ManagedExecutorService extends ListeningExecutorService {
     public long getTaskCount();
 
     /**
+     * Gets the number of tasks that have not been executed because the executor was saturated. It includes the
+     * tasks rejected on submission, the tasks discarded from the queue and the tasks having waited in the queue
+     * longer than the configured queue timeout.
+     *
+     * @return the number of rejected tasks.
+     */
+    public long getRejectedTaskCount();
+
+    /**
+     * Gets the statistics about the execution time of the tasks, i.e. the time between the start and the completion
+     * of the tasks, since the creation of the executor.
+     *
      * @return the execution statistics.
      */
     public ExecutionStatistics getExecutionTimeStatistics();
 
     /**
-     * Represents execution statistics of a thread pool.
+     * Gets the statistics about the time spent by the tasks in the queue, i.e. the time between the submission and
+     * the start of the tasks, since the creation of the executor.
+     *
+     * @return the queue time statistics.
+     */
+    public ExecutionStatistics getQueueTimeStatistics();
+
+    /**
+     * Gets the statistics about the execution time of the tasks having completed recently (the window size depends
+     * on the executor configuration).
+     *
+     * @return the execution statistics of the tasks completed recently.
+     */
+    public ExecutionStatistics getRecentExecutionTimeStatistics();
+
+    /**
+     * Gets the statistics about the time spent in the queue by the tasks having completed recently (the window size
+     * depends on the executor configuration).
+     *
+     * @return the queue time statistics of the tasks completed recently.
+     */
+    public ExecutionStatistics getRecentQueueTimeStatistics();
+
+    /**
+     * Represents execution statistics of a thread pool. Statistics are recorded without locking, so
+     * they can be updated concurrently by all the threads of the pool. Consequently, reads performed while values
+     * are being recorded are approximations.
+     * <p>
+     * In addition to the count, sum, minimum and maximum, the recorded values are stored in a {@link Histogram} to
+     * compute percentiles.
      */
     public static class ExecutionStatistics {
 
-        private long count;
-        private long sum;
-        private long min = Long.MAX_VALUE;
-        private long max = Long.MIN_VALUE;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+        private final Histogram histogram = new Histogram();
 
         /**
          * Records a new {@code int} value into the statistics.
@@ -210,11 +281,12 @@ public interface ManagedExecutorService extends ListeningExecutorService {
          *
          * @param value the input value
          */
-        public synchronized void accept(long value) {
-            ++count;
-            sum += value;
-            min = Math.min(min, value);
-            max = Math.max(max, value);
+        public void accept(long value) {
+            count.increment();
+            sum.add(value);
+            min.accumulate(value);
+            max.accumulate(value);
+            histogram.record(value);
         }
 
         /**
@@ -224,11 +296,12 @@ public interface ManagedExecutorService extends ListeningExecutorService {
          * @param other another {@code ExecutionStatistics}
          * @throws NullPointerException if {@code other} is null
          */
-        public synchronized void combine(final ExecutionStatistics other) {
-            count += other.getCount();
-            sum += other.getTotalExecutionTime();
-            min = Math.min(min, other.getMinimumExecutionTime());
-            max = Math.max(max, other.getMaximumExecutionTime());
+        public void combine(final ExecutionStatistics other) {
+            count.add(other.getCount());
+            sum.add(other.getTotalExecutionTime());
+            min.accumulate(other.getMinimumExecutionTime());
+            max.accumulate(other.getMaximumExecutionTime());
+            histogram.add(other.histogram);
         }
 
         /**
@@ -236,7 +309,7 @@ public interface ManagedExecutorService extends ListeningExecutorService {
          *
          * @return the copied object
          */
-        public synchronized ExecutionStatistics copy() {
+        public ExecutionStatistics copy() {
             ExecutionStatistics statistics = new ExecutionStatistics();
             statistics.combine(this);
             return statistics;
@@ -247,8 +320,8 @@ public interface ManagedExecutorService extends ListeningExecutorService {
          *
          * @return the count of values
          */
-        public final synchronized long getCount() {
-            return count;
+        public final long getCount() {
+            return count.sum();
         }
 
         /**
@@ -256,7 +329,7 @@ public interface ManagedExecutorService extends ListeningExecutorService {
          *
          * @return the number of tasks
          */
-        public final synchronized long getNumberOfTasks() {
+        public final long getNumberOfTasks() {
             return getCount();
         }
 
@@ -266,8 +339,8 @@ public interface ManagedExecutorService extends ListeningExecutorService {
          *
          * @return the sum of values, or zero if none
          */
-        public final synchronized long getTotalExecutionTime() {
-            return sum;
+        public final long getTotalExecutionTime() {
+            return sum.sum();
         }
 
         /**
@@ -276,8 +349,8 @@ public interface ManagedExecutorService extends ListeningExecutorService {
          *
          * @return the minimum value, or {@code Long.MAX_VALUE} if none
          */
-        public final synchronized long getMinimumExecutionTime() {
-            return min;
+        public final long getMinimumExecutionTime() {
+            return min.get();
         }
 
         /**
@@ -286,8 +359,8 @@ public interface ManagedExecutorService extends ListeningExecutorService {
          *
          * @return the maximum value, or {@code Long.MIN_VALUE} if none
          */
-        public final synchronized long getMaximumExecutionTime() {
-            return max;
+        public final long getMaximumExecutionTime() {
+            return max.get();
         }
 
         /**
@@ -296,8 +369,49 @@ public interface ManagedExecutorService extends ListeningExecutorService {
          *
          * @return The arithmetic mean of values, or zero if none
          */
-        public final synchronized double getAverageExecutionTime() {
-            return getCount() > 0 ? (double) getTotalExecutionTime() / getNumberOfTasks() : 0.0d;
+        public final double getAverageExecutionTime() {
+            long c = getCount();
+            return c > 0 ? (double) getTotalExecutionTime() / c : 0.0d;
+        }
+
+        /**
+         * Returns the value at the given percentile, or zero if no values have been recorded. As values are stored
+         * in a {@link Histogram}, the returned value is an approximation (by excess) of the real value.
+         *
+         * @param percentile the percentile, between {@code 0} and {@code 100}
+         * @return the value at the given percentile
+         */
+        public final long getPercentile(double percentile) {
+            long value = histogram.getValueAtPercentile(percentile);
+            return getCount() > 0 ? Math.min(value, getMaximumExecutionTime()) : value;
+        }
+
+        /**
+         * @return the median (50th percentile) of the recorded values
+         */
+        public final long getMedian() {
+            return getPercentile(50.0);
+        }
+
+        /**
+         * @return the 90th percentile of the recorded values
+         */
+        public final long get90thPercentile() {
+            return getPercentile(90.0);
+        }
+
+        /**
+         * @return the 99th percentile of the recorded values
+         */
+        public final long get99thPercentile() {
+            return getPercentile(99.0);
+        }
+
+        /**
+         * @return the 99.9th percentile of the recorded values
+         */
+        public final long get999thPercentile() {
+            return getPercentile(99.9);
         }
 
         @Override
@@ -308,15 +422,19 @@ public interface ManagedExecutorService extends ListeningExecutorService {
          * debugging. The exact presentation format is unspecified and may vary
          * between implementations and versions.
          */
-        public synchronized String toString() {
+        public String toString() {
             return String.format(
-                    "%s{count=%d, sum=%d, min=%d, average=%f, max=%d}",
+                    "%s{count=%d, sum=%d, min=%d, average=%f, max=%d, p50=%d, p90=%d, p99=%d, p999=%d}",
                     this.getClass().getSimpleName(),
                     getCount(),
                     getTotalExecutionTime(),
                     getMinimumExecutionTime(),
                     getAverageExecutionTime(),
-                    getMaximumExecutionTime());
+                    getMaximumExecutionTime(),
+                    getMedian(),
+                    get90thPercentile(),
+                    get99thPercentile(),
+                    get999thPercentile());
         }
 
     }
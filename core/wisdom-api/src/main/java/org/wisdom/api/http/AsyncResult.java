@@ -20,19 +20,35 @@
 package org.wisdom.api.http;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
 
 /**
  * An extension of result instructing the engine to render the result asynchronously. That means that the result
  * computation is delegated to another thread (and not the request thread), and is written and sent to the client
  * when the computation is completed.
+ * <p>
+ * The result is either computed by a {@link Callable} executed by the engine, or provided by a
+ * {@link CompletionStage} (for instance when using non-blocking APIs). In the latter case, no thread waits for the
+ * result, the response is written when the stage completes.
  */
 public class AsyncResult extends Result {
 
     /**
-     * The callable computing the result.
+     * The callable computing the result, {@literal null} if the result is provided by a stage.
      */
     private final Callable<Result> callable;
 
+    /**
+     * The stage providing the result, {@literal null} if the result is computed by a callable.
+     */
+    private final CompletionStage<Result> stage;
+
+    /**
+     * The timeout in milliseconds, 0 if none.
+     */
+    private long timeout;
+
     /**
      * Creates a new asynchronous result.
      *
@@ -41,12 +57,50 @@ public class AsyncResult extends Result {
      */
     public AsyncResult(Callable<Result> callable) {
         this.callable = callable;
+        this.stage = null;
     }
 
     /**
-     * @return the callable.
+     * Creates a new asynchronous result provided by a completion stage.
+     *
+     * @param stage the stage providing the result. This stage must not be {@literal null}.
+     */
+    public AsyncResult(CompletionStage<Result> stage) {
+        this.callable = null;
+        this.stage = stage;
+    }
+
+    /**
+     * @return the callable, {@literal null} if the result is provided by a stage.
      */
     public Callable<Result> callable() {
         return callable;
     }
+
+    /**
+     * @return the stage, {@literal null} if the result is computed by a callable.
+     */
+    public CompletionStage<Result> stage() {
+        return stage;
+    }
+
+    /**
+     * Sets the amount of time to wait for a result provided by a stage. If this amount is reached, a
+     * {@literal 504 - Gateway Timeout} result is returned to the client.
+     *
+     * @param duration the duration, 0 to wait forever
+     * @param unit     the time unit
+     * @return the current async result
+     */
+    public AsyncResult timeout(long duration, TimeUnit unit) {
+        this.timeout = unit.toMillis(duration);
+        return this;
+    }
+
+    /**
+     * @return the timeout in milliseconds, 0 if none.
+     */
+    public long getTimeout() {
+        return timeout;
+    }
 }
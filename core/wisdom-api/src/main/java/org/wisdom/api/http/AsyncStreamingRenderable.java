@@ -0,0 +1,46 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.api.http;
+
+/**
+ * A renderable object whose content is produced asynchronously, for instance while being received from another
+ * server. Engines supporting it call {@link #write(Context, Result, ResponseSink)} once the response is ready to be
+ * sent, and the content is pushed to the given sink as it becomes available. No thread waits for the content, and
+ * the producer is told to slow down when the client does not read the response fast enough.
+ * <p>
+ * The response is sent with the chunked transfer encoding, unless the {@literal Content-Length} header is set on the
+ * result. Engines may still call {@link #render(Context, Result)}, that may not be supported.
+ *
+ * @param <T> the type of content.
+ */
+public interface AsyncStreamingRenderable<T> extends Renderable<T> {
+
+    /**
+     * Starts writing the content to the given sink. This method must not block: the content is written to the sink
+     * (from any thread) as it becomes available, until {@link ResponseSink#end()} or
+     * {@link ResponseSink#fail(Throwable)} is called.
+     *
+     * @param context the HTTP context
+     * @param result  the result having built this renderable object
+     * @param sink    the sink sending the content to the client
+     * @throws RenderableException if the content cannot be written
+     */
+    void write(Context context, Result result, ResponseSink sink) throws RenderableException;
+}
@@ -0,0 +1,181 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.api.http;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A range of bytes, as requested using the {@literal Range} header. The positions are inclusive and resolved against
+ * the length of the content (suffix and open-ended ranges are converted to absolute positions).
+ *
+ * @see <a href="https://tools.ietf.org/html/rfc7233">RFC 7233 - Range Requests</a>
+ */
+public final class ByteRange {
+
+    /**
+     * The maximum number of ranges accepted in a single request. Requests with more ranges are served with the
+     * whole content.
+     */
+    public static final int MAX_RANGES = 16;
+
+    private static final String BYTES_UNIT = "bytes";
+
+    private final long start;
+
+    private final long end;
+
+    /**
+     * Creates a new range.
+     *
+     * @param start the position of the first byte
+     * @param end   the position of the last byte (inclusive)
+     */
+    public ByteRange(long start, long end) {
+        if (start < 0 || end < start) {
+            throw new IllegalArgumentException("Invalid range " + start + "-" + end);
+        }
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * @return the position of the first byte.
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * @return the position of the last byte (inclusive).
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * @return the number of bytes of the range.
+     */
+    public long length() {
+        return end - start + 1;
+    }
+
+    /**
+     * Gets the value of the {@literal Content-Range} header for this range.
+     *
+     * @param total the length of the complete content
+     * @return the header value, such as {@literal bytes 0-499/1234}
+     */
+    public String toContentRange(long total) {
+        return BYTES_UNIT + " " + start + "-" + end + "/" + total;
+    }
+
+    /**
+     * Gets the value of the {@literal Content-Range} header sent with a {@literal 416 - Requested Range Not
+     * Satisfiable} response.
+     *
+     * @param total the length of the complete content
+     * @return the header value, such as {@literal bytes *&#47;1234}
+     */
+    public static String toUnsatisfiedContentRange(long total) {
+        return BYTES_UNIT + " */" + total;
+    }
+
+    /**
+     * Parses the value of a {@literal Range} header.
+     *
+     * @param header the header value, may be {@code null}
+     * @param length the length of the content
+     * @return the ranges, in the requested order. {@code null} is returned if the header is not set, cannot be
+     * parsed, or contains too many ranges: in this case, the header must be ignored and the whole content sent. An
+     * empty list is returned if none of the ranges are satisfiable.
+     */
+    public static List<ByteRange> parse(String header, long length) {
+        if (header == null || length < 0) {
+            return null;
+        }
+        String value = header.trim();
+        if (!value.regionMatches(true, 0, BYTES_UNIT + "=", 0, BYTES_UNIT.length() + 1)) {
+            // Unknown unit.
+            return null;
+        }
+        String[] specs = value.substring(BYTES_UNIT.length() + 1).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+        List<ByteRange> ranges = new ArrayList<>(specs.length);
+        for (String spec : specs) {
+            spec = spec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            try {
+                if (first.isEmpty()) {
+                    // Suffix range: the last n bytes.
+                    long suffix = Long.parseLong(last);
+                    if (suffix < 0) {
+                        return null;
+                    }
+                    if (suffix > 0 && length > 0) {
+                        ranges.add(new ByteRange(Math.max(0, length - suffix), length - 1));
+                    }
+                } else {
+                    long start = Long.parseLong(first);
+                    long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+                    if (start < 0 || end < start) {
+                        return null;
+                    }
+                    if (start < length) {
+                        ranges.add(new ByteRange(start, Math.min(end, length - 1)));
+                    }
+                }
+            } catch (NumberFormatException e) { //NOSONAR
+                return null;
+            }
+        }
+        return ranges.isEmpty() ? Collections.<ByteRange>emptyList() : ranges;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ByteRange that = (ByteRange) o;
+        return start == that.start && end == that.end;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(start) + Long.hashCode(end);
+    }
+
+    @Override
+    public String toString() {
+        return start + "-" + end;
+    }
+}
@@ -67,6 +67,8 @@ public interface HeaderNames {
     String REFERER = "Referer";
     String RETRY_AFTER = "Retry-After";
     String SERVER = "Server";
+    String SERVER_TIMING = "Server-Timing";
+    String TRACEPARENT = "traceparent";
     String SET_COOKIE = "Set-Cookie";
     String SET_COOKIE2 = "Set-Cookie2";
     String TE = "Te";
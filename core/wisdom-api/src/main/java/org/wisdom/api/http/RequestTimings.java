@@ -0,0 +1,279 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.api.http;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Records the time spent by a request in each phase of its processing (routing, filters, argument binding,
+ * validation, action, serialization and write). The engine attaches an instance to the request data when the
+ * {@literal request.timings} property is enabled, and completes it once the response is written. When disabled, no
+ * instance is attached, and the participants only check whether {@link #of(Context)} returns {@code null}.
+ * <p>
+ * A request being processed by one thread at a time (even when the processing moves from a thread to another), this
+ * class is not thread-safe.
+ */
+public final class RequestTimings {
+
+    /**
+     * The key under which the instance is stored in the request data.
+     */
+    public static final String KEY = RequestTimings.class.getName();
+
+    /**
+     * The phases of the request processing.
+     */
+    public enum Phase {
+        /**
+         * Selection of the route.
+         */
+        ROUTING("routing"),
+        /**
+         * Filters and interceptors (excluding the time spent in the rest of the chain).
+         */
+        FILTERS("filters"),
+        /**
+         * Computation of the action arguments.
+         */
+        BINDING("binding"),
+        /**
+         * Validation of the action arguments.
+         */
+        VALIDATION("validation"),
+        /**
+         * Invocation of the action method.
+         */
+        ACTION("action"),
+        /**
+         * Rendering and serialization of the result.
+         */
+        SERIALIZATION("serialization"),
+        /**
+         * Writing of the response.
+         */
+        WRITE("write");
+
+        private final String name;
+
+        Phase(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return the name of the phase, used in metric names and in the {@literal Server-Timing} header.
+         */
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final long[] durations = new long[PHASES.length];
+
+    private final long[] starts = new long[PHASES.length];
+
+    private final Map<String, Long> filters = new LinkedHashMap<>();
+
+    private final List<Consumer<RequestTimings>> listeners = new ArrayList<>();
+
+    private final long start = System.nanoTime();
+
+    private long end;
+
+    /**
+     * Creates an instance and attaches it to the request of the given context.
+     *
+     * @param context the context
+     * @return the created instance
+     */
+    public static RequestTimings attach(Context context) {
+        RequestTimings timings = new RequestTimings();
+        context.request().data().put(KEY, timings);
+        return timings;
+    }
+
+    /**
+     * Gets the instance attached to the request of the given context.
+     *
+     * @param context the context, may be {@code null}
+     * @return the instance, {@code null} if the timings are not recorded for this request
+     */
+    public static RequestTimings of(Context context) {
+        if (context == null || context.request() == null || context.request().data() == null) {
+            return null;
+        }
+        Object timings = context.request().data().get(KEY);
+        return timings instanceof RequestTimings ? (RequestTimings) timings : null;
+    }
+
+    /**
+     * Gets the instance attached to the current request.
+     *
+     * @return the instance, {@code null} if there are no current request, or if the timings are not recorded
+     */
+    public static RequestTimings current() {
+        return of(Context.CONTEXT.get());
+    }
+
+    /**
+     * Adds the time elapsed since the given instant to the given phase.
+     *
+     * @param phase the phase
+     * @param from  the start of the measure, as returned by {@link System#nanoTime()}
+     */
+    public void record(Phase phase, long from) {
+        durations[phase.ordinal()] += System.nanoTime() - from;
+    }
+
+    /**
+     * Starts a phase ending in another method (or another thread), see {@link #end(Phase)}.
+     *
+     * @param phase the phase
+     */
+    public void begin(Phase phase) {
+        starts[phase.ordinal()] = System.nanoTime();
+    }
+
+    /**
+     * Ends a phase started with {@link #begin(Phase)}. Does nothing if the phase has not been started.
+     *
+     * @param phase the phase
+     */
+    public void end(Phase phase) {
+        int index = phase.ordinal();
+        if (starts[index] != 0) {
+            record(phase, starts[index]);
+            starts[index] = 0;
+        }
+    }
+
+    /**
+     * Adds the time spent by a filter or an interceptor. The time is also added to the {@link Phase#FILTERS} phase.
+     *
+     * @param name  the filter name
+     * @param nanos the time spent in the filter itself, in nanoseconds
+     */
+    public void recordFilter(String name, long nanos) {
+        durations[Phase.FILTERS.ordinal()] += nanos;
+        Long current = filters.get(name);
+        filters.put(name, current == null ? nanos : current + nanos);
+    }
+
+    /**
+     * @param phase the phase
+     * @return the time spent in the given phase, in nanoseconds
+     */
+    public long get(Phase phase) {
+        return durations[phase.ordinal()];
+    }
+
+    /**
+     * @return the time spent in each filter and interceptor, in nanoseconds, in the invocation order.
+     */
+    public Map<String, Long> getFilters() {
+        return Collections.unmodifiableMap(filters);
+    }
+
+    /**
+     * @return the time elapsed between the creation of the instance and its completion (or now if not completed),
+     * in nanoseconds.
+     */
+    public long getTotal() {
+        return (end == 0 ? System.nanoTime() : end) - start;
+    }
+
+    /**
+     * @return whether or not the request has been completed
+     */
+    public boolean isCompleted() {
+        return end != 0;
+    }
+
+    /**
+     * Registers a listener notified when the request is completed. If the request is already completed, the
+     * listener is called immediately.
+     *
+     * @param listener the listener
+     */
+    public void onComplete(Consumer<RequestTimings> listener) {
+        if (isCompleted()) {
+            listener.accept(this);
+        } else {
+            listeners.add(listener);
+        }
+    }
+
+    /**
+     * Completes the request: the pending phases are ended, and the listeners are notified. This method is called by
+     * the engine once the response is written. Subsequent calls do nothing.
+     */
+    public void complete() {
+        if (isCompleted()) {
+            return;
+        }
+        for (Phase phase : PHASES) {
+            end(phase);
+        }
+        end = System.nanoTime();
+        for (Consumer<RequestTimings> listener : listeners) {
+            listener.accept(this);
+        }
+        listeners.clear();
+    }
+
+    /**
+     * Computes the value of the {@literal Server-Timing} header, containing the phases recorded so far (the
+     * response being not written yet, the {@literal write} phase is not included) and the time spent in each
+     * filter, in milliseconds:
+     * {@code routing;dur=0.042, filter-SecurityFilter;dur=0.105, binding;dur=0.011, action;dur=3.274}.
+     *
+     * @return the header value
+     */
+    public String toServerTiming() {
+        StringBuilder builder = new StringBuilder();
+        for (Phase phase : PHASES) {
+            if (phase == Phase.FILTERS) {
+                for (Map.Entry<String, Long> entry : filters.entrySet()) {
+                    append(builder, "filter-" + entry.getKey(), entry.getValue());
+                }
+            } else if (durations[phase.ordinal()] != 0) {
+                append(builder, phase.getName(), durations[phase.ordinal()]);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static void append(StringBuilder builder, String name, long nanos) {
+        if (builder.length() > 0) {
+            builder.append(", ");
+        }
+        // Only token characters are allowed in metric names.
+        builder.append(name.replaceAll("[^A-Za-z0-9_\\-.]", "_"))
+                .append(";dur=")
+                .append(String.format(Locale.ENGLISH, "%.3f", nanos / 1000000.0));
+    }
+}
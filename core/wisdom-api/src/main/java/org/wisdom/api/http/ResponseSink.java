@@ -0,0 +1,74 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.api.http;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receives the content of an {@link AsyncStreamingRenderable} and sends it to the client. The methods can be
+ * called from any thread, the engine sending the content from the thread serving the request, in the order of the
+ * calls.
+ */
+public interface ResponseSink {
+
+    /**
+     * Sends a chunk of the content. The buffer must not be modified afterwards.
+     *
+     * @param data the data
+     */
+    void write(ByteBuffer data);
+
+    /**
+     * Checks whether the client is late, i.e. the data written but not yet sent exceeds the engine threshold. In
+     * this case, the producer should stop writing until the callback registered with {@link #onDrain(Runnable)}
+     * is called.
+     *
+     * @return {@code true} if the producer should stop writing
+     */
+    boolean isFull();
+
+    /**
+     * Registers the callback called once the client has read the pending data. The callback is called once.
+     *
+     * @param callback the callback
+     */
+    void onDrain(Runnable callback);
+
+    /**
+     * Registers the callback called when the connection with the client is closed before the end of the content.
+     * Once closed, the written data is discarded.
+     *
+     * @param callback the callback
+     */
+    void onClose(Runnable callback);
+
+    /**
+     * Ends the response.
+     */
+    void end();
+
+    /**
+     * Aborts the response. If nothing has been sent yet, an error response is sent, otherwise the connection is
+     * closed, so the client knows the content is incomplete.
+     *
+     * @param error the error
+     */
+    void fail(Throwable error);
+}
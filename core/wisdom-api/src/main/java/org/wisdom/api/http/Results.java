@@ -28,6 +28,7 @@ import java.io.File;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
 
 
 /**
@@ -491,4 +492,16 @@ public abstract class Results {
         return new AsyncResult(task);
     }
 
+    /**
+     * Creates a new async result from a completion stage. Unlike {@link #async(java.util.concurrent.Callable)},
+     * no thread is used to wait for the result: the response is written when the stage completes (whatever the
+     * thread completing it). It is recommended for action methods relying on non-blocking APIs.
+     *
+     * @param stage the stage providing the result.
+     * @return the async result.
+     */
+    public static AsyncResult async(CompletionStage<Result> stage) {
+        return new AsyncResult(stage);
+    }
+
 }
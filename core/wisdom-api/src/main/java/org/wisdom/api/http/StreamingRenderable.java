@@ -0,0 +1,48 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.api.http;
+
+import java.io.OutputStream;
+
+/**
+ * A renderable object able to write its content progressively. Engines supporting it call
+ * {@link #write(Context, Result, OutputStream)} with a stream sending the bytes to the client as they are written
+ * (with the chunked transfer encoding, as the length is not known in advance), instead of reading the stream
+ * returned by {@link #render(Context, Result)}. So the content is never fully materialized in memory, and the first
+ * bytes are sent before the end of the rendering.
+ * <p>
+ * Engines may still call {@link #render(Context, Result)}, for instance when the response cannot be streamed from
+ * the current thread. The charset of the result is set (to UTF-8 if not set) before calling
+ * {@link #write(Context, Result, OutputStream)}, as the headers may be sent before the end of the rendering.
+ *
+ * @param <T> the type of content.
+ */
+public interface StreamingRenderable<T> extends Renderable<T> {
+
+    /**
+     * Writes the content to the given stream. The stream must not be closed by this method.
+     *
+     * @param context the HTTP context
+     * @param result  the result having built this renderable object
+     * @param out     the stream sending the content to the client
+     * @throws RenderableException if the content cannot be rendered or written
+     */
+    void write(Context context, Result result, OutputStream out) throws RenderableException;
+}
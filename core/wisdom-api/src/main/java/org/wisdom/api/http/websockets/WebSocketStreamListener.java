@@ -0,0 +1,54 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.api.http.websockets;
+
+import java.io.InputStream;
+
+/**
+ * A {@link WebSocketListener} able to receive the messages as streams. Messages sent in several fragments are then
+ * delivered as soon as the first fragment is received, the stream returning the fragments as they arrive. So, large
+ * messages are never held in memory.
+ * <p>
+ * Messages sent in a single frame are still delivered using {@link #received(String, String, byte[])}. A stream can
+ * only be read once, so messages are streamed only when the listener is the only listener of the dispatcher.
+ */
+public interface WebSocketStreamListener extends WebSocketListener {
+
+    /**
+     * Checks whether the fragmented messages received on the web socket identified by its url are delivered as
+     * streams. When {@code false}, the fragments are assembled and the message is delivered using
+     * {@link #received(String, String, byte[])}.
+     *
+     * @param uri the url of the web socket
+     * @return {@code true} if the messages are delivered as streams
+     */
+    boolean isStreaming(String uri);
+
+    /**
+     * Callback invoked when the first fragment of a message is received on the web socket identified by its url.
+     * Reading the stream blocks until the next fragments are received, so it must not be read by the calling
+     * thread. The reception of the next messages of the client is suspended until the stream is read or closed.
+     *
+     * @param uri     the url of the web socket
+     * @param client  the client id
+     * @param content the received content, ending with the last fragment of the message
+     */
+    void received(String uri, String client, InputStream content);
+}
@@ -21,9 +21,11 @@ package org.wisdom.api.interception;
 
 import org.wisdom.api.http.Context;
 import org.wisdom.api.http.Request;
+import org.wisdom.api.http.RequestTimings;
 import org.wisdom.api.http.Result;
 import org.wisdom.api.http.Results;
 import org.wisdom.api.router.Route;
+import org.wisdom.api.router.RouteUtils;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
@@ -60,6 +62,22 @@ public class RequestContext {
      */
     private ListIterator<Filter> iterator;
 
+    /**
+     * The filter calling the action method.
+     */
+    private final Filter endOfChain;
+
+    /**
+     * The timings of the request, {@code null} if not recorded.
+     */
+    private RequestTimings timings;
+
+    /**
+     * The time spent in the part of the chain called by the current filter, in nanoseconds. Only used when the
+     * timings are recorded.
+     */
+    private long downstream;
+
     /**
      * Creates a new Interception Context. Instances should only be created by the router.
      *
@@ -83,6 +101,7 @@ public class RequestContext {
             endOfChainInvoker = new ActionInvoker();
         }
         this.chain.add(endOfChainInvoker);
+        this.endOfChain = endOfChainInvoker;
     }
 
     /**
@@ -116,12 +135,34 @@ public class RequestContext {
     public Result proceed() throws Exception {
         if (iterator == null) {
             iterator = chain.listIterator();
+            timings = RequestTimings.of(Context.CONTEXT.get());
         }
         if (!iterator.hasNext()) {
             throw new IllegalStateException("Reached the end of the chain without result.");
         }
         Filter filter = iterator.next();
-        return filter.call(route, this);
+        if (timings == null) {
+            return filter.call(route, this);
+        }
+
+        // Record the time spent in the filter itself, excluding the rest of the chain.
+        long outer = downstream;
+        downstream = 0;
+        long start = System.nanoTime();
+        try {
+            return filter.call(route, this);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            if (filter != endOfChain) {
+                timings.recordFilter(getName(filter), elapsed - downstream);
+            }
+            downstream = outer + elapsed;
+        }
+    }
+
+    private static String getName(Filter filter) {
+        String name = filter.getClass().getSimpleName();
+        return name.isEmpty() ? filter.getClass().getName() : name;
     }
 
     /**
@@ -177,8 +218,15 @@ public class RequestContext {
             if (RequestContext.this.route.isUnbound()) {
                 return Results.notFound();
             } else {
-                return (Result) RequestContext.this.route.getControllerMethod().invoke(
-                        RequestContext.this.route.getControllerObject(), parameters);
+                long start = System.nanoTime();
+                try {
+                    return RouteUtils.toResult(RequestContext.this.route.getControllerMethod().invoke(
+                            RequestContext.this.route.getControllerObject(), parameters));
+                } finally {
+                    if (timings != null) {
+                        timings.record(RequestTimings.Phase.ACTION, start);
+                    }
+                }
             }
         }
 
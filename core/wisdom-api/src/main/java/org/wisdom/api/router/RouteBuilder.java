@@ -25,6 +25,7 @@ import org.wisdom.api.http.HttpMethod;
 import org.wisdom.api.http.Result;
 
 import java.lang.reflect.Method;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Builder object to create routes.
@@ -107,9 +108,10 @@ public class RouteBuilder {
         Preconditions.checkNotNull(method);
         this.controller = controller;
         this.controllerMethod = method;
-        if (!method.getReturnType().isAssignableFrom(Result.class)) {
+        if (!isValidReturnType(method.getReturnType())) {
             throw new IllegalArgumentException(ERROR_CTRL + method + ERROR_IN + controller
-                    .getClass() + "`, or the method does not return a " + Result.class.getName() + " object");
+                    .getClass() + "`, or the method does not return a " + Result.class.getName() + " or a "
+                    + CompletionStage.class.getName() + " object");
         }
         return _build();
     }
@@ -162,12 +164,24 @@ public class RouteBuilder {
 
         // make sure that the return type of that controller method
         // is of type Result.
-        if (methodFromQueryingClass.getReturnType().isAssignableFrom(Result.class)) {
+        if (isValidReturnType(methodFromQueryingClass.getReturnType())) {
             return methodFromQueryingClass;
         } else {
             throw new NoSuchMethodException("The method " + controllerMethod + " is declared in " + controller
-                    .getName() + " but does not return a " + Result.class.getName() + " object.");
+                    .getName() + " but does not return a " + Result.class.getName() + " or a "
+                    + CompletionStage.class.getName() + " object.");
         }
     }
 
+    /**
+     * Checks whether the given type can be returned by an action method. Action methods return either a
+     * {@link Result} or a {@link CompletionStage} providing the result.
+     *
+     * @param type the return type of the method
+     * @return {@literal true} if the type is valid
+     */
+    private static boolean isValidReturnType(Class<?> type) {
+        return type.isAssignableFrom(Result.class) || CompletionStage.class.isAssignableFrom(type);
+    }
+
 }
@@ -21,6 +21,8 @@ package org.wisdom.api.router;
 
 import org.wisdom.api.Controller;
 import org.wisdom.api.annotations.Path;
+import org.wisdom.api.http.AsyncResult;
+import org.wisdom.api.http.Result;
 import org.wisdom.api.router.parameters.ActionParameter;
 
 import java.lang.annotation.Annotation;
@@ -28,6 +30,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletionStage;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -256,4 +259,18 @@ public class RouteUtils {
         }
     }
 
+    /**
+     * Converts the object returned by an action method to a result. Action methods return either a {@link Result},
+     * or a {@link CompletionStage} providing the result, wrapped into an {@link AsyncResult}.
+     *
+     * @param returned the object returned by the action method
+     * @return the result
+     */
+    @SuppressWarnings("unchecked")
+    public static Result toResult(Object returned) {
+        if (returned instanceof CompletionStage) {
+            return new AsyncResult((CompletionStage<Result>) returned);
+        }
+        return (Result) returned;
+    }
 }
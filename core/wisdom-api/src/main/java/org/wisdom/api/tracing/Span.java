@@ -0,0 +1,263 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.api.tracing;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A timed operation of a {@link Trace}, such as the invocation of an action, the rendering of a template or a call
+ * to another server. Spans form a tree: each span, except the root of the trace, has a parent.
+ * <p>
+ * Spans are created with {@link Tracing#start(String)} or {@link Tracing#child(String)}. When the current thread
+ * is not processing a traced request, these methods return {@link #NOOP}, whose methods do nothing, so the callers
+ * do not have to check whether the request is traced.
+ */
+public final class Span {
+
+    /**
+     * The span returned when the request is not traced. All its methods do nothing.
+     */
+    public static final Span NOOP = new Span(null, null, null, "noop");
+
+    private final Trace trace;
+
+    private final String id;
+
+    private final String parentId;
+
+    private final String name;
+
+    private final long startTime = System.currentTimeMillis();
+
+    private final long start = System.nanoTime();
+
+    private final Map<String, String> tags = Collections.synchronizedMap(new LinkedHashMap<>(4));
+
+    private volatile long duration = -1;
+
+    private volatile String error;
+
+    /**
+     * The current span of the thread when this span was activated, {@code null} if not activated.
+     */
+    private Span previous;
+
+    private boolean active;
+
+    Span(Trace trace, String id, String parentId, String name) {
+        this.trace = trace;
+        this.id = id;
+        this.parentId = parentId;
+        this.name = name;
+    }
+
+    /**
+     * Creates a child span, not activated (see {@link Tracing#start(Span, String)}).
+     *
+     * @param name the name of the child
+     * @return the child, {@link #NOOP} if this span is {@link #NOOP}
+     */
+    public Span child(String name) {
+        if (trace == null) {
+            return NOOP;
+        }
+        Span span = new Span(trace, newId(), id, name);
+        trace.add(span);
+        return span;
+    }
+
+    /**
+     * Makes this span the current span of the calling thread, until {@link #finish()} is called (from the same
+     * thread).
+     */
+    void activate() {
+        previous = Tracing.CURRENT.get();
+        active = true;
+        Tracing.CURRENT.set(this);
+    }
+
+    /**
+     * Adds a tag to the span.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the current span
+     */
+    public Span tag(String key, String value) {
+        if (trace != null && value != null) {
+            tags.put(key, value);
+        }
+        return this;
+    }
+
+    /**
+     * Marks the span as failed.
+     *
+     * @param failure the failure
+     * @return the current span
+     */
+    public Span fail(Throwable failure) {
+        return fail(failure.getClass().getName() + ": " + failure.getMessage());
+    }
+
+    /**
+     * Marks the span as failed.
+     *
+     * @param message the error message
+     * @return the current span
+     */
+    public Span fail(String message) {
+        if (trace != null) {
+            error = message;
+        }
+        return this;
+    }
+
+    /**
+     * Ends the span. If the span is the current span of the calling thread, the previous current span is restored.
+     * Subsequent calls do nothing.
+     */
+    public void finish() {
+        if (trace == null || duration != -1) {
+            return;
+        }
+        duration = System.nanoTime() - start;
+        if (active && Tracing.CURRENT.get() == this) {
+            if (previous == null) {
+                Tracing.CURRENT.remove();
+            } else {
+                Tracing.CURRENT.set(previous);
+            }
+            previous = null;
+        }
+    }
+
+    /**
+     * Computes the value of the {@literal traceparent} header (see the W3C Trace Context specification) identifying
+     * this span as the parent of the operations executed by another server.
+     *
+     * @return the header value, {@code null} if this span is {@link #NOOP}
+     */
+    public String toTraceParent() {
+        if (trace == null) {
+            return null;
+        }
+        return "00-" + trace.getId() + "-" + id + (trace.isSampled() ? "-01" : "-00");
+    }
+
+    /**
+     * @return whether or not the span is recorded, {@code false} for {@link #NOOP}.
+     */
+    public boolean isRecording() {
+        return trace != null;
+    }
+
+    /**
+     * @return the trace, {@code null} for {@link #NOOP}.
+     */
+    public Trace getTrace() {
+        return trace;
+    }
+
+    /**
+     * @return the span id (16 hexadecimal characters).
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the id of the parent span, {@code null} for the root of a trace not started by another server.
+     */
+    public String getParentId() {
+        return parentId;
+    }
+
+    /**
+     * @return the name of the span.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the time at which the span has started, in milliseconds since the epoch.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return the offset of the span from the start of the trace, in nanoseconds.
+     */
+    public long getOffset() {
+        return trace == null ? 0 : start - trace.getRoot().start;
+    }
+
+    /**
+     * @return the duration in nanoseconds, {@literal -1} if the span is not finished.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return whether or not the span is finished.
+     */
+    public boolean isFinished() {
+        return duration != -1;
+    }
+
+    /**
+     * @return the error message, {@code null} if the span has not failed.
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return a copy of the tags.
+     */
+    public Map<String, String> getTags() {
+        synchronized (tags) {
+            return new LinkedHashMap<>(tags);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + id + ")";
+    }
+
+    /**
+     * @return a new random span id.
+     */
+    static String newId() {
+        return hex(ThreadLocalRandom.current().nextLong());
+    }
+
+    static String hex(long value) {
+        String hex = Long.toHexString(value);
+        return hex.length() == 16 ? hex : "0000000000000000".substring(hex.length()) + hex;
+    }
+}
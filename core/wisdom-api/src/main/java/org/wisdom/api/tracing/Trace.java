@@ -0,0 +1,328 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.api.tracing;
+
+import org.wisdom.api.http.Context;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The trace of a request: the tree of the {@link Span}s recorded while processing it, from the reception of the
+ * request to the end of the response. The engine attaches the trace to the request data, and finishes it once the
+ * response is written.
+ * <p>
+ * Traces are identified by a 32 hexadecimal characters id. When the request contains a {@literal traceparent}
+ * header (see the W3C Trace Context specification), the trace reuses its id, and the root span has the span of the
+ * caller as parent, so the traces of the different servers can be correlated. The sampled flag sent to the other
+ * servers is set when the caller has set it, or when this server records the trace.
+ * <p>
+ * Spans can be added from any thread: they are stored in a lock-free queue.
+ */
+public final class Trace {
+
+    /**
+     * The key under which the trace is stored in the request data.
+     */
+    public static final String KEY = Trace.class.getName();
+
+    private static final Pattern TRACE_PARENT = Pattern.compile("00-([0-9a-f]{32})-([0-9a-f]{16})-([0-9a-f]{2})");
+
+    private static final String INVALID_TRACE_ID = "00000000000000000000000000000000";
+
+    private static final String INVALID_SPAN_ID = "0000000000000000";
+
+    private final String id;
+
+    private final boolean parentSampled;
+
+    private final boolean sampled;
+
+    private final Span root;
+
+    private final Queue<Span> spans = new ConcurrentLinkedQueue<>();
+
+    private final List<Consumer<Trace>> listeners = new ArrayList<>();
+
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    /**
+     * The number of spans, used to detect that the {@link #index} is outdated.
+     */
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * The children of the spans, built on demand by {@link #getChildren(Span)}.
+     */
+    private volatile Index index;
+
+    /**
+     * Creates a trace that is not recorded locally: the sampled flag is only set if the caller has set it.
+     *
+     * @param name        the name of the root span
+     * @param traceParent the value of the {@literal traceparent} header of the request, {@code null} if none
+     */
+    public Trace(String name, String traceParent) {
+        this(name, traceParent, false);
+    }
+
+    /**
+     * Creates a trace.
+     *
+     * @param name        the name of the root span
+     * @param traceParent the value of the {@literal traceparent} header of the request, {@code null} if none
+     * @param recorded    whether or not this server records the trace, setting the sampled flag
+     */
+    public Trace(String name, String traceParent, boolean recorded) {
+        Matcher matcher = parse(traceParent);
+        if (matcher != null) {
+            this.id = matcher.group(1);
+            this.parentSampled = isSampled(matcher);
+            this.root = new Span(this, Span.newId(), matcher.group(2), name);
+        } else {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            this.id = Span.hex(random.nextLong()) + Span.hex(random.nextLong());
+            this.parentSampled = false;
+            this.root = new Span(this, Span.newId(), null, name);
+        }
+        this.sampled = parentSampled || recorded;
+        add(root);
+    }
+
+    private static Matcher parse(String traceParent) {
+        Matcher matcher = traceParent == null ? null : TRACE_PARENT.matcher(traceParent.trim());
+        if (matcher != null && matcher.matches()
+                && !INVALID_TRACE_ID.equals(matcher.group(1)) && !INVALID_SPAN_ID.equals(matcher.group(2))) {
+            return matcher;
+        }
+        return null;
+    }
+
+    private static boolean isSampled(Matcher matcher) {
+        return (Integer.parseInt(matcher.group(3), 16) & 1) == 1;
+    }
+
+    /**
+     * Checks whether the caller has asked for the request to be recorded.
+     *
+     * @param traceParent the value of the {@literal traceparent} header of the request, {@code null} if none
+     * @return {@code true} if the header is valid and its sampled flag is set
+     */
+    public static boolean isSampled(String traceParent) {
+        Matcher matcher = parse(traceParent);
+        return matcher != null && isSampled(matcher);
+    }
+
+    /**
+     * Creates a trace and attaches it to the request of the given context.
+     *
+     * @param context     the context
+     * @param name        the name of the root span
+     * @param traceParent the value of the {@literal traceparent} header of the request, {@code null} if none
+     * @return the trace
+     */
+    public static Trace attach(Context context, String name, String traceParent) {
+        return attach(context, name, traceParent, false);
+    }
+
+    /**
+     * Creates a trace and attaches it to the request of the given context.
+     *
+     * @param context     the context
+     * @param name        the name of the root span
+     * @param traceParent the value of the {@literal traceparent} header of the request, {@code null} if none
+     * @param recorded    whether or not this server records the trace, setting the sampled flag
+     * @return the trace
+     */
+    public static Trace attach(Context context, String name, String traceParent, boolean recorded) {
+        Trace trace = new Trace(name, traceParent, recorded);
+        context.request().data().put(KEY, trace);
+        return trace;
+    }
+
+    /**
+     * Gets the trace attached to the request of the given context.
+     *
+     * @param context the context, may be {@code null}
+     * @return the trace, {@code null} if the request is not traced
+     */
+    public static Trace of(Context context) {
+        if (context == null || context.request() == null || context.request().data() == null) {
+            return null;
+        }
+        Object trace = context.request().data().get(KEY);
+        return trace instanceof Trace ? (Trace) trace : null;
+    }
+
+    void add(Span span) {
+        spans.add(span);
+        count.incrementAndGet();
+    }
+
+    /**
+     * Registers a listener notified when the trace is finished.
+     *
+     * @param listener the listener
+     */
+    public synchronized void onFinish(Consumer<Trace> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Finishes the root span, and notifies the listeners. This method is called by the engine once the response is
+     * written. Subsequent calls do nothing.
+     */
+    public void finish() {
+        if (!finished.compareAndSet(false, true)) {
+            return;
+        }
+        root.finish();
+        List<Consumer<Trace>> copy;
+        synchronized (this) {
+            copy = new ArrayList<>(listeners);
+            listeners.clear();
+        }
+        for (Consumer<Trace> listener : copy) {
+            listener.accept(this);
+        }
+    }
+
+    /**
+     * @return the trace id (32 hexadecimal characters).
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return whether or not the trace is recorded, by the caller or by this server. This is the sampled flag sent to
+     * the other servers in the {@literal traceparent} header.
+     */
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    /**
+     * @return whether or not the caller has asked for the trace to be recorded (sampled flag of the
+     * {@literal traceparent} header of the request).
+     */
+    public boolean isParentSampled() {
+        return parentSampled;
+    }
+
+    /**
+     * @return the root span, covering the whole request processing.
+     */
+    public Span getRoot() {
+        return root;
+    }
+
+    /**
+     * @return the spans, in creation order (the root span first).
+     */
+    public List<Span> getSpans() {
+        return new ArrayList<>(spans);
+    }
+
+    /**
+     * Gets the children of the given span. The children of all the spans are indexed on the first call, and the index
+     * is rebuilt when spans are added, so walking the span tree of a finished trace is linear.
+     *
+     * @param span the span
+     * @return the children of the given span, in creation order
+     */
+    public List<Span> getChildren(Span span) {
+        Index current = index;
+        int size = count.get();
+        if (current == null || current.size != size) {
+            current = new Index(size, spans);
+            index = current;
+        }
+        List<Span> children = current.children.get(span.getId());
+        return children == null ? Collections.<Span>emptyList() : Collections.unmodifiableList(children);
+    }
+
+    /**
+     * The children of the spans.
+     */
+    private static final class Index {
+
+        /**
+         * The number of spans when the index was built. Spans added while building may be included.
+         */
+        private final int size;
+
+        /**
+         * Span id -> children.
+         */
+        private final Map<String, List<Span>> children = new HashMap<>();
+
+        private Index(int size, Queue<Span> spans) {
+            this.size = size;
+            for (Span span : spans) {
+                if (span.getParentId() != null) {
+                    List<Span> list = children.get(span.getParentId());
+                    if (list == null) {
+                        list = new ArrayList<>();
+                        children.put(span.getParentId(), list);
+                    }
+                    list.add(span);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the duration of the request in nanoseconds, {@literal -1} if not finished.
+     */
+    public long getDuration() {
+        return root.getDuration();
+    }
+
+    /**
+     * @return whether or not the trace is finished.
+     */
+    public boolean isFinished() {
+        return finished.get();
+    }
+
+    /**
+     * @return whether or not a span of the trace has failed.
+     */
+    public boolean isFailed() {
+        for (Span span : spans) {
+            if (span.getError() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
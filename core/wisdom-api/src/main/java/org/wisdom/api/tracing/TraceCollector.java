@@ -0,0 +1,50 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.api.tracing;
+
+/**
+ * A service receiving the traces of the requests. When at least one collector is available, the engine traces a
+ * fraction of the requests (see {@link #getSampleRate()}), and gives the trace to the collectors once the response is
+ * written. Collectors decide which of these traces are kept (sampling, slow or failed requests...).
+ * <p>
+ * Collectors are called from the threads writing the responses (including the event loops), so they must not
+ * block.
+ */
+public interface TraceCollector {
+
+    /**
+     * Receives the trace of a completed request.
+     *
+     * @param trace the trace
+     */
+    void collect(Trace trace);
+
+    /**
+     * Gets the fraction of the requests to trace. The decision is taken when the request is received, so the requests
+     * that are not traced do not pay the cost of the tracing. The requests whose caller has set the sampled flag of
+     * the {@literal traceparent} header are always traced. When several collectors are available, the highest rate
+     * is used.
+     *
+     * @return the fraction of the requests to trace, between 0 and 1. By default, all the requests are traced.
+     */
+    default double getSampleRate() {
+        return 1.0;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.api.tracing;
+
+import org.wisdom.api.http.Context;
+
+/**
+ * Entry point to create {@link Span}s. The current span of a thread is the last span activated by
+ * {@link #start(String)} and not finished, or, if none, the root span of the request of the current HTTP context.
+ * <p>
+ * The methods of this class return {@link Span#NOOP} when there is no current span, so tracing costs a thread-local
+ * lookup when the requests are not traced:
+ * <pre>
+ * {@code
+ * Span span = Tracing.start("checkout");
+ * try {
+ *     ...
+ * } catch (Exception e) {
+ *     span.fail(e);
+ *     throw e;
+ * } finally {
+ *     span.finish();
+ * }
+ * }
+ * </pre>
+ * Spans activated by {@link #start(String)} must be finished by the thread having started them.
+ */
+public final class Tracing {
+
+    /**
+     * The current span of each thread.
+     */
+    static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+    private Tracing() {
+        // Avoid direct instantiation.
+    }
+
+    /**
+     * @return the current span, {@code null} if the current thread is not processing a traced request.
+     */
+    public static Span current() {
+        Span span = CURRENT.get();
+        if (span != null && !span.isFinished()) {
+            return span;
+        }
+        Trace trace = Trace.of(Context.CONTEXT.get());
+        return trace == null ? null : trace.getRoot();
+    }
+
+    /**
+     * Creates a child of the current span, and makes it the current span until it is finished.
+     *
+     * @param name the span name
+     * @return the span, {@link Span#NOOP} if there is no current span
+     */
+    public static Span start(String name) {
+        return start(current(), name);
+    }
+
+    /**
+     * Creates a child of the given span, and makes it the current span until it is finished. It is used to continue
+     * a trace in another thread.
+     *
+     * @param parent the parent span, may be {@code null}
+     * @param name   the span name
+     * @return the span, {@link Span#NOOP} if the parent is {@code null} or {@link Span#NOOP}
+     */
+    public static Span start(Span parent, String name) {
+        if (parent == null || !parent.isRecording()) {
+            return Span.NOOP;
+        }
+        Span span = parent.child(name);
+        span.activate();
+        return span;
+    }
+
+    /**
+     * Creates a child of the current span, without activating it. It is used for asynchronous operations, finished
+     * by another thread.
+     *
+     * @param name the span name
+     * @return the span, {@link Span#NOOP} if there is no current span
+     */
+    public static Span child(String name) {
+        Span parent = current();
+        return parent == null ? Span.NOOP : parent.child(name);
+    }
+}
@@ -27,6 +27,7 @@ import org.apache.commons.io.IOUtils;
 import org.junit.Test;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.wisdom.api.http.ByteRange;
 import org.wisdom.api.http.MimeTypes;
 import org.xml.sax.InputSource;
 
@@ -252,4 +253,36 @@ public class RenderableTest {
         assertThat(new String(bytes, Charsets.UTF_8)).isEqualTo("a,b,c");
     }
 
+    @Test
+    public void testRenderableByteRanges() throws Exception {
+        byte[] content = "0123456789".getBytes(Charsets.UTF_8);
+        RenderableByteArray source = new RenderableByteArray(content);
+
+        RenderableByteRanges body = new RenderableByteRanges(source,
+                Arrays.asList(new ByteRange(2, 4)), content.length, MimeTypes.TEXT);
+        assertThat(body.isMultipart()).isFalse();
+        assertThat(body.length()).isEqualTo(3);
+        assertThat(body.mimetype()).isEqualTo(MimeTypes.TEXT);
+        assertThat(body.getFile()).isNull();
+        assertThat(new String(IOUtils.toByteArray(body.render(null, null)), Charsets.UTF_8)).isEqualTo("234");
+
+        body = new RenderableByteRanges(source,
+                Arrays.asList(new ByteRange(0, 1), new ByteRange(8, 9)), content.length, MimeTypes.TEXT);
+        assertThat(body.isMultipart()).isTrue();
+        assertThat(body.mimetype()).startsWith("multipart/byteranges; boundary=");
+        String boundary = body.mimetype().substring(body.mimetype().indexOf('=') + 1);
+        byte[] bytes = IOUtils.toByteArray(body.render(null, null));
+        assertThat(bytes).hasSize((int) body.length());
+        assertThat(new String(bytes, Charsets.UTF_8)).isEqualTo(
+                "\r\n--" + boundary + "\r\n"
+                        + "Content-Type: text/plain\r\n"
+                        + "Content-Range: bytes 0-1/10\r\n\r\n"
+                        + "01"
+                        + "\r\n--" + boundary + "\r\n"
+                        + "Content-Type: text/plain\r\n"
+                        + "Content-Range: bytes 8-9/10\r\n\r\n"
+                        + "89"
+                        + "\r\n--" + boundary + "--\r\n");
+    }
+
 }
@@ -68,5 +68,44 @@ public class ExecutionStatisticsTest {
         assertThat(statistics.getTotalExecutionTime()).isEqualTo(20);
     }
 
+    @Test
+    public void testPercentiles() {
+        ManagedExecutorService.ExecutionStatistics statistics = new ManagedExecutorService.ExecutionStatistics();
+        assertThat(statistics.getMedian()).isEqualTo(0);
+        for (int i = 1; i <= 100; i++) {
+            statistics.accept(i);
+        }
+        assertThat(statistics.getMedian()).isBetween(50L, 52L);
+        assertThat(statistics.get90thPercentile()).isBetween(90L, 92L);
+        assertThat(statistics.get99thPercentile()).isBetween(99L, 100L);
+        // Never greater than the maximum.
+        assertThat(statistics.get999thPercentile()).isEqualTo(100);
+
+        ManagedExecutorService.ExecutionStatistics copy = statistics.copy();
+        assertThat(copy.getMedian()).isEqualTo(statistics.getMedian());
+        assertThat(copy.get99thPercentile()).isEqualTo(statistics.get99thPercentile());
+    }
+
+    @Test
+    public void testConcurrentRecording() throws InterruptedException {
+        final ManagedExecutorService.ExecutionStatistics statistics = new ManagedExecutorService.ExecutionStatistics();
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 1; j <= 1000; j++) {
+                    statistics.accept(j);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(statistics.getCount()).isEqualTo(8000);
+        assertThat(statistics.getTotalExecutionTime()).isEqualTo(8 * 500500);
+        assertThat(statistics.getMinimumExecutionTime()).isEqualTo(1);
+        assertThat(statistics.getMaximumExecutionTime()).isEqualTo(1000);
+    }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,93 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.api.concurrent;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Checks the {@link Histogram}.
+ */
+public class HistogramTest {
+
+    @Test
+    public void testEmptyHistogram() {
+        Histogram histogram = new Histogram();
+        assertThat(histogram.getCount()).isEqualTo(0);
+        assertThat(histogram.getValueAtPercentile(50)).isEqualTo(0);
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 50; i++) {
+            histogram.record(i);
+        }
+        assertThat(histogram.getCount()).isEqualTo(50);
+        assertThat(histogram.getValueAtPercentile(50)).isEqualTo(25);
+        assertThat(histogram.getValueAtPercentile(90)).isEqualTo(45);
+        assertThat(histogram.getValueAtPercentile(100)).isEqualTo(50);
+    }
+
+    @Test
+    public void testLargeValuesAreApproximated() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i);
+        }
+        assertThat((double) histogram.getValueAtPercentile(50)).isCloseTo(5000, within(5000 * 0.04));
+        assertThat((double) histogram.getValueAtPercentile(99)).isCloseTo(9900, within(9900 * 0.04));
+        assertThat((double) histogram.getValueAtPercentile(99.9)).isCloseTo(9990, within(9990 * 0.04));
+        // Percentiles are approximated by excess.
+        assertThat(histogram.getValueAtPercentile(99)).isGreaterThanOrEqualTo(9900);
+    }
+
+    @Test
+    public void testBucketBoundaries() {
+        for (long value : new long[]{0, 1, 63, 64, 65, 127, 128, 1000, 123456789, Histogram.MAX_TRACKABLE_VALUE}) {
+            long highest = Histogram.highestEquivalentValue(Histogram.indexOf(value));
+            assertThat(highest).isGreaterThanOrEqualTo(value);
+            assertThat((double) highest).isLessThanOrEqualTo(value * 1.04 + 1);
+        }
+        // Out of range values are clamped.
+        assertThat(Histogram.indexOf(-5)).isEqualTo(0);
+        assertThat(Histogram.indexOf(Long.MAX_VALUE)).isEqualTo(Histogram.indexOf(Histogram.MAX_TRACKABLE_VALUE));
+    }
+
+    @Test
+    public void testAdd() {
+        Histogram h1 = new Histogram();
+        Histogram h2 = new Histogram();
+        h1.record(10);
+        h2.record(20);
+        h2.record(30);
+        h1.add(h2);
+        assertThat(h1.getCount()).isEqualTo(3);
+        assertThat(h1.getValueAtPercentile(50)).isEqualTo(20);
+        assertThat(h2.getCount()).isEqualTo(2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPercentile() {
+        new Histogram().getValueAtPercentile(101);
+    }
+}
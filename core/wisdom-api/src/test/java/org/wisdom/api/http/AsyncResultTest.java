@@ -22,6 +22,8 @@ package org.wisdom.api.http;
 import org.junit.Test;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -42,4 +44,14 @@ public class AsyncResultTest {
         assertThat(async.callable()).isNotNull();
         assertThat(async.callable().call().getStatusCode()).isEqualTo(200);
     }
+
+    @Test
+    public void testAsyncWithCompletionStage() throws Exception {
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        AsyncResult async = Results.async(future).timeout(2, TimeUnit.SECONDS);
+
+        assertThat(async.callable()).isNull();
+        assertThat(async.stage()).isSameAs(future);
+        assertThat(async.getTimeout()).isEqualTo(2000);
+    }
 }
@@ -0,0 +1,70 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.api.http;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the parsing of the {@literal Range} header.
+ */
+public class ByteRangeTest {
+
+    @Test
+    public void testSingleRanges() {
+        assertThat(ByteRange.parse("bytes=0-499", 1000)).containsExactly(new ByteRange(0, 499));
+        assertThat(ByteRange.parse("bytes=500-", 1000)).containsExactly(new ByteRange(500, 999));
+        assertThat(ByteRange.parse("bytes=-200", 1000)).containsExactly(new ByteRange(800, 999));
+        assertThat(ByteRange.parse("bytes=-2000", 1000)).containsExactly(new ByteRange(0, 999));
+        assertThat(ByteRange.parse("bytes=900-2000", 1000)).containsExactly(new ByteRange(900, 999));
+        assertThat(ByteRange.parse("Bytes = 1-1", 1000)).isNull();
+        assertThat(ByteRange.parse("BYTES=1-1", 1000)).containsExactly(new ByteRange(1, 1));
+    }
+
+    @Test
+    public void testMultipleRanges() {
+        assertThat(ByteRange.parse("bytes=0-0, -1", 1000)).containsExactly(new ByteRange(0, 0),
+                new ByteRange(999, 999));
+        // Unsatisfiable ranges are dropped.
+        assertThat(ByteRange.parse("bytes=0-9,2000-3000", 1000)).containsExactly(new ByteRange(0, 9));
+    }
+
+    @Test
+    public void testInvalidAndUnsatisfiableRanges() {
+        assertThat(ByteRange.parse(null, 1000)).isNull();
+        assertThat(ByteRange.parse("items=0-1", 1000)).isNull();
+        assertThat(ByteRange.parse("bytes=abc", 1000)).isNull();
+        assertThat(ByteRange.parse("bytes=5-1", 1000)).isNull();
+        assertThat(ByteRange.parse("bytes=a-1", 1000)).isNull();
+        assertThat(ByteRange.parse("bytes=0-1,2-3,4-5,6-7,8-9,10-11,12-13,14-15,16-17,18-19,20-21,22-23,24-25," +
+                "26-27,28-29,30-31,32-33", 1000)).isNull();
+
+        assertThat(ByteRange.parse("bytes=1000-", 1000)).isEmpty();
+        assertThat(ByteRange.parse("bytes=-0", 1000)).isEmpty();
+    }
+
+    @Test
+    public void testContentRange() {
+        assertThat(new ByteRange(0, 499).toContentRange(1234)).isEqualTo("bytes 0-499/1234");
+        assertThat(new ByteRange(0, 499).length()).isEqualTo(500);
+        assertThat(ByteRange.toUnsatisfiedContentRange(1234)).isEqualTo("bytes */1234");
+    }
+}
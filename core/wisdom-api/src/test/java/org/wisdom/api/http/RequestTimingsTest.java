@@ -0,0 +1,113 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.api.http;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks the recording of the request timings.
+ */
+public class RequestTimingsTest {
+
+    @After
+    public void tearDown() {
+        Context.CONTEXT.remove();
+    }
+
+    private Context context() {
+        Map<String, Object> data = new HashMap<>();
+        Context context = mock(Context.class);
+        Request request = mock(Request.class);
+        when(context.request()).thenReturn(request);
+        when(request.data()).thenReturn(data);
+        return context;
+    }
+
+    @Test
+    public void testAttach() {
+        Context context = context();
+        assertThat(RequestTimings.of(context)).isNull();
+        assertThat(RequestTimings.of(null)).isNull();
+        assertThat(RequestTimings.current()).isNull();
+
+        RequestTimings timings = RequestTimings.attach(context);
+        assertThat(RequestTimings.of(context)).isSameAs(timings);
+        Context.CONTEXT.set(context);
+        assertThat(RequestTimings.current()).isSameAs(timings);
+    }
+
+    @Test
+    public void testPhases() throws InterruptedException {
+        RequestTimings timings = new RequestTimings();
+        long start = System.nanoTime();
+        Thread.sleep(2);
+        timings.record(RequestTimings.Phase.ROUTING, start);
+        timings.recordFilter("SecurityFilter", 1000);
+        timings.recordFilter("CacheFilter", 500);
+        timings.recordFilter("SecurityFilter", 1000);
+        timings.begin(RequestTimings.Phase.WRITE);
+
+        assertThat(timings.get(RequestTimings.Phase.ROUTING)).isGreaterThanOrEqualTo(2000000);
+        assertThat(timings.get(RequestTimings.Phase.FILTERS)).isEqualTo(2500);
+        assertThat(timings.getFilters()).containsExactly(
+                entry("SecurityFilter", 2000L),
+                entry("CacheFilter", 500L));
+        assertThat(timings.get(RequestTimings.Phase.ACTION)).isZero();
+        // Write not ended yet.
+        assertThat(timings.get(RequestTimings.Phase.WRITE)).isZero();
+
+        String header = timings.toServerTiming();
+        assertThat(header).startsWith("routing;dur=")
+                .contains(", filter-SecurityFilter;dur=0.002, filter-CacheFilter;dur=0.001")
+                .doesNotContain("action").doesNotContain("write");
+    }
+
+    @Test
+    public void testCompletion() {
+        RequestTimings timings = new RequestTimings();
+        List<RequestTimings> notified = new ArrayList<>();
+        timings.onComplete(notified::add);
+        timings.begin(RequestTimings.Phase.WRITE);
+        assertThat(timings.isCompleted()).isFalse();
+
+        timings.complete();
+        assertThat(timings.isCompleted()).isTrue();
+        assertThat(notified).containsExactly(timings);
+        assertThat(timings.get(RequestTimings.Phase.WRITE)).isPositive();
+        long total = timings.getTotal();
+        assertThat(timings.getTotal()).isEqualTo(total);
+
+        // Completed only once, late listeners are called immediately.
+        timings.complete();
+        timings.onComplete(notified::add);
+        assertThat(notified).hasSize(2);
+    }
+}
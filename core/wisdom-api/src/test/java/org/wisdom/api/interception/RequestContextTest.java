@@ -33,6 +33,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -182,6 +183,47 @@ public class RequestContextTest {
         assertThat(context.proceed().<String>getRenderable().content()).isEqualTo(4);
     }
 
+    @Test
+    public void testFilterTimings() throws Exception {
+        RequestTimings timings = RequestTimings.attach(Context.CONTEXT.get());
+        Filter slow = new Filter() {
+            @Override
+            public Result call(Route route, RequestContext context) throws Exception {
+                Thread.sleep(20);
+                return context.proceed();
+            }
+
+            @Override
+            public Pattern uri() {
+                return Pattern.compile("/");
+            }
+
+            @Override
+            public int priority() {
+                return 12;
+            }
+        };
+        Controller controller = new DefaultController() {
+            public Result slow() throws InterruptedException {
+                Thread.sleep(50);
+                return ok();
+            }
+        };
+        Route route = new RouteBuilder().route(HttpMethod.GET).on("/").to(controller, "slow");
+
+        RequestContext context = new RequestContext(route, ImmutableList.of(slow, new MyFilter()),
+                Collections.<Interceptor<?>, Object>emptyMap(), new Object[0], null);
+        context.proceed();
+
+        // The filter timings do not include the rest of the chain.
+        assertThat(timings.getFilters().keySet()).hasSize(2).contains("MyFilter");
+        assertThat(timings.getFilters().get("MyFilter")).isLessThan(TimeUnit.MILLISECONDS.toNanos(20));
+        assertThat(timings.get(RequestTimings.Phase.FILTERS))
+                .isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20))
+                .isLessThan(TimeUnit.MILLISECONDS.toNanos(50));
+        assertThat(timings.get(RequestTimings.Phase.ACTION)).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
     private class MyFilter implements Filter {
         @Override
         public Result call(Route route, RequestContext context) throws Exception {
@@ -22,6 +22,7 @@ package org.wisdom.api.router;
 import com.google.common.net.MediaType;
 import org.junit.Test;
 import org.wisdom.api.Controller;
+import org.wisdom.api.http.AsyncResult;
 import org.wisdom.api.http.HttpMethod;
 import org.wisdom.api.http.Result;
 import org.wisdom.api.http.Results;
@@ -29,6 +30,8 @@ import org.wisdom.api.utils.KnownMimeTypes;
 
 import java.lang.reflect.Method;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -43,6 +46,10 @@ public class RouteBuilderTest {
             return Results.ok();
         }
 
+        public CompletionStage<Result> stage() {
+            return CompletableFuture.completedFuture(Results.ok());
+        }
+
         public void invalid() {
             // Does not return result.
         }
@@ -66,6 +73,17 @@ public class RouteBuilderTest {
         assertThat(route.getUrl()).isEqualTo("/");
     }
 
+    @Test
+    public void testBuildingWithActionReturningACompletionStage() throws Exception {
+        MyController controller = new MyController();
+        Route route = new RouteBuilder().route(HttpMethod.GET).on("/").to(controller, "stage");
+        assertThat(route.getControllerMethod()).isEqualTo(controller.getClass().getMethod("stage"));
+
+        Result result = route.invoke();
+        assertThat(result).isInstanceOf(AsyncResult.class);
+        assertThat(((AsyncResult) result).stage().toCompletableFuture().get().getStatusCode()).isEqualTo(200);
+    }
+
     @Test
     public void testBuildingWithStringWithoutFirstSlash() throws NoSuchMethodException {
         MyController controller = new MyController();
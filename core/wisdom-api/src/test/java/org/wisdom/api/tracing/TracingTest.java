@@ -0,0 +1,207 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.api.tracing;
+
+import org.junit.After;
+import org.junit.Test;
+import org.wisdom.api.http.Context;
+import org.wisdom.api.http.Request;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks the creation of traces and spans.
+ */
+public class TracingTest {
+
+    private static final String TRACE_PARENT = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+
+    @After
+    public void tearDown() {
+        Context.CONTEXT.remove();
+        Tracing.CURRENT.remove();
+    }
+
+    private Context context() {
+        Map<String, Object> data = new HashMap<>();
+        Context context = mock(Context.class);
+        Request request = mock(Request.class);
+        when(context.request()).thenReturn(request);
+        when(request.data()).thenReturn(data);
+        return context;
+    }
+
+    @Test
+    public void testTraceParent() {
+        Trace trace = new Trace("GET /", TRACE_PARENT);
+        assertThat(trace.getId()).isEqualTo("4bf92f3577b34da6a3ce929d0e0e4736");
+        assertThat(trace.isSampled()).isTrue();
+        assertThat(trace.getRoot().getParentId()).isEqualTo("00f067aa0ba902b7");
+        assertThat(trace.getRoot().getId()).hasSize(16).isNotEqualTo("00f067aa0ba902b7");
+
+        Span child = trace.getRoot().child("proxy");
+        assertThat(child.toTraceParent())
+                .isEqualTo("00-4bf92f3577b34da6a3ce929d0e0e4736-" + child.getId() + "-01");
+
+        trace = new Trace("GET /", "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-00");
+        assertThat(trace.isSampled()).isFalse();
+        assertThat(trace.isParentSampled()).isFalse();
+        assertThat(trace.getRoot().toTraceParent()).endsWith("-00");
+    }
+
+    @Test
+    public void testRecordedTrace() {
+        assertThat(Trace.isSampled(TRACE_PARENT)).isTrue();
+        assertThat(Trace.isSampled("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-00")).isFalse();
+        assertThat(Trace.isSampled("garbage")).isFalse();
+        assertThat(Trace.isSampled(null)).isFalse();
+
+        // Recorded by this server, the other servers are asked to record it too.
+        Trace trace = new Trace("GET /", null, true);
+        assertThat(trace.isSampled()).isTrue();
+        assertThat(trace.isParentSampled()).isFalse();
+        assertThat(trace.getRoot().child("proxy").toTraceParent()).endsWith("-01");
+
+        trace = new Trace("GET /", "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-00", true);
+        assertThat(trace.isSampled()).isTrue();
+        assertThat(trace.isParentSampled()).isFalse();
+        assertThat(trace.getId()).isEqualTo("4bf92f3577b34da6a3ce929d0e0e4736");
+
+        trace = new Trace("GET /", TRACE_PARENT, false);
+        assertThat(trace.isSampled()).isTrue();
+        assertThat(trace.isParentSampled()).isTrue();
+    }
+
+    @Test
+    public void testChildrenOfGrowingTrace() {
+        Trace trace = new Trace("GET /", null);
+        Span first = trace.getRoot().child("first");
+        assertThat(trace.getChildren(trace.getRoot())).containsExactly(first);
+        assertThat(trace.getChildren(first)).isEmpty();
+
+        Span second = trace.getRoot().child("second");
+        Span nested = first.child("nested");
+        assertThat(trace.getChildren(trace.getRoot())).containsExactly(first, second);
+        assertThat(trace.getChildren(first)).containsExactly(nested);
+        assertThat(trace.getChildren(nested)).isEmpty();
+    }
+
+    @Test
+    public void testInvalidTraceParent() {
+        String[] invalid = {
+                null,
+                "",
+                "garbage",
+                "00-00000000000000000000000000000000-00f067aa0ba902b7-01",
+                "00-4bf92f3577b34da6a3ce929d0e0e4736-0000000000000000-01",
+                "00-4BF92F3577B34DA6A3CE929D0E0E4736-00f067aa0ba902b7-01"
+        };
+        for (String value : invalid) {
+            Trace trace = new Trace("GET /", value);
+            assertThat(trace.getId()).hasSize(32).isNotEqualTo("4bf92f3577b34da6a3ce929d0e0e4736");
+            assertThat(trace.isSampled()).isFalse();
+            assertThat(trace.getRoot().getParentId()).isNull();
+        }
+    }
+
+    @Test
+    public void testNoop() {
+        assertThat(Tracing.current()).isNull();
+        Span span = Tracing.start("work");
+        assertThat(span).isSameAs(Span.NOOP);
+        assertThat(span.isRecording()).isFalse();
+        assertThat(span.tag("key", "value").fail("error").child("child")).isSameAs(Span.NOOP);
+        span.finish();
+        assertThat(Span.NOOP.getTags()).isEmpty();
+        assertThat(Span.NOOP.getError()).isNull();
+        assertThat(Span.NOOP.toTraceParent()).isNull();
+        assertThat(Tracing.child("child")).isSameAs(Span.NOOP);
+        assertThat(Tracing.start(null, "child")).isSameAs(Span.NOOP);
+    }
+
+    @Test
+    public void testCurrentSpan() {
+        Context context = context();
+        Context.CONTEXT.set(context);
+        Trace trace = Trace.attach(context, "GET /", null);
+        assertThat(Trace.of(context)).isSameAs(trace);
+        assertThat(Tracing.current()).isSameAs(trace.getRoot());
+
+        Span outer = Tracing.start("outer");
+        assertThat(Tracing.current()).isSameAs(outer);
+        Span inner = Tracing.start("inner");
+        assertThat(inner.getParentId()).isEqualTo(outer.getId());
+        assertThat(Tracing.current()).isSameAs(inner);
+
+        // Not activated.
+        Span async = Tracing.child("async");
+        assertThat(async.getParentId()).isEqualTo(inner.getId());
+        assertThat(Tracing.current()).isSameAs(inner);
+
+        inner.finish();
+        assertThat(Tracing.current()).isSameAs(outer);
+        outer.finish();
+        assertThat(Tracing.current()).isSameAs(trace.getRoot());
+
+        assertThat(trace.getChildren(trace.getRoot())).containsExactly(outer);
+        assertThat(trace.getChildren(outer)).containsExactly(inner);
+        assertThat(trace.getChildren(inner)).containsExactly(async);
+        assertThat(trace.getSpans()).containsExactly(trace.getRoot(), outer, inner, async);
+        assertThat(outer.getDuration()).isGreaterThanOrEqualTo(inner.getDuration());
+        assertThat(inner.getOffset()).isGreaterThanOrEqualTo(outer.getOffset());
+        assertThat(async.isFinished()).isFalse();
+        assertThat(async.getDuration()).isEqualTo(-1);
+    }
+
+    @Test
+    public void testFinish() {
+        Trace trace = new Trace("GET /", null);
+        final List<Trace> finished = new ArrayList<>();
+        trace.onFinish(finished::add);
+
+        Span span = trace.getRoot().child("work").tag("key", "value").tag("ignored", null);
+        assertThat(span.getTags()).containsExactly(entry("key", "value"));
+        assertThat(trace.isFailed()).isFalse();
+        span.fail(new IllegalStateException("bad"));
+        assertThat(span.getError()).isEqualTo("java.lang.IllegalStateException: bad");
+        assertThat(trace.isFailed()).isTrue();
+        span.finish();
+        long duration = span.getDuration();
+        span.finish();
+        assertThat(span.getDuration()).isEqualTo(duration);
+
+        assertThat(trace.isFinished()).isFalse();
+        assertThat(trace.getDuration()).isEqualTo(-1);
+        trace.finish();
+        trace.finish();
+        assertThat(trace.isFinished()).isTrue();
+        assertThat(trace.getRoot().isFinished()).isTrue();
+        assertThat(trace.getDuration()).isGreaterThanOrEqualTo(0);
+        assertThat(finished).containsExactly(trace);
+    }
+}
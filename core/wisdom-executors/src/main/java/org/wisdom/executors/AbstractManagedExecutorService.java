@@ -28,11 +28,16 @@ import org.wisdom.api.concurrent.*;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 /**
  * Common methods used in the different
  * {@link org.wisdom.api.concurrent.ManagedExecutorService} implementations.
+ * <p>
+ * The submission path does not take any lock: pending tasks are tracked in a concurrent set, the execution context
+ * services are iterated without copy (the list is expected to be either a copy-on-write list or the dynamic list
+ * injected by iPOJO) and the statistics are recorded using lock-free adders.
  */
 public abstract class AbstractManagedExecutorService implements ManagedExecutorService {
 
@@ -42,12 +47,37 @@ public abstract class AbstractManagedExecutorService implements ManagedExecutorS
     protected ListeningExecutorService executor;
     protected ThreadPoolExecutor internalPool;
 
-    protected final Set<Task<?>> tasks = new LinkedHashSet<>();
+    protected final Set<Task<?>> tasks = ConcurrentHashMap.newKeySet();
     protected final Logger logger;
 
-    protected ExecutionStatistics statistics = new ExecutionStatistics();
+    /**
+     * The default size of the window used to compute the recent statistics: 1 minute.
+     */
+    public static final long DEFAULT_STATISTICS_WINDOW = 60000;
+
+    /**
+     * The number of slots composing the window used to compute the recent statistics.
+     */
+    private static final int STATISTICS_WINDOW_SLOTS = 6;
+
+    /**
+     * The number of rejected tasks.
+     */
+    protected final LongAdder rejected = new LongAdder();
+
+    /**
+     * The maximum time a task can wait in the queue, in milliseconds, {@code 0} if unbounded.
+     */
+    protected volatile long queueTimeout;
+
+    protected final ExecutionStatistics statistics = new ExecutionStatistics();
+    protected final ExecutionStatistics queueStatistics = new ExecutionStatistics();
+    protected WindowedStatistics recentStatistics = new WindowedStatistics(DEFAULT_STATISTICS_WINDOW,
+            STATISTICS_WINDOW_SLOTS);
+    protected WindowedStatistics recentQueueStatistics = new WindowedStatistics(DEFAULT_STATISTICS_WINDOW,
+            STATISTICS_WINDOW_SLOTS);
 
-    protected List<ExecutionContextService> ecs;
+    protected volatile List<ExecutionContextService> ecs;
 
     protected AbstractManagedExecutorService(String name, long hungTime, List<ExecutionContextService> ecs) {
         Preconditions.checkNotNull(name);
@@ -63,6 +93,19 @@ public abstract class AbstractManagedExecutorService implements ManagedExecutorS
         return this;
     }
 
+    /**
+     * Sets the size of the window used to compute the recent statistics. Must be called before the submission of the
+     * first task.
+     *
+     * @param window the window size in milliseconds
+     * @return the current executor
+     */
+    protected AbstractManagedExecutorService setStatisticsWindow(long window) {
+        this.recentStatistics = new WindowedStatistics(window, STATISTICS_WINDOW_SLOTS);
+        this.recentQueueStatistics = new WindowedStatistics(window, STATISTICS_WINDOW_SLOTS);
+        return this;
+    }
+
     protected ThreadPoolExecutor getInternalPool() {
         return internalPool;
     }
@@ -81,38 +124,73 @@ public abstract class AbstractManagedExecutorService implements ManagedExecutorS
     }
 
     @Override
-    public synchronized Collection<ManagedFutureTask> getHungTasks() {
+    public long getRejectedTaskCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public ExecutionStatistics getQueueTimeStatistics() {
+        return queueStatistics.copy();
+    }
+
+    @Override
+    public ExecutionStatistics getRecentExecutionTimeStatistics() {
+        return recentStatistics.snapshot();
+    }
+
+    @Override
+    public ExecutionStatistics getRecentQueueTimeStatistics() {
+        return recentQueueStatistics.snapshot();
+    }
+
+    @Override
+    public Collection<ManagedFutureTask> getHungTasks() {
         return tasks.stream().filter(task -> task.isTaskHang()).collect(Collectors.toList());
     }
 
     @Override
-    public synchronized void shutdown() {
+    public void shutdown() {
         executor.shutdown();
     }
 
 
     @Override
-    public synchronized List<Runnable> shutdownNow() {
+    public List<Runnable> shutdownNow() {
         for (Task task : tasks) {
             task.cancel(true);
         }
         return executor.shutdownNow();
     }
 
-    protected synchronized ExecutionContext createExecutionContext() {
-        if (ecs == null) {
+    protected ExecutionContext createExecutionContext() {
+        final List<ExecutionContextService> services = ecs;
+        if (services == null) {
             return null;
         }
-        List<ExecutionContextService> copy = new ArrayList<>(ecs);
-        List<ExecutionContext> ec = new ArrayList<>();
-        for (ExecutionContextService svc : copy) {
+        List<ExecutionContext> ec = new ArrayList<>(services.size());
+        for (ExecutionContextService svc : services) {
             ec.add(svc.prepare());
         }
         return CompositeExecutionContext.create(ec);
     }
 
+    /**
+     * Keeps track of the given task until its completion (or cancellation). Tracked tasks are the ones checked
+     * by {@link #getHungTasks()} and cancelled by {@link #shutdownNow()}.
+     *
+     * @param task the task, must have been submitted
+     * @param <T>  the type of result
+     * @return the given task
+     */
+    protected <T> Task<T> track(final Task<T> task) {
+        tasks.add(task);
+        // The listener is called in the thread completing the task, avoiding a second submission to the pool.
+        task.addListener(() -> tasks.remove(task), MoreExecutors.sameThreadExecutor());
+        return task;
+    }
+
     @Override
-    public synchronized boolean isShutdown() {
+    public boolean isShutdown() {
         return executor.isShutdown();
     }
 
@@ -124,18 +202,18 @@ public abstract class AbstractManagedExecutorService implements ManagedExecutorS
      * @return {@code true} if all tasks have completed following shut down
      */
     @Override
-    public synchronized boolean isTerminated() {
+    public boolean isTerminated() {
         return executor.isTerminated();
     }
 
     @Override
-    public synchronized boolean awaitTermination(long timeout, TimeUnit unit)
+    public boolean awaitTermination(long timeout, TimeUnit unit)
             throws InterruptedException {
         return executor.awaitTermination(timeout, unit);
     }
 
     @Override
-    public synchronized <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
         List<Future<T>> futures = executor.invokeAll(tasks);
         List<Future<T>> manageable = new ArrayList<>(futures.size());
         int i = 0;
@@ -154,7 +232,7 @@ public abstract class AbstractManagedExecutorService implements ManagedExecutorS
 
 
     @Override
-    public synchronized <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit) throws InterruptedException {
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit) throws InterruptedException {
         List<Future<T>> futures = executor.invokeAll(tasks, timeout, unit);
         List<Future<T>> manageable = new ArrayList<>(futures.size());
         int i = 0;
@@ -169,22 +247,22 @@ public abstract class AbstractManagedExecutorService implements ManagedExecutorS
 
 
     @Override
-    public synchronized <T> T invokeAny(Collection<? extends Callable<T>> tasks)
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks)
             throws InterruptedException, ExecutionException {
         return executor.invokeAny(tasks);
     }
 
     @Override
-    public synchronized <T> T invokeAny(Collection<? extends Callable<T>> tasks,
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks,
                            long timeout, TimeUnit unit)
             throws InterruptedException, ExecutionException, TimeoutException {
         return executor.invokeAny(tasks, timeout, unit);
     }
 
     @Override
-    public synchronized void execute(Runnable command) {
+    public void execute(Runnable command) {
         Task<Void> task = getNewTaskFor(command, null);
-        task.execute();
+        track(task.execute());
     }
 
 
@@ -195,7 +273,7 @@ public abstract class AbstractManagedExecutorService implements ManagedExecutorS
      * @return the number of threads
      */
     @Override
-    public synchronized int getLargestPoolSize() {
+    public int getLargestPoolSize() {
         return internalPool.getLargestPoolSize();
     }
 
@@ -205,7 +283,7 @@ public abstract class AbstractManagedExecutorService implements ManagedExecutorS
      * @return the maximum allowed number of threads
      */
     @Override
-    public synchronized int getMaximumPoolSize() {
+    public int getMaximumPoolSize() {
         return internalPool.getMaximumPoolSize();
     }
 
@@ -215,7 +293,7 @@ public abstract class AbstractManagedExecutorService implements ManagedExecutorS
      * @return the number of threads
      */
     @Override
-    public synchronized int getPoolSize() {
+    public int getPoolSize() {
         return internalPool.getPoolSize();
     }
 
@@ -225,7 +303,7 @@ public abstract class AbstractManagedExecutorService implements ManagedExecutorS
      * @return the core number of threads
      */
     @Override
-    public synchronized int getCorePoolSize() {
+    public int getCorePoolSize() {
         return internalPool.getCorePoolSize();
     }
 
@@ -239,7 +317,7 @@ public abstract class AbstractManagedExecutorService implements ManagedExecutorS
      * @return the number of tasks
      */
     @Override
-    public synchronized long getCompletedTaskCount() {
+    public long getCompletedTaskCount() {
         return internalPool.getCompletedTaskCount();
     }
 
@@ -250,7 +328,7 @@ public abstract class AbstractManagedExecutorService implements ManagedExecutorS
      * @return the number of threads
      */
     @Override
-    public synchronized int getActiveCount() {
+    public int getActiveCount() {
         return internalPool.getActiveCount();
     }
 
@@ -263,7 +341,7 @@ public abstract class AbstractManagedExecutorService implements ManagedExecutorS
      * @return the task queue
      */
     @Override
-    public synchronized BlockingQueue<Runnable> getQueue() {
+    public BlockingQueue<Runnable> getQueue() {
         return internalPool.getQueue();
     }
 
@@ -278,7 +356,7 @@ public abstract class AbstractManagedExecutorService implements ManagedExecutorS
      * the presence of interference by other threads.
      */
     @Override
-    public synchronized void purge() {
+    public void purge() {
         internalPool.purge();
     }
 
@@ -299,7 +377,7 @@ public abstract class AbstractManagedExecutorService implements ManagedExecutorS
      * @return {@code true} if the task was removed
      */
     @Override
-    public synchronized boolean remove(Runnable task) {
+    public boolean remove(Runnable task) {
         return internalPool.remove(task);
     }
 
@@ -312,7 +390,7 @@ public abstract class AbstractManagedExecutorService implements ManagedExecutorS
      * @return the number of tasks
      */
     @Override
-    public synchronized long getTaskCount() {
+    public long getTaskCount() {
         return internalPool.getTaskCount();
     }
 
@@ -325,27 +403,24 @@ public abstract class AbstractManagedExecutorService implements ManagedExecutorS
      * @return the time limit
      */
     @Override
-    public synchronized long getKeepAliveTime(TimeUnit unit) {
+    public long getKeepAliveTime(TimeUnit unit) {
         return internalPool.getKeepAliveTime(unit);
     }
 
     @Override
-    public synchronized <T> ManagedFutureTask<T> submit(Callable<T> task) {
+    public <T> ManagedFutureTask<T> submit(Callable<T> task) {
         if (task == null) {
             throw new NullPointerException();
         }
-        return getNewTaskFor(task).execute();
+        return track(getNewTaskFor(task).execute());
     }
 
     @Override
-    public synchronized <T> ManagedFutureTask<T> submit(Runnable task, T result) {
+    public <T> ManagedFutureTask<T> submit(Runnable task, T result) {
         if (task == null) {
             throw new NullPointerException();
         }
-        final Task t = getNewTaskFor(task, result).execute();
-        t.addListener(() -> tasks.remove(t));
-        tasks.add(t);
-        return t;
+        return track(getNewTaskFor(task, result).execute());
     }
 
     @Override
@@ -355,11 +430,18 @@ public abstract class AbstractManagedExecutorService implements ManagedExecutorS
     }
 
     /**
-     * Computes the execution time of the completed task (given), and add it to the statistics.
+     * Computes the execution time and the queue time of the completed task (given), and add them to the statistics.
      *
      * @param task the completed task
      */
-    protected synchronized void addToStatistics(Task task) {
-        statistics.accept(task.getTaskCompletionTime() - task.getTaskStartTime());
+    protected void addToStatistics(Task task) {
+        long run = task.getTaskCompletionTime() - task.getTaskStartTime();
+        statistics.accept(run);
+        recentStatistics.accept(run);
+        long queue = task.getTaskQueueTime();
+        if (queue >= 0) {
+            queueStatistics.accept(queue);
+            recentQueueStatistics.accept(queue);
+        }
     }
 }
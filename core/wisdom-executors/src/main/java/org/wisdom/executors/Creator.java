@@ -114,7 +114,7 @@ public class Creator {
         LOGGER.info("Creating executor {}", name);
         ManagedExecutorServiceImpl executor;
         if (conf != null) {
-            executor = new ManagedExecutorServiceImpl(name, conf, ecs);
+            executor = VirtualThreadManagedExecutorService.create(name, conf, ecs);
 
         } else {
             executor = new ManagedExecutorServiceImpl(
@@ -125,7 +125,7 @@ public class Creator {
                     25,
                     5000,
                     true,
-                    Integer.MAX_VALUE,
+                    ManagedExecutorServiceImpl.DEFAULT_WORK_QUEUE_CAPACITY,
                     Thread.NORM_PRIORITY,
                     ecs);
         }
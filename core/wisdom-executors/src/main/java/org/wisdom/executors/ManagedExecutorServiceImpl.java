@@ -24,17 +24,24 @@ import org.wisdom.api.concurrent.ExecutionContextService;
 import org.wisdom.api.concurrent.ManagedExecutorService;
 import org.wisdom.api.configuration.Configuration;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.*;
 
 /**
  * Implementation of the {@link org.wisdom.api.concurrent.ManagedExecutorService}.
+ * <p>
+ * The work queue is bounded by default ({@link #DEFAULT_WORK_QUEUE_CAPACITY}). When the executor is saturated, the
+ * configured {@link org.wisdom.api.concurrent.ManagedExecutorService.RejectionPolicy} is applied. In addition, a
+ * queue timeout can be set to drop the tasks that have waited too long before being started.
  */
 public class ManagedExecutorServiceImpl extends AbstractManagedExecutorService
         implements ManagedExecutorService {
 
+    /**
+     * The default capacity of the work queue.
+     */
+    public static final int DEFAULT_WORK_QUEUE_CAPACITY = 10000;
+
     public ManagedExecutorServiceImpl(String name, Configuration configuration, List<ExecutionContextService> ecs) {
         this(
                 name,
@@ -45,9 +52,13 @@ public class ManagedExecutorServiceImpl extends AbstractManagedExecutorService
                 configuration.getDuration("keepAlive", TimeUnit.MILLISECONDS, 5000),
                 configuration.getBooleanWithDefault("allowCoreThreadTimeOut", true),
                 configuration.getIntegerWithDefault("workQueueCapacity",
-                        Integer.MAX_VALUE),
+                        DEFAULT_WORK_QUEUE_CAPACITY),
                 configuration.getIntegerWithDefault("priority", Thread.NORM_PRIORITY),
                 ecs);
+        setStatisticsWindow(configuration.getDuration("statisticsWindow", TimeUnit.MILLISECONDS,
+                DEFAULT_STATISTICS_WINDOW));
+        setRejectionPolicy(configuration.get("rejectionPolicy", RejectionPolicy.class, RejectionPolicy.ABORT));
+        setQueueTimeout(configuration.getDuration("queueTimeout", TimeUnit.MILLISECONDS, 0));
     }
 
     public ManagedExecutorServiceImpl(
@@ -78,16 +89,54 @@ public class ManagedExecutorServiceImpl extends AbstractManagedExecutorService
 
         BlockingQueue<Runnable> queue = createWorkQueue(workQueueCapacity);
         final ThreadPoolExecutor executor = new ThreadPoolExecutor(coreSize, maxSize, keepAlive,
-                TimeUnit.MILLISECONDS, queue, builder.build(), new RejectedExecutionHandler() {
-            @Override
-            public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
-                System.out.println("REJECTED EXECUTION : " + r);
-            }
-        });
+                TimeUnit.MILLISECONDS, queue, builder.build(), new RejectionHandler(RejectionPolicy.ABORT));
         executor.allowCoreThreadTimeOut(allowCoreThreadTimeOut);
         setInternalPool(executor);
     }
 
+    /**
+     * Creates an executor delegating to the given pool. Sub-classes use this constructor to customize the pool
+     * (thread factory, queue...). The rejection policy is set to
+     * {@link org.wisdom.api.concurrent.ManagedExecutorService.RejectionPolicy#ABORT}.
+     *
+     * @param name     the executor name
+     * @param hungTime the hung threshold
+     * @param ecs      the execution context services
+     * @param pool     the internal pool
+     */
+    protected ManagedExecutorServiceImpl(String name, long hungTime, List<ExecutionContextService> ecs,
+                                         ThreadPoolExecutor pool) {
+        super(name, hungTime, ecs);
+        pool.setRejectedExecutionHandler(new RejectionHandler(RejectionPolicy.ABORT));
+        setInternalPool(pool);
+    }
+
+    /**
+     * Sets the policy applied when the executor cannot accept a task.
+     *
+     * @param policy the policy
+     * @return the current executor
+     */
+    public ManagedExecutorServiceImpl setRejectionPolicy(RejectionPolicy policy) {
+        internalPool.setRejectedExecutionHandler(new RejectionHandler(policy));
+        return this;
+    }
+
+    /**
+     * Sets the maximum time a task can wait in the queue. Tasks having waited longer are not executed, and fail
+     * with a {@link RejectedExecutionException}.
+     *
+     * @param timeout the timeout in milliseconds, {@code 0} to disable the timeout
+     * @return the current executor
+     */
+    public ManagedExecutorServiceImpl setQueueTimeout(long timeout) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("The queue timeout must be positive or zero");
+        }
+        this.queueTimeout = timeout;
+        return this;
+    }
+
     protected BlockingQueue<Runnable> createWorkQueue(int workQueueCapacity) {
         if (workQueueCapacity < 0) {
             throw new IllegalArgumentException();
@@ -98,12 +147,13 @@ public class ManagedExecutorServiceImpl extends AbstractManagedExecutorService
         } else if (workQueueCapacity == 0) {
             queue = new SynchronousQueue<>();
         } else {
-            queue = new ArrayBlockingQueue<>(workQueueCapacity);
+            // Unlike array-based queues, linked queues use distinct locks for producers and consumers.
+            queue = new LinkedBlockingQueue<>(workQueueCapacity);
         }
         return queue;
     }
 
-    protected synchronized <V> Task<V> getNewTaskFor(Runnable task, V result) {
+    protected <V> Task<V> getNewTaskFor(Runnable task, V result) {
         return new Task<>(executor, task, result, createExecutionContext(),
                 hungTime, this);
     }
@@ -120,8 +170,62 @@ public class ManagedExecutorServiceImpl extends AbstractManagedExecutorService
      * @param services the context services
      */
     public void setExecutionContextService(ExecutionContextService... services) {
-        ecs = new ArrayList<>();
-        Collections.addAll(ecs, services);
+        ecs = new CopyOnWriteArrayList<>(services);
     }
 
+    /**
+     * Applies the rejection policy. Rejected tasks are the (listenable) futures created by the internal pool,
+     * so they are completed (failed or cancelled) when rejected, and never left pending.
+     */
+    class RejectionHandler implements RejectedExecutionHandler {
+
+        private final RejectionPolicy policy;
+
+        RejectionHandler(RejectionPolicy policy) {
+            this.policy = policy;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor pool) {
+            if (pool.isShutdown()) {
+                rejected.increment();
+                throw new RejectedExecutionException("Executor " + name + " has been shut down");
+            }
+            switch (policy) {
+                case CALLER_RUNS:
+                    r.run();
+                    break;
+                case DISCARD_OLDEST:
+                    // Evict the oldest task and retry once. Without evicted task (empty queue, or synchronous
+                    // queue), retrying would be rejected again, so the task is aborted.
+                    Runnable oldest = pool.getQueue().poll();
+                    if (oldest == null) {
+                        abort(pool);
+                    }
+                    rejected.increment();
+                    if (oldest instanceof Future) {
+                        ((Future) oldest).cancel(false);
+                    }
+                    if (!pool.getQueue().offer(r)) {
+                        // The queue was filled again concurrently, the rejection is already counted.
+                        throw saturated(pool);
+                    }
+                    break;
+                case ABORT:
+                default:
+                    abort(pool);
+            }
+        }
+
+        private void abort(ThreadPoolExecutor pool) {
+            rejected.increment();
+            throw saturated(pool);
+        }
+
+        private RejectedExecutionException saturated(ThreadPoolExecutor pool) {
+            logger.warn("Executor {} saturated, rejecting task (active: {}, queue: {})", name,
+                    pool.getActiveCount(), pool.getQueue().size());
+            return new RejectedExecutionException("Executor " + name + " is saturated");
+        }
+    }
 }
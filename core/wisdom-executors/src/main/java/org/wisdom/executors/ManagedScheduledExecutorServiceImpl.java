@@ -45,6 +45,8 @@ public class ManagedScheduledExecutorServiceImpl
                 configuration.getIntegerWithDefault("priority", Thread.NORM_PRIORITY),
                 ecs
         );
+        setStatisticsWindow(configuration.getDuration("statisticsWindow", TimeUnit.MILLISECONDS,
+                DEFAULT_STATISTICS_WINDOW));
     }
 
     public ManagedScheduledExecutorServiceImpl(
@@ -77,7 +79,7 @@ public class ManagedScheduledExecutorServiceImpl
                 hungTime, this);
     }
 
-    protected synchronized <V> Task<V> getNewTaskFor(Callable<V> callable) {
+    protected <V> Task<V> getNewTaskFor(Callable<V> callable) {
         return new Task(executor, callable, createExecutionContext(), hungTime, this);
     }
 
@@ -94,7 +96,7 @@ public class ManagedScheduledExecutorServiceImpl
      * @throws NullPointerException                            if callable is null
      */
     @Override
-    public synchronized <V> ManagedScheduledFutureTask<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+    public <V> ManagedScheduledFutureTask<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
         ScheduledTask<V> task = getNewScheduledTaskFor(callable, false);
         ScheduledFuture<V> future =
                 ((ScheduledExecutorService) executor).schedule(task.callable, delay, unit);
@@ -127,7 +129,7 @@ public class ManagedScheduledExecutorServiceImpl
      * @throws NullPointerException                            if command is null
      */
     @Override
-    public synchronized ManagedScheduledFutureTask<?> schedule(Runnable command, long delay, TimeUnit unit) {
+    public ManagedScheduledFutureTask<?> schedule(Runnable command, long delay, TimeUnit unit) {
         ScheduledTask<?> task = getNewScheduledTaskFor(command, false);
         ScheduledFuture<?> future =
                 ((ScheduledExecutorService) executor).schedule(task.callable, delay, unit);
@@ -137,7 +139,7 @@ public class ManagedScheduledExecutorServiceImpl
 
 
     @Override
-    public synchronized ManagedScheduledFutureTask<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+    public ManagedScheduledFutureTask<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
         ScheduledTask<?> task = getNewScheduledTaskFor(command, true);
         ScheduledFuture<?> future =
                 ((ScheduledExecutorService) executor).scheduleAtFixedRate(task.asRunnable(),
@@ -148,7 +150,7 @@ public class ManagedScheduledExecutorServiceImpl
 
 
     @Override
-    public synchronized ManagedScheduledFutureTask<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+    public ManagedScheduledFutureTask<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
         ScheduledTask<?> task = getNewScheduledTaskFor(command, true);
         ScheduledFuture<?> future =
                 ((ScheduledExecutorService) executor).scheduleWithFixedDelay(task.asRunnable(),
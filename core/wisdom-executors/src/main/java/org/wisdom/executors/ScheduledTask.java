@@ -58,6 +58,27 @@ public class ScheduledTask<V> extends Task<V> implements ManagedScheduledFutureT
     }
 
 
+    /**
+     * The time between the submission and the start of a scheduled task includes the scheduling delay, so it is not
+     * reported.
+     *
+     * @return {@code -1}
+     */
+    @Override
+    public long getTaskQueueTime() {
+        return -1;
+    }
+
+    /**
+     * Scheduled tasks do not expire, as their queue time includes the scheduling delay.
+     *
+     * @return {@code false}
+     */
+    @Override
+    protected boolean isExpired(long timeout, long now) {
+        return false;
+    }
+
     /**
      * Returns {@code true} if this task is periodic. A periodic task may
      * re-run according to some schedule. A non-periodic task can be
@@ -40,9 +40,9 @@ public class Task<V> extends FutureTask<V> implements ListenableFuture<V>, Manag
     private Throwable taskRunThrowable;
     private final AbstractManagedExecutorService parent;
 
-    protected long submissionDate;
-    private long startDate;
-    private long completionDate;
+    protected volatile long submissionDate;
+    private volatile long startDate;
+    private volatile long completionDate;
     private long hungTime;
 
     protected Task(
@@ -84,13 +84,24 @@ public class Task<V> extends FutureTask<V> implements ListenableFuture<V>, Manag
     }
 
     protected Task<V> execute() {
-        ListenableFuture<V> future = executor.submit(callable);
+        // Set the submission date before the submission, as the task may start immediately.
+        this.submissionDate = System.currentTimeMillis();
+        ListenableFuture<V> future;
+        try {
+            future = executor.submit(callable);
+        } catch (RejectedExecutionException e) {
+            // The task was not accepted, the returned future fails immediately instead of never completing.
+            taskRunThrowable = e;
+            future = Futures.immediateFailedFuture(e);
+        }
         submitted(future);
         return this;
     }
 
     protected Task<V> submitted(Future<V> future) {
-        this.submissionDate = System.currentTimeMillis();
+        if (this.submissionDate == 0) {
+            this.submissionDate = System.currentTimeMillis();
+        }
         this.future = JdkFutureAdapters.listenInPoolThread(future);
         return this;
     }
@@ -223,6 +234,31 @@ public class Task<V> extends FutureTask<V> implements ListenableFuture<V>, Manag
     }
 
 
+    /**
+     * Gets the time spent by the task in the executor queue, i.e. the time between the submission and the start of
+     * the task.
+     *
+     * @return the queue time in milliseconds, {@code -1} if the task has not started yet or if the queue time is
+     * not meaningful for this task.
+     */
+    public long getTaskQueueTime() {
+        if (startDate == 0) {
+            return -1;
+        }
+        return Math.max(0, startDate - submissionDate);
+    }
+
+    /**
+     * Checks whether the task has waited in the queue longer than the given timeout.
+     *
+     * @param timeout the queue timeout in milliseconds, {@code 0} if unbounded
+     * @param now     the current time
+     * @return {@code true} if the task has expired and must not be executed
+     */
+    protected boolean isExpired(long timeout, long now) {
+        return timeout > 0 && now - submissionDate > timeout;
+    }
+
     @Override
     public long getHungTaskThreshold() {
         return hungTime;
@@ -243,6 +279,14 @@ public class Task<V> extends FutureTask<V> implements ListenableFuture<V>, Manag
 
         @Override
         public V call() throws Exception {
+            final long timeout = parent.queueTimeout;
+            if (isExpired(timeout, System.currentTimeMillis())) {
+                parent.rejected.increment();
+                RejectedExecutionException expired = new RejectedExecutionException("The task has waited more than "
+                        + timeout + " ms in the queue of " + parent.name());
+                setException(expired);
+                throw expired;
+            }
             try {
                 if (executionContext != null) {
                     executionContext.apply();
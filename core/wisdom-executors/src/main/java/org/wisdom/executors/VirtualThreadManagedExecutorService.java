@@ -0,0 +1,270 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wisdom.api.concurrent.ExecutionContextService;
+import org.wisdom.api.configuration.Configuration;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Implementation of {@link org.wisdom.api.concurrent.ManagedExecutorService} running each task on a virtual
+ * thread. It is selected by setting the {@literal threadType} of an executor to
+ * {@link org.wisdom.api.concurrent.ManagedExecutorService.ThreadType#VIRTUAL}.
+ * <p>
+ * Virtual threads are only available on recent JVMs (21+). As Wisdom runs on older JVMs too, the virtual
+ * thread API is looked up reflectively. Use {@link #create(String, Configuration, List)} to get a virtual thread
+ * executor when supported, and a regular (platform thread) executor otherwise.
+ * <p>
+ * Each task runs on a new virtual thread (virtual threads are cheap, they are never pooled), and there is no queue:
+ * {@literal maxSize} is the maximum number of concurrent tasks. Beyond this limit, the rejection policy applies. As
+ * tasks are still {@link Task} objects, execution contexts and hung task detection work as for the other executors.
+ */
+public class VirtualThreadManagedExecutorService extends ManagedExecutorServiceImpl {
+
+    /**
+     * The default maximum number of tasks executed concurrently.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_TASKS = 10000;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadManagedExecutorService.class);
+
+    /**
+     * The method creating a virtual thread builder ({@code Thread.ofVirtual()}), {@code null} if not supported.
+     */
+    private static final Method OF_VIRTUAL;
+
+    static {
+        Method method = null;
+        try {
+            method = Thread.class.getMethod("ofVirtual");
+            // Check that the feature is enabled (it is a preview feature on some JVMs).
+            newVirtualThreadFactory(method, "probe", null);
+        } catch (Exception | LinkageError e) { //NOSONAR
+            LOGGER.debug("Virtual threads are not supported by this JVM", e);
+            method = null;
+        }
+        OF_VIRTUAL = method;
+    }
+
+    /**
+     * Creates an executor using virtual threads.
+     *
+     * @param name        the executor name
+     * @param hungTime    the hung threshold
+     * @param maxSize     the maximum number of tasks executed concurrently
+     * @param ecs         the execution context services
+     * @throws UnsupportedOperationException if the JVM does not support virtual threads
+     */
+    public VirtualThreadManagedExecutorService(String name, long hungTime, int maxSize,
+                                               List<ExecutionContextService> ecs) {
+        super(name, hungTime, ecs, createPool(name, maxSize));
+    }
+
+    /**
+     * @return whether or not the current JVM supports virtual threads.
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Creates a {@link org.wisdom.api.concurrent.ManagedExecutorService} from the given configuration. If the thread
+     * type is {@link org.wisdom.api.concurrent.ManagedExecutorService.ThreadType#VIRTUAL} and the JVM supports
+     * virtual threads, it creates a {@link VirtualThreadManagedExecutorService}, otherwise it falls back to a
+     * {@link ManagedExecutorServiceImpl}.
+     *
+     * @param name          the executor name
+     * @param configuration the executor configuration
+     * @param ecs           the execution context services
+     * @return the created executor
+     */
+    public static ManagedExecutorServiceImpl create(String name, Configuration configuration,
+                                                    List<ExecutionContextService> ecs) {
+        ThreadType type = configuration.get("threadType", ThreadType.class, ThreadType.POOLED);
+        if (type != ThreadType.VIRTUAL) {
+            return new ManagedExecutorServiceImpl(name, configuration, ecs);
+        }
+        if (!isSupported()) {
+            LOGGER.warn("The executor {} is configured to use virtual threads, but the JVM does not support them - " +
+                    "falling back to platform threads", name);
+            return new ManagedExecutorServiceImpl(name, configuration, ecs);
+        }
+        VirtualThreadManagedExecutorService executor = new VirtualThreadManagedExecutorService(
+                name,
+                configuration.getDuration("hungTime", TimeUnit.MILLISECONDS, 60000),
+                configuration.getIntegerWithDefault("maxSize", DEFAULT_MAX_CONCURRENT_TASKS),
+                ecs);
+        executor.setStatisticsWindow(configuration.getDuration("statisticsWindow", TimeUnit.MILLISECONDS,
+                DEFAULT_STATISTICS_WINDOW));
+        executor.setRejectionPolicy(configuration.get("rejectionPolicy", RejectionPolicy.class,
+                RejectionPolicy.ABORT));
+        executor.setQueueTimeout(configuration.getDuration("queueTimeout", TimeUnit.MILLISECONDS, 0));
+        return executor;
+    }
+
+    private static ThreadPoolExecutor createPool(String name, int maxSize) {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by this JVM");
+        }
+        final Logger logger = LoggerFactory.getLogger("executor-" + name);
+        ThreadFactory factory;
+        try {
+            factory = newVirtualThreadFactory(OF_VIRTUAL, name,
+                    (t, e) -> logger.error("Uncaught exception in thread '{}'", t.getName(), e));
+        } catch (Exception e) {
+            throw new UnsupportedOperationException("Cannot create the virtual thread factory", e);
+        }
+        return new ThreadPerTaskPool(maxSize, factory);
+    }
+
+    /**
+     * Creates the virtual thread factory using {@code Thread.ofVirtual().name(name + "-", 0)
+     * .uncaughtExceptionHandler(handler).factory()}.
+     */
+    private static ThreadFactory newVirtualThreadFactory(Method ofVirtual, String name,
+                                                         Thread.UncaughtExceptionHandler handler) throws Exception {
+        Object builder = ofVirtual.invoke(null);
+        Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+        builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+        if (handler != null) {
+            builder = builderClass.getMethod("uncaughtExceptionHandler", Thread.UncaughtExceptionHandler.class)
+                    .invoke(builder, handler);
+        }
+        return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    }
+
+    /**
+     * A {@link ThreadPoolExecutor} starting a new thread for each task instead of reusing its workers. It extends
+     * {@link ThreadPoolExecutor} so the rejection policies and the pool statistics work as for the other executors.
+     */
+    static class ThreadPerTaskPool extends ThreadPoolExecutor {
+
+        private final Semaphore permits;
+        private final Set<Thread> running = ConcurrentHashMap.newKeySet();
+        private final AtomicLong submitted = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicInteger largest = new AtomicInteger();
+
+        ThreadPerTaskPool(int maxSize, ThreadFactory factory) {
+            super(0, maxSize, 0, TimeUnit.MILLISECONDS, new SynchronousQueue<>(), factory);
+            this.permits = new Semaphore(maxSize);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (command == null) {
+                throw new NullPointerException();
+            }
+            if (isShutdown() || !permits.tryAcquire()) {
+                getRejectedExecutionHandler().rejectedExecution(command, this);
+                return;
+            }
+            Thread thread;
+            try {
+                thread = getThreadFactory().newThread(() -> run(command));
+                submitted.incrementAndGet();
+                largest.accumulateAndGet(getActiveCount(), Math::max);
+                thread.start();
+            } catch (RuntimeException | Error e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        private void run(Runnable command) {
+            Thread thread = Thread.currentThread();
+            running.add(thread);
+            try {
+                command.run();
+            } finally {
+                running.remove(thread);
+                completed.incrementAndGet();
+                permits.release();
+                if (isShutdown()) {
+                    synchronized (this) {
+                        notifyAll();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            List<Runnable> list = super.shutdownNow();
+            for (Thread thread : running) {
+                thread.interrupt();
+            }
+            return list;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return super.isTerminated() && getActiveCount() == 0;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            synchronized (this) {
+                while (!isShutdown() || getActiveCount() != 0) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            }
+            return super.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int getActiveCount() {
+            return getMaximumPoolSize() - permits.availablePermits();
+        }
+
+        @Override
+        public int getPoolSize() {
+            return getActiveCount();
+        }
+
+        @Override
+        public int getLargestPoolSize() {
+            return largest.get();
+        }
+
+        @Override
+        public long getTaskCount() {
+            return submitted.get();
+        }
+
+        @Override
+        public long getCompletedTaskCount() {
+            return completed.get();
+        }
+    }
+}
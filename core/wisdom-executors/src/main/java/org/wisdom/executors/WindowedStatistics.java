@@ -0,0 +1,106 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.executors;
+
+import org.wisdom.api.concurrent.ManagedExecutorService.ExecutionStatistics;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Execution statistics over a sliding time window.
+ * <p>
+ * The window is divided in a ring of slots, each of them covering a fixed period of time. Values are recorded in the
+ * slot of the current period. When a slot becomes too old, it is replaced (without locking) by a new one the next
+ * time a value is recorded in it. A snapshot combines all the slots still belonging to the window.
+ */
+public class WindowedStatistics {
+
+    private final long slotDuration;
+    private final AtomicReferenceArray<Slot> slots;
+
+    /**
+     * Creates a new instance of {@link WindowedStatistics}.
+     *
+     * @param window the window size in milliseconds, must be strictly positive
+     * @param count  the number of slots, must be strictly positive
+     */
+    public WindowedStatistics(long window, int count) {
+        if (window <= 0 || count <= 0) {
+            throw new IllegalArgumentException("The window size and the number of slots must be strictly positive");
+        }
+        this.slotDuration = Math.max(1, window / count);
+        this.slots = new AtomicReferenceArray<>(count);
+    }
+
+    /**
+     * Records a value in the current slot.
+     *
+     * @param value the value
+     */
+    public void accept(long value) {
+        accept(value, System.currentTimeMillis());
+    }
+
+    void accept(long value, long now) {
+        long epoch = now / slotDuration;
+        int index = (int) (epoch % slots.length());
+        Slot slot = slots.get(index);
+        while (slot == null || slot.epoch < epoch) {
+            Slot fresh = new Slot(epoch);
+            if (slots.compareAndSet(index, slot, fresh)) {
+                slot = fresh;
+            } else {
+                slot = slots.get(index);
+            }
+        }
+        if (slot.epoch == epoch) {
+            slot.statistics.accept(value);
+        }
+        // Otherwise, the slot has already been recycled for a more recent period, the value is too old.
+    }
+
+    /**
+     * @return the statistics of the values recorded in the current window.
+     */
+    public ExecutionStatistics snapshot() {
+        return snapshot(System.currentTimeMillis());
+    }
+
+    ExecutionStatistics snapshot(long now) {
+        long epoch = now / slotDuration;
+        ExecutionStatistics statistics = new ExecutionStatistics();
+        for (int i = 0; i < slots.length(); i++) {
+            Slot slot = slots.get(i);
+            if (slot != null && slot.epoch > epoch - slots.length() && slot.epoch <= epoch) {
+                statistics.combine(slot.statistics);
+            }
+        }
+        return statistics;
+    }
+
+    private static class Slot {
+        private final long epoch;
+        private final ExecutionStatistics statistics = new ExecutionStatistics();
+
+        private Slot(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+}
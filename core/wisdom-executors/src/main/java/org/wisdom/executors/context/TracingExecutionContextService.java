@@ -0,0 +1,90 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.executors.context;
+
+import org.apache.felix.ipojo.annotations.Component;
+import org.apache.felix.ipojo.annotations.Instantiate;
+import org.apache.felix.ipojo.annotations.Provides;
+import org.wisdom.api.concurrent.ExecutionContext;
+import org.wisdom.api.concurrent.ExecutionContextService;
+import org.wisdom.api.tracing.Span;
+import org.wisdom.api.tracing.Tracing;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Continues the trace of the current request in another thread. The task execution is recorded as a child span of
+ * the span current when the task was submitted, tagged with the time spent in the queue. Executions happening once
+ * the request is completed (such as periodic tasks) are not recorded.
+ */
+@Component
+@Provides
+@Instantiate
+public class TracingExecutionContextService implements ExecutionContextService {
+
+    public static final String TRACING_CONTEXT = "tracing context";
+
+    /**
+     * The name of the spans recording the task executions.
+     */
+    public static final String SPAN_NAME = "async";
+
+    @Override
+    public String name() {
+        return TRACING_CONTEXT;
+    }
+
+    @Override
+    public ExecutionContext prepare() {
+        return new TracingExecution();
+    }
+
+    private static class TracingExecution implements ExecutionContext {
+
+        private final Span parent;
+
+        private final long submission;
+
+        private Span span;
+
+        public TracingExecution() {
+            this.parent = Tracing.current();
+            this.submission = System.nanoTime();
+        }
+
+        @Override
+        public void apply() {
+            // Periodic tasks may run long after the end of the request.
+            if (parent != null && !parent.getTrace().isFinished()) {
+                span = Tracing.start(parent, SPAN_NAME)
+                        .tag("thread", Thread.currentThread().getName())
+                        .tag("queued", TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - submission) + "us");
+            }
+        }
+
+        @Override
+        public void unapply() {
+            if (span != null) {
+                span.finish();
+                span = null;
+            }
+        }
+    }
+}
@@ -28,6 +28,7 @@ import org.wisdom.api.concurrent.ExecutionContext;
 import org.wisdom.api.concurrent.ExecutionContextService;
 import org.wisdom.api.concurrent.ManagedExecutorService;
 import org.wisdom.api.concurrent.ManagedFutureTask;
+import org.wisdom.executors.context.TCCLExecutionContextService;
 import org.wisdom.test.parents.FakeConfiguration;
 
 import java.util.ArrayList;
@@ -36,6 +37,9 @@ import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class ManagedExecutorServiceImplTest {
 
@@ -144,6 +148,37 @@ public class ManagedExecutorServiceImplTest {
         assertThat(future.isDone()).isTrue();
     }
 
+    @Test
+    public void testQueueAndExecutionTimeStatistics() throws InterruptedException, ExecutionException {
+        // A single thread, so the second task waits for the first one.
+        ManagedExecutorServiceImpl service = new ManagedExecutorServiceImpl("single",
+                ManagedExecutorService.ThreadType.POOLED, 60000, 1, 1, 1000, true,
+                Integer.MAX_VALUE, Thread.NORM_PRIORITY, null);
+        Runnable sleep = () -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                // Ignore it.
+            }
+        };
+        Future<?> first = service.submit(sleep);
+        Future<?> second = service.submit(sleep);
+        first.get();
+        second.get();
+
+        ManagedExecutorService.ExecutionStatistics exec = service.getExecutionTimeStatistics();
+        ManagedExecutorService.ExecutionStatistics queue = service.getQueueTimeStatistics();
+        assertThat(exec.getCount()).isEqualTo(2);
+        assertThat(exec.getMedian()).isGreaterThanOrEqualTo(45);
+        assertThat(queue.getCount()).isEqualTo(2);
+        assertThat(queue.getMaximumExecutionTime()).isGreaterThanOrEqualTo(45);
+        assertThat(queue.get99thPercentile()).isGreaterThanOrEqualTo(45);
+
+        assertThat(service.getRecentExecutionTimeStatistics().getCount()).isEqualTo(2);
+        assertThat(service.getRecentQueueTimeStatistics().getCount()).isEqualTo(2);
+        service.shutdownNow();
+    }
+
     @Test
     public void testTheExecutionOfFiftyThreads() throws InterruptedException, ExecutionException {
         List<Callable<String>> callables = new ArrayList<>();
@@ -354,6 +389,209 @@ public class ManagedExecutorServiceImplTest {
         assertThat(service.getQueue()).isInstanceOf(LinkedBlockingQueue.class);
     }
 
+    @Test
+    public void testConcurrentSubmissions() throws InterruptedException, ExecutionException {
+        final int producers = 8;
+        final int tasksPerProducer = 200;
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<?>> futures = new CopyOnWriteArrayList<>();
+        ManagedExecutorServiceImpl service = new ManagedExecutorServiceImpl("concurrent",
+                ManagedExecutorService.ThreadType.POOLED, 60000, 4, 4, 1000, true,
+                Integer.MAX_VALUE, Thread.NORM_PRIORITY, null);
+        service.setExecutionContextService(new TCCLExecutionContextService());
+
+        Thread[] threads = new Thread[producers];
+        for (int i = 0; i < producers; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < tasksPerProducer; j++) {
+                    futures.add(service.submit(new MyCallable()));
+                    futures.add(service.submit(() -> counter.incrementAndGet()));
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        assertThat(counter.get()).isEqualTo(producers * tasksPerProducer * 2);
+        assertThat(service.getExecutionTimeStatistics().getCount()).isEqualTo(producers * tasksPerProducer * 2);
+        // Completed tasks are not tracked anymore (listeners are called right after the completion).
+        for (int i = 0; i < 100 && !service.tasks.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        assertThat(service.tasks).isEmpty();
+        service.shutdownNow();
+    }
+
+    @Test
+    public void testAbortRejectionPolicy() throws InterruptedException {
+        ManagedExecutorServiceImpl service = createSaturatedExecutor(ManagedExecutorService.RejectionPolicy.ABORT);
+        ManagedFutureTask<String> rejected = service.submit(new MyCallable());
+        assertThat(rejected.isDone()).isTrue();
+        try {
+            rejected.get();
+            fail("Rejection expected");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(RejectedExecutionException.class);
+        }
+        assertThat(service.getRejectedTaskCount()).isEqualTo(1);
+        // The rejected task is not tracked.
+        assertThat(service.tasks).hasSize(2);
+        service.shutdownNow();
+    }
+
+    @Test
+    public void testCallerRunsRejectionPolicy() throws InterruptedException, ExecutionException {
+        ManagedExecutorServiceImpl service = createSaturatedExecutor(
+                ManagedExecutorService.RejectionPolicy.CALLER_RUNS);
+        final Thread caller = Thread.currentThread();
+        ManagedFutureTask<Thread> future = service.submit(Thread::currentThread);
+        assertThat(future.get()).isEqualTo(caller);
+        assertThat(service.getRejectedTaskCount()).isEqualTo(0);
+        service.shutdownNow();
+    }
+
+    @Test
+    public void testDiscardOldestRejectionPolicy() throws InterruptedException, ExecutionException {
+        ManagedExecutorServiceImpl service = createSaturatedExecutor(
+                ManagedExecutorService.RejectionPolicy.DISCARD_OLDEST);
+        ManagedFutureTask<?> queued = service.tasks.stream().filter(t -> t.getTaskStartTime() == 0)
+                .findFirst().get();
+        service.submit(new MyCallable());
+        assertThat(queued.isCancelled()).isTrue();
+        assertThat(service.getRejectedTaskCount()).isEqualTo(1);
+        service.shutdownNow();
+    }
+
+    @Test
+    public void testDiscardOldestRejectionPolicyWithoutQueue() throws InterruptedException {
+        ManagedExecutorServiceImpl service = new ManagedExecutorServiceImpl("synchronous",
+                ManagedExecutorService.ThreadType.POOLED, 60000, 1, 1, 1000, true, 0, Thread.NORM_PRIORITY, null)
+                .setRejectionPolicy(ManagedExecutorService.RejectionPolicy.DISCARD_OLDEST);
+        final CountDownLatch latch = new CountDownLatch(1);
+        service.submit(() -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                // Ignore it.
+            }
+        });
+        // Nothing can be evicted, the task is rejected.
+        ManagedFutureTask<String> rejected = service.submit(new MyCallable());
+        try {
+            rejected.get();
+            fail("Rejection expected");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(RejectedExecutionException.class);
+        }
+        assertThat(service.getRejectedTaskCount()).isEqualTo(1);
+        latch.countDown();
+        service.shutdownNow();
+    }
+
+    @Test
+    public void testDiscardOldestRejectionPolicyWithFullQueue() {
+        ManagedExecutorServiceImpl service = new ManagedExecutorServiceImpl("full",
+                ManagedExecutorService.ThreadType.POOLED, 60000, 1, 1, 1000, true, 1, Thread.NORM_PRIORITY, null);
+        // The queue is filled again by another producer between the eviction and the retry.
+        ThreadPoolExecutor pool = mock(ThreadPoolExecutor.class);
+        @SuppressWarnings("unchecked")
+        BlockingQueue<Runnable> queue = mock(BlockingQueue.class);
+        FutureTask<String> oldest = new FutureTask<>(new MyCallable());
+        Runnable task = new FutureTask<>(new MyCallable());
+        when(pool.getQueue()).thenReturn(queue);
+        when(queue.poll()).thenReturn(oldest);
+        when(queue.offer(task)).thenReturn(false);
+        try {
+            service.new RejectionHandler(ManagedExecutorService.RejectionPolicy.DISCARD_OLDEST)
+                    .rejectedExecution(task, pool);
+            fail("Rejection expected");
+        } catch (RejectedExecutionException e) {
+            // Expected.
+        }
+        assertThat(oldest.isCancelled()).isTrue();
+        assertThat(service.getRejectedTaskCount()).isEqualTo(1);
+        service.shutdownNow();
+    }
+
+    @Test
+    public void testRejectionAfterShutdown() throws InterruptedException {
+        ManagedExecutorServiceImpl service = new ManagedExecutorServiceImpl("shutdown",
+                ManagedExecutorService.ThreadType.POOLED, 60000, 1, 1, 1000, true, 1, Thread.NORM_PRIORITY, null)
+                .setRejectionPolicy(ManagedExecutorService.RejectionPolicy.CALLER_RUNS);
+        service.shutdown();
+        ManagedFutureTask<String> future = service.submit(new MyCallable());
+        try {
+            future.get();
+            fail("Rejection expected");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(RejectedExecutionException.class);
+        }
+        assertThat(counter.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void testQueueTimeout() throws InterruptedException {
+        ManagedExecutorServiceImpl service = new ManagedExecutorServiceImpl("timeout",
+                ManagedExecutorService.ThreadType.POOLED, 60000, 1, 1, 1000, true, 10, Thread.NORM_PRIORITY, null)
+                .setQueueTimeout(20);
+        service.submit(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                // Ignore it.
+            }
+        });
+        ManagedFutureTask<String> expired = service.submit(new MyCallable());
+        try {
+            expired.get();
+            fail("Rejection expected");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(RejectedExecutionException.class);
+        }
+        assertThat(counter.get()).isEqualTo(0);
+        assertThat(service.getRejectedTaskCount()).isEqualTo(1);
+        service.shutdownNow();
+    }
+
+    @Test
+    public void testDefaultQueueIsBounded() {
+        FakeConfiguration configuration = new FakeConfiguration(ImmutableMap.<String, Object>of("name", "default"));
+        ManagedExecutorServiceImpl service = new ManagedExecutorServiceImpl("default", configuration, null);
+        assertThat(service.getQueue().remainingCapacity())
+                .isEqualTo(ManagedExecutorServiceImpl.DEFAULT_WORK_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Creates an executor with a single thread and a queue of 1, both being used by blocking tasks.
+     */
+    private ManagedExecutorServiceImpl createSaturatedExecutor(ManagedExecutorService.RejectionPolicy policy) {
+        ManagedExecutorServiceImpl service = new ManagedExecutorServiceImpl("saturated",
+                ManagedExecutorService.ThreadType.POOLED, 60000, 1, 1, 1000, true, 1, Thread.NORM_PRIORITY, null)
+                .setRejectionPolicy(policy);
+        final CountDownLatch latch = new CountDownLatch(1);
+        Runnable blocking = () -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                // Ignore it.
+            }
+        };
+        service.submit(blocking);
+        service.submit(blocking);
+        return service;
+    }
+
     private class MyCallable implements Callable<String> {
 
         @Override
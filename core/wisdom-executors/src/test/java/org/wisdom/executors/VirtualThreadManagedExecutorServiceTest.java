@@ -0,0 +1,164 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.executors;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.After;
+import org.junit.Test;
+import org.wisdom.api.concurrent.ExecutionContextService;
+import org.wisdom.api.concurrent.ManagedExecutorService;
+import org.wisdom.executors.context.TCCLExecutionContextService;
+import org.wisdom.test.parents.FakeConfiguration;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.junit.Assume.assumeTrue;
+
+public class VirtualThreadManagedExecutorServiceTest {
+
+    private ManagedExecutorServiceImpl executor;
+
+    @After
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testThatPooledTypeCreatesARegularExecutor() {
+        executor = VirtualThreadManagedExecutorService.create("test",
+                new FakeConfiguration(ImmutableMap.<String, Object>of("maxSize", 10)), null);
+        assertThat(executor).isNotInstanceOf(VirtualThreadManagedExecutorService.class);
+        assertThat(executor.getMaximumPoolSize()).isEqualTo(10);
+    }
+
+    @Test
+    public void testFallbackWhenVirtualThreadsAreNotSupported() throws Exception {
+        assumeTrue(!VirtualThreadManagedExecutorService.isSupported());
+        executor = VirtualThreadManagedExecutorService.create("test", virtual(), null);
+        assertThat(executor).isNotInstanceOf(VirtualThreadManagedExecutorService.class);
+        assertThat(executor.submit(() -> "hello").get()).isEqualTo("hello");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testCreationFailsWhenVirtualThreadsAreNotSupported() {
+        assumeTrue(!VirtualThreadManagedExecutorService.isSupported());
+        new VirtualThreadManagedExecutorService("test", 1000, 10, null);
+    }
+
+    @Test
+    public void testTasksRunOnVirtualThreads() throws Exception {
+        assumeTrue(VirtualThreadManagedExecutorService.isSupported());
+        executor = VirtualThreadManagedExecutorService.create("test", virtual(), null);
+        assertThat(executor).isInstanceOf(VirtualThreadManagedExecutorService.class);
+
+        Boolean virtual = executor.submit(() -> (Boolean) Thread.class.getMethod("isVirtual")
+                .invoke(Thread.currentThread())).get();
+        assertThat(virtual).isTrue();
+        String name = executor.submit(() -> Thread.currentThread().getName()).get();
+        assertThat(name).startsWith("test-");
+        assertThat(executor.getExecutionTimeStatistics().getNumberOfTasks()).isEqualTo(2);
+    }
+
+    @Test
+    public void testThatVirtualThreadsAreNotReused() throws Exception {
+        assumeTrue(VirtualThreadManagedExecutorService.isSupported());
+        executor = new VirtualThreadManagedExecutorService("test", 1000, 10, null);
+        Thread first = executor.submit(Thread::currentThread).get();
+        first.join();
+        Thread second = executor.submit(Thread::currentThread).get();
+        assertThat(second).isNotSameAs(first);
+        second.join();
+        assertThat(executor.getActiveCount()).isEqualTo(0);
+        assertThat(executor.getCompletedTaskCount()).isEqualTo(2);
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(executor.isTerminated()).isTrue();
+    }
+
+    @Test
+    public void testThatTheMaximumNumberOfConcurrentTasksIsEnforced() throws Exception {
+        assumeTrue(VirtualThreadManagedExecutorService.isSupported());
+        executor = new VirtualThreadManagedExecutorService("test", 1000, 2, null);
+        final CountDownLatch latch = new CountDownLatch(1);
+        Callable<String> blocking = () -> {
+            latch.await();
+            return "done";
+        };
+        Future<String> f1 = executor.submit(blocking);
+        Future<String> f2 = executor.submit(blocking);
+        Future<String> f3 = executor.submit(blocking);
+        try {
+            f3.get();
+            fail("The third task should have been rejected");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(RejectedExecutionException.class);
+        }
+        assertThat(executor.getRejectedTaskCount()).isEqualTo(1);
+        latch.countDown();
+        assertThat(f1.get()).isEqualTo("done");
+        assertThat(f2.get()).isEqualTo("done");
+    }
+
+    @Test
+    public void testExecutionContextPropagation() throws Exception {
+        assumeTrue(VirtualThreadManagedExecutorService.isSupported());
+        List<ExecutionContextService> ecs = new ArrayList<>();
+        ecs.add(new TCCLExecutionContextService());
+        executor = VirtualThreadManagedExecutorService.create("test", virtual(), ecs);
+
+        ClassLoader original = Thread.currentThread().getContextClassLoader();
+        ClassLoader loader = new URLClassLoader(new URL[0]);
+        Thread.currentThread().setContextClassLoader(loader);
+        try {
+            Future<ClassLoader> future = executor.submit(() -> Thread.currentThread().getContextClassLoader());
+            assertThat(future.get()).isSameAs(loader);
+        } finally {
+            Thread.currentThread().setContextClassLoader(original);
+        }
+    }
+
+    @Test
+    public void testHungTaskDetection() throws Exception {
+        assumeTrue(VirtualThreadManagedExecutorService.isSupported());
+        executor = new VirtualThreadManagedExecutorService("test", 10, 10, null);
+        final CountDownLatch latch = new CountDownLatch(1);
+        Future<?> future = executor.submit(() -> {
+            latch.await();
+            return null;
+        });
+        Thread.sleep(100);
+        assertThat(executor.getHungTasks()).hasSize(1).contains((Task) future);
+        latch.countDown();
+        future.get();
+    }
+
+    private static FakeConfiguration virtual() {
+        return new FakeConfiguration(ImmutableMap.<String, Object>of(
+                "threadType", ManagedExecutorService.ThreadType.VIRTUAL));
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.executors;
+
+import org.junit.Test;
+import org.wisdom.api.concurrent.ManagedExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the sliding window statistics.
+ */
+public class WindowedStatisticsTest {
+
+    @Test
+    public void testThatOldValuesLeaveTheWindow() {
+        WindowedStatistics statistics = new WindowedStatistics(6000, 6);
+        statistics.accept(10, 0);
+        statistics.accept(20, 1500);
+        statistics.accept(30, 5999);
+
+        ManagedExecutorService.ExecutionStatistics snapshot = statistics.snapshot(5999);
+        assertThat(snapshot.getCount()).isEqualTo(3);
+        assertThat(snapshot.getMinimumExecutionTime()).isEqualTo(10);
+
+        // The first slot is not in the window anymore.
+        snapshot = statistics.snapshot(6000);
+        assertThat(snapshot.getCount()).isEqualTo(2);
+        assertThat(snapshot.getMinimumExecutionTime()).isEqualTo(20);
+
+        // Recording in a recycled slot drops the old values.
+        statistics.accept(40, 6500);
+        snapshot = statistics.snapshot(6500);
+        assertThat(snapshot.getCount()).isEqualTo(3);
+        assertThat(snapshot.getMaximumExecutionTime()).isEqualTo(40);
+
+        assertThat(statistics.snapshot(20000).getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testThatTooOldValuesAreIgnored() {
+        WindowedStatistics statistics = new WindowedStatistics(6000, 6);
+        statistics.accept(10, 7000);
+        // Same slot, but previous period.
+        statistics.accept(20, 1000);
+        assertThat(statistics.snapshot(7000).getCount()).isEqualTo(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWindow() {
+        new WindowedStatistics(0, 6);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.executors.context;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wisdom.api.concurrent.ExecutionContextService;
+import org.wisdom.api.concurrent.ManagedExecutorService;
+import org.wisdom.api.tracing.Span;
+import org.wisdom.api.tracing.Trace;
+import org.wisdom.api.tracing.Tracing;
+import org.wisdom.executors.ManagedExecutorServiceImpl;
+import org.wisdom.test.parents.FakeConfiguration;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TracingExecutionContextServiceTest {
+
+    private ManagedExecutorService service;
+
+    @Before
+    public void setUp() {
+        service = new ManagedExecutorServiceImpl("test",
+                new FakeConfiguration(Collections.<String, Object>emptyMap()),
+                ImmutableList.<ExecutionContextService>of(new TracingExecutionContextService()));
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        service.shutdown();
+        service.awaitTermination(100, TimeUnit.MICROSECONDS);
+    }
+
+    @Test
+    public void testThatTheTraceIsContinued() throws Exception {
+        Trace trace = new Trace("GET /", null);
+        Span parent = Tracing.start(trace.getRoot(), "action");
+        Span child = service.submit(() -> Tracing.start("job")).get();
+        parent.finish();
+        assertThat(Tracing.current()).isNull();
+
+        List<Span> spans = trace.getSpans();
+        assertThat(spans).hasSize(4);
+        Span async = spans.get(2);
+        assertThat(async.getName()).isEqualTo(TracingExecutionContextService.SPAN_NAME);
+        assertThat(async.getParentId()).isEqualTo(parent.getId());
+        assertThat(async.isFinished()).isTrue();
+        assertThat(async.getTags()).containsKeys("thread", "queued");
+        assertThat(child.getParentId()).isEqualTo(async.getId());
+    }
+
+    @Test
+    public void testWithoutTrace() throws Exception {
+        assertThat(service.submit(() -> Tracing.start("job")).get()).isSameAs(Span.NOOP);
+    }
+
+    @Test
+    public void testFinishedTrace() throws Exception {
+        Trace trace = new Trace("GET /", null);
+        Span parent = Tracing.start(trace.getRoot(), "action");
+        parent.finish();
+        trace.finish();
+        // The task is submitted from a thread still having the parent span.
+        Span current = Tracing.start(parent, "late");
+        try {
+            service.submit(() -> Tracing.current()).get();
+        } finally {
+            current.finish();
+        }
+        assertThat(trace.getSpans()).extracting("name").doesNotContain(TracingExecutionContextService.SPAN_NAME);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.framework.vertx;
+
+import io.netty.buffer.Unpooled;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wisdom.api.exceptions.HttpException;
+import org.wisdom.api.http.ResponseSink;
+import org.wisdom.api.http.Result;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The {@link ResponseSink} writing the content of an {@link org.wisdom.api.http.AsyncStreamingRenderable} to a
+ * Vert.x response. The calls are executed on the context of the request, in order.
+ */
+final class AsyncResponseSink implements ResponseSink {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncResponseSink.class);
+
+    private final HttpServerResponse response;
+
+    private final Context context;
+
+    private final boolean keepAlive;
+
+    private final Runnable cleanup;
+
+    /**
+     * Set when the response is complete: ended, failed, or closed by the client.
+     */
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    /**
+     * Creates the sink.
+     *
+     * @param response  the response
+     * @param context   the context of the request
+     * @param keepAlive whether or not the connection must be kept open once the response is sent
+     * @param cleanup   called once the response is complete
+     */
+    AsyncResponseSink(HttpServerResponse response, Context context, boolean keepAlive, Runnable cleanup) {
+        this.response = response;
+        this.context = context;
+        this.keepAlive = keepAlive;
+        this.cleanup = cleanup;
+    }
+
+    @Override
+    public void write(ByteBuffer data) {
+        // The buffer is wrapped, not copied.
+        final Buffer buffer = Buffer.buffer(Unpooled.wrappedBuffer(data));
+        run(() -> {
+            if (!done.get()) {
+                response.write(buffer);
+            }
+        });
+    }
+
+    @Override
+    public boolean isFull() {
+        return !done.get() && response.writeQueueFull();
+    }
+
+    @Override
+    public void onDrain(final Runnable callback) {
+        run(() -> {
+            if (done.get()) {
+                return;
+            }
+            if (!response.writeQueueFull()) {
+                callback.run();
+            } else {
+                response.drainHandler(v -> {
+                    response.drainHandler(null);
+                    callback.run();
+                });
+            }
+        });
+    }
+
+    @Override
+    public void onClose(final Runnable callback) {
+        run(() -> response.closeHandler(v -> {
+            if (done.compareAndSet(false, true)) {
+                LOGGER.debug("The connection has been closed before the end of the response");
+                cleanup.run();
+                callback.run();
+            }
+        }));
+    }
+
+    @Override
+    public void end() {
+        run(() -> {
+            if (done.compareAndSet(false, true)) {
+                response.end();
+                if (!keepAlive) {
+                    response.close();
+                }
+                cleanup.run();
+            }
+        });
+    }
+
+    @Override
+    public void fail(final Throwable error) {
+        run(() -> {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            if (response.headWritten()) {
+                LOGGER.error("Cannot send the response, closing the connection", error);
+                response.close();
+            } else {
+                LOGGER.error("Cannot send the response", error);
+                int status = error instanceof HttpException ? ((HttpException) error).toResult().getStatusCode()
+                        : Result.INTERNAL_SERVER_ERROR;
+                response.headers().clear();
+                response.setChunked(false);
+                response.setStatusCode(status);
+                response.end();
+                if (!keepAlive) {
+                    response.close();
+                }
+            }
+            cleanup.run();
+        });
+    }
+
+    /**
+     * Executes the action on the context of the request. When called from this context, the action is executed
+     * directly, otherwise it is executed after the actions already submitted.
+     */
+    private void run(Runnable action) {
+        if (context == null || Vertx.currentContext() == context) {
+            action.run();
+        } else {
+            context.runOnContext(v -> action.run());
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.framework.vertx;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Relays the web socket publications to the other nodes of a Vert.x cluster. A publication is sent once to each
+ * node (using the event bus), and each node writes it to its own clients. Messages sent to a specific client are
+ * routed to the node owning the client, identified from the client id ({@code node:number}).
+ */
+class ClusterRelay {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClusterRelay.class);
+
+    /**
+     * The address on which publications are relayed.
+     */
+    static final String PUBLISH_ADDRESS = "wisdom.websocket.publish";
+
+    /**
+     * The prefix of the address on which the messages sent to the clients of a node are relayed. The node id is
+     * appended.
+     */
+    static final String SEND_ADDRESS_PREFIX = "wisdom.websocket.send.";
+
+    private static final String URI_HEADER = "uri";
+    private static final String CLIENT_HEADER = "client";
+    private static final String BINARY_HEADER = "binary";
+    private static final String ORIGIN_HEADER = "origin";
+
+    private static final char SEPARATOR = ':';
+
+    private final EventBus bus;
+    private final String node;
+    private final WisdomVertxServer server;
+
+    private MessageConsumer<Buffer> publications;
+    private MessageConsumer<Buffer> messages;
+
+    /**
+     * Creates the relay.
+     *
+     * @param bus    the event bus, shared by all the nodes
+     * @param node   the id of the current node
+     * @param server the server handling the clients connected to the current node
+     */
+    ClusterRelay(EventBus bus, String node, WisdomVertxServer server) {
+        this.bus = bus;
+        this.node = node;
+        this.server = server;
+    }
+
+    /**
+     * Computes the id of a client connected to the given node.
+     *
+     * @param node   the node id
+     * @param number the client number, unique on the node
+     * @return the client id
+     */
+    static String clientId(String node, long number) {
+        return node + SEPARATOR + number;
+    }
+
+    /**
+     * Extracts the id of the node owning the given client.
+     *
+     * @param client the client id
+     * @return the node id, {@code null} if the client id does not contain it
+     */
+    static String ownerOf(String client) {
+        int index = client.lastIndexOf(SEPARATOR);
+        if (index <= 0) {
+            return null;
+        }
+        return client.substring(0, index);
+    }
+
+    /**
+     * @return the id of the current node.
+     */
+    String node() {
+        return node;
+    }
+
+    /**
+     * Starts receiving the messages relayed by the other nodes.
+     */
+    void start() {
+        start(null);
+    }
+
+    /**
+     * Starts receiving the messages relayed by the other nodes. On a cluster, the registration of the consumers is
+     * propagated asynchronously to the other nodes.
+     *
+     * @param completion called once the consumers are registered on the cluster, may be {@code null}
+     */
+    void start(Handler<AsyncResult<Void>> completion) {
+        publications = bus.consumer(PUBLISH_ADDRESS, this::onPublication);
+        messages = bus.consumer(SEND_ADDRESS_PREFIX + node, this::onMessage);
+        if (completion != null) {
+            final AtomicInteger pending = new AtomicInteger(2);
+            final AtomicBoolean notified = new AtomicBoolean();
+            Handler<AsyncResult<Void>> registered = ar -> {
+                if ((ar.failed() || pending.decrementAndGet() == 0) && notified.compareAndSet(false, true)) {
+                    completion.handle(ar);
+                }
+            };
+            publications.completionHandler(registered);
+            messages.completionHandler(registered);
+        }
+        LOGGER.info("Web socket publications relayed on the cluster (node {})", node);
+    }
+
+    /**
+     * Stops receiving the relayed messages.
+     */
+    void stop() {
+        if (publications != null) {
+            publications.unregister();
+            publications = null;
+        }
+        if (messages != null) {
+            messages.unregister();
+            messages = null;
+        }
+    }
+
+    /**
+     * Relays a publication to the other nodes.
+     *
+     * @param uri     the web socket uri
+     * @param payload the encoded payload
+     * @param binary  whether the payload is sent as binary frames or text frames
+     */
+    void publish(String uri, Buffer payload, boolean binary) {
+        bus.publish(PUBLISH_ADDRESS, payload, options(uri, binary).addHeader(ORIGIN_HEADER, node));
+    }
+
+    /**
+     * Relays a message to the node owning the given client.
+     *
+     * @param uri     the web socket uri
+     * @param client  the client id
+     * @param payload the encoded payload
+     * @param binary  whether the payload is sent as binary frames or text frames
+     * @return {@code true} if the client belongs to another node and the message has been relayed, {@code false}
+     * otherwise
+     */
+    boolean send(String uri, String client, Buffer payload, boolean binary) {
+        String owner = ownerOf(client);
+        if (owner == null || owner.equals(node)) {
+            return false;
+        }
+        bus.send(SEND_ADDRESS_PREFIX + owner, payload, options(uri, binary).addHeader(CLIENT_HEADER, client));
+        return true;
+    }
+
+    private static DeliveryOptions options(String uri, boolean binary) {
+        return new DeliveryOptions()
+                .addHeader(URI_HEADER, uri)
+                .addHeader(BINARY_HEADER, Boolean.toString(binary));
+    }
+
+    private void onPublication(Message<Buffer> message) {
+        if (node.equals(message.headers().get(ORIGIN_HEADER))) {
+            // Already written to the local clients.
+            return;
+        }
+        server.publishLocally(message.headers().get(URI_HEADER), message.body(),
+                Boolean.parseBoolean(message.headers().get(BINARY_HEADER)));
+    }
+
+    private void onMessage(Message<Buffer> message) {
+        server.sendLocally(message.headers().get(URI_HEADER), message.headers().get(CLIENT_HEADER), message.body(),
+                Boolean.parseBoolean(message.headers().get(BINARY_HEADER)));
+    }
+}
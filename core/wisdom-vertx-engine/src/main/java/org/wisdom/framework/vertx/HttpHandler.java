@@ -19,6 +19,7 @@
  */
 package org.wisdom.framework.vertx;
 
+import com.google.common.base.Charsets;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import io.netty.handler.codec.http.cookie.ServerCookieEncoder;
@@ -32,11 +33,14 @@ import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wisdom.api.bodies.NoHttpBody;
+import org.wisdom.api.bodies.RenderableByteRanges;
 import org.wisdom.api.concurrent.ManagedFutureTask;
 import org.wisdom.api.exceptions.ExceptionMapper;
 import org.wisdom.api.exceptions.HttpException;
 import org.wisdom.api.http.*;
 import org.wisdom.api.router.Route;
+import org.wisdom.api.tracing.Trace;
+import org.wisdom.api.tracing.TraceCollector;
 import org.wisdom.framework.vertx.cookies.CookieHelper;
 import org.wisdom.framework.vertx.file.DiskFileUpload;
 import org.wisdom.framework.vertx.file.MixedFileUpload;
@@ -44,7 +48,11 @@ import org.wisdom.framework.vertx.file.MixedFileUpload;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -60,10 +68,45 @@ public class HttpHandler implements Handler<HttpServerRequest> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpHandler.class);
 
+    /**
+     * The headers describing the content of a streamed response, removed when the response is replaced by an error.
+     * The other headers (cookies, headers set by the filters...) are kept.
+     */
+    private static final String[] CONTENT_HEADERS = {
+            HeaderNames.CONTENT_TYPE,
+            HeaderNames.CONTENT_LENGTH,
+            HeaderNames.CONTENT_ENCODING,
+            HeaderNames.CONTENT_DISPOSITION,
+            HeaderNames.TRANSFER_ENCODING,
+            HeaderNames.ETAG,
+            HeaderNames.LAST_MODIFIED,
+            HeaderNames.CONNECTION
+    };
+
     private final ServiceAccessor accessor;
     private final Vertx vertx;
     private final Server server;
 
+    /**
+     * The {@literal Retry-After} delay (in seconds) sent when the executor is saturated.
+     */
+    private final int retryAfter;
+
+    /**
+     * Whether or not requests are dispatched on the system executor instead of the event loop.
+     */
+    private final boolean offload;
+
+    /**
+     * Whether or not the request timings are recorded.
+     */
+    private final boolean recordTimings;
+
+    /**
+     * Whether or not the request timings are sent in the {@literal Server-Timing} header (dev mode only).
+     */
+    private final boolean timingsHeader;
+
     /**
      * Creates the handler.
      *
@@ -76,6 +119,11 @@ public class HttpHandler implements Handler<HttpServerRequest> {
         this.accessor = accessor;
         this.vertx = vertx;
         this.server = server;
+        this.retryAfter = accessor.getConfiguration().getIntegerWithDefault("request.retry.after", 1);
+        this.offload = accessor.getConfiguration().getBooleanWithDefault("request.dispatch.offload", false);
+        this.recordTimings = accessor.getConfiguration().getBooleanWithDefault("request.timings", false);
+        this.timingsHeader = recordTimings && accessor.getConfiguration().isDev()
+                && accessor.getConfiguration().getBooleanWithDefault("request.timings.header", true);
     }
 
     /**
@@ -90,6 +138,10 @@ public class HttpHandler implements Handler<HttpServerRequest> {
     public void handle(final HttpServerRequest request) {
         LOGGER.debug("A request has arrived on the server : {} {}", request.method(), request.path());
         final ContextFromVertx context = new ContextFromVertx(vertx, vertx.getOrCreateContext(), accessor, request);
+        if (recordTimings) {
+            RequestTimings.attach(context);
+        }
+        startTrace(context, request);
 
         if (!server.accept(request.path())) {
             LOGGER.warn("Request on {} denied by {}", request.path(), server.name());
@@ -149,8 +201,12 @@ public class HttpHandler implements Handler<HttpServerRequest> {
                 req.setRawBody(raw);
                 // Notifies the context that the request has been read, we start the dispatching.
                 if (context.ready()) {
-                    // Dispatch.
-                    dispatch(context, (RequestFromVertx) context.request());
+                    // Dispatch, on the event loop or on the system executor (when blocking actions are expected).
+                    if (offload) {
+                        dispatchOnExecutor(context, (RequestFromVertx) context.request());
+                    } else {
+                        dispatch(context, (RequestFromVertx) context.request());
+                    }
                 } else {
                     writeResponse(context, req,
                             Results.badRequest("Request processing failed"), false, true);
@@ -159,6 +215,50 @@ public class HttpHandler implements Handler<HttpServerRequest> {
         }
     }
 
+    /**
+     * Starts the trace of the request if there are trace collectors, and the request is selected by their sample rate
+     * (see {@link TraceCollector#getSampleRate()}) or the caller has asked for it. The trace continues the trace of the
+     * caller when the request has a {@literal traceparent} header. It is given to the collectors once the response is
+     * written.
+     *
+     * @param context the context
+     * @param request the request
+     */
+    private void startTrace(ContextFromVertx context, HttpServerRequest request) {
+        // A copy-on-write list, read without being copied.
+        final List<TraceCollector> collectors = accessor.getTraceCollectors();
+        if (collectors == null || collectors.isEmpty()) {
+            return;
+        }
+        String traceParent = request.headers().get(HeaderNames.TRACEPARENT);
+        if (!isSampled(collectors) && !Trace.isSampled(traceParent)) {
+            // Not traced (head sampling).
+            return;
+        }
+        Trace trace = Trace.attach(context, request.method() + " " + request.path(), traceParent, true);
+        trace.getRoot().tag("uri", request.uri());
+        trace.onFinish(t -> {
+            for (TraceCollector collector : collectors) {
+                try {
+                    collector.collect(t);
+                } catch (RuntimeException e) {
+                    LOGGER.error("The trace collector {} has thrown an exception", collector, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Checks whether a request is selected by the highest sample rate of the collectors.
+     */
+    private static boolean isSampled(List<TraceCollector> collectors) {
+        double rate = 0;
+        for (TraceCollector collector : collectors) {
+            rate = Math.max(rate, collector.getSampleRate());
+        }
+        return rate >= 1.0 || ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
     /**
      * The request is now completed, clean everything.
      *
@@ -167,18 +267,67 @@ public class HttpHandler implements Handler<HttpServerRequest> {
     private static void cleanup(ContextFromVertx context) {
         // Release all resources, especially uploaded file.
         if (context != null) {
+            RequestTimings timings = RequestTimings.of(context);
+            if (timings != null) {
+                timings.complete();
+            }
+            Trace trace = Trace.of(context);
+            if (trace != null) {
+                trace.finish();
+            }
             context.cleanup();
         }
         Context.CONTEXT.remove();
     }
 
 
+    /**
+     * Dispatches the request on the system executor instead of the event loop. It lets actions block (for instance
+     * when the executor uses virtual threads) without blocking the event loop.
+     *
+     * @param context the context
+     * @param request the request
+     */
+    private void dispatchOnExecutor(final ContextFromVertx context, final RequestFromVertx request) {
+        ManagedFutureTask<?> future = accessor.getExecutor().submit(() -> {
+            try {
+                dispatch(context, request);
+            } finally {
+                // The response may be written by another thread (asynchronous results), don't leak the context.
+                Context.CONTEXT.remove();
+            }
+        });
+        Futures.addCallback(future, new FutureCallback<Object>() {
+            @Override
+            public void onSuccess(Object result) {
+                // The response has been written by the dispatch.
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                // The dispatch has not been executed (rejected or expired), the other errors are handled by the
+                // dispatch itself.
+                if (t instanceof RejectedExecutionException) {
+                    writeResponse(context, request, getServiceUnavailableResult(), false, false);
+                } else {
+                    LOGGER.error("Cannot dispatch the request", t);
+                    writeResponse(context, request, Results.internalServerError(t), false, false);
+                }
+            }
+        });
+    }
+
     private void dispatch(ContextFromVertx context, RequestFromVertx request) {
         LOGGER.debug("Dispatching {} {}", context.request().method(), context.path());
         // 2 Register context
         Context.CONTEXT.set(context);
         // 3 Get route for context
+        long start = System.nanoTime();
         Route route = accessor.getRouter().getRouteFor(context.request().method(), context.path(), request);
+        RequestTimings timings = RequestTimings.of(context);
+        if (timings != null) {
+            timings.record(RequestTimings.Phase.ROUTING, start);
+        }
         Result result;
 
         if (route == null) {
@@ -234,44 +383,189 @@ public class HttpHandler implements Handler<HttpServerRequest> {
             final RequestFromVertx request,
             final AsyncResult asyncResult) {
 
+        if (asyncResult.stage() != null) {
+            handleCompletionStage(context, request, asyncResult);
+            return;
+        }
+
+        if (offload && !io.vertx.core.Context.isOnVertxThread()) {
+            // The request has been dispatched on the executor, compute the result here instead of hopping to
+            // another thread.
+            Result result;
+            try {
+                result = asyncResult.callable().call();
+            } catch (Exception e) { //NOSONAR
+                writeResponse(context, request, getErrorResult(e), false, false);
+                return;
+            }
+            writeAsyncResponse(context, request, asyncResult, result);
+            return;
+        }
+
+        // A rejected submission returns a failed future, handled as the other failures.
         ManagedFutureTask<Result> future = accessor.getExecutor().submit(asyncResult.callable());
         Futures.addCallback(future, new FutureCallback<Result>() {
             @Override
             public void onSuccess(Result result) {
                 // We got a result, write it here.
-                // Merge the headers of the initial result and the async results.
-                final Map<String, String> headers = result.getHeaders();
-                for (Map.Entry<String, String> header : asyncResult.getHeaders().entrySet()) {
-                    if (!headers.containsKey(header.getKey())) {
-                        headers.put(header.getKey(), header.getValue());
-                    }
-                }
-                writeResponse(context, request, result, true, false);
+                writeAsyncResponse(context, request, asyncResult, result);
             }
 
             @Override
             public void onFailure(Throwable t) {
                 //We got a failure, handle it here
+                writeResponse(context, request, getErrorResult(t), false, false);
+            }
+        }/*, MoreExecutors.directExecutor()*/);
+        //TODO Which executor should we use here ?
+    }
 
-                // Check whether it's a HTTPException
-                if (t instanceof HttpException) {
-                    writeResponse(context, request, ((HttpException) t).toResult(), false, false);
-                    return;
+    /**
+     * Handles an asynchronous result provided by a completion stage. No thread waits for the completion: the
+     * response is written on the event loop context of the request when the stage completes, or when the timeout
+     * (if any) is reached.
+     *
+     * @param context     the context
+     * @param request     the request
+     * @param asyncResult the async result
+     */
+    private void handleCompletionStage(
+            final ContextFromVertx context,
+            final RequestFromVertx request,
+            final AsyncResult asyncResult) {
+        // The response must be written once, either on completion or on timeout.
+        final AtomicBoolean done = new AtomicBoolean();
+        final long timer;
+        if (asyncResult.getTimeout() > 0) {
+            timer = vertx.setTimer(asyncResult.getTimeout(), id -> {
+                if (done.compareAndSet(false, true)) {
+                    LOGGER.debug("Call on {} was cancelled because it took more than {} ms", request.uri(),
+                            asyncResult.getTimeout());
+                    try {
+                        asyncResult.stage().toCompletableFuture().cancel(true);
+                    } catch (UnsupportedOperationException e) { //NOSONAR
+                        // The stage cannot be cancelled, ignore its result.
+                    }
+                    runOnContext(context, () -> writeResponse(context, request,
+                            new HttpException(Result.GATEWAY_TIMEOUT, "Request timeout").toResult(), false, false));
                 }
+            });
+        } else {
+            timer = -1;
+        }
 
-                // Check if we have a mapper
-                if (t instanceof Exception) {
-                    ExceptionMapper mapper = accessor.getExceptionMapper((Exception) t);
-                    if (mapper != null) {
-                        writeResponse(context, request, mapper.toResult((Exception) t), false, false);
-                        return;
-                    }
+        asyncResult.stage().whenComplete((result, error) -> {
+            if (!done.compareAndSet(false, true)) {
+                // Timeout already reached.
+                return;
+            }
+            if (timer != -1) {
+                vertx.cancelTimer(timer);
+            }
+            runOnContext(context, () -> {
+                if (error != null) {
+                    writeResponse(context, request, getErrorResult(error), false, false);
+                } else if (result == null) {
+                    writeResponse(context, request,
+                            new HttpException(Result.INTERNAL_SERVER_ERROR, "Computation error").toResult(),
+                            false, false);
+                } else {
+                    writeAsyncResponse(context, request, asyncResult, result);
                 }
+            });
+        });
+    }
 
-                writeResponse(context, request, Results.internalServerError(t), false, false);
+    /**
+     * Executes the given action on the event loop context of the request, with the HTTP context set.
+     *
+     * @param context the context
+     * @param action  the action
+     */
+    private static void runOnContext(final ContextFromVertx context, final Runnable action) {
+        context.vertxContext().runOnContext(v -> {
+            Context.CONTEXT.set(context);
+            try {
+                action.run();
+            } finally {
+                Context.CONTEXT.remove();
             }
-        }/*, MoreExecutors.directExecutor()*/);
-        //TODO Which executor should we use here ?
+        });
+    }
+
+    /**
+     * Writes the result of an asynchronous computation. The headers of the initial async result are merged with
+     * the headers of the computed result.
+     *
+     * @param context     the context
+     * @param request     the request
+     * @param asyncResult the async result
+     * @param result      the computed result
+     */
+    private void writeAsyncResponse(ContextFromVertx context, RequestFromVertx request, AsyncResult asyncResult,
+                                    Result result) {
+        // Merge the headers of the initial result and the async results.
+        final Map<String, String> headers = result.getHeaders();
+        for (Map.Entry<String, String> header : asyncResult.getHeaders().entrySet()) {
+            if (!headers.containsKey(header.getKey())) {
+                headers.put(header.getKey(), header.getValue());
+            }
+        }
+        if (result instanceof AsyncResult) {
+            // For instance, an action returning a completion stage wrapped by the @Async interceptor.
+            handleAsyncResult(context, request, (AsyncResult) result);
+        } else {
+            writeResponse(context, request, result, true, false);
+        }
+    }
+
+    /**
+     * Computes the result sent when an asynchronous computation has failed. {@link HttpException} are converted to
+     * results, then {@link ExceptionMapper}s are used.
+     *
+     * @param failure the failure
+     * @return the result to send
+     */
+    private Result getErrorResult(Throwable failure) {
+        Throwable t = failure;
+        // Completion stages wrap the failure.
+        if (t instanceof CompletionException && t.getCause() != null) {
+            t = t.getCause();
+        }
+
+        // The executor is saturated, ask the client to retry later.
+        if (t instanceof RejectedExecutionException) {
+            return getServiceUnavailableResult();
+        }
+
+        // Check whether it's a HTTPException
+        if (t instanceof HttpException) {
+            return ((HttpException) t).toResult();
+        }
+
+        // Check if we have a mapper
+        if (t instanceof Exception) {
+            ExceptionMapper mapper = accessor.getExceptionMapper((Exception) t);
+            if (mapper != null) {
+                return mapper.toResult((Exception) t);
+            }
+        }
+
+        return Results.internalServerError(t);
+    }
+
+    /**
+     * Creates the result sent when the request cannot be processed because the executor is saturated. The
+     * {@literal Retry-After} delay (in seconds) is configured using the {@literal request.retry.after} property.
+     *
+     * @return the 503 result
+     */
+    private Result getServiceUnavailableResult() {
+        LOGGER.warn("Cannot process the request, the executor is saturated");
+        return Results.status(Status.SERVICE_UNAVAILABLE)
+                .with(HeaderNames.RETRY_AFTER, Integer.toString(retryAfter))
+                .render("Server overloaded - please retry later")
+                .as(MimeTypes.TEXT);
     }
 
     private void writeResponse(
@@ -280,14 +574,43 @@ public class HttpHandler implements Handler<HttpServerRequest> {
             Result result,
             boolean handleFlashAndSessionCookie,
             boolean closeConnection) {
+        // Serve the requested ranges, if any.
+        HttpUtils.handleRanges(request.getVertxRequest(), result);
+
         //Retrieve the renderable object.
         Renderable<?> renderable = result.getRenderable();
         if (renderable == null) {
             renderable = NoHttpBody.INSTANCE;
         }
 
+        if (isZeroCopyRange(renderable)) {
+            // The range is sent directly from the file, no need to open a stream.
+            finalizeWriteReponse(context, request.getVertxRequest(),
+                    result, null, true, handleFlashAndSessionCookie, closeConnection);
+            return;
+        }
+
+        if (renderable instanceof AsyncStreamingRenderable) {
+            // The content is pushed to the response when available.
+            finalizeWriteReponse(context, request.getVertxRequest(),
+                    result, null, true, handleFlashAndSessionCookie, closeConnection);
+            return;
+        }
+
+        if (isStreamable(renderable)) {
+            // The content is written directly to the response while being rendered. The headers may be sent before
+            // the end of the rendering, so the charset must be set now.
+            if (result.getCharset() == null) {
+                result.with(Charsets.UTF_8);
+            }
+            finalizeWriteReponse(context, request.getVertxRequest(),
+                    result, null, true, handleFlashAndSessionCookie, closeConnection);
+            return;
+        }
+
         InputStream stream;
         boolean success = true;
+        long start = System.nanoTime();
         try {
             // Process the result, and apply serialization if required.
             stream = HttpUtils.processResult(accessor, context, renderable, result);
@@ -296,6 +619,10 @@ public class HttpHandler implements Handler<HttpServerRequest> {
             stream = new ByteArrayInputStream(NoHttpBody.empty());
             success = false;
         }
+        RequestTimings timings = RequestTimings.of(context);
+        if (timings != null) {
+            timings.record(RequestTimings.Phase.SERIALIZATION, start);
+        }
 
         // If the content is too big or too small, disable encoding.
         // First get the length of the content, it can be either the length of the renderable object. If not set, we
@@ -356,6 +683,15 @@ public class HttpHandler implements Handler<HttpServerRequest> {
             response.putHeader(HeaderNames.SERVER, SERVER_NAME);
         }
 
+        RequestTimings timings = RequestTimings.of(context);
+        if (timings != null) {
+            // The write phase ends when the request is cleaned up.
+            timings.begin(RequestTimings.Phase.WRITE);
+            if (timingsHeader) {
+                response.putHeader(HeaderNames.SERVER_TIMING, timings.toServerTiming());
+            }
+        }
+
         String fullContentType = result.getFullContentType();
         if (fullContentType == null) {
             if (renderable.mimetype() != null) {
@@ -380,7 +716,20 @@ public class HttpHandler implements Handler<HttpServerRequest> {
             response.headers().add(HeaderNames.SET_COOKIE, encoded);
         }
         response.setStatusCode(HttpUtils.getStatusFromResult(result, success));
-        if (renderable.mustBeChunked()) {
+        Trace trace = Trace.of(context);
+        if (trace != null) {
+            trace.getRoot().tag("status", Integer.toString(response.getStatusCode()));
+            if (response.getStatusCode() >= Status.INTERNAL_SERVER_ERROR) {
+                trace.getRoot().fail("HTTP " + response.getStatusCode());
+            }
+        }
+        if (stream == null && isZeroCopyRange(renderable)) {
+            sendFileRange(context, request, (RenderableByteRanges) renderable, keepAlive && !closeConnection);
+        } else if (stream == null && isStreamable(renderable)) {
+            stream(context, request, result, (StreamingRenderable<?>) renderable, keepAlive && !closeConnection);
+        } else if (stream == null && renderable instanceof AsyncStreamingRenderable) {
+            push(context, request, result, (AsyncStreamingRenderable<?>) renderable, keepAlive && !closeConnection);
+        } else if (renderable.mustBeChunked()) {
             LOGGER.debug("Building the chunked response for {} {} ({})", request.method(), request.uri(), context);
             if (renderable.length() > 0 && !response.headers().contains(HeaderNames.CONTENT_LENGTH)) {
                 response.putHeader(HeaderNames.CONTENT_LENGTH, Long.toString(renderable.length()));
@@ -445,6 +794,131 @@ public class HttpHandler implements Handler<HttpServerRequest> {
         }
     }
 
+    private static boolean isZeroCopyRange(Renderable<?> renderable) {
+        return renderable instanceof RenderableByteRanges
+                && !((RenderableByteRanges) renderable).isMultipart()
+                && ((RenderableByteRanges) renderable).getFile() != null;
+    }
+
+    /**
+     * Sends a range of a file. The file region is transferred directly by Vert.x (without copy when the connection
+     * allows it).
+     *
+     * @param context   the HTTP context
+     * @param request   the Vert.x request
+     * @param ranges    the renderable containing the range
+     * @param keepAlive whether or not the connection must be kept open
+     */
+    private void sendFileRange(final ContextFromVertx context, final HttpServerRequest request,
+                               RenderableByteRanges ranges, final boolean keepAlive) {
+        final HttpServerResponse response = request.response();
+        ByteRange range = ranges.getRanges().get(0);
+        response.putHeader(HeaderNames.CONTENT_LENGTH, Long.toString(range.length()));
+        if (keepAlive) {
+            response.putHeader(HeaderNames.CONNECTION, "keep-alive");
+        }
+        LOGGER.debug("Sending the range {} of {} for {}", range, ranges.getFile(), request.uri());
+        response.sendFile(ranges.getFile().getAbsolutePath(), range.getStart(), range.length(), ar -> {
+            if (ar.failed()) {
+                LOGGER.error("Cannot send the file {} to {}", ranges.getFile(), request.uri(), ar.cause());
+                response.close();
+            } else if (!keepAlive) {
+                response.close();
+            }
+            cleanup(context);
+        });
+    }
+
+    /**
+     * Checks whether the given renderable can be written progressively to the response. Streaming blocks while the
+     * client consumes the content, so it is not done from an event loop: the content is rendered in memory instead.
+     *
+     * @param renderable the renderable
+     * @return {@code true} if the renderable is streamed
+     */
+    private static boolean isStreamable(Renderable<?> renderable) {
+        return renderable instanceof StreamingRenderable
+                && !renderable.requireSerializer()
+                && !io.vertx.core.Context.isOnEventLoopThread();
+    }
+
+    /**
+     * Writes the content of a streaming renderable to the response, using the chunked transfer encoding. If the
+     * rendering fails before anything has been sent, an error response is sent instead. Otherwise the connection is
+     * closed, as the response cannot be completed.
+     *
+     * @param context    the HTTP context
+     * @param request    the Vert.x request
+     * @param result     the result
+     * @param renderable the renderable writing the content
+     * @param keepAlive  whether or not the connection must be kept open
+     */
+    private void stream(final ContextFromVertx context, final HttpServerRequest request, Result result,
+                        StreamingRenderable<?> renderable, boolean keepAlive) {
+        final HttpServerResponse response = request.response();
+        LOGGER.debug("Streaming the response for {} {} ({})", request.method(), request.uri(), context);
+        response.headers().remove(HeaderNames.CONTENT_LENGTH);
+        response.setChunked(true);
+        if (keepAlive) {
+            response.putHeader(HeaderNames.CONNECTION, "keep-alive");
+        }
+        ResponseOutputStream out = new ResponseOutputStream(response, AsyncInputStream.DEFAULT_CHUNK_SIZE);
+        try {
+            renderable.write(context, result, out);
+            out.close();
+        } catch (Exception e) {
+            if (out.isCommitted()) {
+                LOGGER.error("Cannot stream the response to {}, closing the connection", request.uri(), e);
+                response.close();
+                cleanup(context);
+            } else {
+                LOGGER.error("Cannot render the response to {}", request.uri(), e);
+                for (String header : CONTENT_HEADERS) {
+                    response.headers().remove(header);
+                }
+                response.setChunked(false);
+                writeResponse(context, new RequestFromVertx(request), getErrorResult(e), false,
+                        !keepAlive);
+            }
+            return;
+        }
+        response.end();
+        if (!keepAlive) {
+            response.close();
+        }
+        cleanup(context);
+    }
+
+    /**
+     * Sends the content of an asynchronous streaming renderable. The content is written to the response when
+     * available, using the chunked transfer encoding unless the content length is set. No thread waits for the
+     * content.
+     *
+     * @param context    the HTTP context
+     * @param request    the Vert.x request
+     * @param result     the result
+     * @param renderable the renderable pushing the content
+     * @param keepAlive  whether or not the connection must be kept open
+     */
+    private void push(final ContextFromVertx context, final HttpServerRequest request, Result result,
+                      AsyncStreamingRenderable<?> renderable, boolean keepAlive) {
+        final HttpServerResponse response = request.response();
+        LOGGER.debug("Pushing the response for {} {} ({})", request.method(), request.uri(), context);
+        if (!response.headers().contains(HeaderNames.CONTENT_LENGTH)) {
+            response.setChunked(true);
+        }
+        if (keepAlive) {
+            response.putHeader(HeaderNames.CONNECTION, "keep-alive");
+        }
+        AsyncResponseSink sink = new AsyncResponseSink(response, context.vertxContext(), keepAlive,
+                () -> cleanup(context));
+        try {
+            renderable.write(context, result, sink);
+        } catch (Exception e) {
+            sink.fail(e);
+        }
+    }
+
     private boolean shouldEncodingBeDisabledForResponse(long length, Result result) {
         return server.hasCompressionEnabled()
                 && (
@@ -22,11 +22,14 @@ package org.wisdom.framework.vertx;
 import io.vertx.core.http.HttpServerRequest;
 import io.vertx.core.http.HttpVersion;
 import org.slf4j.LoggerFactory;
-import org.wisdom.api.bodies.NoHttpBody;
+import org.wisdom.api.bodies.*;
 import org.wisdom.api.content.ContentSerializer;
 import org.wisdom.api.http.*;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.URLConnection;
+import java.util.List;
 
 /**
  * A set of utility methods used to handle HTTP requests.
@@ -155,4 +158,105 @@ public class HttpUtils {
         return request.method().name().equalsIgnoreCase(HttpMethod.POST.name())
                 || request.method().name().equalsIgnoreCase(HttpMethod.PUT.name());
     }
+
+    /**
+     * Handles the {@literal Range} header of the request. Only successful results sending a file, an URL or a byte
+     * array are concerned. The {@literal Accept-Ranges} header is added to these results (unless already set). If the
+     * request asks for some ranges (and the {@literal If-Range} condition, if any, is met), the result is turned into
+     * a {@literal 206 - Partial Content} result sending only these ranges, or a {@literal 416 - Requested Range Not
+     * Satisfiable} result if none of the ranges can be satisfied.
+     *
+     * @param request the request
+     * @param result  the result
+     * @return the given result, updated to serve the requested ranges
+     */
+    public static Result handleRanges(HttpServerRequest request, Result result) {
+        boolean get = request.method().name().equalsIgnoreCase(HttpMethod.GET.name());
+        boolean head = request.method().name().equalsIgnoreCase(HttpMethod.HEAD.name());
+        Renderable<?> renderable = result.getRenderable();
+        if ((!get && !head) || result.getStatusCode() != Status.OK || !isRangeable(renderable)) {
+            return result;
+        }
+        String accept = result.getHeaders().get(HeaderNames.ACCEPT_RANGES);
+        if (accept == null) {
+            result.with(HeaderNames.ACCEPT_RANGES, "bytes");
+        } else if (!"bytes".equalsIgnoreCase(accept)) {
+            // Ranges explicitly disabled.
+            return result;
+        }
+
+        String header = request.headers().get(HeaderNames.RANGE);
+        if (!get || header == null || !isIfRangeMet(request.headers().get(HeaderNames.IF_RANGE), result)) {
+            return result;
+        }
+        long length = getLength(renderable);
+        List<ByteRange> ranges = ByteRange.parse(header, length);
+        if (length <= 0 || ranges == null) {
+            return result;
+        }
+        result.getHeaders().remove(HeaderNames.CONTENT_LENGTH);
+        if (ranges.isEmpty()) {
+            result.getHeaders().remove(HeaderNames.CONTENT_TYPE);
+            return result.status(Status.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .with(HeaderNames.CONTENT_RANGE, ByteRange.toUnsatisfiedContentRange(length))
+                    .render(NoHttpBody.INSTANCE);
+        }
+        String contentType = result.getFullContentType();
+        if (contentType == null) {
+            contentType = renderable.mimetype();
+        }
+        RenderableByteRanges partial = new RenderableByteRanges(renderable, ranges, length, contentType);
+        result.status(Status.PARTIAL_CONTENT).render(partial).withoutCompression();
+        if (partial.isMultipart()) {
+            result.with(HeaderNames.CONTENT_TYPE, partial.mimetype());
+        } else {
+            result.with(HeaderNames.CONTENT_RANGE, ranges.get(0).toContentRange(length));
+        }
+        return result;
+    }
+
+    /**
+     * Checks the {@literal If-Range} condition. The condition is met if the header is not set, if it is a strong
+     * entity tag equal to the {@literal ETag} of the result, or if it is a date equal to the {@literal
+     * Last-Modified} date of the result (the same comparison as for the {@literal 304 - Not Modified} responses).
+     *
+     * @param ifRange the value of the {@literal If-Range} header, may be {@code null}
+     * @param result  the result
+     * @return {@code true} if the ranges must be sent, {@code false} if the whole content must be sent
+     */
+    static boolean isIfRangeMet(String ifRange, Result result) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("W/")) {
+            // Weak entity tags cannot be used.
+            return false;
+        }
+        return ifRange.equals(result.getHeaders().get(HeaderNames.ETAG))
+                || ifRange.equals(result.getHeaders().get(HeaderNames.LAST_MODIFIED));
+    }
+
+    private static boolean isRangeable(Renderable<?> renderable) {
+        return renderable instanceof RenderableFile
+                || renderable instanceof RenderableURL
+                || renderable instanceof RenderableByteArray;
+    }
+
+    private static long getLength(Renderable<?> renderable) {
+        if (renderable instanceof RenderableURL) {
+            try {
+                URLConnection connection = ((RenderableURL) renderable).content().openConnection();
+                long length = connection.getContentLengthLong();
+                // Only the connection metadata are read.
+                connection.getInputStream().close();
+                return length;
+            } catch (IOException e) {
+                LoggerFactory.getLogger(HttpUtils.class).debug("Cannot compute the length of {}",
+                        renderable.content(), e);
+                return -1;
+            }
+        }
+        return renderable.length();
+    }
+
 }
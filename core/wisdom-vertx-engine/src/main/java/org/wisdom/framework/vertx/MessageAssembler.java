@@ -0,0 +1,146 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.framework.vertx;
+
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.http.WebSocketFrame;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Assembles the frames received on a web socket into messages. Messages sent in a single frame are delivered as
+ * they are. Fragmented messages are either delivered as a stream as soon as the first fragment is received (when a
+ * listener streams the messages of the web socket), or assembled and delivered once the last fragment is received.
+ * <p>
+ * Frames are received on the socket context, so instances are not thread-safe.
+ */
+final class MessageAssembler implements Handler<WebSocketFrame> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageAssembler.class);
+
+    private final ServerWebSocket socket;
+
+    private final Socket sock;
+
+    private final WisdomVertxServer dispatcher;
+
+    private final long maxMessageSize;
+
+    /**
+     * The fragments of the message being assembled, {@code null} if none.
+     */
+    private Buffer pending;
+
+    /**
+     * The stream of the message being streamed, {@code null} if none.
+     */
+    private WebSocketInputStream stream;
+
+    /**
+     * Creates the assembler.
+     *
+     * @param socket         the socket
+     * @param sock           the socket as known by the dispatcher
+     * @param dispatcher     the dispatcher
+     * @param maxMessageSize the maximum size of the assembled messages
+     */
+    MessageAssembler(ServerWebSocket socket, Socket sock, WisdomVertxServer dispatcher, long maxMessageSize) {
+        this.socket = socket;
+        this.sock = sock;
+        this.dispatcher = dispatcher;
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    /**
+     * Handles a frame.
+     *
+     * @param frame the frame
+     */
+    @Override
+    public void handle(WebSocketFrame frame) {
+        if (frame.isContinuation()) {
+            continuation(frame);
+        } else if (frame.isText() || frame.isBinary()) {
+            first(frame);
+        }
+    }
+
+    private void first(WebSocketFrame frame) {
+        if (stream != null || pending != null) {
+            LOGGER.warn("Web socket message on {} started before the end of the previous one", socket.path());
+            abort("A new message has been received before the end of the message");
+        }
+        if (frame.isFinal()) {
+            dispatcher.received(socket.path(), frame.binaryData().getBytes(), sock);
+        } else if (dispatcher.isStreaming(socket.path())) {
+            stream = new WebSocketInputStream(socket, sock.context());
+            stream.write(frame.binaryData().getBytes());
+            dispatcher.received(socket.path(), stream, sock);
+        } else {
+            pending = Buffer.buffer();
+            append(frame.binaryData());
+        }
+    }
+
+    private void continuation(WebSocketFrame frame) {
+        if (stream != null) {
+            stream.write(frame.binaryData().getBytes());
+            if (frame.isFinal()) {
+                stream.end();
+                stream = null;
+            }
+        } else if (pending != null) {
+            if (append(frame.binaryData()) && frame.isFinal()) {
+                byte[] content = pending.getBytes();
+                pending = null;
+                dispatcher.received(socket.path(), content, sock);
+            }
+        }
+    }
+
+    private boolean append(Buffer fragment) {
+        if (pending.length() + fragment.length() > maxMessageSize) {
+            LOGGER.warn("Closing the web socket {} - the received message exceeds {} bytes", socket.path(),
+                    maxMessageSize);
+            pending = null;
+            socket.close();
+            return false;
+        }
+        pending.appendBuffer(fragment);
+        return true;
+    }
+
+    /**
+     * Notifies the assembler that the socket has been closed. The message being received is discarded.
+     */
+    void closed() {
+        abort("The web socket has been closed before the end of the message");
+    }
+
+    private void abort(String reason) {
+        pending = null;
+        if (stream != null) {
+            stream.fail(reason);
+            stream = null;
+        }
+    }
+}
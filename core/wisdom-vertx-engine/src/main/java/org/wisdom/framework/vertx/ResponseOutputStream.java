@@ -0,0 +1,166 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.framework.vertx;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream writing to a (chunked) Vert.x response. Bytes are accumulated in a buffer, sent when full. So
+ * the response is sent progressively, by chunks of (at least) the buffer size. The buffers are given to Vert.x
+ * without copy.
+ * <p>
+ * This stream must be used from a thread that is not an event loop, as it blocks while the write queue of the
+ * response is full (back-pressure). Nothing is sent until the first chunk is full, so the response can still be
+ * replaced if the rendering fails early (see {@link #isCommitted()}).
+ */
+class ResponseOutputStream extends OutputStream {
+
+    private final HttpServerResponse response;
+
+    private final int chunkSize;
+
+    private Buffer current;
+
+    private boolean committed;
+
+    private boolean closed;
+
+    /**
+     * The monitor notified when the write queue of the response is drained, or when the connection is closed.
+     */
+    private final Object drain = new Object();
+
+    /**
+     * Creates a new output stream.
+     *
+     * @param response  the response, the headers must be set and the response must be chunked
+     * @param chunkSize the size of the chunks
+     */
+    ResponseOutputStream(HttpServerResponse response, int chunkSize) {
+        this.response = response;
+        this.chunkSize = chunkSize;
+        response.drainHandler(v -> wakeUp());
+        response.closeHandler(v -> wakeUp());
+    }
+
+    private void wakeUp() {
+        synchronized (drain) {
+            drain.notifyAll();
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        buffer().appendByte((byte) b);
+        if (current.length() >= chunkSize) {
+            send();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        int offset = off;
+        int remaining = len;
+        while (remaining > 0) {
+            int size = Math.min(remaining, chunkSize - buffer().length());
+            current.appendBytes(b, offset, size);
+            offset += size;
+            remaining -= size;
+            if (current.length() >= chunkSize) {
+                send();
+            }
+        }
+    }
+
+    /**
+     * Flushing is a no-op: writers such as the charset encoders flush on each call, sending tiny chunks. The
+     * pending bytes are sent when the buffer is full, or on {@link #close()}.
+     */
+    @Override
+    public void flush() {
+        // Do nothing.
+    }
+
+    /**
+     * Sends the pending bytes. The response is not ended.
+     *
+     * @throws IOException if the connection is closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (current != null && current.length() > 0) {
+            send();
+        }
+        closed = true;
+    }
+
+    /**
+     * @return whether or not bytes have already been sent to the client (and so the headers).
+     */
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    private Buffer buffer() {
+        if (current == null) {
+            current = Buffer.buffer(chunkSize);
+        }
+        return current;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (response.closed()) {
+            throw new IOException("Connection closed by the client");
+        }
+    }
+
+    private void send() throws IOException {
+        ensureOpen();
+        committed = true;
+        response.write(current);
+        current = null;
+        // Back-pressure. The queue is checked under the lock notified by the drain and close handlers, so the
+        // notification cannot be missed.
+        synchronized (drain) {
+            while (response.writeQueueFull() && !response.closed()) {
+                try {
+                    drain.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the client");
+                }
+            }
+        }
+        ensureOpen();
+    }
+}
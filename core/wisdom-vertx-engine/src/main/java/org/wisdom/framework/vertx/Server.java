@@ -51,6 +51,11 @@ public class Server {
      */
     private static volatile Random random = new Random(); //NOSONAR we don't need a secure random here.
 
+    /**
+     * The default maximum size of the assembled web socket messages: 1 MB.
+     */
+    public static final long DEFAULT_MAX_WEBSOCKET_MESSAGE_SIZE = 1024 * 1024;
+
     /**
      * The name of the server.
      */
@@ -411,6 +416,15 @@ public class Server {
         return configuration.getBooleanWithDefault("vertx.compression", true);
     }
 
+    /**
+     * @return the maximum size of the fragmented web socket messages assembled before being delivered. Larger
+     * messages close the connection. It does not apply to the messages delivered as streams. By default it's
+     * {@link #DEFAULT_MAX_WEBSOCKET_MESSAGE_SIZE} bytes.
+     */
+    public long getMaxWebSocketMessageSize() {
+        return configuration.getBytes("vertx.maxWebSocketMessageSize", DEFAULT_MAX_WEBSOCKET_MESSAGE_SIZE);
+    }
+
     /**
      * @return the threshold below which the content should not be encoded. By default
      * it's {@link ApplicationConfiguration#DEFAULT_ENCODING_MIN_SIZE} bytes.
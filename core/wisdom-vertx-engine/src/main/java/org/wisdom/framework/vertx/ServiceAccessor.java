@@ -25,8 +25,11 @@ import org.wisdom.api.content.ContentEngine;
 import org.wisdom.api.crypto.Crypto;
 import org.wisdom.api.exceptions.ExceptionMapper;
 import org.wisdom.api.router.Router;
+import org.wisdom.api.tracing.TraceCollector;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * A structure to access services.
@@ -40,10 +43,18 @@ public class ServiceAccessor {
     private final ManagedExecutorService executor;
     private final WisdomVertxServer dispatcher;
     private final Collection<ExceptionMapper> mappers;
+    private final List<TraceCollector> collectors;
 
     public ServiceAccessor(Crypto crypto, ApplicationConfiguration configuration, Router router,
                            ContentEngine engine, ManagedExecutorService executor, WisdomVertxServer dispatcher,
                            Collection<ExceptionMapper> mappers) {
+        this(crypto, configuration, router, engine, executor, dispatcher, mappers,
+                Collections.<TraceCollector>emptyList());
+    }
+
+    public ServiceAccessor(Crypto crypto, ApplicationConfiguration configuration, Router router,
+                           ContentEngine engine, ManagedExecutorService executor, WisdomVertxServer dispatcher,
+                           Collection<ExceptionMapper> mappers, List<TraceCollector> collectors) {
         this.crypto = crypto;
         this.configuration = configuration;
         this.router = router;
@@ -51,6 +62,7 @@ public class ServiceAccessor {
         this.executor = executor;
         this.dispatcher = dispatcher;
         this.mappers = mappers;
+        this.collectors = collectors;
     }
 
     public Crypto getCrypto() {
@@ -77,6 +89,10 @@ public class ServiceAccessor {
         return dispatcher;
     }
 
+    public List<TraceCollector> getTraceCollectors() {
+        return collectors;
+    }
+
     public ExceptionMapper getExceptionMapper(Exception t) {
         for (ExceptionMapper mapper : mappers) {
             if (mapper.getExceptionClass().getName().equals(t.getClass().getName())) {
@@ -0,0 +1,59 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.framework.vertx;
+
+/**
+ * What to do when publishing a message on a web socket whose write queue is full, i.e. a client that does not read
+ * the messages as fast as they are published. Configured using the {@literal vertx.websocket-slow-consumer} key.
+ */
+public enum SlowConsumerPolicy {
+
+    /**
+     * The message is queued anyway (default).
+     */
+    QUEUE,
+
+    /**
+     * The message is not sent to the client.
+     */
+    SKIP,
+
+    /**
+     * The connection with the client is closed.
+     */
+    CLOSE;
+
+    /**
+     * Gets the policy from its name, case insensitive.
+     *
+     * @param name the name, may be {@code null}
+     * @return the policy, {@link #QUEUE} if the name is {@code null} or does not match any policy
+     */
+    public static SlowConsumerPolicy from(String name) {
+        if (name != null) {
+            for (SlowConsumerPolicy policy : values()) {
+                if (policy.name().equalsIgnoreCase(name.trim())) {
+                    return policy;
+                }
+            }
+        }
+        return QUEUE;
+    }
+}
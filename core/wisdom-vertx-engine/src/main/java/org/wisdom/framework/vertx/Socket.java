@@ -20,9 +20,16 @@
 package org.wisdom.framework.vertx;
 
 
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
-import io.vertx.core.eventbus.EventBus;
 import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.http.impl.FrameType;
+import io.vertx.core.http.impl.ws.WebSocketFrameImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A class abstracting the differences between the WebSocket API and the SockJs API.
@@ -30,28 +37,65 @@ import io.vertx.core.http.ServerWebSocket;
  */
 public class Socket {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(Socket.class);
+
+    /**
+     * The generator of client ids.
+     */
+    private static final AtomicLong IDS = new AtomicLong();
+
     /**
      * The underlying socket, a {@link ServerWebSocket} instance.
      */
     private final ServerWebSocket delegate;
 
+    /**
+     * The context (event loop) on which the socket has been opened, {@code null} if not opened from a Vert.x
+     * context.
+     */
+    private final Context context;
+
+    /**
+     * The client id, unique for the lifetime of the server (and on the cluster when clustered).
+     */
+    private final String id;
+
     /**
      * Creates an instance of {@link org.wisdom.framework.vertx.Socket} delegating to
-     * a {@link ServerWebSocket} instance.
+     * a {@link ServerWebSocket} instance. It must be called from the context on which the socket has been opened.
      *
      * @param delegate the delegate
      */
     public Socket(ServerWebSocket delegate) {
-        this.delegate = delegate;
+        this(delegate, null);
     }
 
+    /**
+     * Creates an instance of {@link org.wisdom.framework.vertx.Socket} delegating to
+     * a {@link ServerWebSocket} instance. It must be called from the context on which the socket has been opened.
+     *
+     * @param delegate the delegate
+     * @param node     the id of the cluster node, {@code null} if not clustered
+     */
+    public Socket(ServerWebSocket delegate, String node) {
+        this.delegate = delegate;
+        this.context = Vertx.currentContext();
+        long number = IDS.incrementAndGet();
+        this.id = node == null ? Long.toString(number) : ClusterRelay.clientId(node, number);
+    }
 
-    private String getWriteHandlerId() {
-        return delegate.textHandlerID();
+    /**
+     * @return the client id, unique for the lifetime of the server (and on the cluster when clustered).
+     */
+    public String id() {
+        return id;
     }
 
-    private String getBinaryWriteHandlerId() {
-        return delegate.binaryHandlerID();
+    /**
+     * @return the context on which the socket has been opened, {@code null} if not opened from a Vert.x context.
+     */
+    public Context context() {
+        return context;
     }
 
     @Override
@@ -77,22 +121,31 @@ public class Socket {
     }
 
     /**
-     * Sends a text frame on the socket.
-     *
-     * @param message the message
-     * @param bus     the Vert.x event bus.
-     */
-    public void publish(String message, EventBus bus) {
-        bus.publish(getWriteHandlerId(), message);
-    }
-
-    /**
-     * Sends a binary frame on the socket.
+     * Writes a frame on the socket. The payload is not copied, so the same buffer can be written to several sockets
+     * (the buffer must not be modified afterwards). This method should be called from the socket context.
      *
-     * @param message the message
-     * @param bus     the Vert.x event bus.
+     * @param payload the encoded payload
+     * @param binary  whether the frame is a binary frame or a text frame (the payload being encoded in UTF-8)
+     * @param policy  what to do if the socket write queue is full
+     * @return {@code true} if the frame has been written, {@code false} otherwise
      */
-    public void publish(byte[] message, EventBus bus) {
-        bus.publish(getBinaryWriteHandlerId(), Buffer.buffer(message));
+    public boolean write(Buffer payload, boolean binary, SlowConsumerPolicy policy) {
+        try {
+            if (policy != SlowConsumerPolicy.QUEUE && delegate.writeQueueFull()) {
+                if (policy == SlowConsumerPolicy.CLOSE) {
+                    LOGGER.warn("Closing the web socket {} - the client does not consume the messages", path());
+                    delegate.close();
+                }
+                return false;
+            }
+            // getByteBuf returns a duplicate sharing the content of the buffer.
+            delegate.writeFrame(new WebSocketFrameImpl(binary ? FrameType.BINARY : FrameType.TEXT,
+                    payload.getByteBuf(), true));
+            return true;
+        } catch (IllegalStateException e) { //NOSONAR
+            // The socket has been closed in the meantime.
+            LOGGER.debug("Cannot write on the web socket {}, the socket is closed", path());
+            return false;
+        }
     }
 }
@@ -70,15 +70,19 @@ public class WebSocketHandler implements Handler<ServerWebSocket> {
             return;
         }
 
-        final Socket sock = new Socket(socket);
+        final Socket sock = new Socket(socket, accessor.getDispatcher().node());
         accessor.getDispatcher().addSocket(socket.path(), sock);
 
+        final MessageAssembler assembler = new MessageAssembler(socket, sock, accessor.getDispatcher(),
+                configuration.getMaxWebSocketMessageSize());
+
         socket.closeHandler(event -> {
             LOGGER.info("Web Socket closed {}, {}", socket, socket.uri());
+            assembler.closed();
             accessor.getDispatcher().removeSocket(socket.path(), sock);
         });
 
-        socket.handler(event -> accessor.getDispatcher().received(socket.path(), event.getBytes(), sock));
+        socket.frameHandler(assembler);
 
     }
 }
@@ -0,0 +1,201 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.framework.vertx;
+
+import io.vertx.core.Context;
+import io.vertx.core.http.ServerWebSocket;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * The stream delivering a fragmented web socket message. Fragments are written by the event loop as they are
+ * received, and read by another thread. When the reader is late, the socket is paused, so at most
+ * {@link #HIGH_WATER_MARK} bytes (plus a frame) are kept in memory.
+ */
+final class WebSocketInputStream extends InputStream {
+
+    /**
+     * The number of buffered bytes above which the socket is paused. It is resumed when half of them have been read.
+     */
+    static final int HIGH_WATER_MARK = 1024 * 1024;
+
+    private final ServerWebSocket socket;
+
+    private final Context context;
+
+    private final Deque<byte[]> fragments = new ArrayDeque<>();
+
+    /**
+     * The position in the first fragment.
+     */
+    private int position;
+
+    /**
+     * The number of buffered bytes.
+     */
+    private int buffered;
+
+    private boolean paused;
+
+    private boolean ended;
+
+    private boolean closed;
+
+    private String failure;
+
+    /**
+     * Creates the stream.
+     *
+     * @param socket  the socket receiving the message
+     * @param context the socket context, used to resume the socket, {@code null} to resume it from the reader thread
+     */
+    WebSocketInputStream(ServerWebSocket socket, Context context) {
+        this.socket = socket;
+        this.context = context;
+    }
+
+    /**
+     * Appends a fragment. Called from the socket context.
+     *
+     * @param fragment the fragment content
+     */
+    synchronized void write(byte[] fragment) {
+        if (closed || ended || fragment.length == 0) {
+            return;
+        }
+        fragments.add(fragment);
+        buffered += fragment.length;
+        if (!paused && buffered > HIGH_WATER_MARK) {
+            paused = true;
+            socket.pause();
+        }
+        notifyAll();
+    }
+
+    /**
+     * Marks the end of the message. Called from the socket context.
+     */
+    synchronized void end() {
+        ended = true;
+        notifyAll();
+    }
+
+    /**
+     * Aborts the message, the reader gets an {@link IOException} once the buffered fragments have been read.
+     *
+     * @param reason the reason
+     */
+    synchronized void fail(String reason) {
+        if (!ended) {
+            failure = reason;
+            ended = true;
+            notifyAll();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int read = read(b, 0, 1);
+        return read == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public synchronized int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        while (fragments.isEmpty() && !ended && !closed) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the next web socket fragment");
+            }
+        }
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (fragments.isEmpty()) {
+            if (failure != null) {
+                throw new IOException(failure);
+            }
+            return -1;
+        }
+        if (len == 0) {
+            return 0;
+        }
+
+        byte[] fragment = fragments.peek();
+        int count = Math.min(len, fragment.length - position);
+        System.arraycopy(fragment, position, b, off, count);
+        position += count;
+        if (position == fragment.length) {
+            fragments.poll();
+            position = 0;
+        }
+        buffered -= count;
+        resumeIfNeeded();
+        return count;
+    }
+
+    @Override
+    public synchronized int available() {
+        return buffered;
+    }
+
+    /**
+     * Closes the stream. The remaining fragments of the message are discarded.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        fragments.clear();
+        buffered = 0;
+        resumeIfNeeded();
+        notifyAll();
+    }
+
+    private void resumeIfNeeded() {
+        if (paused && buffered <= HIGH_WATER_MARK / 2) {
+            paused = false;
+            if (context == null) {
+                resume();
+            } else {
+                context.runOnContext(v -> resume());
+            }
+        }
+    }
+
+    private void resume() {
+        try {
+            socket.resume();
+        } catch (IllegalStateException e) { //NOSONAR
+            // The socket has been closed in the meantime.
+        }
+    }
+}
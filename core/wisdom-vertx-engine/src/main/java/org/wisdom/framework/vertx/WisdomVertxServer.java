@@ -19,8 +19,13 @@
  */
 package org.wisdom.framework.vertx;
 
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.spi.VerticleFactory;
+import org.apache.commons.io.IOUtils;
 import org.apache.felix.ipojo.annotations.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,10 +38,17 @@ import org.wisdom.api.engine.WisdomEngine;
 import org.wisdom.api.exceptions.ExceptionMapper;
 import org.wisdom.api.http.websockets.WebSocketDispatcher;
 import org.wisdom.api.http.websockets.WebSocketListener;
+import org.wisdom.api.http.websockets.WebSocketStreamListener;
 import org.wisdom.api.router.Router;
+import org.wisdom.api.tracing.TraceCollector;
 
+import java.io.InputStream;
 import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 
 /**
@@ -55,12 +67,23 @@ public class WisdomVertxServer implements WebSocketDispatcher, WisdomEngine {
     /**
      * The set of Web Socket Listeners used to dispatch data received on web sockets.
      */
-    private List<WebSocketListener> listeners = new ArrayList<>();
+    private final List<WebSocketListener> listeners = new CopyOnWriteArrayList<>();
 
     /**
-     * The map of uri / list of channel context keeping a reference on all opened web sockets.
+     * The map of uri / (client id / socket) keeping a reference on all opened web sockets. Sockets are added and
+     * removed atomically (per uri), without blocking the publications.
      */
-    private Map<String, List<Socket>> socketsByUri = new HashMap<>();
+    private final ConcurrentMap<String, ConcurrentMap<String, Socket>> socketsByUri = new ConcurrentHashMap<>();
+
+    /**
+     * What to do when a message is published on a socket whose write queue is full.
+     */
+    private volatile SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.QUEUE;
+
+    /**
+     * Relays the publications to the other nodes of the cluster, {@code null} when Vert.x is not clustered.
+     */
+    private volatile ClusterRelay relay;
 
     /**
      * The vertx singleton.
@@ -104,11 +127,17 @@ public class WisdomVertxServer implements WebSocketDispatcher, WisdomEngine {
     @Requires(specification = ExceptionMapper.class, optional = true)
     private Collection<ExceptionMapper> mappers;
 
+    /**
+     * The trace collectors. Requests are traced only when there is at least one collector. The list is read by each
+     * request without being copied.
+     */
+    private final List<TraceCollector> collectors = new CopyOnWriteArrayList<>();
+
     /**
      * The accessor to get all the services.
      */
     ServiceAccessor accessor = new ServiceAccessor(crypto, configuration, router,
-            engine, executor, this, mappers); //NOSONAR
+            engine, executor, this, mappers, collectors); //NOSONAR
 
     private InetAddress address;
 
@@ -134,6 +163,11 @@ public class WisdomVertxServer implements WebSocketDispatcher, WisdomEngine {
 
         initializeInetAddress();
 
+        slowConsumerPolicy = SlowConsumerPolicy.from(
+                accessor.getConfiguration().get("vertx.websocket-slow-consumer"));
+        if (vertx.isClustered()) {
+            startClusterRelay(UUID.randomUUID().toString());
+        }
 
         // Parse server configuration if any
         Configuration servers = configuration.getConfiguration("vertx.servers");
@@ -195,6 +229,10 @@ public class WisdomVertxServer implements WebSocketDispatcher, WisdomEngine {
     @Invalidate
     public void stop() {
         listeners.clear();
+        if (relay != null) {
+            relay.stop();
+            relay = null;
+        }
         LOGGER.info("Stopping the vert.x server");
 
         vertx.runOnContext(v -> {
@@ -251,18 +289,7 @@ public class WisdomVertxServer implements WebSocketDispatcher, WisdomEngine {
      */
     @Override
     public void publish(String url, String data) {
-        List<Socket> sockets;
-        synchronized (this) {
-            List<Socket> ch = this.socketsByUri.get(url);
-            if (ch != null) {
-                sockets = new ArrayList<>(ch);
-            } else {
-                sockets = Collections.emptyList();
-            }
-        }
-        for (Socket socket : sockets) {
-            socket.publish(data, vertx.eventBus());
-        }
+        publish(url, Buffer.buffer(data.getBytes(StandardCharsets.UTF_8)), false);
     }
 
     /**
@@ -273,18 +300,133 @@ public class WisdomVertxServer implements WebSocketDispatcher, WisdomEngine {
      * @param data the data, must not be {@literal null}
      */
     @Override
-    public synchronized void publish(String url, byte[] data) {
-        List<Socket> sockets;
-        synchronized (this) {
-            List<Socket> ch = this.socketsByUri.get(url);
-            if (ch != null) {
-                sockets = new ArrayList<>(ch);
-            } else {
-                sockets = Collections.emptyList();
+    public void publish(String url, byte[] data) {
+        publish(url, Buffer.buffer(data), true);
+    }
+
+    private void publish(String url, Buffer payload, boolean binary) {
+        publishLocally(url, payload, binary);
+        ClusterRelay current = relay;
+        if (current != null) {
+            current.publish(url, payload, binary);
+        }
+    }
+
+    /**
+     * Publishes a message to the clients connected to this node.
+     *
+     * @param url     the url of the web socket
+     * @param payload the encoded payload
+     * @param binary  whether the payload is sent as binary frames or text frames
+     */
+    void publishLocally(String url, Buffer payload, boolean binary) {
+        write(sockets(url), payload, binary);
+    }
+
+    /**
+     * Sends a message to a client connected to this node.
+     *
+     * @param uri     the url of the web socket
+     * @param client  the client id
+     * @param payload the encoded payload
+     * @param binary  whether the payload is sent as binary frames or text frames
+     * @return {@code true} if the client is connected to this node, {@code false} otherwise
+     */
+    boolean sendLocally(String uri, String client, Buffer payload, boolean binary) {
+        Map<String, Socket> sockets = socketsByUri.get(uri);
+        Socket socket = sockets == null ? null : sockets.get(client);
+        if (socket != null) {
+            write(Collections.singletonList(socket), payload, binary);
+            return true;
+        }
+        return false;
+    }
+
+    private void send(String uri, String client, Buffer payload, boolean binary) {
+        if (!sendLocally(uri, client, payload, binary)) {
+            ClusterRelay current = relay;
+            if (current != null) {
+                current.send(uri, client, payload, binary);
             }
         }
+    }
+
+    /**
+     * Starts relaying the publications to the other nodes of the cluster (sharing the event bus).
+     *
+     * @param node the id of the current node
+     */
+    void startClusterRelay(String node) {
+        startClusterRelay(node, null);
+    }
+
+    /**
+     * Starts relaying the publications to the other nodes of the cluster (sharing the event bus).
+     *
+     * @param node       the id of the current node
+     * @param completion called once the relay is registered on the cluster, may be {@code null}
+     */
+    void startClusterRelay(String node, Handler<AsyncResult<Void>> completion) {
+        ClusterRelay newRelay = new ClusterRelay(vertx.eventBus(), node, this);
+        newRelay.start(completion);
+        relay = newRelay;
+    }
+
+    /**
+     * @return the id of the current node in the cluster, {@code null} if Vert.x is not clustered.
+     */
+    String node() {
+        ClusterRelay current = relay;
+        return current == null ? null : current.node();
+    }
+
+    /**
+     * Gets the sockets opened on the given url. The returned collection is a live view.
+     *
+     * @param url the url
+     * @return the sockets, empty if none
+     */
+    private Collection<Socket> sockets(String url) {
+        Map<String, Socket> sockets = this.socketsByUri.get(url);
+        if (sockets != null) {
+            return sockets.values();
+        } else {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Writes the given payload on the given sockets. The payload is encoded once, and shared by all the sockets.
+     * Sockets are grouped by context (event loop), so the frames are written using a single task per event loop,
+     * on the event loop thread.
+     *
+     * @param sockets the sockets
+     * @param payload the encoded payload
+     * @param binary  whether the payload is sent as binary frames or text frames
+     */
+    private void write(Collection<Socket> sockets, Buffer payload, boolean binary) {
+        SlowConsumerPolicy policy = slowConsumerPolicy;
+        Map<Context, List<Socket>> byContext = new HashMap<>();
         for (Socket socket : sockets) {
-            socket.publish(data, vertx.eventBus());
+            Context context = socket.context();
+            if (context == null) {
+                socket.write(payload, binary, policy);
+                continue;
+            }
+            List<Socket> group = byContext.get(context);
+            if (group == null) {
+                group = new ArrayList<>();
+                byContext.put(context, group);
+            }
+            group.add(socket);
+        }
+        for (Map.Entry<Context, List<Socket>> entry : byContext.entrySet()) {
+            List<Socket> group = entry.getValue();
+            entry.getKey().runOnContext(v -> {
+                for (Socket socket : group) {
+                    socket.write(payload, binary, policy);
+                }
+            });
         }
     }
 
@@ -296,18 +438,13 @@ public class WisdomVertxServer implements WebSocketDispatcher, WisdomEngine {
      */
     public void addSocket(String url, Socket socket) {
         LOGGER.info("Adding web socket on {} bound to {}", url, socket);
-        List<WebSocketListener> webSocketListeners;
-        synchronized (this) {
-            List<Socket> channels = socketsByUri.get(url);
-            if (channels == null) {
-                channels = new ArrayList<>();
-            }
-            channels.add(socket);
-            socketsByUri.put(url, channels);
-            webSocketListeners = new ArrayList<>(this.listeners);
-        }
+        socketsByUri.compute(url, (key, sockets) -> {
+            ConcurrentMap<String, Socket> map = sockets == null ? new ConcurrentHashMap<>() : sockets;
+            map.put(socket.id(), socket);
+            return map;
+        });
 
-        for (WebSocketListener listener : webSocketListeners) {
+        for (WebSocketListener listener : listeners) {
             listener.opened(url, id(socket));
         }
     }
@@ -320,23 +457,36 @@ public class WisdomVertxServer implements WebSocketDispatcher, WisdomEngine {
      */
     public void removeSocket(String url, Socket socket) {
         LOGGER.info("Removing web socket on {} bound to {}", url, socket.path());
-        List<WebSocketListener> webSocketListeners;
-        synchronized (this) {
-            List<Socket> channels = socketsByUri.get(url);
-            if (channels != null) {
-                channels.remove(socket);
-                if (channels.isEmpty()) {
-                    socketsByUri.remove(url);
-                }
-            }
-            webSocketListeners = new ArrayList<>(this.listeners);
-        }
+        socketsByUri.computeIfPresent(url, (key, sockets) -> {
+            sockets.remove(socket.id());
+            return sockets.isEmpty() ? null : sockets;
+        });
 
-        for (WebSocketListener listener : webSocketListeners) {
+        for (WebSocketListener listener : listeners) {
             listener.closed(url, id(socket));
         }
     }
 
+    /**
+     * Binds a trace collector.
+     *
+     * @param collector the collector
+     */
+    @Bind(aggregate = true, optional = true)
+    public void bindTraceCollector(TraceCollector collector) {
+        collectors.add(collector);
+    }
+
+    /**
+     * Unbinds a trace collector.
+     *
+     * @param collector the collector
+     */
+    @Unbind(aggregate = true)
+    public void unbindTraceCollector(TraceCollector collector) {
+        collectors.remove(collector);
+    }
+
     /**
      * Registers a WebSocketListener. The listener will receive a 'open' notification for all clients connected to
      * web sockets.
@@ -345,15 +495,11 @@ public class WisdomVertxServer implements WebSocketDispatcher, WisdomEngine {
      */
     @Override
     public void register(WebSocketListener listener) {
-        Map<String, List<Socket>> copy;
-        synchronized (this) {
-            listeners.add(listener);
-            copy = new HashMap<>(socketsByUri);
-        }
+        listeners.add(listener);
 
         // Call open on each opened web socket
-        for (Map.Entry<String, List<Socket>> entry : copy.entrySet()) {
-            for (Socket client : entry.getValue()) {
+        for (Map.Entry<String, ConcurrentMap<String, Socket>> entry : socketsByUri.entrySet()) {
+            for (Socket client : entry.getValue().values()) {
                 listener.opened(entry.getKey(), id(client));
             }
         }
@@ -366,9 +512,7 @@ public class WisdomVertxServer implements WebSocketDispatcher, WisdomEngine {
      */
     @Override
     public void unregister(WebSocketListener listener) {
-        synchronized (this) {
-            listeners.remove(listener);
-        }
+        listeners.remove(listener);
     }
 
     /**
@@ -381,20 +525,7 @@ public class WisdomVertxServer implements WebSocketDispatcher, WisdomEngine {
      */
     @Override
     public void send(String uri, String client, String message) {
-        List<Socket> sockets;
-        synchronized (this) {
-            List<Socket> ch = this.socketsByUri.get(uri);
-            if (ch != null) {
-                sockets = new ArrayList<>(ch);
-            } else {
-                sockets = Collections.emptyList();
-            }
-        }
-        for (Socket socket : sockets) {
-            if (client.equals(id(socket))) {
-                socket.publish(message, vertx.eventBus());
-            }
-        }
+        send(uri, client, Buffer.buffer(message.getBytes(StandardCharsets.UTF_8)), false);
     }
 
     /**
@@ -404,7 +535,7 @@ public class WisdomVertxServer implements WebSocketDispatcher, WisdomEngine {
      * @return the id
      */
     static String id(Socket socket) {
-        return Integer.toOctalString(socket.hashCode());
+        return socket.id();
     }
 
     /**
@@ -417,20 +548,7 @@ public class WisdomVertxServer implements WebSocketDispatcher, WisdomEngine {
      */
     @Override
     public void send(String uri, String client, byte[] message) {
-        List<Socket> sockets;
-        synchronized (this) {
-            List<Socket> ch = this.socketsByUri.get(uri);
-            if (ch != null) {
-                sockets = new ArrayList<>(ch);
-            } else {
-                sockets = Collections.emptyList();
-            }
-        }
-        for (Socket socket : sockets) {
-            if (client.equals(id(socket))) {
-                socket.publish(message, vertx.eventBus());
-            }
-        }
+        send(uri, client, Buffer.buffer(message), true);
     }
 
     /**
@@ -441,14 +559,51 @@ public class WisdomVertxServer implements WebSocketDispatcher, WisdomEngine {
      * @param socket  the client channel
      */
     public void received(String uri, byte[] content, Socket socket) {
-        List<WebSocketListener> localListeners;
-        synchronized (this) {
-            localListeners = new ArrayList<>(this.listeners);
+        for (WebSocketListener listener : listeners) {
+            listener.received(uri, id(socket), content);
         }
+    }
 
-        for (WebSocketListener listener : localListeners) {
-            listener.received(uri, id(socket), content);
+    /**
+     * Checks whether the fragmented messages received on a web socket are streamed. A streamed message can only be
+     * read once, so they are streamed only when a single listener is registered and it streams the messages of the
+     * web socket. Otherwise, they are assembled and delivered to every listener.
+     *
+     * @param uri the web socket url
+     * @return {@code true} if the messages are streamed, {@code false} if they must be assembled
+     */
+    public boolean isStreaming(String uri) {
+        Iterator<WebSocketListener> iterator = listeners.iterator();
+        if (!iterator.hasNext()) {
+            return false;
         }
+        WebSocketListener listener = iterator.next();
+        return !iterator.hasNext() && streams(listener, uri);
+    }
+
+    /**
+     * Method called when the first fragment of a message is received on a web socket streamed by a listener (see
+     * {@link #isStreaming(String)}).
+     *
+     * @param uri     the web socket url
+     * @param content the stream delivering the message
+     * @param socket  the client channel
+     */
+    public void received(String uri, InputStream content, Socket socket) {
+        Iterator<WebSocketListener> iterator = listeners.iterator();
+        WebSocketListener listener = iterator.hasNext() ? iterator.next() : null;
+        if (listener instanceof WebSocketStreamListener && !iterator.hasNext()) {
+            ((WebSocketStreamListener) listener).received(uri, id(socket), content);
+            return;
+        }
+        // The listeners have changed in the meantime. The stream cannot be read here (the fragments are received by
+        // the current thread), so the message is discarded.
+        LOGGER.warn("Discarding a web socket message received on {} - the web socket listeners have changed", uri);
+        IOUtils.closeQuietly(content);
+    }
+
+    private static boolean streams(WebSocketListener listener, String uri) {
+        return listener instanceof WebSocketStreamListener && ((WebSocketStreamListener) listener).isStreaming(uri);
     }
 
     /**
@@ -459,10 +614,8 @@ public class WisdomVertxServer implements WebSocketDispatcher, WisdomEngine {
     @Override
     public Map<String, Integer> getNumberOpenedSockets() {
         Map<String, Integer> numberOpenedSocketByUri = new LinkedHashMap<>();
-        synchronized (this) {
-            for (Map.Entry<String, List<Socket>> socketByUri : socketsByUri.entrySet()) {
-                numberOpenedSocketByUri.put(socketByUri.getKey(), socketByUri.getValue().size());
-            }
+        for (Map.Entry<String, ConcurrentMap<String, Socket>> socketByUri : socketsByUri.entrySet()) {
+            numberOpenedSocketByUri.put(socketByUri.getKey(), socketByUri.getValue().size());
         }
         return numberOpenedSocketByUri;
     }
@@ -475,22 +628,8 @@ public class WisdomVertxServer implements WebSocketDispatcher, WisdomEngine {
      */
     @Override
     public Integer getNumberOpenedSocketsByUri(String uri) {
-        Integer numberOpenedSocketForUri = 0;
-        synchronized (this) {
-            if (socketsByUri.containsKey(uri)) {
-                numberOpenedSocketForUri = socketsByUri.get(uri).size();
-            }
-        }
-        return numberOpenedSocketForUri;
-    }
-
-    /**
-     * For testing purpose only
-     *
-     * @return a direct reference on the sockets and their corresponding uri.
-     */
-    public void setSocketsByUri( Map<String, List<Socket>> socketsByUri) {
-        this.socketsByUri = socketsByUri;
+        Map<String, Socket> sockets = socketsByUri.get(uri);
+        return sockets == null ? 0 : sockets.size();
     }
 
     /**
@@ -498,7 +637,7 @@ public class WisdomVertxServer implements WebSocketDispatcher, WisdomEngine {
      *
      * @return a direct reference on the sockets and their corresponding uri.
      */
-    protected Map<String, List<Socket>> getSocketsByUri() {
+    protected Map<String, ConcurrentMap<String, Socket>> getSocketsByUri() {
         return socketsByUri;
     }
 
@@ -19,6 +19,7 @@
  */
 package org.wisdom.framework.vertx;
 
+import com.google.common.base.Charsets;
 import io.vertx.core.Handler;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpClientOptions;
@@ -29,11 +30,16 @@ import org.junit.Test;
 import org.wisdom.api.Controller;
 import org.wisdom.api.DefaultController;
 import org.wisdom.api.configuration.ApplicationConfiguration;
+import org.wisdom.api.cookies.Cookie;
 import org.wisdom.api.content.ContentEngine;
 import org.wisdom.api.exceptions.ExceptionMapper;
+import org.wisdom.api.http.HeaderNames;
 import org.wisdom.api.http.HttpMethod;
+import org.wisdom.api.http.MimeTypes;
+import org.wisdom.api.http.RenderableException;
 import org.wisdom.api.http.Request;
 import org.wisdom.api.http.Result;
+import org.wisdom.api.http.StreamingRenderable;
 import org.wisdom.api.router.Route;
 import org.wisdom.api.router.RouteBuilder;
 import org.wisdom.api.router.Router;
@@ -42,8 +48,12 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -393,6 +403,244 @@ public class ChunkedResponseTest extends VertxBaseTest {
         assertThat(success).hasSize(NUMBER_OF_CLIENTS);
     }
 
+    @Test
+    public void testRangeRequests() throws InterruptedException, IOException {
+        // Prepare the configuration
+        ApplicationConfiguration configuration = mock(ApplicationConfiguration.class);
+        when(configuration.getIntegerWithDefault(eq("vertx.http.port"), anyInt())).thenReturn(0);
+        when(configuration.getIntegerWithDefault(eq("vertx.https.port"), anyInt())).thenReturn(-1);
+        when(configuration.getIntegerWithDefault("vertx.acceptBacklog", -1)).thenReturn(-1);
+        when(configuration.getIntegerWithDefault("vertx.receiveBufferSize", -1)).thenReturn(-1);
+        when(configuration.getIntegerWithDefault("vertx.sendBufferSize", -1)).thenReturn(-1);
+        when(configuration.getStringArray("wisdom.websocket.subprotocols")).thenReturn(new String[0]);
+        when(configuration.getStringArray("vertx.websocket-subprotocols")).thenReturn(new String[0]);
+
+        final File file = new File("src/test/resources/owl.png");
+        final byte[] content = FileUtils.readFileToByteArray(file);
+
+        // Prepare the router with a controller
+        Controller controller = new DefaultController() {
+            @SuppressWarnings("unused")
+            public Result index() throws IOException {
+                if (context().parameter("url") != null) {
+                    return ok(file.toURI().toURL());
+                }
+                return ok(file).with(HeaderNames.ETAG, "owl");
+            }
+        };
+
+        Router router = mock(Router.class);
+        final Route route = new RouteBuilder().route(HttpMethod.GET)
+                .on("/")
+                .to(controller, "index");
+        doAnswer(invocationOnMock -> route).when(router).getRouteFor(anyString(), anyString(), any(Request.class));
+
+        // Configure the server.
+        server = new WisdomVertxServer();
+        server.configuration = configuration;
+        server.accessor = new ServiceAccessor(
+                null,
+                configuration,
+                router,
+                getMockContentEngine(),
+                executor,
+                null,
+                Collections.<ExceptionMapper>emptyList()
+        );
+        server.vertx = vertx;
+        server.start();
+        VertxHttpServerTest.waitForStart(server);
+        int port = server.httpPort();
+
+        // No range.
+        HttpURLConnection connection = rangeRequest(port, "/", null, null);
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        assertThat(connection.getHeaderField(HeaderNames.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(IOUtils.toByteArray(connection.getInputStream())).isEqualTo(content);
+
+        // Single range, sent from the file.
+        connection = rangeRequest(port, "/", "bytes=10-19", null);
+        assertThat(connection.getResponseCode()).isEqualTo(206);
+        assertThat(connection.getHeaderField(HeaderNames.CONTENT_RANGE))
+                .isEqualTo("bytes 10-19/" + content.length);
+        assertThat(connection.getHeaderField(HeaderNames.CONTENT_LENGTH)).isEqualTo("10");
+        assertThat(connection.getContentType()).isEqualTo("image/png");
+        assertThat(IOUtils.toByteArray(connection.getInputStream())).isEqualTo(Arrays.copyOfRange(content, 10, 20));
+
+        // Suffix range on an URL.
+        connection = rangeRequest(port, "/?url=true", "bytes=-5", null);
+        assertThat(connection.getResponseCode()).isEqualTo(206);
+        assertThat(connection.getHeaderField(HeaderNames.CONTENT_RANGE))
+                .isEqualTo("bytes " + (content.length - 5) + "-" + (content.length - 1) + "/" + content.length);
+        assertThat(IOUtils.toByteArray(connection.getInputStream()))
+                .isEqualTo(Arrays.copyOfRange(content, content.length - 5, content.length));
+
+        // Several ranges.
+        connection = rangeRequest(port, "/", "bytes=0-1,4-5", "owl");
+        assertThat(connection.getResponseCode()).isEqualTo(206);
+        assertThat(connection.getContentType()).startsWith("multipart/byteranges; boundary=");
+        String body = new String(IOUtils.toByteArray(connection.getInputStream()), Charsets.ISO_8859_1);
+        assertThat(body).contains("Content-Range: bytes 0-1/" + content.length)
+                .contains("Content-Range: bytes 4-5/" + content.length)
+                .contains("Content-Type: image/png");
+
+        // If-Range not matching, the whole content is sent.
+        connection = rangeRequest(port, "/", "bytes=0-1", "another-etag");
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        assertThat(IOUtils.toByteArray(connection.getInputStream())).isEqualTo(content);
+
+        // Unsatisfiable range.
+        connection = rangeRequest(port, "/", "bytes=" + content.length + "-", null);
+        assertThat(connection.getResponseCode()).isEqualTo(416);
+        assertThat(connection.getHeaderField(HeaderNames.CONTENT_RANGE)).isEqualTo("bytes */" + content.length);
+    }
+
+    @Test
+    public void testStreamingRenderable() throws InterruptedException, IOException {
+        // Prepare the configuration
+        ApplicationConfiguration configuration = mock(ApplicationConfiguration.class);
+        when(configuration.getIntegerWithDefault(eq("vertx.http.port"), anyInt())).thenReturn(0);
+        when(configuration.getIntegerWithDefault(eq("vertx.https.port"), anyInt())).thenReturn(-1);
+        when(configuration.getIntegerWithDefault("vertx.acceptBacklog", -1)).thenReturn(-1);
+        when(configuration.getIntegerWithDefault("vertx.receiveBufferSize", -1)).thenReturn(-1);
+        when(configuration.getIntegerWithDefault("vertx.sendBufferSize", -1)).thenReturn(-1);
+        when(configuration.getStringArray("wisdom.websocket.subprotocols")).thenReturn(new String[0]);
+        when(configuration.getStringArray("vertx.websocket-subprotocols")).thenReturn(new String[0]);
+
+        // Streaming requires the dispatch to happen on the executor.
+        when(configuration.getBooleanWithDefault("request.dispatch.offload", false)).thenReturn(true);
+
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            expected.append("<p>Line ").append(i).append(" - été</p>\n");
+        }
+
+        // Prepare the router with a controller
+        Controller controller = new DefaultController() {
+            @SuppressWarnings("unused")
+            public Result index() {
+                return ok(new StreamedPage(expected.toString(), context().parameter("fail") != null))
+                        .with(Cookie.cookie("visited", "true").build());
+            }
+        };
+        Router router = mock(Router.class);
+        final Route route = new RouteBuilder().route(HttpMethod.GET)
+                .on("/")
+                .to(controller, "index");
+        doAnswer(invocationOnMock -> route).when(router).getRouteFor(anyString(), anyString(), any(Request.class));
+
+        // Configure the server.
+        server = new WisdomVertxServer();
+        server.configuration = configuration;
+        server.accessor = new ServiceAccessor(
+                null,
+                configuration,
+                router,
+                getMockContentEngine(),
+                executor,
+                null,
+                Collections.<ExceptionMapper>emptyList()
+        );
+        server.vertx = vertx;
+        server.start();
+        VertxHttpServerTest.waitForStart(server);
+        int port = server.httpPort();
+
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/").openConnection();
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        assertThat(connection.getHeaderField(HeaderNames.TRANSFER_ENCODING)).isEqualTo("chunked");
+        assertThat(connection.getHeaderField(HeaderNames.CONTENT_LENGTH)).isNull();
+        assertThat(connection.getContentType()).startsWith(MimeTypes.HTML);
+        assertThat(IOUtils.toString(connection.getInputStream(), Charsets.UTF_8)).isEqualTo(expected.toString());
+
+        // Failure before the first chunk, the response is replaced by an error.
+        connection = (HttpURLConnection) new URL("http://localhost:" + port + "/?fail=true").openConnection();
+        assertThat(connection.getResponseCode()).isEqualTo(500);
+        // Only the headers describing the content are replaced.
+        assertThat(connection.getHeaderField(HeaderNames.TRANSFER_ENCODING)).isNull();
+        assertThat(connection.getContentType()).doesNotStartWith(MimeTypes.HTML);
+        assertThat(connection.getHeaderField(HeaderNames.SET_COOKIE)).startsWith("visited=true");
+    }
+
+    /**
+     * A page written progressively.
+     */
+    private static class StreamedPage implements StreamingRenderable<String> {
+
+        private final String content;
+        private final boolean fail;
+
+        StreamedPage(String content, boolean fail) {
+            this.content = content;
+            this.fail = fail;
+        }
+
+        @Override
+        public void write(org.wisdom.api.http.Context context, Result result, OutputStream out)
+                throws RenderableException {
+            if (fail) {
+                throw new RenderableException("Bad template");
+            }
+            Writer writer = new OutputStreamWriter(out, result.getCharset());
+            try {
+                for (String line : content.split("(?<=\n)")) {
+                    writer.write(line);
+                    writer.flush();
+                }
+            } catch (IOException e) {
+                throw new RenderableException("Cannot write the page", e);
+            }
+        }
+
+        @Override
+        public InputStream render(org.wisdom.api.http.Context context, Result result) throws RenderableException {
+            return new ByteArrayInputStream(content.getBytes(Charsets.UTF_8));
+        }
+
+        @Override
+        public long length() {
+            return -1;
+        }
+
+        @Override
+        public String mimetype() {
+            return MimeTypes.HTML;
+        }
+
+        @Override
+        public String content() {
+            return content;
+        }
+
+        @Override
+        public boolean requireSerializer() {
+            return false;
+        }
+
+        @Override
+        public void setSerializedForm(String serialized) {
+            // Not supported.
+        }
+
+        @Override
+        public boolean mustBeChunked() {
+            return false;
+        }
+    }
+
+    private static HttpURLConnection rangeRequest(int port, String path, String range, String ifRange)
+            throws IOException {
+        URL url = new URL("http://localhost:" + port + path);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        if (range != null) {
+            connection.setRequestProperty(HeaderNames.RANGE, range);
+        }
+        if (ifRange != null) {
+            connection.setRequestProperty(HeaderNames.IF_RANGE, ifRange);
+        }
+        return connection;
+    }
+
     private class DownloadClient implements Runnable {
         private final CountDownLatch startSignal;
         private final CountDownLatch doneSignal;
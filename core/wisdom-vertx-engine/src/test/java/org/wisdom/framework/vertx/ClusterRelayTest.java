@@ -0,0 +1,155 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.framework.vertx;
+
+import com.hazelcast.config.ClasspathXmlConfig;
+import com.hazelcast.config.Config;
+import com.hazelcast.config.JoinConfig;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.http.WebSocketFrame;
+import io.vertx.spi.cluster.hazelcast.HazelcastClusterManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Checks the publication of web socket messages on a cluster. The nodes are two clustered Vert.x instances (using
+ * Hazelcast on the loopback interface), so the messages really go through the clustered event bus.
+ */
+public class ClusterRelayTest {
+
+    private Vertx vertx1;
+    private Vertx vertx2;
+    private WisdomVertxServer node1;
+    private WisdomVertxServer node2;
+
+    @Before
+    public void setUp() throws Exception {
+        String cluster = "wisdom-cluster-relay-test-" + UUID.randomUUID();
+        vertx1 = clusteredVertx(cluster);
+        vertx2 = clusteredVertx(cluster);
+        node1 = startNode(vertx1, "node1");
+        node2 = startNode(vertx2, "node2");
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        CountDownLatch closed = new CountDownLatch(2);
+        for (Vertx vertx : new Vertx[]{vertx1, vertx2}) {
+            if (vertx != null) {
+                vertx.close(ar -> closed.countDown());
+            } else {
+                closed.countDown();
+            }
+        }
+        closed.await(30, TimeUnit.SECONDS);
+    }
+
+    private static Vertx clusteredVertx(String cluster) throws Exception {
+        Config config = new ClasspathXmlConfig("default-cluster.xml");
+        config.setProperty("hazelcast.logging.type", "slf4j");
+        config.getGroupConfig().setName(cluster);
+        config.getNetworkConfig().getInterfaces().setEnabled(true).addInterface("127.0.0.1");
+        JoinConfig join = config.getNetworkConfig().getJoin();
+        join.getMulticastConfig().setEnabled(false);
+        join.getTcpIpConfig().setEnabled(true).setMembers(Collections.singletonList("127.0.0.1"));
+
+        CompletableFuture<Vertx> future = new CompletableFuture<>();
+        VertxOptions options = new VertxOptions().setClusterManager(new HazelcastClusterManager(config))
+                .setClusterHost("127.0.0.1");
+        Vertx.clusteredVertx(options, ar -> {
+            if (ar.succeeded()) {
+                future.complete(ar.result());
+            } else {
+                future.completeExceptionally(ar.cause());
+            }
+        });
+        return future.get(60, TimeUnit.SECONDS);
+    }
+
+    private static WisdomVertxServer startNode(Vertx vertx, String id) throws Exception {
+        WisdomVertxServer node = new WisdomVertxServer();
+        node.vertx = vertx;
+        CompletableFuture<Void> registered = new CompletableFuture<>();
+        node.startClusterRelay(id, ar -> {
+            if (ar.succeeded()) {
+                registered.complete(null);
+            } else {
+                registered.completeExceptionally(ar.cause());
+            }
+        });
+        registered.get(30, TimeUnit.SECONDS);
+        return node;
+    }
+
+    @Test
+    public void testClientIds() {
+        assertThat(ClusterRelay.ownerOf(ClusterRelay.clientId("c1ee1b3f-7a5d-4b71", 12))).isEqualTo("c1ee1b3f-7a5d-4b71");
+        assertThat(ClusterRelay.ownerOf("12")).isNull();
+        assertThat(new Socket(mock(ServerWebSocket.class), node1.node()).id()).startsWith("node1:");
+    }
+
+    @Test
+    public void testPublication() {
+        ServerWebSocket ws1 = mock(ServerWebSocket.class);
+        node1.addSocket("/hello", new Socket(ws1, node1.node()));
+        ServerWebSocket ws2 = mock(ServerWebSocket.class);
+        node2.addSocket("/hello", new Socket(ws2, node2.node()));
+        ServerWebSocket other = mock(ServerWebSocket.class);
+        node2.addSocket("/other", new Socket(other, node2.node()));
+
+        node1.publish("/hello", "hello");
+
+        // Once on each node.
+        verify(ws2, timeout(5000)).writeFrame(any(WebSocketFrame.class));
+        verify(ws1, times(1)).writeFrame(any(WebSocketFrame.class));
+        verify(other, never()).writeFrame(any(WebSocketFrame.class));
+    }
+
+    @Test
+    public void testSendingToAClientOfAnotherNode() {
+        ServerWebSocket ws1 = mock(ServerWebSocket.class);
+        Socket socket1 = new Socket(ws1, node1.node());
+        node1.addSocket("/hello", socket1);
+        ServerWebSocket ws2 = mock(ServerWebSocket.class);
+        Socket socket2 = new Socket(ws2, node2.node());
+        node2.addSocket("/hello", socket2);
+
+        node1.send("/hello", socket2.id(), "hello".getBytes());
+        verify(ws2, timeout(5000)).writeFrame(any(WebSocketFrame.class));
+        verify(ws1, never()).writeFrame(any(WebSocketFrame.class));
+
+        // Local client.
+        node1.send("/hello", socket1.id(), "hello");
+        verify(ws1).writeFrame(any(WebSocketFrame.class));
+    }
+}
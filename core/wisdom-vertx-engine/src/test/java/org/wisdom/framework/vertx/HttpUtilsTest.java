@@ -24,6 +24,7 @@ import io.vertx.core.http.HttpMethod;
 import io.vertx.core.http.HttpServerRequest;
 import io.vertx.core.http.HttpVersion;
 import org.junit.Test;
+import org.wisdom.api.bodies.RenderableByteArray;
 import org.wisdom.api.http.HeaderNames;
 import org.wisdom.api.http.Result;
 import org.wisdom.api.http.Status;
@@ -80,4 +81,51 @@ public class HttpUtilsTest {
         when(req.method()).thenReturn(HttpMethod.GET);
         assertThat(HttpUtils.isPostOrPut(req)).isFalse();
     }
+    @Test
+    public void testIfRange() throws Exception {
+        Result result = new Result(Status.OK).with(HeaderNames.ETAG, "etag")
+                .with(HeaderNames.LAST_MODIFIED, "Wed, 21 Oct 2015 07:28:00 GMT");
+        assertThat(HttpUtils.isIfRangeMet(null, result)).isTrue();
+        assertThat(HttpUtils.isIfRangeMet("etag", result)).isTrue();
+        assertThat(HttpUtils.isIfRangeMet("W/etag", result)).isFalse();
+        assertThat(HttpUtils.isIfRangeMet("other", result)).isFalse();
+        assertThat(HttpUtils.isIfRangeMet("Wed, 21 Oct 2015 07:28:00 GMT", result)).isTrue();
+        assertThat(HttpUtils.isIfRangeMet("Thu, 22 Oct 2015 07:28:00 GMT", result)).isFalse();
+    }
+
+    @Test
+    public void testThatRangesAreOnlyAppliedToSuccessfulGetRequests() throws Exception {
+        MultiMap headers = MultiMap.caseInsensitiveMultiMap();
+        headers.add(HeaderNames.RANGE, "bytes=0-1");
+        HttpServerRequest req = mock(HttpServerRequest.class);
+        when(req.headers()).thenReturn(headers);
+        when(req.method()).thenReturn(HttpMethod.GET);
+
+        Result result = new Result(Status.OK).render(new RenderableByteArray(new byte[]{1, 2, 3}));
+        HttpUtils.handleRanges(req, result);
+        assertThat(result.getStatusCode()).isEqualTo(Status.PARTIAL_CONTENT);
+        assertThat(result.getHeaders().get(HeaderNames.CONTENT_RANGE)).isEqualTo("bytes 0-1/3");
+
+        result = new Result(Status.NOT_FOUND).render(new RenderableByteArray(new byte[]{1, 2, 3}));
+        HttpUtils.handleRanges(req, result);
+        assertThat(result.getStatusCode()).isEqualTo(Status.NOT_FOUND);
+        assertThat(result.getHeaders()).doesNotContainKey(HeaderNames.ACCEPT_RANGES);
+
+        // Not rangeable.
+        result = new Result(Status.OK).render("hello");
+        HttpUtils.handleRanges(req, result);
+        assertThat(result.getStatusCode()).isEqualTo(Status.OK);
+
+        // Explicitly disabled.
+        result = new Result(Status.OK).render(new RenderableByteArray(new byte[]{1, 2, 3}))
+                .with(HeaderNames.ACCEPT_RANGES, "none");
+        HttpUtils.handleRanges(req, result);
+        assertThat(result.getStatusCode()).isEqualTo(Status.OK);
+
+        when(req.method()).thenReturn(HttpMethod.POST);
+        result = new Result(Status.OK).render(new RenderableByteArray(new byte[]{1, 2, 3}));
+        HttpUtils.handleRanges(req, result);
+        assertThat(result.getStatusCode()).isEqualTo(Status.OK);
+    }
+
 }
\ No newline at end of file
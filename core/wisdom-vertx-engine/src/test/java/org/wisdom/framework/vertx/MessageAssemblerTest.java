@@ -0,0 +1,127 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.framework.vertx;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.http.WebSocketFrame;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Checks the assembly of the fragmented web socket messages.
+ */
+public class MessageAssemblerTest {
+
+    private ServerWebSocket ws;
+    private Socket socket;
+    private WisdomVertxServer dispatcher;
+    private MessageAssembler assembler;
+
+    @Before
+    public void setUp() {
+        ws = mock(ServerWebSocket.class);
+        when(ws.path()).thenReturn("/ws");
+        socket = new Socket(ws);
+        dispatcher = mock(WisdomVertxServer.class);
+        assembler = new MessageAssembler(ws, socket, dispatcher, 10);
+    }
+
+    @Test
+    public void testSingleFrameMessages() {
+        assembler.handle(frame(false, true, "hello"));
+        verify(dispatcher).received("/ws", "hello".getBytes(StandardCharsets.UTF_8), socket);
+        verify(dispatcher, never()).isStreaming(anyString());
+    }
+
+    @Test
+    public void testFragmentedMessagesAreAssembled() {
+        assembler.handle(frame(false, false, "hel"));
+        assembler.handle(frame(true, false, "lo "));
+        verify(dispatcher, never()).received(anyString(), any(byte[].class), any(Socket.class));
+        assembler.handle(frame(true, true, "you"));
+        verify(dispatcher).received("/ws", "hello you".getBytes(StandardCharsets.UTF_8), socket);
+    }
+
+    @Test
+    public void testTooLargeMessagesCloseTheSocket() {
+        assembler.handle(frame(false, false, "hello"));
+        assembler.handle(frame(true, false, "hello"));
+        verify(ws, never()).close();
+        assembler.handle(frame(true, true, "!"));
+        verify(ws).close();
+        verify(dispatcher, never()).received(anyString(), any(byte[].class), any(Socket.class));
+    }
+
+    @Test
+    public void testStreamedMessages() throws IOException {
+        when(dispatcher.isStreaming("/ws")).thenReturn(true);
+        assembler.handle(frame(false, false, "hello"));
+
+        // Delivered on the first fragment, and not limited.
+        ArgumentCaptor<InputStream> captor = ArgumentCaptor.forClass(InputStream.class);
+        verify(dispatcher).received(eq("/ws"), captor.capture(), eq(socket));
+        InputStream stream = captor.getValue();
+        assertThat(stream.available()).isEqualTo(5);
+
+        assembler.handle(frame(true, false, " world"));
+        assembler.handle(frame(true, true, "!"));
+        assertThat(IOUtils.toString(stream, "UTF-8")).isEqualTo("hello world!");
+        verify(ws, never()).close();
+
+        // The next message is streamed too.
+        assembler.handle(frame(false, false, "abc"));
+        verify(dispatcher, times(2)).received(eq("/ws"), captor.capture(), eq(socket));
+        stream = captor.getValue();
+        assembler.closed();
+        // The buffered fragments can still be read.
+        byte[] buffered = new byte[3];
+        IOUtils.readFully(stream, buffered);
+        assertThat(new String(buffered, StandardCharsets.UTF_8)).isEqualTo("abc");
+        try {
+            stream.read();
+            fail("The socket has been closed before the end of the message");
+        } catch (IOException e) {
+            // Expected.
+        }
+    }
+
+    private static WebSocketFrame frame(boolean continuation, boolean last, String content) {
+        WebSocketFrame frame = mock(WebSocketFrame.class);
+        when(frame.isContinuation()).thenReturn(continuation);
+        when(frame.isText()).thenReturn(!continuation);
+        when(frame.isFinal()).thenReturn(last);
+        when(frame.binaryData()).thenReturn(Buffer.buffer(content));
+        return frame;
+    }
+}
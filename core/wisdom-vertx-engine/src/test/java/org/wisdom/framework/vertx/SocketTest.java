@@ -0,0 +1,93 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.framework.vertx;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.http.WebSocketFrame;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Checks the frames written on sockets.
+ */
+public class SocketTest {
+
+    @Test
+    public void testThatThePayloadIsShared() {
+        Buffer payload = Buffer.buffer("hello");
+        ServerWebSocket ws1 = mock(ServerWebSocket.class);
+        ServerWebSocket ws2 = mock(ServerWebSocket.class);
+
+        assertThat(new Socket(ws1).write(payload, false, SlowConsumerPolicy.SKIP)).isTrue();
+        assertThat(new Socket(ws2).write(payload, true, SlowConsumerPolicy.SKIP)).isTrue();
+
+        ArgumentCaptor<WebSocketFrame> frame = ArgumentCaptor.forClass(WebSocketFrame.class);
+        verify(ws1).writeFrame(frame.capture());
+        assertThat(frame.getValue().isText()).isTrue();
+        assertThat(frame.getValue().isFinal()).isTrue();
+        assertThat(frame.getValue().textData()).isEqualTo("hello");
+
+        verify(ws2).writeFrame(frame.capture());
+        assertThat(frame.getValue().isBinary()).isTrue();
+        assertThat(frame.getValue().binaryData().toString()).isEqualTo("hello");
+
+        // Writing the frames must not consume the payload.
+        assertThat(payload.toString()).isEqualTo("hello");
+    }
+
+    @Test
+    public void testSlowConsumerPolicies() {
+        Buffer payload = Buffer.buffer("hello");
+        ServerWebSocket ws = mock(ServerWebSocket.class);
+        when(ws.writeQueueFull()).thenReturn(true);
+        Socket socket = new Socket(ws);
+
+        assertThat(socket.write(payload, false, SlowConsumerPolicy.SKIP)).isFalse();
+        verify(ws, never()).writeFrame(any(WebSocketFrame.class));
+        verify(ws, never()).close();
+
+        assertThat(socket.write(payload, false, SlowConsumerPolicy.CLOSE)).isFalse();
+        verify(ws, never()).writeFrame(any(WebSocketFrame.class));
+        verify(ws).close();
+
+        assertThat(socket.write(payload, false, SlowConsumerPolicy.QUEUE)).isTrue();
+        verify(ws).writeFrame(any(WebSocketFrame.class));
+    }
+
+    @Test
+    public void testClosedSocket() {
+        ServerWebSocket ws = mock(ServerWebSocket.class);
+        when(ws.writeFrame(any(WebSocketFrame.class))).thenThrow(new IllegalStateException("closed"));
+        assertThat(new Socket(ws).write(Buffer.buffer("hello"), false, SlowConsumerPolicy.QUEUE)).isFalse();
+    }
+
+    @Test
+    public void testPolicyNames() {
+        assertThat(SlowConsumerPolicy.from(null)).isEqualTo(SlowConsumerPolicy.QUEUE);
+        assertThat(SlowConsumerPolicy.from("skip")).isEqualTo(SlowConsumerPolicy.SKIP);
+        assertThat(SlowConsumerPolicy.from(" Close ")).isEqualTo(SlowConsumerPolicy.CLOSE);
+        assertThat(SlowConsumerPolicy.from("unknown")).isEqualTo(SlowConsumerPolicy.QUEUE);
+    }
+}
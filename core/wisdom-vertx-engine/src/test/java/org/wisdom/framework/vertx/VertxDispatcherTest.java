@@ -22,6 +22,7 @@ package org.wisdom.framework.vertx;
 import com.google.common.base.Charsets;
 import io.vertx.core.Vertx;
 import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.http.WebSocketFrame;
 import org.apache.commons.io.FileUtils;
 import org.junit.After;
 import org.junit.Test;
@@ -44,6 +45,7 @@ import java.util.Collections;
 import java.util.concurrent.CountDownLatch;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.*;
 
 /**
@@ -227,12 +229,12 @@ public class VertxDispatcherTest extends VertxBaseTest {
 
         // The listener should have received the message.
         assertThat(listener.lastMessage).isEqualTo("message");
-        assertThat(listener.lastClient).isEqualTo(Integer.toOctalString(socket1.hashCode()));
+        assertThat(listener.lastClient).isEqualTo(WisdomVertxServer.id(sock1));
 
         server.addSocket("/hello", sock2);
         server.received("/hello", "message2".getBytes(Charsets.UTF_8), sock2);
         assertThat(listener.lastMessage).isEqualTo("message2");
-        assertThat(listener.lastClient).isEqualTo(Integer.toOctalString(socket2.hashCode()));
+        assertThat(listener.lastClient).isEqualTo(WisdomVertxServer.id(sock2));
 
         server.removeSocket("/hello", sock1);
         server.removeSocket("/hello", sock2);
@@ -268,6 +270,34 @@ public class VertxDispatcherTest extends VertxBaseTest {
 
     }
 
+    @Test
+    public void testSendingToASingleClient() throws InterruptedException, IOException {
+        prepareServer();
+
+        final ServerWebSocket socket1 = mock(ServerWebSocket.class);
+        final Socket sock1 = new Socket(socket1);
+        final ServerWebSocket socket2 = mock(ServerWebSocket.class);
+        final Socket sock2 = new Socket(socket2);
+        assertThat(WisdomVertxServer.id(sock1)).isNotEqualTo(WisdomVertxServer.id(sock2));
+
+        server.addSocket("/hello", sock1);
+        server.addSocket("/hello", sock2);
+        assertThat(server.getNumberOpenedSocketsByUri("/hello")).isEqualTo(2);
+
+        server.send("/hello", WisdomVertxServer.id(sock2), "response");
+        verify(socket1, never()).writeFrame(any(WebSocketFrame.class));
+        verify(socket2).writeFrame(any(WebSocketFrame.class));
+
+        // Not opened on this uri.
+        server.send("/other", WisdomVertxServer.id(sock1), "response");
+        verify(socket1, never()).writeFrame(any(WebSocketFrame.class));
+
+        server.removeSocket("/hello", sock1);
+        server.removeSocket("/hello", sock2);
+        assertThat(server.getNumberOpenedSocketsByUri("/hello")).isEqualTo(0);
+        assertThat(server.getNumberOpenedSockets()).isEmpty();
+    }
+
     private void prepareServer() throws IOException, InterruptedException {
         ApplicationConfiguration configuration = mock(ApplicationConfiguration.class);
         when(configuration.getIntegerWithDefault(eq("vertx.http.port"), anyInt())).thenReturn(0);
@@ -19,25 +19,37 @@
  */
 package org.wisdom.framework.vertx;
 
+import io.vertx.core.Vertx;
 import io.vertx.core.http.HttpClientOptions;
 import org.apache.commons.io.IOUtils;
 import org.junit.After;
 import org.junit.Test;
 import org.wisdom.api.Controller;
 import org.wisdom.api.DefaultController;
+import org.wisdom.api.concurrent.ManagedExecutorService;
 import org.wisdom.api.configuration.ApplicationConfiguration;
 import org.wisdom.api.exceptions.ExceptionMapper;
+import org.wisdom.api.exceptions.HttpException;
 import org.wisdom.api.http.*;
 import org.wisdom.api.router.Route;
 import org.wisdom.api.router.RouteBuilder;
 import org.wisdom.api.router.Router;
+import org.wisdom.api.tracing.Span;
+import org.wisdom.api.tracing.Trace;
+import org.wisdom.api.tracing.TraceCollector;
+import org.wisdom.api.tracing.Tracing;
+import org.wisdom.executors.ManagedExecutorServiceImpl;
 import org.wisdom.framework.vertx.ssl.SSLServerContext;
 
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -134,7 +146,320 @@ public class VertxHttpServerTest extends VertxBaseTest {
         assertThat(connection.getResponseCode()).isEqualTo(500);
     }
 
+    @Test
+    public void testServiceUnavailableWhenTheExecutorIsSaturated() throws InterruptedException, IOException {
+        // A single thread, no queue.
+        ManagedExecutorServiceImpl saturated = new ManagedExecutorServiceImpl("saturated",
+                ManagedExecutorService.ThreadType.POOLED, 60000, 1, 1, 1000, true, 0, Thread.NORM_PRIORITY,
+                null);
+        CountDownLatch release = new CountDownLatch(1);
+        saturated.submit(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                // Ignore it.
+            }
+        });
+
+        Router router = prepareServer(saturated);
+        when(server.configuration.getIntegerWithDefault("request.retry.after", 1)).thenReturn(2);
+        Controller controller = new DefaultController() {
+            @SuppressWarnings("unused")
+            public Result index() {
+                return async(() -> ok("Alright"));
+            }
+        };
+        Route route = new RouteBuilder().route(HttpMethod.GET)
+                .on("/")
+                .to(controller, "index");
+        when(router.getRouteFor(anyString(), anyString(), any(Request.class))).thenReturn(route);
+
+        server.start();
+        waitForStart(server);
+
+        try {
+            URL url = new URL("http://localhost:" + server.httpPort() + "/");
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            assertThat(connection.getResponseCode()).isEqualTo(503);
+            assertThat(connection.getHeaderField(HeaderNames.RETRY_AFTER)).isEqualTo("2");
+            // The router returns the same route for all requests, so the ping request of waitForStart is rejected too.
+            assertThat(saturated.getRejectedTaskCount()).isGreaterThanOrEqualTo(1);
+        } finally {
+            release.countDown();
+            saturated.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testDispatchOnTheExecutor() throws InterruptedException, IOException {
+        ManagedExecutorServiceImpl executor = new ManagedExecutorServiceImpl("offload",
+                ManagedExecutorService.ThreadType.POOLED, 60000, 2, 2, 1000, true, 10, Thread.NORM_PRIORITY,
+                null);
+        Router router = prepareServer(executor);
+        when(server.configuration.getBooleanWithDefault("request.dispatch.offload", false)).thenReturn(true);
+        Controller controller = new DefaultController() {
+            @SuppressWarnings("unused")
+            public Result index() {
+                // Blocking is allowed here, we are not on the event loop.
+                return ok(Thread.currentThread().getName());
+            }
+        };
+        Route route = new RouteBuilder().route(HttpMethod.GET)
+                .on("/")
+                .to(controller, "index");
+        when(router.getRouteFor(anyString(), anyString(), any(Request.class))).thenReturn(route);
+
+        server.start();
+        waitForStart(server);
+
+        try {
+            URL url = new URL("http://localhost:" + server.httpPort() + "/");
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            assertThat(connection.getResponseCode()).isEqualTo(200);
+            assertThat(IOUtils.toString(connection.getInputStream())).startsWith("offload-");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testAsyncResultWhenDispatchedOnTheExecutor() throws InterruptedException, IOException {
+        ManagedExecutorServiceImpl executor = new ManagedExecutorServiceImpl("offload",
+                ManagedExecutorService.ThreadType.POOLED, 60000, 2, 2, 1000, true, 10, Thread.NORM_PRIORITY,
+                null);
+        Router router = prepareServer(executor);
+        when(server.configuration.getBooleanWithDefault("request.dispatch.offload", false)).thenReturn(true);
+        Controller controller = new DefaultController() {
+            @SuppressWarnings("unused")
+            public Result index() {
+                final Thread dispatcher = Thread.currentThread();
+                // No second hop, the result is computed by the thread having invoked the action.
+                return async(() -> ok(Boolean.toString(Thread.currentThread() == dispatcher)));
+            }
+        };
+        Route route = new RouteBuilder().route(HttpMethod.GET)
+                .on("/")
+                .to(controller, "index");
+        when(router.getRouteFor(anyString(), anyString(), any(Request.class))).thenReturn(route);
+
+        server.start();
+        waitForStart(server);
+
+        try {
+            URL url = new URL("http://localhost:" + server.httpPort() + "/");
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            assertThat(connection.getResponseCode()).isEqualTo(200);
+            assertThat(IOUtils.toString(connection.getInputStream())).isEqualTo("true");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testServerTimingHeader() throws InterruptedException, IOException {
+        // Not sent in production.
+        startServerWithTimings(false, vertx);
+        URL url = new URL("http://localhost:" + server.httpPort() + "/");
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        assertThat(connection.getHeaderField(HeaderNames.SERVER_TIMING)).isNull();
+        server.stop();
+
+        // The configuration is read when the server starts, so start another one (on another vert.x instance, as
+        // the verticle factory of the first server is still registered).
+        Vertx dev = Vertx.vertx();
+        try {
+            startServerWithTimings(true, dev);
+            url = new URL("http://localhost:" + server.httpPort() + "/");
+            connection = (HttpURLConnection) url.openConnection();
+            assertThat(connection.getResponseCode()).isEqualTo(200);
+            // The other phases are recorded by the router, not used here.
+            assertThat(connection.getHeaderField(HeaderNames.SERVER_TIMING))
+                    .contains("routing;dur=").contains("serialization;dur=");
+        } finally {
+            server.stop();
+            server = null;
+            dev.close();
+        }
+    }
+
+    private void startServerWithTimings(boolean dev, Vertx vertx) throws InterruptedException, IOException {
+        Router router = prepareServer();
+        server.vertx = vertx;
+        when(server.configuration.getBooleanWithDefault("request.timings", false)).thenReturn(true);
+        when(server.configuration.getBooleanWithDefault("request.timings.header", true)).thenReturn(true);
+        when(server.configuration.isDev()).thenReturn(dev);
+        Controller controller = new DefaultController() {
+            @SuppressWarnings("unused")
+            public Result index() {
+                return ok("Alright");
+            }
+        };
+        Route route = new RouteBuilder().route(HttpMethod.GET)
+                .on("/")
+                .to(controller, "index");
+        when(router.getRouteFor(anyString(), anyString(), any(Request.class))).thenReturn(route);
+
+        server.start();
+        waitForStart(server);
+    }
+
+    @Test
+    public void testTracing() throws InterruptedException, IOException {
+        Router router = prepareServer();
+        BlockingQueue<Trace> traces = new LinkedBlockingQueue<>();
+        server.accessor = new ServiceAccessor(null, server.configuration, router, getMockContentEngine(), null, null,
+                Collections.<ExceptionMapper>emptyList(), Collections.<TraceCollector>singletonList(traces::add));
+        Controller controller = new DefaultController() {
+            @SuppressWarnings("unused")
+            public Result index() {
+                Span span = Tracing.start("work");
+                try {
+                    return ok("Alright");
+                } finally {
+                    span.finish();
+                }
+            }
+        };
+        Route route = new RouteBuilder().route(HttpMethod.GET)
+                .on("/")
+                .to(controller, "index");
+        when(router.getRouteFor(anyString(), anyString(), any(Request.class))).thenReturn(route);
+
+        server.start();
+        waitForStart(server);
+
+        URL url = new URL("http://localhost:" + server.httpPort() + "/?q=1");
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestProperty(HeaderNames.TRACEPARENT,
+                "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01");
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+
+        // Skip the traces of the requests sent by waitForStart.
+        Trace trace = traces.poll(5, TimeUnit.SECONDS);
+        while (trace != null && trace.getRoot().getName().startsWith("GET /ping")) {
+            trace = traces.poll(5, TimeUnit.SECONDS);
+        }
+        assertThat(trace).isNotNull();
+        assertThat(trace.isFinished()).isTrue();
+        assertThat(trace.isFailed()).isFalse();
+        assertThat(trace.getId()).isEqualTo("4bf92f3577b34da6a3ce929d0e0e4736");
+        assertThat(trace.getRoot().getName()).isEqualTo("GET /");
+        assertThat(trace.getRoot().getParentId()).isEqualTo("00f067aa0ba902b7");
+        assertThat(trace.getRoot().getTags()).containsEntry("status", "200").containsEntry("uri", "/?q=1");
+        assertThat(trace.getChildren(trace.getRoot())).extracting("name").containsExactly("work");
+    }
+
+    @Test
+    public void testHeadSampling() throws InterruptedException, IOException {
+        Router router = prepareServer();
+        BlockingQueue<Trace> traces = new LinkedBlockingQueue<>();
+        TraceCollector collector = new TraceCollector() {
+            @Override
+            public void collect(Trace trace) {
+                traces.add(trace);
+            }
+
+            @Override
+            public double getSampleRate() {
+                return 0;
+            }
+        };
+        server.accessor = new ServiceAccessor(null, server.configuration, router, getMockContentEngine(), null, null,
+                Collections.<ExceptionMapper>emptyList(), Collections.singletonList(collector));
+        Controller controller = new DefaultController() {
+            @SuppressWarnings("unused")
+            public Result index() {
+                return ok(String.valueOf(Tracing.current() != null));
+            }
+        };
+        Route route = new RouteBuilder().route(HttpMethod.GET)
+                .on("/")
+                .to(controller, "index");
+        when(router.getRouteFor(anyString(), anyString(), any(Request.class))).thenReturn(route);
+
+        server.start();
+        waitForStart(server);
+
+        URL url = new URL("http://localhost:" + server.httpPort() + "/");
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        assertThat(IOUtils.toString(connection.getInputStream())).isEqualTo("false");
+
+        // The caller asked for the request to be recorded.
+        connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestProperty(HeaderNames.TRACEPARENT,
+                "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01");
+        assertThat(IOUtils.toString(connection.getInputStream())).isEqualTo("true");
+
+        Trace trace = traces.poll(5, TimeUnit.SECONDS);
+        assertThat(trace).isNotNull();
+        assertThat(trace.getId()).isEqualTo("4bf92f3577b34da6a3ce929d0e0e4736");
+        assertThat(traces).isEmpty();
+    }
+
+    @Test
+    public void testCompletionStageResults() throws InterruptedException, IOException {
+        Router router = prepareServer();
+        Controller controller = new DefaultController() {
+            @SuppressWarnings("unused")
+            public CompletionStage<Result> index() {
+                // Completed by another thread, not managed by Wisdom.
+                return CompletableFuture.supplyAsync(() -> ok("Alright"));
+            }
+        };
+        Route route = new RouteBuilder().route(HttpMethod.GET)
+                .on("/")
+                .to(controller, "index");
+        when(router.getRouteFor(anyString(), anyString(), any(Request.class))).thenReturn(route);
+
+        server.start();
+        waitForStart(server);
+
+        URL url = new URL("http://localhost:" + server.httpPort() + "/");
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        assertThat(IOUtils.toString(connection.getInputStream())).isEqualTo("Alright");
+    }
+
+    @Test
+    public void testCompletionStageFailuresAndTimeouts() throws InterruptedException, IOException {
+        Router router = prepareServer();
+        Controller controller = new DefaultController() {
+            @SuppressWarnings("unused")
+            public Result index() {
+                String param = context().parameter("mode");
+                CompletableFuture<Result> future = new CompletableFuture<>();
+                if ("error".equals(param)) {
+                    future.completeExceptionally(new HttpException(Status.FORBIDDEN, "Not allowed"));
+                } else if ("null".equals(param)) {
+                    future.complete(null);
+                }
+                // Otherwise, never completed.
+                return async(future).timeout(100, TimeUnit.MILLISECONDS);
+            }
+        };
+        Route route = new RouteBuilder().route(HttpMethod.GET)
+                .on("/")
+                .to(controller, "index");
+        when(router.getRouteFor(anyString(), anyString(), any(Request.class))).thenReturn(route);
+
+        server.start();
+        waitForStart(server);
+
+        String base = "http://localhost:" + server.httpPort() + "/?mode=";
+        assertThat(((HttpURLConnection) new URL(base + "error").openConnection()).getResponseCode())
+                .isEqualTo(Status.FORBIDDEN);
+        assertThat(((HttpURLConnection) new URL(base + "null").openConnection()).getResponseCode())
+                .isEqualTo(Status.INTERNAL_SERVER_ERROR);
+        assertThat(((HttpURLConnection) new URL(base + "never").openConnection()).getResponseCode())
+                .isEqualTo(Status.GATEWAY_TIMEOUT);
+    }
+
     private Router prepareServer() {
+        return prepareServer(null);
+    }
+
+    private Router prepareServer(ManagedExecutorService executor) {
         // Prepare the configuration
         ApplicationConfiguration configuration = mock(ApplicationConfiguration.class);
         when(configuration.getIntegerWithDefault(eq("vertx.http.port"), anyInt())).thenReturn(0);
@@ -157,7 +482,7 @@ public class VertxHttpServerTest extends VertxBaseTest {
                 configuration,
                 router,
                 getMockContentEngine(),
-                null,
+                executor,
                 null,
                 Collections.<ExceptionMapper>emptyList()
         );
@@ -0,0 +1,105 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.framework.vertx;
+
+import io.vertx.core.http.ServerWebSocket;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Mockito.*;
+
+/**
+ * Checks the streams delivering the fragmented web socket messages.
+ */
+public class WebSocketInputStreamTest {
+
+    @Test
+    public void testReadingBlocksUntilTheNextFragment() throws Exception {
+        final WebSocketInputStream stream = new WebSocketInputStream(mock(ServerWebSocket.class), null);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> size = executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    int count = 0;
+                    while (stream.read() != -1) {
+                        count++;
+                    }
+                    return count;
+                }
+            });
+            stream.write(new byte[10]);
+            stream.write(new byte[5]);
+            Thread.sleep(100);
+            assertThat(size.isDone()).isFalse();
+            stream.end();
+            assertThat(size.get(5, TimeUnit.SECONDS)).isEqualTo(15);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testThatTheSocketIsPausedWhenTheReaderIsLate() throws IOException {
+        ServerWebSocket socket = mock(ServerWebSocket.class);
+        WebSocketInputStream stream = new WebSocketInputStream(socket, null);
+        stream.write(new byte[WebSocketInputStream.HIGH_WATER_MARK]);
+        verify(socket, never()).pause();
+        stream.write(new byte[10]);
+        verify(socket).pause();
+
+        byte[] buffer = new byte[WebSocketInputStream.HIGH_WATER_MARK / 4];
+        assertThat(stream.read(buffer)).isEqualTo(buffer.length);
+        assertThat(stream.read(buffer)).isEqualTo(buffer.length);
+        verify(socket, never()).resume();
+        // Resumed once half of the buffered bytes have been read.
+        assertThat(stream.read(new byte[10])).isEqualTo(10);
+        verify(socket).resume();
+    }
+
+    @Test
+    public void testClose() throws IOException {
+        ServerWebSocket socket = mock(ServerWebSocket.class);
+        WebSocketInputStream stream = new WebSocketInputStream(socket, null);
+        stream.write(new byte[WebSocketInputStream.HIGH_WATER_MARK + 1]);
+        verify(socket).pause();
+
+        // The unread fragments are discarded, and the socket resumed.
+        stream.close();
+        verify(socket).resume();
+        assertThat(stream.available()).isEqualTo(0);
+        stream.write(new byte[10]);
+        assertThat(stream.available()).isEqualTo(0);
+        try {
+            stream.read();
+            fail("The stream is closed");
+        } catch (IOException e) {
+            // Expected.
+        }
+    }
+}
@@ -36,6 +36,9 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Random;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
 
 @Controller
 public class AsyncExample extends DefaultController {
@@ -61,6 +64,21 @@ public class AsyncExample extends DefaultController {
     }
     // end::async2[]
 
+    // tag::async-stage[]
+    @Route(method = HttpMethod.GET, uri = "/stage")
+    public CompletionStage<Result> stage() {
+        // The stage is generally returned by a non-blocking API (HTTP client, database driver...)
+        return CompletableFuture.supplyAsync(() -> "Computation done")
+                .thenApply(message -> ok(message));
+    }
+
+    @Route(method = HttpMethod.GET, uri = "/stage-with-timeout")
+    public Result stageWithTimeout() {
+        return async(CompletableFuture.supplyAsync(() -> ok("Computation done")))
+                .timeout(5, TimeUnit.SECONDS);
+    }
+    // end::async-stage[]
+
 
     // tag::hello[]
     public Result hello() {
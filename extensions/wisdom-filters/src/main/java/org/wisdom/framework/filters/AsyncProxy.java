@@ -0,0 +1,189 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.framework.filters;
+
+import com.google.common.collect.Multimap;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpMethod;
+import org.wisdom.api.exceptions.HttpException;
+import org.wisdom.api.http.HeaderNames;
+import org.wisdom.api.http.Status;
+
+import java.net.URI;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Forwards requests using the Vert.x HTTP client, without blocking any thread.
+ * <p>
+ * A client is created per event loop: requests dispatched from an event loop are sent from this event loop, so the
+ * response is written back without switching threads. Each client keeps a pool of keep-alive connections per proxied
+ * server.
+ */
+final class AsyncProxy {
+
+    /**
+     * The key used for the requests not dispatched from a Vert.x context.
+     */
+    private static final Object NO_CONTEXT = new Object();
+
+    private final Vertx vertx;
+
+    private final HttpClientOptions options;
+
+    private final long readTimeout;
+
+    private final ConcurrentMap<Object, HttpClient> clients = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Object, HttpClient> securedClients = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the proxy.
+     *
+     * @param vertx       the Vert.x instance
+     * @param options     the options of the HTTP clients, the SSL support is enabled according to the proxied URLs
+     * @param readTimeout the maximum time (in milliseconds) without receiving data from the proxied server, 0 to
+     *                    wait forever
+     */
+    AsyncProxy(Vertx vertx, HttpClientOptions options, long readTimeout) {
+        this.vertx = vertx;
+        this.options = options;
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * @return the Vert.x instance used by this proxy.
+     */
+    Vertx vertx() {
+        return vertx;
+    }
+
+    /**
+     * Checks whether the given HTTP method can be forwarded by the Vert.x client.
+     *
+     * @param method the method
+     * @return {@code true} if the method is supported
+     */
+    static boolean supports(String method) {
+        try {
+            HttpMethod.valueOf(method.toUpperCase(Locale.ENGLISH));
+            return true;
+        } catch (IllegalArgumentException e) { //NOSONAR
+            return false;
+        }
+    }
+
+    /**
+     * Forwards a request. The returned stage is completed with the response once its headers are received. The
+     * response is paused, so it must be resumed once handlers are set on it. It is completed with an
+     * {@link HttpException} when the proxied server cannot be reached ({@literal 502}) or does not answer in time
+     * ({@literal 504}).
+     *
+     * @param method  the HTTP method
+     * @param uri     the destination
+     * @param headers the headers to send
+     * @param body    the body to send, {@code null} if none
+     * @return the stage completed with the response
+     */
+    CompletionStage<HttpClientResponse> forward(String method, URI uri, Multimap<String, String> headers,
+                                                byte[] body) {
+        final CompletableFuture<HttpClientResponse> future = new CompletableFuture<>();
+        boolean ssl = "https".equalsIgnoreCase(uri.getScheme());
+        final int port = uri.getPort() == -1 ? (ssl ? 443 : 80) : uri.getPort();
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        if (uri.getRawQuery() != null) {
+            path += "?" + uri.getRawQuery();
+        }
+
+        HttpClientRequest request = client(ssl).request(HttpMethod.valueOf(method.toUpperCase(Locale.ENGLISH)),
+                port, uri.getHost(), path);
+        request.handler(response -> {
+            // Paused until the engine writes the body.
+            response.pause();
+            future.complete(response);
+        });
+        request.exceptionHandler(error -> {
+            if (error instanceof TimeoutException) {
+                future.completeExceptionally(new HttpException(Status.GATEWAY_TIMEOUT,
+                        "No response from " + uri.getHost() + ":" + port, error));
+            } else {
+                future.completeExceptionally(new HttpException(Status.BAD_GATEWAY,
+                        "Cannot proxy the request to " + uri.getHost() + ":" + port, error));
+            }
+        });
+        if (readTimeout > 0) {
+            request.setTimeout(readTimeout);
+        }
+        for (Map.Entry<String, String> header : headers.entries()) {
+            request.headers().add(header.getKey(), header.getValue());
+        }
+        // Computed by the client.
+        request.headers().remove(HeaderNames.CONTENT_LENGTH);
+        if (body == null) {
+            request.end();
+        } else {
+            request.end(Buffer.buffer(body));
+        }
+        return future;
+    }
+
+    private HttpClient client(boolean ssl) {
+        Context context = Vertx.currentContext();
+        Object key = context == null ? NO_CONTEXT : context;
+        ConcurrentMap<Object, HttpClient> map = ssl ? securedClients : clients;
+        HttpClient client = map.get(key);
+        if (client == null) {
+            // Created from the current context, so the connections and callbacks use it.
+            HttpClient newClient = vertx.createHttpClient(new HttpClientOptions(options).setSsl(ssl));
+            client = map.putIfAbsent(key, newClient);
+            if (client == null) {
+                client = newClient;
+            } else {
+                newClient.close();
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Closes the clients and their connections.
+     */
+    void close() {
+        for (HttpClient client : clients.values()) {
+            client.close();
+        }
+        clients.clear();
+        for (HttpClient client : securedClients.values()) {
+            client.close();
+        }
+        securedClients.clear();
+    }
+}
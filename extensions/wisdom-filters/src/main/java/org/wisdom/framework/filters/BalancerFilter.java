@@ -21,18 +21,32 @@ package org.wisdom.framework.filters;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
+import io.vertx.core.Vertx;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
 import org.wisdom.api.configuration.Configuration;
+import org.wisdom.api.exceptions.HttpException;
+import org.wisdom.api.http.AsyncResult;
 import org.wisdom.api.http.HeaderNames;
 import org.wisdom.api.http.Request;
 import org.wisdom.api.http.Result;
+import org.wisdom.api.http.Status;
 import org.wisdom.api.interception.Filter;
 import org.wisdom.api.interception.RequestContext;
 import org.wisdom.api.router.Route;
 
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 
 /**
  * A filter acting as a load balancer between {@link org.wisdom.framework.filters
@@ -41,6 +55,16 @@ import java.util.concurrent.atomic.AtomicLong;
  * However sticky session is limited by dynamism, and may not be enforced if the targeted member has
  * left. If no members are bound to the balancer, the request is just delegated to the next filter.
  * <p>
+ * The member handling a request is selected by a {@link BalancerStrategy} (round-robin by default, see
+ * {@link #getStrategy()}). Members failing several times in a row are ejected for a while (see
+ * {@link #getMaxFailures()}), and members failing their health check (see {@link #checkHealth()}) are not selected
+ * until they pass it again. Requests using an idempotent method are retried on another member when the selected
+ * member cannot be reached (see {@link #getRetries()}).
+ * <p>
+ * The first attempt of a request goes through {@link #rewriteURI(RequestContext)} and
+ * {@link #selectBalancerMember(RequestContext)}. Retries select the member using the strategy, excluding the members
+ * already tried, and compute the destination with {@link #rewriteURI(RequestContext, BalancerMember)}.
+ * <p>
  * To create an instance of {@link org.wisdom.framework.filters.BalancerFilter}, you need to override this class and
  * declare it as a {@link org.wisdom.api.annotations.Service}. You can override most of its behavior. You have to
  * manage the binding and unbinding of {@link org.wisdom.framework.filters.BalancerMember}.
@@ -57,9 +81,42 @@ public class BalancerFilter extends ProxyFilter implements Filter {
     );
 
     /**
-     * List of members.
+     * The methods that can be retried on another member.
+     */
+    private static final Set<String> IDEMPOTENT_METHODS = ImmutableSet.of(
+            "GET", "HEAD", "OPTIONS", "TRACE", "PUT", "DELETE"
+    );
+
+    /**
+     * The key of the request data storing the member selected by {@link #rewriteURI(RequestContext)}.
+     */
+    private static final String SELECTED_MEMBER = BalancerFilter.class.getName() + ".member";
+
+    /**
+     * The default number of consecutive failures ejecting a member.
+     */
+    public static final int DEFAULT_MAX_FAILURES = 5;
+
+    /**
+     * The default ejection duration: 30 seconds.
      */
-    private final List<BalancerMember> members = new ArrayList<>();
+    public static final long DEFAULT_EJECTION_TIME = 30000L;
+
+    /**
+     * The default number of retries of the idempotent requests.
+     */
+    public static final int DEFAULT_RETRIES = 1;
+
+    /**
+     * The default timeout of the health checks: 2 seconds.
+     */
+    public static final int DEFAULT_HEALTH_CHECK_TIMEOUT = 2000;
+
+    /**
+     * List of members. The list is immutable, and replaced when members arrive or leave, so requests read it
+     * without locking.
+     */
+    private volatile List<MemberStatistics> members = Collections.emptyList();
     /**
      * The name of the balancer.
      */
@@ -72,11 +129,27 @@ public class BalancerFilter extends ProxyFilter implements Filter {
      * Whether or not the balancer handle reverse proxy.
      */
     private final boolean proxyPassReverse;
+    /**
+     * The strategy selecting the members.
+     */
+    private final BalancerStrategy strategy;
+    /**
+     * The number of consecutive failures ejecting a member.
+     */
+    private final int maxFailures;
+    /**
+     * The ejection duration in milliseconds.
+     */
+    private final long ejectionTime;
+    /**
+     * The number of retries of idempotent requests.
+     */
+    private final int retries;
 
     /**
-     * Counter to return unique id.
+     * The client sending the health checks, created on the first check.
      */
-    private final AtomicLong counter = new AtomicLong();
+    private CloseableHttpClient healthCheckClient;
 
     /**
      * Creates a {@link org.wisdom.framework.filters.BalancerFilter} instance. This instance requires that the {@link
@@ -86,6 +159,10 @@ public class BalancerFilter extends ProxyFilter implements Filter {
         this.name = getName();
         this.stickySession = getStickySession();
         this.proxyPassReverse = getProxyPassReverse();
+        this.strategy = getStrategy();
+        this.maxFailures = getMaxFailures();
+        this.ejectionTime = getEjectionTime();
+        this.retries = getRetries();
     }
 
     /**
@@ -100,6 +177,10 @@ public class BalancerFilter extends ProxyFilter implements Filter {
         this.prefix = getPrefix();
         this.stickySession = getStickySession();
         this.proxyPassReverse = getProxyPassReverse();
+        this.strategy = getStrategy();
+        this.maxFailures = getMaxFailures();
+        this.ejectionTime = getEjectionTime();
+        this.retries = getRetries();
     }
 
     /**
@@ -116,7 +197,8 @@ public class BalancerFilter extends ProxyFilter implements Filter {
     /**
      * Methods called on incoming request. If there are no members attached to this balancer, the request is
      * processed using {@link org.wisdom.api.interception.RequestContext#proceed()}. Otherwise, a member is selected
-     * and the request is delegated.
+     * and the request is delegated. If the member cannot be reached, idempotent requests are retried on another
+     * member.
      *
      * @param route   the route
      * @param context the filter context
@@ -124,20 +206,180 @@ public class BalancerFilter extends ProxyFilter implements Filter {
      * @throws Exception when the request cannot be handled correctly
      */
     @Override
-    public Result call(Route route, RequestContext context) throws Exception {
-        if (getMembers().isEmpty()) {
+    public Result call(Route route, final RequestContext context) throws Exception {
+        if (members.isEmpty()) {
             return context.proceed();
-        } else {
-            return super.call(route, context);
         }
+
+        final int attempts = 1 + (IDEMPOTENT_METHODS.contains(context.request().method().toUpperCase(Locale.ENGLISH))
+                ? retries : 0);
+        Vertx vertx = getVertx();
+        if (isNonBlocking(vertx, context)) {
+            CompletableFuture<Result> future = new CompletableFuture<>();
+            forward(vertx, context, new ArrayList<MemberStatistics>(), attempts, future);
+            return new AsyncResult(future);
+        }
+
+        return new AsyncResult(new Callable<Result>() {
+            @Override
+            public Result call() throws Exception {
+                return forward(context, attempts);
+            }
+        });
+    }
+
+    private Result forward(RequestContext context, int attempts) throws Exception {
+        List<MemberStatistics> tried = new ArrayList<>();
+        while (true) {
+            Attempt attempt = prepare(context, tried);
+            MemberStatistics member = attempt.member;
+            logger.debug("Proxy request - rewriting {} to {}", context.request().uri(), attempt.destination);
+            if (attempt.destination == null) {
+                return onRewriteFailed(context);
+            }
+            if (member == null) {
+                // Unknown member, neither tracked nor retried.
+                return forward(context, attempt.destination);
+            }
+
+            long start = member.start();
+            boolean recorded = false;
+            try {
+                Result result = forward(context, attempt.destination);
+                recorded = true;
+                record(member, start, result);
+                return result;
+            } catch (IOException e) {
+                recorded = true;
+                member.failed(start, maxFailures, ejectionTime);
+                tried.add(member);
+                if (!canRetry(tried, attempts)) {
+                    throw e;
+                }
+                logger.warn("Cannot proxy {} to '{}', retrying on another member", context.request().uri(),
+                        member.getMember().getName(), e);
+            } finally {
+                if (!recorded) {
+                    // Unexpected failure (onResult...), the member must not stay outstanding.
+                    member.cancelled();
+                }
+            }
+        }
+    }
+
+    private void forward(final Vertx vertx, final RequestContext context, final List<MemberStatistics> tried,
+                         final int attempts, final CompletableFuture<Result> future) {
+        final Attempt attempt;
+        try {
+            attempt = prepare(context, tried);
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            return;
+        }
+        final MemberStatistics member = attempt.member;
+        logger.debug("Proxy request - rewriting {} to {}", context.request().uri(), attempt.destination);
+        if (attempt.destination == null) {
+            future.complete(onRewriteFailed(context));
+            return;
+        }
+        if (member == null) {
+            // Unknown member, neither tracked nor retried.
+            forward(vertx, context, attempt.destination).whenComplete((result, error) -> {
+                if (error == null) {
+                    future.complete(result);
+                } else {
+                    future.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error);
+                }
+            });
+            return;
+        }
+
+        final long start = member.start();
+        CompletionStage<Result> stage;
+        try {
+            stage = forward(vertx, context, attempt.destination);
+        } catch (RuntimeException e) {
+            member.cancelled();
+            future.completeExceptionally(e);
+            return;
+        }
+        stage.whenComplete((result, error) -> {
+            if (error == null) {
+                record(member, start, result);
+                future.complete(result);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            if (!(cause instanceof HttpException)) {
+                // Not a proxy failure, the member has answered.
+                member.succeeded(start);
+                future.completeExceptionally(cause);
+                return;
+            }
+            member.failed(start, maxFailures, ejectionTime);
+            tried.add(member);
+            if (canRetry(tried, attempts)) {
+                logger.warn("Cannot proxy {} to '{}', retrying on another member", context.request().uri(),
+                        member.getMember().getName(), cause);
+                forward(vertx, context, tried, attempts, future);
+            } else {
+                future.completeExceptionally(cause);
+            }
+        });
     }
 
-    private synchronized List<BalancerMember> getMembers() {
-        return new ArrayList<>(members);
+    /**
+     * Selects the member and computes the destination of an attempt. The first attempt goes through
+     * {@link #rewriteURI(RequestContext)} (and so {@link #selectBalancerMember(RequestContext)}), so sub-classes can
+     * customize them. Retries must exclude the members already tried, so the member is selected by the balancing
+     * strategy, and the destination computed by {@link #rewriteURI(RequestContext, BalancerMember)}.
+     */
+    private Attempt prepare(RequestContext context, List<MemberStatistics> tried) throws URISyntaxException {
+        if (tried.isEmpty()) {
+            URI destination = rewriteURI(context);
+            Map<String, Object> data = context.request().data();
+            Object selected = data == null ? null : data.remove(SELECTED_MEMBER);
+            return new Attempt(selected instanceof BalancerMember ? getMemberStatistics((BalancerMember) selected)
+                    : null, destination);
+        }
+        MemberStatistics member = select(context, tried);
+        return new Attempt(member, member == null ? null : rewriteURI(context, member.getMember()));
     }
 
     /**
-     * Compute the destination URI. It picks a member (enforcing the sticky session if enabled), and computes the URI.
+     * A member and the destination of the request on this member.
+     */
+    private static final class Attempt {
+        private final MemberStatistics member;
+        private final URI destination;
+
+        private Attempt(MemberStatistics member, URI destination) {
+            this.member = member;
+            this.destination = destination;
+        }
+    }
+
+    private boolean canRetry(List<MemberStatistics> tried, int attempts) {
+        return tried.size() < attempts && members.size() > tried.size();
+    }
+
+    private void record(MemberStatistics member, long start, Result result) {
+        int status = result == null ? Status.OK : result.getStatusCode();
+        if (status == Status.BAD_GATEWAY || status == Status.SERVICE_UNAVAILABLE
+                || status == Status.GATEWAY_TIMEOUT) {
+            member.failed(start, maxFailures, ejectionTime);
+        } else {
+            member.succeeded(start);
+        }
+    }
+
+    /**
+     * Compute the destination URI. It picks a member (enforcing the sticky session if enabled) using
+     * {@link #selectBalancerMember(RequestContext)}, and computes the URI using
+     * {@link #rewriteURI(RequestContext, BalancerMember)}. When this method is overridden, the member used by the
+     * request is unknown, so its statistics are not updated and failed requests are not retried.
      *
      * @param rc the request content
      * @return the new URI
@@ -145,14 +387,32 @@ public class BalancerFilter extends ProxyFilter implements Filter {
      */
     @Override
     public URI rewriteURI(RequestContext rc) throws URISyntaxException {
-        Request request = rc.request();
         BalancerMember member = selectBalancerMember(rc);
+        if (member == null) {
+            return null;
+        }
+        Map<String, Object> data = rc.request().data();
+        if (data != null) {
+            data.put(SELECTED_MEMBER, member);
+        }
+        return rewriteURI(rc, member);
+    }
+
+    /**
+     * Compute the URI of the request on the given member.
+     *
+     * @param rc     the request content
+     * @param member the member
+     * @return the new URI, {@code null} if the request cannot be forwarded
+     * @throws URISyntaxException if the URI cannot be computed
+     */
+    protected URI rewriteURI(RequestContext rc, BalancerMember member) throws URISyntaxException {
+        Request request = rc.request();
         logger.debug("Selected {}", member.getName());
         String path = request.path();
         if (!path.startsWith(prefix)) {
             return null;
         }
-
         return computeDestinationURI(
                 request,
                 path,
@@ -161,9 +421,29 @@ public class BalancerFilter extends ProxyFilter implements Filter {
         );
     }
 
+    /**
+     * Selects the member receiving the request, enforcing the sticky session if enabled. By default, the member is
+     * picked by the balancing strategy among the available members.
+     *
+     * @param request the request
+     * @return the member, {@code null} if there are no members
+     */
     protected BalancerMember selectBalancerMember(RequestContext request) {
-        BalancerMember member;
-        if (stickySession) {
+        MemberStatistics member = select(request, Collections.<MemberStatistics>emptyList());
+        return member == null ? null : member.getMember();
+    }
+
+    /**
+     * Selects a member among the available members, enforcing the sticky session if enabled. If all the members are
+     * unavailable, they are used anyway, as failing all the requests would not help them.
+     *
+     * @param request  the request
+     * @param excluded the members that must not be selected (already tried)
+     * @return the selected member, {@code null} if there are no members
+     */
+    private MemberStatistics select(RequestContext request, List<MemberStatistics> excluded) {
+        List<MemberStatistics> snapshot = members;
+        if (stickySession && excluded.isEmpty()) {
             String balancer = request.context().session().get("_balancer");
             if (balancer == null) {
                 // URL lookup (query string).
@@ -172,24 +452,54 @@ public class BalancerFilter extends ProxyFilter implements Filter {
 
             // A balancer hint was given.
             if (balancer != null) {
-                member = getBalancerMember(balancer);
-                if (member != null) {
+                MemberStatistics member = getMemberStatistics(snapshot, balancer);
+                if (member != null && member.isAvailable()) {
                     // Member still around.
                     return member;
                 }
+                // The member left, we can't ensure the sticky session.
+                logger.warn("Cannot enforce sticky session policy for {} - the member ({}) has left or is " +
+                        "unavailable", request.request().uri(), balancer);
             }
-            // The member left, we can't ensure the sticky session.
-            logger.warn("Cannot enforce sticky session policy for {} - the member ({}) has left", request.request().uri(), balancer);
         }
 
-        synchronized (this) {
-            int index = (int) (counter.getAndIncrement() % members.size());
-            member = members.get(index);
-            if (stickySession) {
-                request.context().session().put("_balancer", member.getName());
+        List<MemberStatistics> candidates = getCandidates(snapshot, excluded, true);
+        if (candidates.isEmpty()) {
+            candidates = getCandidates(snapshot, excluded, false);
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+
+        MemberStatistics member = strategy.select(candidates);
+        if (stickySession) {
+            request.context().session().put("_balancer", member.getMember().getName());
+        }
+        return member;
+    }
+
+    private static List<MemberStatistics> getCandidates(List<MemberStatistics> snapshot,
+                                                        List<MemberStatistics> excluded, boolean availableOnly) {
+        boolean all = excluded.isEmpty();
+        if (all && availableOnly) {
+            for (MemberStatistics member : snapshot) {
+                if (!member.isAvailable()) {
+                    all = false;
+                    break;
+                }
+            }
+        }
+        if (all) {
+            // Common case, avoid copying the list.
+            return snapshot;
+        }
+        List<MemberStatistics> candidates = new ArrayList<>(snapshot.size());
+        for (MemberStatistics member : snapshot) {
+            if (!excluded.contains(member) && (!availableOnly || member.isAvailable())) {
+                candidates.add(member);
             }
-            return member;
         }
+        return candidates;
     }
 
     /**
@@ -225,8 +535,8 @@ public class BalancerFilter extends ProxyFilter implements Filter {
     }
 
     private boolean isBackendLocation(URI location) {
-        for (BalancerMember member : getMembers()) {
-            URI backendURI = URI.create(member.proxyTo()).normalize();
+        for (MemberStatistics member : members) {
+            URI backendURI = URI.create(member.getMember().proxyTo()).normalize();
             if (backendURI.getHost().equals(location.getHost())
                     && backendURI.getScheme().equals(location.getScheme())
                     && backendURI.getPort() == location.getPort()) {
@@ -236,15 +546,108 @@ public class BalancerFilter extends ProxyFilter implements Filter {
         return false;
     }
 
-    private BalancerMember getBalancerMember(String balancer) {
-        for (BalancerMember member : getMembers()) {
-            if (member.getName().equals(balancer)) {
+    private MemberStatistics getMemberStatistics(BalancerMember member) {
+        for (MemberStatistics statistics : members) {
+            if (statistics.getMember() == member) {
+                return statistics;
+            }
+        }
+        return null;
+    }
+
+    private static MemberStatistics getMemberStatistics(List<MemberStatistics> snapshot, String balancer) {
+        for (MemberStatistics member : snapshot) {
+            if (member.getMember().getName().equals(balancer)) {
                 return member;
             }
         }
         return null;
     }
 
+    /**
+     * Checks the health of the members, by sending a {@literal GET} request on the health check path (see
+     * {@link #getHealthCheckPath()}) of each member. Members not answering with a 2xx or 3xx status are not
+     * selected until they pass a later check. Nothing is done if no health check path is set.
+     * <p>
+     * This method blocks until all the members are checked. It is meant to be called periodically, for instance by
+     * a sub-class implementing {@link org.wisdom.api.scheduler.Scheduled}:
+     * <pre>
+     * {@code @Every("10s")}
+     * {@code public void check() { checkHealth(); }}
+     * </pre>
+     */
+    public void checkHealth() {
+        String path = getHealthCheckPath();
+        if (path == null) {
+            return;
+        }
+        for (MemberStatistics member : members) {
+            boolean healthy = isHealthy(member.getMember(), path);
+            if (healthy != member.isHealthy()) {
+                logger.info("Balancer member '{}' of balancer '{}' is now {}", member.getMember().getName(), name,
+                        healthy ? "healthy" : "unhealthy");
+            }
+            member.setHealthy(healthy);
+        }
+    }
+
+    private boolean isHealthy(BalancerMember member, String path) {
+        String url = member.proxyTo();
+        if (url.endsWith("/") && path.startsWith("/")) {
+            url = url.substring(0, url.length() - 1);
+        } else if (!url.endsWith("/") && !path.startsWith("/")) {
+            url = url + "/";
+        }
+        try {
+            HttpResponse response = getHealthCheckClient().execute(new HttpGet(url + path));
+            EntityUtils.consumeQuietly(response.getEntity());
+            int status = response.getStatusLine().getStatusCode();
+            return status >= 200 && status < 400;
+        } catch (IOException | IllegalArgumentException e) {
+            logger.debug("Health check of the balancer member '{}' failed", member.getName(), e);
+            return false;
+        }
+    }
+
+    private synchronized CloseableHttpClient getHealthCheckClient() {
+        if (healthCheckClient == null) {
+            int timeout = getHealthCheckTimeout();
+            healthCheckClient = HttpClients.custom()
+                    .setDefaultRequestConfig(RequestConfig.custom()
+                            .setConnectTimeout(timeout)
+                            .setSocketTimeout(timeout)
+                            .setRedirectsEnabled(false)
+                            .build())
+                    .build();
+        }
+        return healthCheckClient;
+    }
+
+    /**
+     * Closes the connections opened by the Vert.x HTTP clients and the health checks.
+     */
+    @Override
+    public synchronized void close() {
+        super.close();
+        if (healthCheckClient != null) {
+            try {
+                healthCheckClient.close();
+            } catch (IOException e) {
+                logger.debug("Cannot close the health check client", e);
+            }
+            healthCheckClient = null;
+        }
+    }
+
+    /**
+     * Gets the statistics collected on each member.
+     *
+     * @return the current members and their statistics, the list is immutable
+     */
+    public List<MemberStatistics> getStatistics() {
+        return members;
+    }
+
     /**
      * Gets the balancer name.
      *
@@ -285,6 +688,93 @@ public class BalancerFilter extends ProxyFilter implements Filter {
         }
     }
 
+    /**
+     * Gets the strategy selecting the members. By default, it uses the {@literal strategy} entry of the
+     * configuration object ({@literal round-robin}, {@literal least-requests}, {@literal latency} or
+     * {@literal weighted}, see {@link BalancerStrategies}), and round-robin if not set.
+     *
+     * @return the strategy
+     */
+    public BalancerStrategy getStrategy() {
+        String strategy = configuration == null ? null : configuration.get("strategy");
+        if (strategy == null) {
+            return BalancerStrategies.roundRobin();
+        }
+        return BalancerStrategies.fromName(strategy);
+    }
+
+    /**
+     * Gets the number of consecutive failures (the member cannot be reached, or answers with a {@literal 502},
+     * {@literal 503} or {@literal 504} status) ejecting a member for {@link #getEjectionTime()} milliseconds. By
+     * default, it uses the {@literal maxFailures} entry of the configuration object, 5 if not set.
+     *
+     * @return the number of failures, 0 to never eject members
+     */
+    public int getMaxFailures() {
+        if (configuration == null) {
+            return DEFAULT_MAX_FAILURES;
+        } else {
+            return configuration.getIntegerWithDefault("maxFailures", DEFAULT_MAX_FAILURES);
+        }
+    }
+
+    /**
+     * Gets how long (in milliseconds) a member is ejected after {@link #getMaxFailures()} consecutive failures. By
+     * default, it uses the {@literal ejectionTime} entry of the configuration object, 30 seconds if not set.
+     *
+     * @return the ejection time
+     */
+    public long getEjectionTime() {
+        if (configuration == null) {
+            return DEFAULT_EJECTION_TIME;
+        } else {
+            return configuration.getLongWithDefault("ejectionTime", DEFAULT_EJECTION_TIME);
+        }
+    }
+
+    /**
+     * Gets the number of times a request using an idempotent method is retried on another member when the selected
+     * member cannot be reached. By default, it uses the {@literal retries} entry of the configuration object, 1 if
+     * not set.
+     *
+     * @return the number of retries, 0 to disable retries
+     */
+    public int getRetries() {
+        if (configuration == null) {
+            return DEFAULT_RETRIES;
+        } else {
+            return configuration.getIntegerWithDefault("retries", DEFAULT_RETRIES);
+        }
+    }
+
+    /**
+     * Gets the path requested on each member by {@link #checkHealth()}. By default, it uses the
+     * {@literal healthCheck} entry of the configuration object.
+     *
+     * @return the path, {@code null} to disable the health checks
+     */
+    public String getHealthCheckPath() {
+        if (configuration == null) {
+            return null;
+        } else {
+            return configuration.get("healthCheck");
+        }
+    }
+
+    /**
+     * Gets the connection and read timeout (in milliseconds) of the health checks. By default, it uses the
+     * {@literal healthCheckTimeout} entry of the configuration object, 2 seconds if not set.
+     *
+     * @return the timeout
+     */
+    public int getHealthCheckTimeout() {
+        if (configuration == null) {
+            return DEFAULT_HEALTH_CHECK_TIMEOUT;
+        } else {
+            return configuration.getIntegerWithDefault("healthCheckTimeout", DEFAULT_HEALTH_CHECK_TIMEOUT);
+        }
+    }
+
     /**
      * Adds a new member.
      *
@@ -293,7 +783,9 @@ public class BalancerFilter extends ProxyFilter implements Filter {
     public synchronized void addMember(BalancerMember member) {
         if (member.getBalancerName().equals(name)) {
             logger.info("Adding balancer member '{}' to balancer '{}'", member.getName(), name);
-            members.add(member);
+            List<MemberStatistics> list = new ArrayList<>(members);
+            list.add(new MemberStatistics(member));
+            members = Collections.unmodifiableList(list);
         }
     }
 
@@ -303,8 +795,14 @@ public class BalancerFilter extends ProxyFilter implements Filter {
      * @param member the member.
      */
     public synchronized void removeMember(BalancerMember member) {
-        if (members.remove(member)) {
-            logger.info("Removing balancer member '{}' from balancer '{}'", member.getName(), name);
+        List<MemberStatistics> list = new ArrayList<>(members);
+        for (Iterator<MemberStatistics> iterator = list.iterator(); iterator.hasNext(); ) {
+            if (iterator.next().getMember().equals(member)) {
+                iterator.remove();
+                members = Collections.unmodifiableList(list);
+                logger.info("Removing balancer member '{}' from balancer '{}'", member.getName(), name);
+                return;
+            }
         }
     }
 }
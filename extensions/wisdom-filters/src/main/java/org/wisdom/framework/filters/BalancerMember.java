@@ -47,4 +47,15 @@ public interface BalancerMember {
      */
     String getBalancerName();
 
+    /**
+     * Gets the weight of the member, used by the {@link BalancerStrategies#weighted()} strategy: a member having a
+     * weight of 2 receives twice as many requests as a member having a weight of 1. Weights lower than 1 are
+     * considered as 1.
+     *
+     * @return the weight, 1 by default
+     */
+    default int getWeight() {
+        return 1;
+    }
+
 }
@@ -0,0 +1,164 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.framework.filters;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@link BalancerStrategy} implementations provided by Wisdom.
+ */
+public final class BalancerStrategies {
+
+    /**
+     * The name of the {@link #roundRobin()} strategy.
+     */
+    public static final String ROUND_ROBIN = "round-robin";
+
+    /**
+     * The name of the {@link #leastRequests()} strategy.
+     */
+    public static final String LEAST_REQUESTS = "least-requests";
+
+    /**
+     * The name of the {@link #latency()} strategy.
+     */
+    public static final String LATENCY = "latency";
+
+    /**
+     * The name of the {@link #weighted()} strategy.
+     */
+    public static final String WEIGHTED = "weighted";
+
+    private BalancerStrategies() {
+        // Avoid direct instantiation.
+    }
+
+    /**
+     * Gets a strategy from its name.
+     *
+     * @param name the name, one of {@link #ROUND_ROBIN}, {@link #LEAST_REQUESTS}, {@link #LATENCY} or
+     *             {@link #WEIGHTED}
+     * @return a new instance of the strategy
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static BalancerStrategy fromName(String name) {
+        switch (name.toLowerCase(Locale.ENGLISH)) {
+            case ROUND_ROBIN:
+                return roundRobin();
+            case LEAST_REQUESTS:
+                return leastRequests();
+            case LATENCY:
+                return latency();
+            case WEIGHTED:
+                return weighted();
+            default:
+                throw new IllegalArgumentException("Unknown balancer strategy '" + name + "', supported " +
+                        "strategies are " + ROUND_ROBIN + ", " + LEAST_REQUESTS + ", " + LATENCY + " and " + WEIGHTED);
+        }
+    }
+
+    /**
+     * Selects the members in turn.
+     *
+     * @return a new instance of the strategy
+     */
+    public static BalancerStrategy roundRobin() {
+        final AtomicLong counter = new AtomicLong();
+        return candidates -> candidates.get((int) (counter.getAndIncrement() % candidates.size()));
+    }
+
+    /**
+     * Selects the member having the least outstanding requests. Ties are broken in turn, so members are not
+     * favored because of their position.
+     *
+     * @return a new instance of the strategy
+     */
+    public static BalancerStrategy leastRequests() {
+        final AtomicLong counter = new AtomicLong();
+        return candidates -> {
+            int size = candidates.size();
+            int offset = (int) (counter.getAndIncrement() % size);
+            MemberStatistics selected = null;
+            for (int i = 0; i < size; i++) {
+                MemberStatistics candidate = candidates.get((offset + i) % size);
+                if (selected == null || candidate.getOutstandingRequests() < selected.getOutstandingRequests()) {
+                    selected = candidate;
+                }
+            }
+            return selected;
+        };
+    }
+
+    /**
+     * Picks two random members, and selects the one having the lowest expected latency, computed from the moving
+     * average of its response time and its number of outstanding requests. Comparing only two members avoids
+     * sending all the requests to the same member while its statistics are not updated yet, and members never
+     * picked recently are given a chance to prove they recovered.
+     *
+     * @return a new instance of the strategy
+     */
+    public static BalancerStrategy latency() {
+        return candidates -> {
+            int size = candidates.size();
+            if (size == 1) {
+                return candidates.get(0);
+            }
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = random.nextInt(size);
+            int second = random.nextInt(size - 1);
+            if (second >= first) {
+                second++;
+            }
+            MemberStatistics a = candidates.get(first);
+            MemberStatistics b = candidates.get(second);
+            return cost(a) <= cost(b) ? a : b;
+        };
+    }
+
+    private static double cost(MemberStatistics member) {
+        return member.getLatency() * (member.getOutstandingRequests() + 1);
+    }
+
+    /**
+     * Selects a random member, with a probability proportional to its weight (see
+     * {@link BalancerMember#getWeight()}).
+     *
+     * @return a new instance of the strategy
+     */
+    public static BalancerStrategy weighted() {
+        return candidates -> {
+            int total = 0;
+            for (MemberStatistics candidate : candidates) {
+                total += candidate.getWeight();
+            }
+            int target = ThreadLocalRandom.current().nextInt(total);
+            for (MemberStatistics candidate : candidates) {
+                target -= candidate.getWeight();
+                if (target < 0) {
+                    return candidate;
+                }
+            }
+            // Cannot happen, the weights are positive.
+            return candidates.get(candidates.size() - 1);
+        };
+    }
+}
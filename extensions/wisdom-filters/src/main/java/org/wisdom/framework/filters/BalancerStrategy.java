@@ -0,0 +1,39 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.framework.filters;
+
+import java.util.List;
+
+/**
+ * The strategy used by a {@link BalancerFilter} to select the member handling a request. Implementations are called
+ * concurrently for every request, and so must be thread-safe and should not lock. Default implementations are
+ * provided by {@link BalancerStrategies}.
+ */
+public interface BalancerStrategy {
+
+    /**
+     * Selects a member.
+     *
+     * @param candidates the available members, never empty
+     * @return the selected member, must be one of the candidates
+     */
+    MemberStatistics select(List<MemberStatistics> candidates);
+
+}
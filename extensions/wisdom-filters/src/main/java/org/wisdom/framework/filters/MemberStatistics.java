@@ -0,0 +1,204 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.framework.filters;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The statistics collected by a {@link BalancerFilter} about one of its members, used by the
+ * {@link BalancerStrategy} to select the member handling a request.
+ * <p>
+ * All the statistics are updated without locking, as they are read and updated for every request.
+ */
+public final class MemberStatistics {
+
+    /**
+     * The weight of the last sample in the latency moving average.
+     */
+    static final double LATENCY_DECAY = 0.3;
+
+    private final BalancerMember member;
+
+    private final int weight;
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    /**
+     * The moving average of the latency in nanoseconds, stored as the bits of a double.
+     */
+    private final AtomicLong latency = new AtomicLong(Double.doubleToLongBits(0.0));
+
+    private final AtomicInteger failures = new AtomicInteger();
+
+    /**
+     * The {@link System#nanoTime()} until which the member is ejected.
+     */
+    private volatile long ejectedUntil = System.nanoTime();
+
+    private volatile boolean ejected;
+
+    private volatile boolean healthy = true;
+
+    MemberStatistics(BalancerMember member) {
+        this.member = member;
+        this.weight = Math.max(1, member.getWeight());
+    }
+
+    /**
+     * @return the member.
+     */
+    public BalancerMember getMember() {
+        return member;
+    }
+
+    /**
+     * @return the weight of the member, at least 1.
+     */
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return the number of requests sent to the member whose response has not been received yet.
+     */
+    public int getOutstandingRequests() {
+        return outstanding.get();
+    }
+
+    /**
+     * Gets the exponentially weighted moving average of the time taken by the member to answer, in milliseconds.
+     *
+     * @return the latency, 0 until a response has been received
+     */
+    public double getLatency() {
+        return Double.longBitsToDouble(latency.get()) / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return the number of consecutive failed requests.
+     */
+    public int getConsecutiveFailures() {
+        return failures.get();
+    }
+
+    /**
+     * Checks whether the member can receive requests: it must not be ejected because of consecutive failures, and
+     * its last health check (if any) must have succeeded.
+     *
+     * @return {@code true} if the member is available
+     */
+    public boolean isAvailable() {
+        if (!healthy) {
+            return false;
+        }
+        if (ejected) {
+            if (System.nanoTime() - ejectedUntil < 0) {
+                return false;
+            }
+            // Give it another chance.
+            ejected = false;
+        }
+        return true;
+    }
+
+    /**
+     * Records the start of a request.
+     *
+     * @return the start time, to be given to {@link #succeeded(long)} or {@link #failed(long, int, long)}
+     */
+    long start() {
+        outstanding.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Records a successful request.
+     *
+     * @param start the start time
+     */
+    void succeeded(long start) {
+        outstanding.decrementAndGet();
+        record(System.nanoTime() - start);
+        failures.set(0);
+    }
+
+    /**
+     * Records a request that did not complete, because of an unexpected error. Only the outstanding count is updated.
+     */
+    void cancelled() {
+        outstanding.decrementAndGet();
+    }
+
+    /**
+     * Records a failed request. The member is ejected once the number of consecutive failures is reached.
+     *
+     * @param start       the start time
+     * @param maxFailures the number of consecutive failures ejecting the member
+     * @param ejection    the ejection duration in milliseconds
+     */
+    void failed(long start, int maxFailures, long ejection) {
+        outstanding.decrementAndGet();
+        // Failures are slow, or are going to be retried on another member: both must make the member less attractive.
+        record(System.nanoTime() - start);
+        if (maxFailures > 0 && failures.incrementAndGet() >= maxFailures) {
+            failures.set(0);
+            ejectedUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ejection);
+            ejected = true;
+        }
+    }
+
+    /**
+     * Sets the result of the last health check.
+     *
+     * @param healthy whether the member is healthy
+     */
+    void setHealthy(boolean healthy) {
+        this.healthy = healthy;
+        if (healthy) {
+            ejected = false;
+            failures.set(0);
+        }
+    }
+
+    /**
+     * @return whether the last health check succeeded.
+     */
+    boolean isHealthy() {
+        return healthy;
+    }
+
+    private void record(long sample) {
+        long current;
+        long next;
+        do {
+            current = latency.get();
+            double average = Double.longBitsToDouble(current);
+            next = Double.doubleToLongBits(average == 0.0 ? sample : average + LATENCY_DECAY * (sample - average));
+        } while (!latency.compareAndSet(current, next));
+    }
+
+    @Override
+    public String toString() {
+        return member.getName() + "[outstanding=" + outstanding.get() + ", latency=" + getLatency() + "ms"
+                + ", available=" + isAvailable() + "]";
+    }
+}
@@ -23,6 +23,9 @@ import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientResponse;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpHost;
@@ -43,12 +46,15 @@ import org.wisdom.api.http.*;
 import org.wisdom.api.interception.Filter;
 import org.wisdom.api.interception.RequestContext;
 import org.wisdom.api.router.Route;
+import org.wisdom.api.tracing.Span;
+import org.wisdom.api.tracing.Tracing;
 
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
 import java.util.regex.Pattern;
 
 /**
@@ -71,12 +77,18 @@ public class ProxyFilter implements Filter {
         HOP_HEADERS.add("upgrade");
     }
 
+    /**
+     * The default read timeout of the non-blocking mode: 60 seconds.
+     */
+    public static final long DEFAULT_READ_TIMEOUT = 60000L;
+
     protected final Configuration configuration;
 
     protected Logger logger;
     private HttpClient client;
     private String proxyTo;
     protected String prefix;
+    private volatile AsyncProxy asyncProxy;
 
     /**
      * Default constructor, not configuration.
@@ -139,6 +151,68 @@ public class ProxyFilter implements Filter {
                 .build();
     }
 
+    /**
+     * Gets the Vert.x instance used to forward the requests without blocking. By default, it returns {@code null},
+     * so requests are forwarded using the blocking HTTP Client (see {@link #newHttpClient()}) from the executor.
+     * Sub-classes can inject the Vert.x service and return it to enable the non-blocking mode:
+     * <pre>
+     * {@code @Requires Vertx vertx;}
+     * {@code protected Vertx getVertx() { return vertx; }}
+     * </pre>
+     *
+     * @return the Vert.x instance, {@code null} to use the blocking HTTP Client
+     */
+    protected Vertx getVertx() {
+        return null;
+    }
+
+    /**
+     * Creates the options of the Vert.x HTTP clients used in the non-blocking mode. A client is created per event
+     * loop, each client keeping a pool of connections per destination. By default, it uses the following entries
+     * of the configuration object:
+     * <ul>
+     * <li>{@literal maxConnections}: the maximum number of connections per destination and event loop</li>
+     * <li>{@literal keepAlive}: whether or not the connections are reused (true by default)</li>
+     * <li>{@literal pipelining}: whether or not several requests can be sent on a connection before receiving the
+     * responses (false by default)</li>
+     * <li>{@literal connectTimeout}: the connection timeout in milliseconds</li>
+     * </ul>
+     *
+     * @return the options
+     */
+    protected HttpClientOptions newHttpClientOptions() {
+        HttpClientOptions options = new HttpClientOptions()
+                // The content is forwarded as it is.
+                .setTryUseCompression(false);
+        if (configuration != null) {
+            options.setMaxPoolSize(configuration.getIntegerWithDefault("maxConnections",
+                    HttpClientOptions.DEFAULT_MAX_POOL_SIZE))
+                    .setKeepAlive(configuration.getBooleanWithDefault("keepAlive",
+                            HttpClientOptions.DEFAULT_KEEP_ALIVE))
+                    .setPipelining(configuration.getBooleanWithDefault("pipelining",
+                            HttpClientOptions.DEFAULT_PIPELINING))
+                    .setConnectTimeout(configuration.getIntegerWithDefault("connectTimeout",
+                            HttpClientOptions.DEFAULT_CONNECT_TIMEOUT));
+        }
+        return options;
+    }
+
+    /**
+     * Gets the maximum time (in milliseconds) without receiving data from the destination in the non-blocking
+     * mode. When reached, a {@literal 504 - Gateway Timeout} result is returned if the response has not been
+     * received yet, otherwise the connections with the client and the destination are closed. By default, it returns the
+     * {@literal readTimeout} entry of the configuration object, 60 seconds if not set.
+     *
+     * @return the timeout, 0 to wait forever
+     */
+    protected long getReadTimeout() {
+        if (configuration == null) {
+            return DEFAULT_READ_TIMEOUT;
+        } else {
+            return configuration.getLongWithDefault("readTimeout", DEFAULT_READ_TIMEOUT);
+        }
+    }
+
     /**
      * Customizes the redirect policy of the default HTTP Client.
      *
@@ -163,6 +237,10 @@ public class ProxyFilter implements Filter {
      * The interception method. Re-emit the request to the target folder and forward the response. This method
      * returns an {@link org.wisdom.api.http.AsyncResult} as the proxy need to be run in another thread. It also
      * invokes a couple of callbacks letting developers to customize the request and result.
+     * <p>
+     * When a Vert.x instance is available (see {@link #getVertx()}), the request is forwarded without blocking any
+     * thread, and the response is pushed to the client while being received. The blocking HTTP client is still used
+     * when redirects must be followed, as the Vert.x client does not follow them.
      *
      * @param route   the route
      * @param context the filter context
@@ -171,6 +249,16 @@ public class ProxyFilter implements Filter {
      */
     @Override
     public Result call(final Route route, final RequestContext context) throws Exception {
+        final Vertx vertx = getVertx();
+        if (isNonBlocking(vertx, context)) {
+            URI rewrittenURI = rewriteURI(context);
+            logger.debug("Proxy request - rewriting {} to {}", context.request().uri(), rewrittenURI);
+            if (rewrittenURI == null) {
+                return onRewriteFailed(context);
+            }
+            return new AsyncResult(forward(vertx, context, rewrittenURI));
+        }
+
         return new AsyncResult(new Callable<Result>() {
             @Override
             public Result call() throws Exception {
@@ -179,78 +267,236 @@ public class ProxyFilter implements Filter {
                 if (rewrittenURI == null) {
                     return onRewriteFailed(context);
                 }
+                return forward(context, rewrittenURI);
+            }
+        });
 
-                BasicHttpEntityEnclosingRequest request
-                        = new BasicHttpEntityEnclosingRequest(context.request().method(), rewrittenURI.toString());
-                // Any header listed by the Connection header must be removed:
-                // http://tools.ietf.org/html/rfc7230#section-6.1.
-                Set<String> hopHeaders = new HashSet<>();
-                List<String> connectionHeaders = context.request().headers().get(HeaderNames.CONNECTION);
-                for (String s : connectionHeaders) {
-                    for (String entry : Splitter.on(",").omitEmptyStrings().trimResults().splitToList(s)) {
-                        hopHeaders.add(entry.toLowerCase(Locale.ENGLISH));
-                    }
-                }
+    }
+
+    /**
+     * Checks whether the request is forwarded using the Vert.x HTTP client.
+     *
+     * @param vertx   the Vert.x instance, {@code null} if none
+     * @param context the filter context
+     * @return {@code true} if the request must be forwarded using {@link #forward(Vertx, RequestContext, URI)}
+     */
+    boolean isNonBlocking(Vertx vertx, RequestContext context) {
+        String method = context.request().method();
+        return vertx != null && AsyncProxy.supports(method) && !followRedirect(method);
+    }
 
-                boolean hasContent = context.request().contentType() != null;
-                final String host = getHost();
-                Multimap<String, String> headers = ArrayListMultimap.create();
-                for (Map.Entry<String, List<String>> entry : context.request().headers().entrySet()) {
-                    String name = entry.getKey();
-                    if (HeaderNames.TRANSFER_ENCODING.equalsIgnoreCase(name)) {
-                        hasContent = true;
+    /**
+     * Forwards the request using the blocking HTTP client.
+     *
+     * @param context      the filter context
+     * @param rewrittenURI the destination
+     * @return the result
+     * @throws IOException if the destination cannot be reached
+     */
+    Result forward(RequestContext context, URI rewrittenURI) throws IOException {
+        Span span = startSpan(context, rewrittenURI);
+        BasicHttpEntityEnclosingRequest request
+                = new BasicHttpEntityEnclosingRequest(context.request().method(), rewrittenURI.toString());
+        for (Map.Entry<String, String> s : computeHeaders(context, rewrittenURI, span).entries()) {
+            request.addHeader(s.getKey(), s.getValue());
+        }
+        // Remove content-length as it is computed by the HTTP client.
+        request.removeHeaders(HeaderNames.CONTENT_LENGTH);
+
+        if (hasContent(context)) {
+            ByteArrayEntity entity = new ByteArrayEntity(context.context().raw(),
+                    ContentType.create(context.request().contentMimeType(), context.request().contentCharset()));
+            request.setEntity(entity);
+        }
+
+        try {
+            HttpResponse response = client.execute(new HttpHost(rewrittenURI.getHost(), rewrittenURI.getPort()),
+                    request);
+            span.tag("status", Integer.toString(response.getStatusLine().getStatusCode()));
+            return onResult(toResult(response));
+        } catch (IOException | RuntimeException e) {
+            span.fail(e);
+            throw e;
+        } finally {
+            span.finish();
+        }
+    }
+
+    /**
+     * Forwards the request using the Vert.x HTTP client. The returned stage is completed when the headers of the
+     * response are received. Its body is then pushed to the client as it is received.
+     *
+     * @param vertx        the Vert.x instance
+     * @param context      the filter context
+     * @param rewrittenURI the destination
+     * @return the stage completed with the result
+     */
+    CompletionStage<Result> forward(Vertx vertx, RequestContext context, URI rewrittenURI) {
+        byte[] content = hasContent(context) ? context.context().raw() : null;
+        Span span = startSpan(context, rewrittenURI);
+        return getAsyncProxy(vertx)
+                .forward(context.request().method(), rewrittenURI, computeHeaders(context, rewrittenURI, span),
+                        content)
+                .whenComplete((response, error) -> {
+                    // The span ends when the headers are received.
+                    if (error != null) {
+                        span.fail(error);
+                    } else {
+                        span.tag("status", Integer.toString(response.statusCode()));
                     }
-                    if (host != null && HeaderNames.HOST.equalsIgnoreCase(name)) {
-                        continue;
+                    span.finish();
+                })
+                .thenApply(response -> {
+                    UpstreamBody body = new UpstreamBody(vertx, response, getReadTimeout());
+                    if (!hasBody(context.request().method(), response.statusCode())) {
+                        // No body, and no chunked encoding, must be sent: read the (empty) upstream body and render
+                        // nothing.
+                        body.discard();
+                        return onResult(toResult(response, null));
                     }
-                    // Remove hop-by-hop headers.
-                    String lower = name.toLowerCase(Locale.ENGLISH);
-                    if (HOP_HEADERS.contains(lower) || hopHeaders.contains(lower)) {
-                        continue;
+                    Result result;
+                    try {
+                        result = onResult(toResult(response, body));
+                    } catch (RuntimeException e) {
+                        // The body will never be sent, release the connection.
+                        body.discard();
+                        throw e;
                     }
-
-                    for (String v : entry.getValue()) {
-                        headers.put(name, v);
+                    if (result == null || result.getRenderable() != body) {
+                        // The body is not sent, read it anyway to release the connection.
+                        body.discard();
                     }
-                }
+                    return result;
+                });
+    }
 
-                // Force the Host header if configured
-                headers.removeAll(HeaderNames.HOST);
-                if (host != null) {
-                    headers.put(HeaderNames.HOST, host);
-                    headers.put("X-Forwarded-Server", host);
-                } else {
-                    // Set of the URI one
-                    headers.put("X-Forwarded-Server", rewrittenURI.getHost());
+    private AsyncProxy getAsyncProxy(Vertx vertx) {
+        AsyncProxy proxy = asyncProxy;
+        if (proxy != null && proxy.vertx() == vertx) {
+            return proxy;
+        }
+        synchronized (this) {
+            if (asyncProxy == null || asyncProxy.vertx() != vertx) {
+                if (asyncProxy != null) {
+                    asyncProxy.close();
                 }
+                asyncProxy = new AsyncProxy(vertx, newHttpClientOptions(), getReadTimeout());
+            }
+            return asyncProxy;
+        }
+    }
 
-                // Add proxy headers
-                if (getVia() != null) {
-                    headers.put(HeaderNames.VIA, "http/1.1 " + getVia());
-                }
-                headers.put("X-Forwarded-For", context.request().remoteAddress());
-                if (host != null) {
-                    headers.put("X-Forwarded-Host", host);
-                }
+    /**
+     * Closes the connections opened by the Vert.x HTTP clients. Sub-classes using a Vert.x instance should call
+     * this method when they are invalidated.
+     */
+    public synchronized void close() {
+        if (asyncProxy != null) {
+            asyncProxy.close();
+            asyncProxy = null;
+        }
+    }
 
-                updateHeaders(context, headers);
-                for (Map.Entry<String, String> s : headers.entries()) {
-                    request.addHeader(s.getKey(), s.getValue());
-                }
-                // Remove content-length as it is computed by the HTTP client.
-                request.removeHeaders(HeaderNames.CONTENT_LENGTH);
+    /**
+     * Creates the span recording the call to the destination, if the request is traced.
+     *
+     * @param context      the request context
+     * @param rewrittenURI the destination
+     * @return the span, {@link Span#NOOP} if the request is not traced
+     */
+    private static Span startSpan(RequestContext context, URI rewrittenURI) {
+        Span span = Tracing.child("proxy");
+        if (span.isRecording()) {
+            span.tag("method", context.request().method()).tag("upstream", rewrittenURI.toString());
+        }
+        return span;
+    }
 
-                if (hasContent) {
-                    ByteArrayEntity entity = new ByteArrayEntity(context.context().raw(),
-                            ContentType.create(context.request().contentMimeType(), context.request().contentCharset()));
-                    request.setEntity(entity);
-                }
+    /**
+     * Computes the headers sent to the destination: the request headers, without the hop-by-hop headers, plus the
+     * proxy headers. When the request is traced, the {@literal traceparent} header identifies the span of the
+     * call, so the trace of the destination can be correlated with the trace of the request.
+     *
+     * @param context      the request context
+     * @param rewrittenURI the destination
+     * @param span         the span recording the call
+     * @return the headers
+     */
+    private Multimap<String, String> computeHeaders(RequestContext context, URI rewrittenURI, Span span) {
+        // Any header listed by the Connection header must be removed:
+        // http://tools.ietf.org/html/rfc7230#section-6.1.
+        Set<String> hopHeaders = getConnectionHeaders(context.request().headers().get(HeaderNames.CONNECTION));
+
+        final String host = getHost();
+        Multimap<String, String> headers = ArrayListMultimap.create();
+        for (Map.Entry<String, List<String>> entry : context.request().headers().entrySet()) {
+            String name = entry.getKey();
+            if (host != null && HeaderNames.HOST.equalsIgnoreCase(name)) {
+                continue;
+            }
+            // Remove hop-by-hop headers.
+            String lower = name.toLowerCase(Locale.ENGLISH);
+            if (HOP_HEADERS.contains(lower) || hopHeaders.contains(lower)) {
+                continue;
+            }
+            // The caller of the destination is now the proxy.
+            if (span.isRecording() && HeaderNames.TRACEPARENT.equals(lower)) {
+                continue;
+            }
 
-                HttpResponse response = client.execute(new HttpHost(rewrittenURI.getHost(), rewrittenURI.getPort()), request);
-                return onResult(toResult(response));
+            for (String v : entry.getValue()) {
+                headers.put(name, v);
             }
-        });
+        }
 
+        // Force the Host header if configured
+        headers.removeAll(HeaderNames.HOST);
+        if (host != null) {
+            headers.put(HeaderNames.HOST, host);
+            headers.put("X-Forwarded-Server", host);
+        } else {
+            // Set of the URI one
+            headers.put("X-Forwarded-Server", rewrittenURI.getHost());
+        }
+
+        // Add proxy headers
+        if (getVia() != null) {
+            headers.put(HeaderNames.VIA, "http/1.1 " + getVia());
+        }
+        headers.put("X-Forwarded-For", context.request().remoteAddress());
+        if (host != null) {
+            headers.put("X-Forwarded-Host", host);
+        }
+        if (span.isRecording()) {
+            headers.put(HeaderNames.TRACEPARENT, span.toTraceParent());
+        }
+
+        updateHeaders(context, headers);
+        return headers;
+    }
+
+    private static Set<String> getConnectionHeaders(List<String> connectionHeaders) {
+        Set<String> hopHeaders = new HashSet<>();
+        if (connectionHeaders != null) {
+            for (String s : connectionHeaders) {
+                for (String entry : Splitter.on(",").omitEmptyStrings().trimResults().splitToList(s)) {
+                    hopHeaders.add(entry.toLowerCase(Locale.ENGLISH));
+                }
+            }
+        }
+        return hopHeaders;
+    }
+
+    private static boolean hasContent(RequestContext context) {
+        if (context.request().contentType() != null) {
+            return true;
+        }
+        for (String name : context.request().headers().keySet()) {
+            if (HeaderNames.TRANSFER_ENCODING.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -280,6 +526,32 @@ public class ProxyFilter implements Filter {
         return result;
     }
 
+    /**
+     * Checks whether a response has a body (RFC 7230, section 3.3.3): the responses to HEAD requests, and the 1xx,
+     * 204 and 304 responses don't.
+     *
+     * @param method the request method
+     * @param status the response status
+     * @return {@code true} if the response has a body
+     */
+    static boolean hasBody(String method, int status) {
+        return !HttpMethod.HEAD.name().equalsIgnoreCase(method)
+                && status >= Status.OK && status != Status.NO_CONTENT && status != Status.NOT_MODIFIED;
+    }
+
+    private static Result toResult(HttpClientResponse response, UpstreamBody body) {
+        Result result = new Result(response.statusCode());
+        // Copy the headers, except the hop-by-hop headers (the connection is managed by the engine).
+        Set<String> hopHeaders = getConnectionHeaders(response.headers().getAll(HeaderNames.CONNECTION));
+        for (Map.Entry<String, String> h : response.headers()) {
+            String lower = h.getKey().toLowerCase(Locale.ENGLISH);
+            if (!HOP_HEADERS.contains(lower) && !hopHeaders.contains(lower)) {
+                result.with(h.getKey(), h.getValue());
+            }
+        }
+        return body == null ? result : result.render(body);
+    }
+
     /**
      * Callback invokes when the URL rewrite fails. By default, it returns an internal error.
      *
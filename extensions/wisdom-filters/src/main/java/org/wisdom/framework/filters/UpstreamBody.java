@@ -0,0 +1,214 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.framework.filters;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClientResponse;
+import org.wisdom.api.http.AsyncStreamingRenderable;
+import org.wisdom.api.http.Context;
+import org.wisdom.api.http.HeaderNames;
+import org.wisdom.api.http.RenderableException;
+import org.wisdom.api.http.ResponseSink;
+import org.wisdom.api.http.Result;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The body of a response received from the proxied server, pushed to the client as it is received. The upstream
+ * response is paused when the client does not read fast enough, and resumed when it catches up.
+ * <p>
+ * The upstream response must be paused when creating this object, so no data is lost until the engine starts
+ * writing the body.
+ * <p>
+ * The read timeout of the Vert.x client stops when the response headers are received. So, when the proxied server
+ * stops sending the body for longer than the read timeout, both connections are closed here.
+ */
+final class UpstreamBody implements AsyncStreamingRenderable<HttpClientResponse> {
+
+    private final HttpClientResponse response;
+
+    private final Vertx vertx;
+
+    /**
+     * The maximum time without receiving data, in milliseconds, 0 to wait forever.
+     */
+    private final long idleTimeout;
+
+    private volatile long lastActivity;
+
+    private volatile boolean paused;
+
+    private volatile boolean done;
+
+    private long timer = -1;
+
+    /**
+     * Set when the body is not sent to the client: the rest of the body is read and dropped, so the connection can
+     * be reused.
+     */
+    private volatile boolean discarded;
+
+    /**
+     * Creates the body.
+     *
+     * @param vertx       the vert.x instance, used for the idle timer
+     * @param response    the paused upstream response
+     * @param idleTimeout the maximum time without receiving data, in milliseconds, 0 to wait forever
+     */
+    UpstreamBody(Vertx vertx, HttpClientResponse response, long idleTimeout) {
+        this.vertx = vertx;
+        this.response = response;
+        this.idleTimeout = idleTimeout;
+    }
+
+    @Override
+    public void write(Context context, Result result, final ResponseSink sink) {
+        sink.onClose(this::discard);
+        lastActivity = System.nanoTime();
+        response.handler(data -> {
+            if (discarded) {
+                return;
+            }
+            lastActivity = System.nanoTime();
+            // Vert.x hands unpooled buffers to the response handler, so the chunk is passed without being copied.
+            sink.write(data.getByteBuf().nioBuffer());
+            if (sink.isFull()) {
+                // The client is slow, not the proxied server: the idle timer is suspended.
+                paused = true;
+                response.pause();
+                sink.onDrain(() -> {
+                    lastActivity = System.nanoTime();
+                    paused = false;
+                    response.resume();
+                });
+            }
+        });
+        response.exceptionHandler(error -> {
+            stop();
+            sink.fail(error);
+        });
+        response.endHandler(v -> {
+            stop();
+            sink.end();
+        });
+        schedule(sink, idleTimeout);
+        response.resume();
+    }
+
+    /**
+     * Arms the idle timer. The timer is not reset on each chunk: when it fires, it is re-armed for the remaining
+     * time if data has been received in the meantime.
+     */
+    private synchronized void schedule(ResponseSink sink, long delay) {
+        if (idleTimeout <= 0 || done) {
+            return;
+        }
+        timer = vertx.setTimer(Math.max(1, delay), id -> {
+            long idle = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastActivity);
+            if (done) {
+                return;
+            }
+            if (paused || idle < idleTimeout) {
+                schedule(sink, paused ? idleTimeout : idleTimeout - idle);
+                return;
+            }
+            stop();
+            discarded = true;
+            // Close the upstream connection, it cannot be reused with an unread body.
+            try {
+                response.netSocket().close();
+            } catch (RuntimeException e) { //NOSONAR
+                // Already closed.
+            }
+            sink.fail(new TimeoutException("No data received from the proxied server for " + idle + " ms"));
+        });
+    }
+
+    private synchronized void stop() {
+        done = true;
+        if (timer != -1) {
+            vertx.cancelTimer(timer);
+            timer = -1;
+        }
+    }
+
+    /**
+     * Drops the body, for instance when the result has been replaced or the client has left.
+     */
+    void discard() {
+        stop();
+        discarded = true;
+        response.handler(data -> {
+            // Dropped.
+        });
+        response.exceptionHandler(error -> {
+            // Ignored, nobody waits for the body.
+        });
+        response.endHandler(null);
+        response.resume();
+    }
+
+    @Override
+    public InputStream render(Context context, Result result) throws RenderableException {
+        throw new RenderableException("The response of the proxied server can only be pushed to the client");
+    }
+
+    @Override
+    public long length() {
+        String length = response.getHeader(HeaderNames.CONTENT_LENGTH);
+        if (length != null) {
+            try {
+                return Long.parseLong(length);
+            } catch (NumberFormatException e) { //NOSONAR
+                // Unknown.
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String mimetype() {
+        // Copied from the upstream response headers.
+        return null;
+    }
+
+    @Override
+    public HttpClientResponse content() {
+        return response;
+    }
+
+    @Override
+    public boolean requireSerializer() {
+        return false;
+    }
+
+    @Override
+    public void setSerializedForm(String serialized) {
+        // Nothing to do.
+    }
+
+    @Override
+    public boolean mustBeChunked() {
+        return length() == -1;
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.framework.filters;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wisdom.api.exceptions.HttpException;
+import org.wisdom.api.http.Request;
+import org.wisdom.api.http.ResponseSink;
+import org.wisdom.api.http.Result;
+import org.wisdom.api.http.Status;
+import org.wisdom.api.interception.RequestContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks the non-blocking proxy against a local Vert.x server.
+ */
+public class AsyncProxyTest {
+
+    private Vertx vertx;
+    private HttpServer server;
+    private AsyncProxy proxy;
+    private int port;
+
+    @Before
+    public void setUp() throws IOException, InterruptedException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        vertx = Vertx.vertx();
+        CountDownLatch latch = new CountDownLatch(1);
+        server = vertx.createHttpServer().requestHandler(request -> {
+            if (request.path().equals("/slow")) {
+                // Never answer.
+                return;
+            }
+            if (request.path().equals("/stalled")) {
+                // Send the headers and some chunks, but never end the response.
+                request.response().setChunked(true).write("start");
+                vertx.setTimer(100, l -> request.response().write("-more"));
+                return;
+            }
+            request.bodyHandler(body -> request.response()
+                    .putHeader("X-Method", request.method().name())
+                    .putHeader("X-Test", request.getHeader("X-Test"))
+                    .end(request.path() + "?" + request.query() + ":" + body.toString()));
+        }).listen(port, "localhost", ar -> latch.countDown());
+        latch.await(10, TimeUnit.SECONDS);
+        proxy = new AsyncProxy(vertx, new HttpClientOptions(), 500);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        proxy.close();
+        CountDownLatch latch = new CountDownLatch(1);
+        vertx.close(ar -> latch.countDown());
+        latch.await(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testSupportedMethods() {
+        assertThat(AsyncProxy.supports("GET")).isTrue();
+        assertThat(AsyncProxy.supports("delete")).isTrue();
+        assertThat(AsyncProxy.supports("PROPFIND")).isFalse();
+    }
+
+    @Test
+    public void testForward() throws Exception {
+        Multimap<String, String> headers = ArrayListMultimap.create();
+        headers.put("X-Test", "hello");
+        headers.put("Content-Length", "1000");
+        HttpClientResponse response = proxy.forward("post", new URI("http://localhost:" + port + "/foo?q=1"),
+                headers, "body".getBytes()).toCompletableFuture().get(10, TimeUnit.SECONDS);
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.getHeader("X-Method")).isEqualTo("POST");
+        assertThat(response.getHeader("X-Test")).isEqualTo("hello");
+
+        UpstreamBody body = new UpstreamBody(vertx, response, 500);
+        assertThat(body.length()).isEqualTo("/foo?q=1:body".length());
+        assertThat(body.mustBeChunked()).isFalse();
+        CollectingSink sink = new CollectingSink();
+        body.write(null, null, sink);
+        assertThat(sink.ended.get(10, TimeUnit.SECONDS)).isEqualTo("/foo?q=1:body");
+    }
+
+    @Test
+    public void testReadTimeout() throws Exception {
+        try {
+            proxy.forward("GET", new URI("http://localhost:" + port + "/slow"), ArrayListMultimap.create(), null)
+                    .toCompletableFuture().get(10, TimeUnit.SECONDS);
+            fail("Timeout expected");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(HttpException.class);
+            assertThat(((HttpException) e.getCause()).toResult().getStatusCode()).isEqualTo(Status.GATEWAY_TIMEOUT);
+        }
+    }
+
+    @Test
+    public void testStalledBody() throws Exception {
+        HttpClientResponse response = proxy.forward("GET", new URI("http://localhost:" + port + "/stalled"),
+                ArrayListMultimap.create(), null).toCompletableFuture().get(10, TimeUnit.SECONDS);
+        assertThat(response.statusCode()).isEqualTo(200);
+
+        // The read timeout of the client is over once the headers are received, the body has its own.
+        UpstreamBody body = new UpstreamBody(vertx, response, 500);
+        CollectingSink sink = new CollectingSink();
+        body.write(null, null, sink);
+        try {
+            sink.ended.get(10, TimeUnit.SECONDS);
+            fail("Timeout expected");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(TimeoutException.class);
+        }
+        assertThat(sink.content.toString()).isEqualTo("start-more");
+    }
+
+    @Test
+    public void testThatTheConnectionIsReleasedWhenTheResultCannotBeBuilt() throws Exception {
+        final AtomicBoolean failing = new AtomicBoolean(true);
+        ProxyFilter filter = new ProxyFilter() {
+            @Override
+            protected String getProxyTo() {
+                return "http://localhost:" + port;
+            }
+
+            @Override
+            protected HttpClientOptions newHttpClientOptions() {
+                // A single connection, so a leaked connection blocks the next request.
+                return super.newHttpClientOptions().setMaxPoolSize(1).setKeepAlive(true);
+            }
+
+            @Override
+            protected Result onResult(Result result) {
+                if (failing.getAndSet(false)) {
+                    throw new IllegalStateException("Bad result");
+                }
+                return result;
+            }
+        };
+        RequestContext context = mock(RequestContext.class);
+        Request request = mock(Request.class);
+        when(context.request()).thenReturn(request);
+        when(request.method()).thenReturn("GET");
+        when(request.headers()).thenReturn(Collections.singletonMap("X-Test",
+                Collections.singletonList("hello")));
+        when(request.remoteAddress()).thenReturn("127.0.0.1");
+        URI uri = new URI("http://localhost:" + port + "/foo");
+        try {
+            try {
+                filter.forward(vertx, context, uri).toCompletableFuture().get(10, TimeUnit.SECONDS);
+                fail("The exception should have been propagated");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+            }
+
+            Result result = filter.forward(vertx, context, uri).toCompletableFuture().get(10, TimeUnit.SECONDS);
+            assertThat(result.getStatusCode()).isEqualTo(Status.OK);
+            CollectingSink sink = new CollectingSink();
+            ((UpstreamBody) result.getRenderable()).write(null, result, sink);
+            assertThat(sink.ended.get(10, TimeUnit.SECONDS)).isEqualTo("/foo?null:");
+        } finally {
+            filter.close();
+        }
+    }
+
+    @Test
+    public void testResponsesWithoutBody() {
+        assertThat(ProxyFilter.hasBody("GET", Status.OK)).isTrue();
+        assertThat(ProxyFilter.hasBody("POST", Status.NOT_FOUND)).isTrue();
+        assertThat(ProxyFilter.hasBody("HEAD", Status.OK)).isFalse();
+        assertThat(ProxyFilter.hasBody("GET", Status.NO_CONTENT)).isFalse();
+        assertThat(ProxyFilter.hasBody("GET", Status.NOT_MODIFIED)).isFalse();
+        assertThat(ProxyFilter.hasBody("GET", Status.CONTINUE)).isFalse();
+    }
+
+    @Test
+    public void testUnreachableServer() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        server.close(ar -> latch.countDown());
+        latch.await(10, TimeUnit.SECONDS);
+        try {
+            proxy.forward("GET", new URI("http://localhost:" + port + "/"), ArrayListMultimap.create(), null)
+                    .toCompletableFuture().get(10, TimeUnit.SECONDS);
+            fail("Bad gateway expected");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(HttpException.class);
+            assertThat(((HttpException) e.getCause()).toResult().getStatusCode()).isEqualTo(Status.BAD_GATEWAY);
+        }
+    }
+
+    /**
+     * A sink collecting the content, and completing a future on end.
+     */
+    private static class CollectingSink implements ResponseSink {
+
+        private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        private final CompletableFuture<String> ended = new CompletableFuture<>();
+
+        @Override
+        public void write(ByteBuffer data) {
+            byte[] bytes = new byte[data.remaining()];
+            data.get(bytes);
+            content.write(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public boolean isFull() {
+            return false;
+        }
+
+        @Override
+        public void onDrain(Runnable callback) {
+            callback.run();
+        }
+
+        @Override
+        public void onClose(Runnable callback) {
+            // Never closed.
+        }
+
+        @Override
+        public void end() {
+            ended.complete(content.toString());
+        }
+
+        @Override
+        public void fail(Throwable error) {
+            ended.completeExceptionally(error);
+        }
+    }
+}
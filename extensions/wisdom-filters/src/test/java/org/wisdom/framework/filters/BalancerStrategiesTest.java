@@ -0,0 +1,109 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.framework.filters;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BalancerStrategiesTest {
+
+    private final MemberStatistics member1 = new MemberStatistics(
+            new DefaultBalancerMember("member-1", "http://localhost:9001", "balancer", 1));
+    private final MemberStatistics member2 = new MemberStatistics(
+            new DefaultBalancerMember("member-2", "http://localhost:9002", "balancer", 3));
+    private final List<MemberStatistics> members = Arrays.asList(member1, member2);
+
+    @Test
+    public void testRoundRobin() {
+        BalancerStrategy strategy = BalancerStrategies.fromName("round-robin");
+        assertThat(strategy.select(members)).isSameAs(member1);
+        assertThat(strategy.select(members)).isSameAs(member2);
+        assertThat(strategy.select(members)).isSameAs(member1);
+    }
+
+    @Test
+    public void testLeastRequests() {
+        BalancerStrategy strategy = BalancerStrategies.leastRequests();
+        member1.start();
+        for (int i = 0; i < 10; i++) {
+            assertThat(strategy.select(members)).isSameAs(member2);
+        }
+        member2.start();
+        member2.start();
+        assertThat(strategy.select(members)).isSameAs(member1);
+    }
+
+    @Test
+    public void testLatency() {
+        BalancerStrategy strategy = BalancerStrategies.latency();
+        member1.succeeded(member1.start() - 50000000L);
+        member2.succeeded(member2.start() - 1000000L);
+        assertThat(member1.getLatency()).isGreaterThan(member2.getLatency());
+        for (int i = 0; i < 10; i++) {
+            assertThat(strategy.select(members)).isSameAs(member2);
+        }
+
+        // The outstanding requests make the fastest member more expensive.
+        for (int i = 0; i < 100; i++) {
+            member2.start();
+        }
+        assertThat(strategy.select(members)).isSameAs(member1);
+    }
+
+    @Test
+    public void testWeighted() {
+        BalancerStrategy strategy = BalancerStrategies.weighted();
+        int count = 0;
+        for (int i = 0; i < 4000; i++) {
+            if (strategy.select(members) == member2) {
+                count++;
+            }
+        }
+        // 3 out of 4 requests are expected to go to the second member.
+        assertThat(count).isBetween(2700, 3300);
+    }
+
+    @Test
+    public void testEjection() {
+        member1.failed(member1.start(), 2, 60000L);
+        assertThat(member1.isAvailable()).isTrue();
+        assertThat(member1.getConsecutiveFailures()).isEqualTo(1);
+        member1.failed(member1.start(), 2, 60000L);
+        assertThat(member1.isAvailable()).isFalse();
+
+        member2.failed(member2.start(), 1, 0L);
+        // Already expired.
+        assertThat(member2.isAvailable()).isTrue();
+
+        member1.setHealthy(true);
+        assertThat(member1.isAvailable()).isTrue();
+        member1.setHealthy(false);
+        assertThat(member1.isAvailable()).isFalse();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownStrategy() {
+        BalancerStrategies.fromName("random");
+    }
+}
@@ -22,19 +22,31 @@ package org.wisdom.framework.filters.test;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.net.HttpHeaders;
+import com.sun.net.httpserver.HttpServer;
 import org.junit.Test;
 import org.wisdom.api.configuration.Configuration;
 import org.wisdom.api.http.*;
 import org.wisdom.api.interception.RequestContext;
 import org.wisdom.api.router.Route;
+import org.wisdom.api.tracing.Span;
+import org.wisdom.api.tracing.Trace;
+import org.wisdom.api.tracing.Tracing;
 import org.wisdom.framework.filters.BalancerFilter;
 import org.wisdom.framework.filters.BalancerMember;
 import org.wisdom.framework.filters.DefaultBalancerMember;
+import org.wisdom.framework.filters.MemberStatistics;
 import org.wisdom.test.parents.FakeContext;
 import org.wisdom.test.parents.FakeRequest;
 import org.wisdom.test.parents.WisdomUnitTest;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -369,4 +381,219 @@ public class BalancerFilterTest extends WisdomUnitTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testRetryAndEjection() throws Exception {
+        HttpServer server = startServer();
+        try {
+            BalancerMember dead = new DefaultBalancerMember("dead", "http://localhost:" + getFreePort(), "balancer");
+            BalancerMember alive = new DefaultBalancerMember("alive",
+                    "http://localhost:" + server.getAddress().getPort(), "balancer");
+
+            BalancerFilter balancer = new BalancerFilter() {
+                @Override
+                public String getName() {
+                    return "balancer";
+                }
+
+                @Override
+                public int getMaxFailures() {
+                    return 2;
+                }
+            };
+            balancer.addMember(dead);
+            balancer.addMember(alive);
+            List<MemberStatistics> statistics = balancer.getStatistics();
+
+            // Each request is retried on the other member.
+            for (int i = 0; i < 4; i++) {
+                Result result = call(balancer, HttpMethod.GET);
+                assertThat(result.getStatusCode()).isEqualTo(Status.OK);
+                assertThat(streamToString(result)).isEqualTo("alive");
+            }
+            // The dead member has been ejected after two failures.
+            assertThat(statistics.get(0).isAvailable()).isFalse();
+            assertThat(statistics.get(1).isAvailable()).isTrue();
+            assertThat(statistics.get(1).getOutstandingRequests()).isEqualTo(0);
+            assertThat(statistics.get(1).getLatency()).isGreaterThan(0.0);
+
+            // Not idempotent, not retried.
+            balancer.addMember(new DefaultBalancerMember("dead-2", "http://localhost:" + getFreePort(),
+                    "balancer"));
+            balancer.removeMember(alive);
+            try {
+                call(balancer, HttpMethod.POST);
+                fail("The request should not be retried");
+            } catch (IOException e) {
+                // Expected.
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testOverriddenMemberSelection() throws Exception {
+        HttpServer server = startServer();
+        try {
+            final BalancerMember dead = new DefaultBalancerMember("dead", "http://localhost:" + getFreePort(),
+                    "balancer");
+            final BalancerMember alive = new DefaultBalancerMember("alive",
+                    "http://localhost:" + server.getAddress().getPort(), "balancer");
+            BalancerFilter balancer = new BalancerFilter() {
+                @Override
+                public String getName() {
+                    return "balancer";
+                }
+
+                @Override
+                protected BalancerMember selectBalancerMember(RequestContext request) {
+                    return dead;
+                }
+            };
+            balancer.addMember(dead);
+            balancer.addMember(alive);
+
+            // The first attempt uses the selected member, the retry goes to the other one.
+            assertThat(streamToString(call(balancer, HttpMethod.GET))).isEqualTo("alive");
+            assertThat(balancer.getStatistics().get(0).getConsecutiveFailures()).isEqualTo(1);
+            assertThat(balancer.getStatistics().get(1).getConsecutiveFailures()).isEqualTo(0);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testOutstandingRequestsOnUnexpectedErrors() throws Exception {
+        HttpServer server = startServer();
+        try {
+            BalancerFilter balancer = new BalancerFilter() {
+                @Override
+                public String getName() {
+                    return "balancer";
+                }
+
+                @Override
+                protected Result onResult(Result result) {
+                    throw new IllegalStateException("Bad result");
+                }
+            };
+            balancer.addMember(new DefaultBalancerMember("alive",
+                    "http://localhost:" + server.getAddress().getPort(), "balancer"));
+            try {
+                call(balancer, HttpMethod.GET);
+                fail("The exception should have been propagated");
+            } catch (IllegalStateException e) {
+                // Expected.
+            }
+            assertThat(balancer.getStatistics().get(0).getOutstandingRequests()).isEqualTo(0);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testHealthCheck() throws Exception {
+        HttpServer server = startServer();
+        try {
+            BalancerFilter balancer = new BalancerFilter() {
+                @Override
+                public String getName() {
+                    return "balancer";
+                }
+
+                @Override
+                public String getHealthCheckPath() {
+                    return "/health";
+                }
+            };
+            balancer.addMember(new DefaultBalancerMember("dead", "http://localhost:" + getFreePort(), "balancer"));
+            balancer.addMember(new DefaultBalancerMember("alive",
+                    "http://localhost:" + server.getAddress().getPort() + "/", "balancer"));
+
+            balancer.checkHealth();
+            assertThat(balancer.getStatistics().get(0).isAvailable()).isFalse();
+            assertThat(balancer.getStatistics().get(1).isAvailable()).isTrue();
+
+            for (int i = 0; i < 3; i++) {
+                assertThat(streamToString(call(balancer, HttpMethod.GET))).isEqualTo("alive");
+            }
+            assertThat(balancer.getStatistics().get(0).getConsecutiveFailures()).isEqualTo(0);
+            balancer.close();
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testTracePropagation() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] content = String.valueOf(exchange.getRequestHeaders().getFirst(HeaderNames.TRACEPARENT))
+                    .getBytes();
+            exchange.sendResponseHeaders(200, content.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(content);
+            }
+        });
+        server.start();
+        try {
+            BalancerFilter balancer = new BalancerFilter() {
+                @Override
+                public String getName() {
+                    return "balancer";
+                }
+            };
+            balancer.addMember(new DefaultBalancerMember("member",
+                    "http://localhost:" + server.getAddress().getPort(), "balancer"));
+
+            // Not traced.
+            assertThat(streamToString(call(balancer, HttpMethod.GET))).isEqualTo("null");
+
+            Trace trace = new Trace("GET /", "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01");
+            Span invoke = Tracing.start(trace.getRoot(), "invoke");
+            String traceParent;
+            try {
+                traceParent = streamToString(call(balancer, HttpMethod.GET));
+            } finally {
+                invoke.finish();
+            }
+            Span proxy = trace.getChildren(invoke).get(0);
+            assertThat(proxy.getName()).isEqualTo("proxy");
+            assertThat(proxy.isFinished()).isTrue();
+            assertThat(proxy.getTags()).containsEntry("status", "200").containsEntry("method", "GET");
+            assertThat(traceParent).isEqualTo("00-4bf92f3577b34da6a3ce929d0e0e4736-" + proxy.getId() + "-01");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private Result call(BalancerFilter balancer, HttpMethod method) throws Exception {
+        RequestContext rc = mock(RequestContext.class);
+        FakeContext context = new FakeContext();
+        context.setPath("/").setHeader(HttpHeaders.CONNECTION, "keep-alive");
+        FakeRequest request = new FakeRequest(context).method(method).uri("/");
+        when(rc.context()).thenReturn(context);
+        when(rc.request()).thenReturn(request);
+        return ((AsyncResult) balancer.call(mock(Route.class), rc)).callable().call();
+    }
+
+    private static HttpServer startServer() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] content = "alive".getBytes();
+            exchange.sendResponseHeaders(200, content.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(content);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static int getFreePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+}
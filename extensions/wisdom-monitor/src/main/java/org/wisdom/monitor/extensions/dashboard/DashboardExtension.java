@@ -44,10 +44,13 @@ import org.wisdom.api.concurrent.ManagedScheduledExecutorService;
 import org.wisdom.api.configuration.ApplicationConfiguration;
 import org.wisdom.api.content.Json;
 import org.wisdom.api.http.HttpMethod;
+import org.wisdom.api.http.RequestTimings;
 import org.wisdom.api.http.Result;
 import org.wisdom.api.http.websockets.Publisher;
 import org.wisdom.api.security.Authenticated;
 import org.wisdom.api.templates.Template;
+import org.wisdom.api.tracing.Span;
+import org.wisdom.api.tracing.Trace;
 import org.wisdom.monitor.service.HealthCheck;
 import org.wisdom.monitor.service.MonitorExtension;
 
@@ -56,6 +59,7 @@ import java.lang.management.ThreadInfo;
 import java.lang.management.ThreadMXBean;
 import java.net.InetSocketAddress;
 import java.util.List;
+import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.concurrent.ScheduledExecutorService;
@@ -72,6 +76,16 @@ import static org.wisdom.monitor.extensions.dashboard.HealthState.ko;
 @Authenticated("Monitor-Authenticator")
 public class DashboardExtension extends DefaultController implements MonitorExtension {
 
+    /**
+     * Excludes the route metrics, that can be numerous.
+     */
+    private static final MetricFilter NOT_ROUTE_METRICS = new MetricFilter() {
+        @Override
+        public boolean matches(String name, Metric metric) {
+            return !name.startsWith(RouteMetrics.PREFIX);
+        }
+    };
+
     @Requires
     Publisher publisher;
 
@@ -97,6 +111,7 @@ public class DashboardExtension extends DefaultController implements MonitorExte
 
     private ScheduledFuture task;
     private HttpMetricFilter httpMetricFilter;
+    private TraceLog traceLog;
     private ServiceRegistration<MetricRegistry> reg;
 
     /**
@@ -125,6 +140,12 @@ public class DashboardExtension extends DefaultController implements MonitorExte
             httpMetricFilter.start();
         }
 
+        if (configuration.getBooleanWithDefault("monitor.tracing.enabled", false)) {
+            logger().info("Registering the request trace log");
+            this.traceLog = new TraceLog(bc, configuration);
+            traceLog.start();
+        }
+
         if (configuration.getBooleanWithDefault("monitor.jmx.enabled", true)) {
             logger().info("Initializing Metrics JMX reporting");
             final JmxReporter jmxReporter = JmxReporter.forRegistry(registry).build();
@@ -167,7 +188,137 @@ public class DashboardExtension extends DefaultController implements MonitorExte
     }
 
     /**
-     * Build an immutable map containing the current metrics.
+     * Sends the metrics of each route: number of requests, rate, latency (in milliseconds), errors and active
+     * requests. When the request timings are recorded, the mean and 95th percentile of the time spent in each phase
+     * are also sent.
+     *
+     * @return the route metrics.
+     */
+    @Route(method = HttpMethod.GET, uri = "/routes")
+    public Result routeMetrics() {
+        ArrayNode array = json.newArray();
+        if (httpMetricFilter != null) {
+            for (RouteMetrics metrics : httpMetricFilter.getRouteMetrics()) {
+                Timer requests = metrics.getRequests();
+                Snapshot snapshot = requests.getSnapshot();
+                ObjectNode node = json.newObject();
+                node
+                        .put("method", metrics.getMethod())
+                        .put("url", metrics.getUrl())
+                        .put("count", requests.getCount())
+                        .put("rate", requests.getOneMinuteRate())
+                        .put("mean", toMillis(snapshot.getMean()))
+                        .put("p50", toMillis(snapshot.getMedian()))
+                        .put("p95", toMillis(snapshot.get95thPercentile()))
+                        .put("p99", toMillis(snapshot.get99thPercentile()))
+                        .put("max", toMillis(snapshot.getMax()))
+                        .put("errors", metrics.getErrors().getCount())
+                        .put("errorRate", metrics.getErrors().getOneMinuteRate())
+                        .put("errorRatio", metrics.getErrorRatio())
+                        .put("active", metrics.getActiveRequests());
+                ObjectNode phases = json.newObject();
+                for (RequestTimings.Phase phase : RequestTimings.Phase.values()) {
+                    Timer timer = metrics.getPhase(phase);
+                    if (timer != null) {
+                        Snapshot phaseSnapshot = timer.getSnapshot();
+                        phases.putObject(phase.getName())
+                                .put("mean", toMillis(phaseSnapshot.getMean()))
+                                .put("p95", toMillis(phaseSnapshot.get95thPercentile()));
+                    }
+                }
+                if (phases.size() > 0) {
+                    node.set("phases", phases);
+                }
+                array.add(node);
+            }
+        }
+        return ok(array);
+    }
+
+    /**
+     * Sends the slow or failed requests, the most recent first, with their span tree. Times are in milliseconds,
+     * span starts are relative to the beginning of the request.
+     *
+     * @return the slow traces.
+     */
+    @Route(method = HttpMethod.GET, uri = "/traces")
+    public Result traces() {
+        ArrayNode array = json.newArray();
+        if (traceLog != null) {
+            for (Trace trace : traceLog.getSlowTraces()) {
+                ObjectNode node = json.newObject();
+                node
+                        .put("id", trace.getId())
+                        .put("date", trace.getRoot().getStartTime())
+                        .put("duration", toMillis(trace.getDuration()))
+                        .put("failed", trace.isFailed())
+                        .set("root", span(trace, trace.getRoot()));
+                array.add(node);
+            }
+        }
+        return ok(array);
+    }
+
+    /**
+     * Sends the spans of the sampled requests, the most recent first. Durations are in milliseconds, dates in
+     * milliseconds since the epoch.
+     *
+     * @return the recent spans.
+     */
+    @Route(method = HttpMethod.GET, uri = "/spans")
+    public Result spans() {
+        ArrayNode array = json.newArray();
+        if (traceLog != null) {
+            for (SpanRecord span : traceLog.getRecentSpans()) {
+                ObjectNode node = json.newObject();
+                node
+                        .put("trace", span.getTraceId())
+                        .put("id", span.getId())
+                        .put("parent", span.getParentId())
+                        .put("name", span.getName())
+                        .put("date", span.getStartTime())
+                        .put("duration", span.getDuration() == -1 ? -1 : toMillis(span.getDuration()));
+                if (span.getError() != null) {
+                    node.put("error", span.getError());
+                }
+                ObjectNode tags = node.putObject("tags");
+                for (Map.Entry<String, String> entry : span.getTags().entrySet()) {
+                    tags.put(entry.getKey(), entry.getValue());
+                }
+                array.add(node);
+            }
+        }
+        return ok(array);
+    }
+
+    private ObjectNode span(Trace trace, Span span) {
+        ObjectNode node = json.newObject();
+        node
+                .put("id", span.getId())
+                .put("name", span.getName())
+                .put("offset", toMillis(span.getOffset()))
+                .put("duration", span.isFinished() ? toMillis(span.getDuration()) : -1);
+        if (span.getError() != null) {
+            node.put("error", span.getError());
+        }
+        ObjectNode tags = node.putObject("tags");
+        for (Map.Entry<String, String> entry : span.getTags().entrySet()) {
+            tags.put(entry.getKey(), entry.getValue());
+        }
+        ArrayNode children = node.putArray("children");
+        for (Span child : trace.getChildren(span)) {
+            children.add(span(trace, child));
+        }
+        return node;
+    }
+
+    private static double toMillis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Build an immutable map containing the current metrics. The route metrics are not included, as they are
+     * available from {@link #routeMetrics()}.
      *
      * @return the current metrics.
      */
@@ -179,12 +330,12 @@ public class DashboardExtension extends DefaultController implements MonitorExte
         }
 
         return ImmutableMap.<String, Object>builder()
-                .put("gauges", registry.getGauges())
+                .put("gauges", registry.getGauges(NOT_ROUTE_METRICS))
                 .put("activeRequests", active)
-                .put("timers", registry.getTimers())
-                .put("counters", registry.getCounters())
-                .put("meters", registry.getMeters())
-                .put("histograms", registry.getHistograms())
+                .put("timers", registry.getTimers(NOT_ROUTE_METRICS))
+                .put("counters", registry.getCounters(NOT_ROUTE_METRICS))
+                .put("meters", registry.getMeters(NOT_ROUTE_METRICS))
+                .put("histograms", registry.getHistograms(NOT_ROUTE_METRICS))
                 .put("health", getHealth())
                 .build();
     }
@@ -266,6 +417,11 @@ public class DashboardExtension extends DefaultController implements MonitorExte
             httpMetricFilter.stop();
         }
 
+        if (traceLog != null) {
+            traceLog.stop();
+            traceLog = null;
+        }
+
         registry.removeMatching(new MetricFilter() {
             /**
              * Returns true to remove all metrics.
@@ -26,20 +26,36 @@ import com.codahale.metrics.Timer;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceRegistration;
 import org.wisdom.api.configuration.ApplicationConfiguration;
+import org.wisdom.api.http.AsyncResult;
+import org.wisdom.api.http.HttpMethod;
+import org.wisdom.api.http.RequestTimings;
 import org.wisdom.api.http.Result;
 import org.wisdom.api.http.Status;
 import org.wisdom.api.interception.Filter;
 import org.wisdom.api.interception.RequestContext;
 import org.wisdom.api.router.Route;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 /**
  * A class exposing a HTTP Request filter to compute HTTP metrics.
+ * <p>
+ * Besides the global metrics, metrics are computed per route (see {@link RouteMetrics}), identified by the HTTP
+ * method and the route template, never by the request URI. To avoid filling the metric registry, the number of
+ * routes having their own metrics is limited by the {@literal monitor.http.routes.max} configuration key (500 by
+ * default, 0 to disable the route metrics): once reached, the other routes share the {@literal others} metrics.
+ * Requests not served by a route (404...) share the {@literal unbound} metrics. When the engine records the request
+ * timings ({@literal request.timings}), the time spent in each phase is added to the route metrics once the response
+ * is written.
+ * <p>
+ * All the metrics, including the route metrics, are computed by this filter, so they only cover the requests whose
+ * path matches the {@literal monitor.http.interception} pattern ({@literal .*} by default). Narrowing this pattern
+ * also removes the other routes from the route metrics.
  */
 public class HttpMetricFilter implements Filter, Status {
 
@@ -54,6 +70,18 @@ public class HttpMetricFilter implements Filter, Status {
     private Counter activeRequests;
     private Timer requestTimer;
 
+    /**
+     * The default maximum number of routes having their own metrics.
+     */
+    public static final int DEFAULT_MAX_ROUTES = 500;
+
+    private final int maxRoutes;
+    private final ConcurrentMap<HttpMethod, ConcurrentMap<String, RouteMetrics>> routeMetrics =
+            new ConcurrentHashMap<>();
+    private final AtomicInteger routeCount = new AtomicInteger();
+    private final MetricRegistry registry;
+    private RouteMetrics unboundMetrics;
+    private RouteMetrics otherMetrics;
 
     /**
      * Creates a new instance of the filter.
@@ -65,6 +93,7 @@ public class HttpMetricFilter implements Filter, Status {
     public HttpMetricFilter(BundleContext context, ApplicationConfiguration configuration,
                             MetricRegistry registry) {
         this.context = context;
+        this.registry = registry;
         Map<Integer, String> meterNamesByStatusCode = createMeterNamesByStatusCode();
         this.interceptionPattern = Pattern.compile(configuration.getWithDefault("monitor.http.interception", ".*"));
         this.interceptionPriority = configuration.getIntegerWithDefault("monitor.http.priority", 10000);
@@ -77,6 +106,11 @@ public class HttpMetricFilter implements Filter, Status {
         this.otherMeter = registry.meter("http.responseCodes.others");
         this.activeRequests = registry.counter("http.activeRequests");
         this.requestTimer = registry.timer("http.requests");
+        this.maxRoutes = configuration.getIntegerWithDefault("monitor.http.routes.max", DEFAULT_MAX_ROUTES);
+        if (maxRoutes > 0) {
+            this.unboundMetrics = new RouteMetrics(registry, null, "unbound");
+            this.otherMetrics = new RouteMetrics(registry, null, "others");
+        }
     }
 
     private static Map<Integer, String> createMeterNamesByStatusCode() {
@@ -119,17 +153,131 @@ public class HttpMetricFilter implements Filter, Status {
      */
     @Override
     public Result call(Route route, RequestContext context) throws Exception {
+        final RouteMetrics metrics = getRouteMetrics(route);
         activeRequests.inc();
-        final Timer.Context ctxt = requestTimer.time();
+        if (metrics != null) {
+            metrics.start();
+            RequestTimings timings = RequestTimings.of(context.context());
+            if (timings != null) {
+                timings.onComplete(metrics::record);
+            }
+        }
+        final long start = System.nanoTime();
         Result result = null;
         try {
             result = context.proceed();
-            return result;
         } finally {
-            ctxt.stop();
-            activeRequests.dec();
-            markMeterForStatusCode(result);
+            if (!(result instanceof AsyncResult)) {
+                stop(metrics, start, result);
+            }
+        }
+        if (!(result instanceof AsyncResult)) {
+            return result;
+        }
+        // Asynchronous results are measured until their completion.
+        final AsyncResult async = (AsyncResult) result;
+        if (async.stage() != null) {
+            async.stage().whenComplete((r, e) -> stop(metrics, start, r));
+            return async;
+        }
+        AsyncResult wrapped = new AsyncResult(() -> {
+            Result r = null;
+            try {
+                r = async.callable().call();
+                return r;
+            } finally {
+                stop(metrics, start, r);
+            }
+        }).timeout(async.getTimeout(), TimeUnit.MILLISECONDS);
+        copy(async, wrapped);
+        return wrapped;
+    }
+
+    /**
+     * Copies the status, content and headers of an asynchronous result to the result wrapping it.
+     *
+     * @param from the wrapped result
+     * @param to   the wrapping result
+     */
+    static void copy(AsyncResult from, AsyncResult to) {
+        to.status(from.getStatusCode());
+        to.getHeaders().putAll(from.getHeaders());
+        to.getCookies().addAll(from.getCookies());
+        to.with(from.getCharset());
+        if (from.getRenderable() != null) {
+            to.render(from.getRenderable());
+        }
+    }
+
+    private void stop(RouteMetrics metrics, long start, Result result) {
+        long duration = System.nanoTime() - start;
+        requestTimer.update(duration, TimeUnit.NANOSECONDS);
+        activeRequests.dec();
+        markMeterForStatusCode(result);
+        if (metrics != null) {
+            metrics.stop(duration, result == null || result.getStatusCode() >= INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Gets the metrics of the given route, creating them if needed, unless the maximum number of routes is reached.
+     *
+     * @param route the route
+     * @return the metrics, {@code null} if the route metrics are disabled
+     */
+    RouteMetrics getRouteMetrics(Route route) {
+        if (maxRoutes <= 0) {
+            return null;
+        }
+        if (route == null || route.isUnbound() || route.getHttpMethod() == null) {
+            return unboundMetrics;
+        }
+        ConcurrentMap<String, RouteMetrics> byUrl = routeMetrics.get(route.getHttpMethod());
+        if (byUrl == null) {
+            byUrl = routeMetrics.computeIfAbsent(route.getHttpMethod(), m -> new ConcurrentHashMap<>());
+        }
+        RouteMetrics metrics = byUrl.get(route.getUrl());
+        if (metrics != null) {
+            return metrics;
+        }
+        // No mapping is created when the maximum is reached.
+        metrics = byUrl.computeIfAbsent(route.getUrl(), url ->
+                reserveRoute() ? new RouteMetrics(registry, route.getHttpMethod().name(), url) : null);
+        return metrics == null ? otherMetrics : metrics;
+    }
+
+    /**
+     * Reserves a slot for the metrics of a new route.
+     *
+     * @return {@code true} if the slot was reserved, {@code false} if the maximum number of routes is reached
+     */
+    private boolean reserveRoute() {
+        int count;
+        do {
+            count = routeCount.get();
+            if (count >= maxRoutes) {
+                return false;
+            }
+        } while (!routeCount.compareAndSet(count, count + 1));
+        return true;
+    }
+
+    /**
+     * Gets the metrics of the routes, including the shared {@literal unbound} and {@literal others} metrics.
+     *
+     * @return the route metrics, empty if disabled
+     */
+    public List<RouteMetrics> getRouteMetrics() {
+        if (maxRoutes <= 0) {
+            return Collections.emptyList();
+        }
+        List<RouteMetrics> list = new ArrayList<>();
+        for (ConcurrentMap<String, RouteMetrics> byUrl : routeMetrics.values()) {
+            list.addAll(byUrl.values());
         }
+        list.add(unboundMetrics);
+        list.add(otherMetrics);
+        return list;
     }
 
     private void markMeterForStatusCode(Result result) {
@@ -0,0 +1,209 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.monitor.extensions.dashboard;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.wisdom.api.http.RequestTimings;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Pattern;
+
+/**
+ * The metrics of a route (or a group of routes): a timer measuring the requests, a meter counting the failed
+ * requests (exceptions and 5xx statuses), and a counter of the requests being processed.
+ * <p>
+ * The metrics are registered in the metric registry, under {@literal http.routes.METHOD.URL}, the URL being the
+ * route template (such as {@literal /users/{id}}), with the characters not supported by the reporters replaced by
+ * {@literal _}.
+ * <p>
+ * When the request timings are recorded (see {@link RequestTimings}), a timer per phase is also registered under
+ * {@literal http.routes.METHOD.URL.phases.PHASE}, the filters being measured as a whole.
+ */
+public final class RouteMetrics {
+
+    /**
+     * The prefix of the route metric names.
+     */
+    public static final String PREFIX = "http.routes.";
+
+    /**
+     * The number of samples kept by the phase timers, smaller than the request timer as there are several phases.
+     */
+    private static final int PHASE_SAMPLES = 256;
+
+    private static final RequestTimings.Phase[] PHASES = RequestTimings.Phase.values();
+
+    private static final Pattern UNSUPPORTED = Pattern.compile("[^A-Za-z0-9_{}\\-]");
+
+    private final String method;
+
+    private final String url;
+
+    private final Timer requests;
+
+    private final Meter errors;
+
+    private final Counter active;
+
+    private final MetricRegistry registry;
+
+    private final String name;
+
+    /**
+     * The timer of each phase, created when the phase is recorded for the first time.
+     */
+    private final AtomicReferenceArray<Timer> phases = new AtomicReferenceArray<>(PHASES.length);
+
+    /**
+     * Creates and registers the metrics of a route.
+     *
+     * @param registry the registry
+     * @param method   the HTTP method, {@code null} for a group of routes
+     * @param url      the route template, or the name of the group
+     */
+    RouteMetrics(MetricRegistry registry, String method, String url) {
+        this.method = method;
+        this.url = url;
+        this.registry = registry;
+        this.name = PREFIX + (method == null ? url : method + "." + UNSUPPORTED.matcher(url).replaceAll("_"));
+        this.requests = getOrRegister(registry, name + ".requests", new Timer(new WindowedReservoir()));
+        this.errors = getOrRegister(registry, name + ".errors", new Meter());
+        this.active = getOrRegister(registry, name + ".active", new Counter());
+    }
+
+    /**
+     * Registers the metric, or reuses the metric already registered under this name (the URLs of different routes
+     * may be sanitized to the same name).
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends Metric> T getOrRegister(MetricRegistry registry, String name, T metric) {
+        try {
+            return registry.register(name, metric);
+        } catch (IllegalArgumentException e) { //NOSONAR
+            return (T) registry.getMetrics().get(name);
+        }
+    }
+
+    /**
+     * Records the start of a request.
+     */
+    void start() {
+        active.inc();
+    }
+
+    /**
+     * Records the end of a request.
+     *
+     * @param duration the request duration in nanoseconds
+     * @param failed   whether the request has failed
+     */
+    void stop(long duration, boolean failed) {
+        active.dec();
+        requests.update(duration, TimeUnit.NANOSECONDS);
+        if (failed) {
+            errors.mark();
+        }
+    }
+
+    /**
+     * Records the time spent in each phase of a completed request.
+     *
+     * @param timings the request timings
+     */
+    void record(RequestTimings timings) {
+        for (RequestTimings.Phase phase : PHASES) {
+            long duration = timings.get(phase);
+            if (duration != 0) {
+                getOrCreatePhase(phase).update(duration, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private Timer getOrCreatePhase(RequestTimings.Phase phase) {
+        Timer timer = phases.get(phase.ordinal());
+        if (timer == null) {
+            timer = getOrRegister(registry, name + ".phases." + phase.getName(), new Timer(
+                    new WindowedReservoir(PHASE_SAMPLES, WindowedReservoir.DEFAULT_WINDOW, Clock.defaultClock())));
+            if (!phases.compareAndSet(phase.ordinal(), null, timer)) {
+                timer = phases.get(phase.ordinal());
+            }
+        }
+        return timer;
+    }
+
+    /**
+     * Gets the timer of the given phase.
+     *
+     * @param phase the phase
+     * @return the timer, {@code null} if the phase has not been recorded for this route
+     */
+    public Timer getPhase(RequestTimings.Phase phase) {
+        return phases.get(phase.ordinal());
+    }
+
+    /**
+     * @return the HTTP method of the route, {@code null} for a group of routes.
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return the route template, or the name of the group of routes.
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return the timer measuring the requests.
+     */
+    public Timer getRequests() {
+        return requests;
+    }
+
+    /**
+     * @return the meter counting the failed requests.
+     */
+    public Meter getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return the number of requests being processed.
+     */
+    public long getActiveRequests() {
+        return active.getCount();
+    }
+
+    /**
+     * @return the ratio of failed requests since the metrics creation, between 0 and 1.
+     */
+    public double getErrorRatio() {
+        long count = requests.getCount();
+        return count == 0 ? 0.0 : (double) errors.getCount() / count;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.monitor.extensions.dashboard;
+
+import org.wisdom.api.tracing.Span;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * An immutable copy of a finished {@link Span}, kept by the {@link TraceLog}. Unlike the span, it does not reference
+ * its trace, so keeping it does not retain the other spans of the request.
+ */
+public final class SpanRecord {
+
+    private final String traceId;
+
+    private final String id;
+
+    private final String parentId;
+
+    private final String name;
+
+    private final long startTime;
+
+    private final long duration;
+
+    private final String error;
+
+    private final Map<String, String> tags;
+
+    /**
+     * Copies the given span.
+     *
+     * @param traceId the id of the trace containing the span
+     * @param span    the span
+     */
+    SpanRecord(String traceId, Span span) {
+        this.traceId = traceId;
+        this.id = span.getId();
+        this.parentId = span.getParentId();
+        this.name = span.getName();
+        this.startTime = span.getStartTime();
+        this.duration = span.getDuration();
+        this.error = span.getError();
+        this.tags = Collections.unmodifiableMap(span.getTags());
+    }
+
+    /**
+     * @return the id of the trace containing the span.
+     */
+    public String getTraceId() {
+        return traceId;
+    }
+
+    /**
+     * @return the span id.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the id of the parent span, {@code null} for the root span of a trace started locally.
+     */
+    public String getParentId() {
+        return parentId;
+    }
+
+    /**
+     * @return the name of the span.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the time at which the span has started, in milliseconds since the epoch.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return the duration in nanoseconds, {@literal -1} if the span was not finished.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return the error message, {@code null} if the span has not failed.
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return the tags.
+     */
+    public Map<String, String> getTags() {
+        return tags;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + id + ")";
+    }
+}
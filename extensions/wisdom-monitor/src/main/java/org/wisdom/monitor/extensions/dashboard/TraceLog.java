@@ -0,0 +1,155 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.monitor.extensions.dashboard;
+
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+import org.wisdom.api.configuration.ApplicationConfiguration;
+import org.wisdom.api.tracing.Span;
+import org.wisdom.api.tracing.Trace;
+import org.wisdom.api.tracing.TraceCollector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A {@link TraceCollector} keeping the recent spans and the slow requests.
+ * <p>
+ * Only a fraction of the requests is traced: {@literal monitor.tracing.rate} (1 by default, all the requests),
+ * plus the requests the caller asked to sample. Lower it to bound the cost of the tracing on busy servers.
+ * <p>
+ * The spans of a sample of the traced requests ({@literal monitor.tracing.sample}, 0.01 by default, plus the requests
+ * the caller asked to sample) are copied (see {@link SpanRecord}) in a ring buffer of
+ * {@literal monitor.tracing.buffer} spans (4096 by default, rounded to the next power of two). The traced requests
+ * lasting more than {@literal monitor.tracing.slow} milliseconds (1000 by default) or having a failed span are always
+ * kept, with their whole span tree, in a second ring buffer of {@literal monitor.tracing.slow.max} traces (100 by
+ * default). Both buffers are lock-free: writers claim a slot by incrementing a cursor, and the oldest entries are
+ * overwritten.
+ */
+public class TraceLog implements TraceCollector {
+
+    private final BundleContext context;
+    private final double rate;
+    private final double sample;
+    private final long slowThreshold;
+    private final AtomicReferenceArray<SpanRecord> spans;
+    private final AtomicLong spanCursor = new AtomicLong();
+    private final AtomicReferenceArray<Trace> slowTraces;
+    private final AtomicLong slowCursor = new AtomicLong();
+    private ServiceRegistration<TraceCollector> reg;
+
+    /**
+     * Creates a new instance of the trace log.
+     *
+     * @param context       the bundle context
+     * @param configuration the application configuration
+     */
+    public TraceLog(BundleContext context, ApplicationConfiguration configuration) {
+        this.context = context;
+        this.rate = configuration.getDoubleWithDefault("monitor.tracing.rate", 1.0);
+        this.sample = configuration.getDoubleWithDefault("monitor.tracing.sample", 0.01);
+        this.slowThreshold = TimeUnit.MILLISECONDS.toNanos(
+                configuration.getLongWithDefault("monitor.tracing.slow", 1000L));
+        this.spans = new AtomicReferenceArray<>(
+                powerOfTwo(configuration.getIntegerWithDefault("monitor.tracing.buffer", 4096)));
+        this.slowTraces = new AtomicReferenceArray<>(
+                Math.max(1, configuration.getIntegerWithDefault("monitor.tracing.slow.max", 100)));
+    }
+
+    private static int powerOfTwo(int size) {
+        if (size <= 1) {
+            return 1;
+        }
+        return Integer.highestOneBit(size - 1) << 1;
+    }
+
+    /**
+     * Registers the trace log as service, so the engine starts tracing the requests.
+     */
+    public void start() {
+        reg = context.registerService(TraceCollector.class, this, null);
+    }
+
+    /**
+     * Unregisters the service.
+     */
+    public void stop() {
+        if (reg != null) {
+            reg.unregister();
+            reg = null;
+        }
+    }
+
+    /**
+     * Records the given trace if it is slow, failed or sampled.
+     *
+     * @param trace the finished trace
+     */
+    @Override
+    public void collect(Trace trace) {
+        if (trace.getDuration() >= slowThreshold || trace.isFailed()) {
+            slowTraces.set((int) (slowCursor.getAndIncrement() % slowTraces.length()), trace);
+        }
+        if (trace.isParentSampled() || ThreadLocalRandom.current().nextDouble() < sample) {
+            int mask = spans.length() - 1;
+            for (Span span : trace.getSpans()) {
+                spans.set((int) (spanCursor.getAndIncrement() & mask), new SpanRecord(trace.getId(), span));
+            }
+        }
+    }
+
+    /**
+     * @return the fraction of the requests to trace ({@literal monitor.tracing.rate}).
+     */
+    @Override
+    public double getSampleRate() {
+        return rate;
+    }
+
+    /**
+     * @return the spans of the sampled requests, the most recent first.
+     */
+    public List<SpanRecord> getRecentSpans() {
+        return newestFirst(spans, spanCursor.get());
+    }
+
+    /**
+     * @return the slow or failed traces, the most recent first.
+     */
+    public List<Trace> getSlowTraces() {
+        return newestFirst(slowTraces, slowCursor.get());
+    }
+
+    private static <T> List<T> newestFirst(AtomicReferenceArray<T> buffer, long cursor) {
+        int length = buffer.length();
+        List<T> list = new ArrayList<>();
+        for (long i = cursor - 1; i >= 0 && i >= cursor - length; i--) {
+            T element = buffer.get((int) (i % length));
+            if (element != null) {
+                list.add(element);
+            }
+        }
+        return list;
+    }
+}
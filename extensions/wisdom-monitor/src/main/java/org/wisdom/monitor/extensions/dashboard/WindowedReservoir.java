@@ -0,0 +1,135 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.monitor.extensions.dashboard;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.UniformReservoir;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A reservoir keeping a uniform sample of the values recorded during the current and the previous time windows, so
+ * the statistics reflect the recent activity. Unlike the exponentially decaying reservoir, updates never lock: the
+ * samples are stored in {@link UniformReservoir}s (backed by atomic arrays), and windows are rotated using a
+ * compare-and-set.
+ */
+final class WindowedReservoir implements Reservoir {
+
+    /**
+     * The default number of samples per window.
+     */
+    static final int DEFAULT_SIZE = 1028;
+
+    /**
+     * The default window length: 1 minute.
+     */
+    static final long DEFAULT_WINDOW = TimeUnit.MINUTES.toNanos(1);
+
+    private final int size;
+
+    private final long window;
+
+    private final Clock clock;
+
+    private final AtomicReference<Windows> windows;
+
+    /**
+     * Creates a reservoir using the default size and window.
+     */
+    WindowedReservoir() {
+        this(DEFAULT_SIZE, DEFAULT_WINDOW, Clock.defaultClock());
+    }
+
+    /**
+     * Creates a reservoir.
+     *
+     * @param size   the number of samples per window
+     * @param window the window length in nanoseconds
+     * @param clock  the clock
+     */
+    WindowedReservoir(int size, long window, Clock clock) {
+        this.size = size;
+        this.window = window;
+        this.clock = clock;
+        this.windows = new AtomicReference<>(new Windows(new UniformReservoir(size), null, clock.getTick()));
+    }
+
+    @Override
+    public int size() {
+        Windows current = current();
+        return current.current.size() + (current.previous == null ? 0 : current.previous.size());
+    }
+
+    @Override
+    public void update(long value) {
+        current().current.update(value);
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        Windows current = current();
+        long[] values = current.current.getSnapshot().getValues();
+        if (current.previous == null) {
+            return new Snapshot(values);
+        }
+        long[] previous = current.previous.getSnapshot().getValues();
+        long[] all = new long[values.length + previous.length];
+        System.arraycopy(values, 0, all, 0, values.length);
+        System.arraycopy(previous, 0, all, values.length, previous.length);
+        return new Snapshot(all);
+    }
+
+    /**
+     * Gets the current windows, rotating them if the current window is over.
+     */
+    private Windows current() {
+        Windows current = windows.get();
+        long now = clock.getTick();
+        long elapsed = now - current.start;
+        if (elapsed < window) {
+            return current;
+        }
+        // The previous window is kept only if it has just ended.
+        Windows next = new Windows(new UniformReservoir(size), elapsed < 2 * window ? current.current : null, now);
+        if (windows.compareAndSet(current, next)) {
+            return next;
+        }
+        // Rotated by another thread.
+        return windows.get();
+    }
+
+    /**
+     * The current and previous windows.
+     */
+    private static final class Windows {
+        private final UniformReservoir current;
+        private final UniformReservoir previous;
+        private final long start;
+
+        private Windows(UniformReservoir current, UniformReservoir previous, long start) {
+            this.current = current;
+            this.previous = previous;
+            this.start = start;
+        }
+    }
+}
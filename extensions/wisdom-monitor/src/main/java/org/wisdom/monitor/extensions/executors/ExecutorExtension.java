@@ -37,6 +37,8 @@ import org.wisdom.api.templates.Template;
 import org.wisdom.monitor.service.MonitorExtension;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Monitor extension for executors and schedulers.
@@ -110,6 +112,8 @@ public class ExecutorExtension extends DefaultController implements MonitorExten
         return new MetricSet() {
             @Override
             public Map<String, Metric> getMetrics() {
+                final Gauge<ManagedExecutorService.ExecutionStatistics> execution =
+                        snapshot(executor::getExecutionTimeStatistics);
                 return ImmutableMap.<String, Metric>builder()
                         .put("queue", new Gauge<Integer>() {
                             @Override
@@ -150,32 +154,71 @@ public class ExecutorExtension extends DefaultController implements MonitorExten
                         .put("max_exec", new Gauge<Long>() {
                             @Override
                             public Long getValue() {
-                                return executor.getExecutionTimeStatistics().getMaximumExecutionTime();
+                                return execution.getValue().getMaximumExecutionTime();
                             }
                         })
                         .put("total", new Gauge<Long>() {
                             @Override
                             public Long getValue() {
-                                return executor.getExecutionTimeStatistics().getTotalExecutionTime();
+                                return execution.getValue().getTotalExecutionTime();
                             }
                         })
                         .put("min_exec", new Gauge<Long>() {
                             @Override
                             public Long getValue() {
-                                return executor.getExecutionTimeStatistics().getMinimumExecutionTime();
+                                return execution.getValue().getMinimumExecutionTime();
                             }
                         })
                         .put("avg", new Gauge<Double>() {
                             @Override
                             public Double getValue() {
-                                return executor.getExecutionTimeStatistics().getAverageExecutionTime();
+                                return execution.getValue().getAverageExecutionTime();
                             }
                         })
+                        .putAll(percentiles("exec", execution))
+                        .putAll(percentiles("queue", snapshot(executor::getQueueTimeStatistics)))
+                        .putAll(percentiles("recent_exec", snapshot(executor::getRecentExecutionTimeStatistics)))
+                        .putAll(percentiles("recent_queue", snapshot(executor::getRecentQueueTimeStatistics)))
                         .build();
             }
         };
     }
 
+    /**
+     * Creates a gauge caching the statistics returned by the given supplier for one second. Computing the statistics
+     * copies the whole histogram, so the gauges reading the same statistics share a snapshot instead of computing
+     * them once each when the registry is reported.
+     *
+     * @param statistics the statistics supplier
+     * @return the cached gauge
+     */
+    static Gauge<ManagedExecutorService.ExecutionStatistics> snapshot(
+            final Supplier<ManagedExecutorService.ExecutionStatistics> statistics) {
+        return new CachedGauge<ManagedExecutorService.ExecutionStatistics>(1, TimeUnit.SECONDS) {
+            @Override
+            protected ManagedExecutorService.ExecutionStatistics loadValue() {
+                return statistics.get();
+            }
+        };
+    }
+
+    /**
+     * Creates the gauges reporting the percentiles (p50, p90, p99 and p999) of the given statistics.
+     *
+     * @param prefix     the prefix of the metric names
+     * @param statistics the statistics snapshot, shared by the gauges (see {@link #snapshot(Supplier)})
+     * @return the gauges
+     */
+    static Map<String, Metric> percentiles(String prefix,
+                                           final Gauge<ManagedExecutorService.ExecutionStatistics> statistics) {
+        return ImmutableMap.<String, Metric>of(
+                prefix + "_p50", (Gauge<Long>) () -> statistics.getValue().getMedian(),
+                prefix + "_p90", (Gauge<Long>) () -> statistics.getValue().get90thPercentile(),
+                prefix + "_p99", (Gauge<Long>) () -> statistics.getValue().get99thPercentile(),
+                prefix + "_p999", (Gauge<Long>) () -> statistics.getValue().get999thPercentile()
+        );
+    }
+
     private ManagedExecutorService[] getExecutors() {
         return executors;
     }
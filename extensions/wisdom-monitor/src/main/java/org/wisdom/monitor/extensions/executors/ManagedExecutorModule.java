@@ -54,8 +54,20 @@ public class ManagedExecutorModule extends SimpleModule {
                 jsonGenerator.writeNumberField("max_exec", statistics.getMaximumExecutionTime());
                 jsonGenerator.writeNumberField("min_exec", statistics.getMinimumExecutionTime());
                 jsonGenerator.writeNumberField("total", statistics.getTotalExecutionTime());
+                writePercentiles(jsonGenerator, "exec", statistics);
+                writePercentiles(jsonGenerator, "queue", executor.getQueueTimeStatistics());
+                writePercentiles(jsonGenerator, "recent_exec", executor.getRecentExecutionTimeStatistics());
+                writePercentiles(jsonGenerator, "recent_queue", executor.getRecentQueueTimeStatistics());
                 jsonGenerator.writeEndObject();
             }
         });
     }
+
+    private static void writePercentiles(JsonGenerator generator, String prefix,
+                                         ManagedExecutorService.ExecutionStatistics statistics) throws IOException {
+        generator.writeNumberField(prefix + "_p50", statistics.getMedian());
+        generator.writeNumberField(prefix + "_p90", statistics.get90thPercentile());
+        generator.writeNumberField(prefix + "_p99", statistics.get99thPercentile());
+        generator.writeNumberField(prefix + "_p999", statistics.get999thPercentile());
+    }
 }
@@ -0,0 +1,220 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.monitor.extensions.dashboard;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.BundleContext;
+import org.wisdom.api.configuration.ApplicationConfiguration;
+import org.wisdom.api.http.AsyncResult;
+import org.wisdom.api.http.Context;
+import org.wisdom.api.http.HttpMethod;
+import org.wisdom.api.http.MimeTypes;
+import org.wisdom.api.http.Request;
+import org.wisdom.api.http.RequestTimings;
+import org.wisdom.api.http.Result;
+import org.wisdom.api.http.Results;
+import org.wisdom.api.interception.RequestContext;
+import org.wisdom.api.router.Route;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HttpMetricFilterTest {
+
+    private MetricRegistry registry;
+    private ApplicationConfiguration configuration;
+
+    @Before
+    public void setUp() {
+        registry = new MetricRegistry();
+        configuration = mock(ApplicationConfiguration.class);
+        when(configuration.getWithDefault("monitor.http.interception", ".*")).thenReturn(".*");
+        when(configuration.getIntegerWithDefault("monitor.http.priority", 10000)).thenReturn(10000);
+        when(configuration.getIntegerWithDefault("monitor.http.routes.max", HttpMetricFilter.DEFAULT_MAX_ROUTES))
+                .thenReturn(2);
+    }
+
+    @Test
+    public void testRouteMetrics() throws Exception {
+        HttpMetricFilter filter = new HttpMetricFilter(mock(BundleContext.class), configuration, registry);
+        Route route = route(HttpMethod.GET, "/users/{id}");
+
+        filter.call(route, context(Results.ok()));
+        filter.call(route, context(Results.internalServerError()));
+        try {
+            filter.call(route, failing());
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            // Expected.
+        }
+
+        RouteMetrics metrics = filter.getRouteMetrics(route);
+        assertThat(metrics.getMethod()).isEqualTo("GET");
+        assertThat(metrics.getUrl()).isEqualTo("/users/{id}");
+        assertThat(metrics.getRequests().getCount()).isEqualTo(3);
+        assertThat(metrics.getErrors().getCount()).isEqualTo(2);
+        assertThat(metrics.getActiveRequests()).isEqualTo(0);
+        assertThat(registry.getTimers()).containsKeys("http.requests", "http.routes.GET._users_{id}.requests");
+        assertThat(registry.timer("http.requests").getCount()).isEqualTo(3);
+
+        // Same template, same metrics.
+        assertThat(filter.getRouteMetrics(route(HttpMethod.GET, "/users/{id}"))).isSameAs(metrics);
+        assertThat(filter.getRouteMetrics(route(HttpMethod.POST, "/users/{id}"))).isNotSameAs(metrics);
+    }
+
+    @Test
+    public void testCardinalityCap() {
+        HttpMetricFilter filter = new HttpMetricFilter(mock(BundleContext.class), configuration, registry);
+        RouteMetrics first = filter.getRouteMetrics(route(HttpMethod.GET, "/1"));
+        RouteMetrics second = filter.getRouteMetrics(route(HttpMethod.GET, "/2"));
+        RouteMetrics third = filter.getRouteMetrics(route(HttpMethod.GET, "/3"));
+        RouteMetrics fourth = filter.getRouteMetrics(route(HttpMethod.DELETE, "/4"));
+
+        assertThat(first).isNotSameAs(second);
+        assertThat(third.getUrl()).isEqualTo("others");
+        assertThat(fourth).isSameAs(third);
+        // Existing routes keep their metrics.
+        assertThat(filter.getRouteMetrics(route(HttpMethod.GET, "/1"))).isSameAs(first);
+
+        Route unbound = route(HttpMethod.GET, "/missing");
+        when(unbound.isUnbound()).thenReturn(true);
+        assertThat(filter.getRouteMetrics(unbound).getUrl()).isEqualTo("unbound");
+
+        // 2 routes, plus the unbound and others groups.
+        assertThat(filter.getRouteMetrics()).hasSize(4);
+    }
+
+    @Test
+    public void testCardinalityCapUnderContention() throws InterruptedException {
+        final HttpMetricFilter filter = new HttpMetricFilter(mock(BundleContext.class), configuration, registry);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        final CountDownLatch go = new CountDownLatch(1);
+        for (int i = 0; i < 64; i++) {
+            final Route route = route(HttpMethod.GET, "/" + i);
+            executor.execute(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                filter.getRouteMetrics(route);
+            });
+        }
+        go.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        // 2 routes, plus the unbound and others groups.
+        assertThat(filter.getRouteMetrics()).hasSize(4);
+    }
+
+    @Test
+    public void testDisabledRouteMetrics() throws Exception {
+        when(configuration.getIntegerWithDefault("monitor.http.routes.max", HttpMetricFilter.DEFAULT_MAX_ROUTES))
+                .thenReturn(0);
+        HttpMetricFilter filter = new HttpMetricFilter(mock(BundleContext.class), configuration, registry);
+        filter.call(route(HttpMethod.GET, "/"), context(Results.ok()));
+        assertThat(filter.getRouteMetrics()).isEmpty();
+        assertThat(registry.timer("http.requests").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testAsyncResults() throws Exception {
+        HttpMetricFilter filter = new HttpMetricFilter(mock(BundleContext.class), configuration, registry);
+        Route route = route(HttpMethod.GET, "/async");
+        RouteMetrics metrics = filter.getRouteMetrics(route);
+
+        AsyncResult async = new AsyncResult(() -> Results.ok());
+        async.status(Result.ACCEPTED).as(MimeTypes.JSON).with(StandardCharsets.ISO_8859_1).with("X-Test", "test");
+        Result result = filter.call(route, context(async));
+        assertThat(result).isNotSameAs(async);
+        assertThat(result.getStatusCode()).isEqualTo(Result.ACCEPTED);
+        assertThat(result.getContentType()).isEqualTo(MimeTypes.JSON);
+        assertThat(result.getCharset()).isEqualTo(StandardCharsets.ISO_8859_1);
+        assertThat(result.getHeaders()).containsEntry("X-Test", "test");
+        assertThat(metrics.getActiveRequests()).isEqualTo(1);
+        ((AsyncResult) result).callable().call();
+        assertThat(metrics.getActiveRequests()).isEqualTo(0);
+        assertThat(metrics.getRequests().getCount()).isEqualTo(1);
+
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        filter.call(route, context(new AsyncResult(future)));
+        assertThat(metrics.getActiveRequests()).isEqualTo(1);
+        future.complete(Results.internalServerError());
+        assertThat(metrics.getActiveRequests()).isEqualTo(0);
+        assertThat(metrics.getRequests().getCount()).isEqualTo(2);
+        assertThat(metrics.getErrors().getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testPhases() throws Exception {
+        HttpMetricFilter filter = new HttpMetricFilter(mock(BundleContext.class), configuration, registry);
+        Route route = route(HttpMethod.GET, "/phases");
+        RouteMetrics metrics = filter.getRouteMetrics(route);
+
+        Context http = mock(Context.class);
+        Request request = mock(Request.class);
+        when(http.request()).thenReturn(request);
+        when(request.data()).thenReturn(new HashMap<>());
+        RequestTimings timings = RequestTimings.attach(http);
+        RequestContext context = context(Results.ok());
+        when(context.context()).thenReturn(http);
+
+        filter.call(route, context);
+        timings.record(RequestTimings.Phase.ACTION, System.nanoTime() - 1000);
+        // Recorded once the request is completed.
+        assertThat(metrics.getPhase(RequestTimings.Phase.ACTION)).isNull();
+        timings.complete();
+
+        assertThat(metrics.getPhase(RequestTimings.Phase.ACTION).getCount()).isEqualTo(1);
+        assertThat(metrics.getPhase(RequestTimings.Phase.ROUTING)).isNull();
+        assertThat(registry.getTimers()).containsKey("http.routes.GET._phases.phases.action");
+    }
+
+    private static Route route(HttpMethod method, String url) {
+        Route route = mock(Route.class);
+        when(route.getHttpMethod()).thenReturn(method);
+        when(route.getUrl()).thenReturn(url);
+        return route;
+    }
+
+    private static RequestContext context(Result result) throws Exception {
+        RequestContext context = mock(RequestContext.class);
+        when(context.proceed()).thenReturn(result);
+        return context;
+    }
+
+    private static RequestContext failing() throws Exception {
+        RequestContext context = mock(RequestContext.class);
+        when(context.proceed()).thenThrow(new IllegalStateException("failed"));
+        return context;
+    }
+}
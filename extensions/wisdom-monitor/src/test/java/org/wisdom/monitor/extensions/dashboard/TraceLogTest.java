@@ -0,0 +1,134 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.monitor.extensions.dashboard;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.BundleContext;
+import org.wisdom.api.configuration.ApplicationConfiguration;
+import org.wisdom.api.tracing.Span;
+import org.wisdom.api.tracing.Trace;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TraceLogTest {
+
+    private ApplicationConfiguration configuration;
+
+    @Before
+    public void setUp() {
+        configuration = mock(ApplicationConfiguration.class);
+        when(configuration.getDoubleWithDefault("monitor.tracing.rate", 1.0)).thenReturn(0.5);
+        when(configuration.getDoubleWithDefault("monitor.tracing.sample", 0.01)).thenReturn(0.0);
+        when(configuration.getLongWithDefault("monitor.tracing.slow", 1000L)).thenReturn(1000L);
+        when(configuration.getIntegerWithDefault("monitor.tracing.buffer", 4096)).thenReturn(5);
+        when(configuration.getIntegerWithDefault("monitor.tracing.slow.max", 100)).thenReturn(2);
+    }
+
+    @Test
+    public void testThatOnlySampledTracesAreKept() {
+        TraceLog log = new TraceLog(mock(BundleContext.class), configuration);
+
+        log.collect(trace("GET /", null));
+        assertThat(log.getRecentSpans()).isEmpty();
+
+        Trace sampled = trace("GET /sampled", "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01");
+        log.collect(sampled);
+        assertThat(log.getRecentSpans()).hasSize(2);
+        assertThat(log.getRecentSpans().get(0).getName()).isEqualTo("work");
+        SpanRecord root = log.getRecentSpans().get(1);
+        assertThat(root.getId()).isEqualTo(sampled.getRoot().getId());
+        assertThat(root.getTraceId()).isEqualTo(sampled.getId());
+        assertThat(root.getParentId()).isEqualTo("00f067aa0ba902b7");
+        assertThat(root.getDuration()).isGreaterThanOrEqualTo(0);
+        assertThat(log.getSlowTraces()).isEmpty();
+    }
+
+    @Test
+    public void testSampleRate() {
+        TraceLog log = new TraceLog(mock(BundleContext.class), configuration);
+        assertThat(log.getSampleRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    public void testThatTracesRecordedLocallyAreNotAllKept() {
+        TraceLog log = new TraceLog(mock(BundleContext.class), configuration);
+        // Sampled for the other servers, but the caller did not ask for it.
+        Trace trace = new Trace("GET /", null, true);
+        trace.finish();
+        log.collect(trace);
+        assertThat(log.getRecentSpans()).isEmpty();
+    }
+
+    @Test
+    public void testThatTheSpanBufferIsARing() {
+        // The size is rounded to 8.
+        TraceLog log = new TraceLog(mock(BundleContext.class), configuration);
+        for (int i = 0; i < 5; i++) {
+            log.collect(trace("GET /" + i, "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01"));
+        }
+        assertThat(log.getRecentSpans()).hasSize(8);
+        assertThat(log.getRecentSpans().get(1).getName()).isEqualTo("GET /4");
+        assertThat(log.getRecentSpans().get(7).getName()).isEqualTo("GET /1");
+    }
+
+    @Test
+    public void testThatFailedTracesAreKept() {
+        TraceLog log = new TraceLog(mock(BundleContext.class), configuration);
+        Trace first = failed("GET /1");
+        Trace second = failed("GET /2");
+        Trace third = failed("GET /3");
+        log.collect(first);
+        log.collect(trace("GET /ok", null));
+        log.collect(second);
+        log.collect(third);
+
+        assertThat(log.getSlowTraces()).containsExactly(third, second);
+        assertThat(log.getRecentSpans()).isEmpty();
+    }
+
+    @Test
+    public void testThatSlowTracesAreKept() {
+        when(configuration.getLongWithDefault("monitor.tracing.slow", 1000L)).thenReturn(0L);
+        TraceLog log = new TraceLog(mock(BundleContext.class), configuration);
+        Trace trace = trace("GET /", null);
+        log.collect(trace);
+        assertThat(log.getSlowTraces()).containsExactly(trace);
+        assertThat(log.getSlowTraces().get(0).getChildren(trace.getRoot())).hasSize(1);
+    }
+
+    private static Trace trace(String name, String traceParent) {
+        Trace trace = new Trace(name, traceParent);
+        trace.getRoot().child("work").finish();
+        trace.finish();
+        return trace;
+    }
+
+    private static Trace failed(String name) {
+        Trace trace = new Trace(name, null);
+        Span span = trace.getRoot().child("work");
+        span.fail(new IllegalStateException("bad"));
+        span.finish();
+        trace.finish();
+        return trace;
+    }
+}
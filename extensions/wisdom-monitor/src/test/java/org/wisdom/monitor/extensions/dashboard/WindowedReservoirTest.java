@@ -0,0 +1,73 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.monitor.extensions.dashboard;
+
+import com.codahale.metrics.Clock;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WindowedReservoirTest {
+
+    @Test
+    public void testWindows() {
+        final AtomicLong time = new AtomicLong();
+        Clock clock = new Clock() {
+            @Override
+            public long getTick() {
+                return time.get();
+            }
+        };
+        WindowedReservoir reservoir = new WindowedReservoir(100, 1000, clock);
+        reservoir.update(10);
+        reservoir.update(20);
+        assertThat(reservoir.size()).isEqualTo(2);
+        assertThat(reservoir.getSnapshot().getMax()).isEqualTo(20);
+
+        // Next window, the previous values are kept.
+        time.set(1500);
+        reservoir.update(5);
+        assertThat(reservoir.size()).isEqualTo(3);
+        assertThat(reservoir.getSnapshot().getMin()).isEqualTo(5);
+        assertThat(reservoir.getSnapshot().getMax()).isEqualTo(20);
+
+        // The first window is dropped.
+        time.set(2600);
+        assertThat(reservoir.size()).isEqualTo(1);
+        assertThat(reservoir.getSnapshot().getMax()).isEqualTo(5);
+
+        // Nothing recorded for a while, everything is dropped.
+        time.set(10000);
+        assertThat(reservoir.size()).isEqualTo(0);
+        assertThat(reservoir.getSnapshot().size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testSampling() {
+        WindowedReservoir reservoir = new WindowedReservoir();
+        for (int i = 0; i < 10000; i++) {
+            reservoir.update(i);
+        }
+        assertThat(reservoir.size()).isEqualTo(WindowedReservoir.DEFAULT_SIZE);
+        assertThat(reservoir.getSnapshot().getMedian()).isBetween(3000.0, 7000.0);
+    }
+}
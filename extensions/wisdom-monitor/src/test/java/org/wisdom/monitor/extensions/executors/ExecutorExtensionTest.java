@@ -0,0 +1,49 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.monitor.extensions.executors;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import org.junit.Test;
+import org.wisdom.api.concurrent.ManagedExecutorService;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExecutorExtensionTest {
+
+    @Test
+    public void testThatPercentileGaugesShareASnapshot() {
+        final AtomicInteger computations = new AtomicInteger();
+        Map<String, Metric> gauges = ExecutorExtension.percentiles("exec", ExecutorExtension.snapshot(() -> {
+            computations.incrementAndGet();
+            ManagedExecutorService.ExecutionStatistics statistics = new ManagedExecutorService.ExecutionStatistics();
+            statistics.accept(10L);
+            return statistics;
+        }));
+        assertThat(gauges).containsOnlyKeys("exec_p50", "exec_p90", "exec_p99", "exec_p999");
+        for (Metric gauge : gauges.values()) {
+            assertThat(((Gauge<?>) gauge).getValue()).isNotNull();
+        }
+        assertThat(computations.get()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.i18n;
+
+import java.text.Format;
+import java.text.MessageFormat;
+
+/**
+ * A message with its pattern parsed once. Formatting a message with arguments does not parse the pattern again.
+ */
+final class CompiledMessage {
+
+    /**
+     * The raw message.
+     */
+    private final String pattern;
+
+    /**
+     * The parsed pattern, {@code null} if the message is not a valid pattern.
+     */
+    private final MessageFormat format;
+
+    /**
+     * Whether or not the parsed pattern can be used concurrently. {@link MessageFormat} objects are not thread-safe
+     * when they contain sub-formats (such as {@code {0,number}}), but only read their state otherwise.
+     */
+    private final boolean shareable;
+
+    /**
+     * Creates the message.
+     *
+     * @param pattern the raw message
+     */
+    CompiledMessage(String pattern) {
+        this.pattern = pattern;
+        MessageFormat parsed;
+        try {
+            parsed = new MessageFormat(pattern);
+        } catch (IllegalArgumentException e) { //NOSONAR
+            // Reported when the message is formatted.
+            parsed = null;
+        }
+        this.format = parsed;
+        this.shareable = parsed != null && hasNoSubFormat(parsed);
+    }
+
+    private static boolean hasNoSubFormat(MessageFormat format) {
+        for (Format f : format.getFormats()) {
+            if (f != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the raw message.
+     */
+    String pattern() {
+        return pattern;
+    }
+
+    /**
+     * Formats the message. As {@link I18nExtension#get(String, Object...)}, the raw message is returned when there
+     * are no arguments.
+     *
+     * @param args the arguments, can be empty
+     * @return the formatted message
+     */
+    String format(Object... args) {
+        if (args.length == 0) {
+            return pattern;
+        }
+        if (format == null) {
+            // Throws the parsing error.
+            return MessageFormat.format(pattern, args);
+        }
+        MessageFormat f = shareable ? format : (MessageFormat) format.clone();
+        return f.format(args);
+    }
+}
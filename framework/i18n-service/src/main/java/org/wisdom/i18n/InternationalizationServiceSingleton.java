@@ -31,12 +31,16 @@ import org.wisdom.api.configuration.ApplicationConfiguration;
 import org.wisdom.api.i18n.InternationalizationService;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * The default implementation of the internationalization service. It analyses bundles,
  * and loads resource bundles from files contained in the 'i18n' folder of the bundle. The locale is extracted from
  * the file name as follows: name_locale.properties. For example, app.properties is using the default locale,
  * while app_fr is using the French locale. Resource bundles are loaded in UTF-8.
+ * <p>
+ * Messages are served from a {@link MessageTable}, rebuilt when bundles providing resource bundles arrive or leave.
  */
 @Component
 @Provides(specifications = InternationalizationService.class)
@@ -56,10 +60,15 @@ public class InternationalizationServiceSingleton implements Internationalizatio
     /**
      * The managed extensions.
      */
-    private List<I18nExtension> extensions = new ArrayList<>();
+    private final List<I18nExtension> extensions = new CopyOnWriteArrayList<>();
     private BundleTracker<List<I18nExtension>> tracker;
 
-    private Map<Locale, String> etags = new HashMap<>();
+    /**
+     * The messages provided by the managed extensions.
+     */
+    private volatile MessageTable table = new MessageTable(Collections.<I18nExtension>emptyList());
+
+    private final Map<Locale, String> etags = new ConcurrentHashMap<>();
 
     public InternationalizationServiceSingleton(BundleContext context) {
         this.context = context;
@@ -87,7 +96,10 @@ public class InternationalizationServiceSingleton implements Internationalizatio
         if (tracker != null) {
             tracker.close();
         }
-        extensions.clear();
+        synchronized (this) {
+            extensions.clear();
+            table = new MessageTable(extensions);
+        }
     }
 
     /**
@@ -147,16 +159,17 @@ public class InternationalizationServiceSingleton implements Internationalizatio
      * @return the formatted internationalized message
      */
     public String get(Locale[] locales, String key, Object... args) {
+        MessageTable messages = table;
         for (Locale locale : locales) {
-            I18nExtension extension = getExtension(locale, key);
-            if (extension != null) {
-                return extension.get(key, args);
+            CompiledMessage message = messages.getProvided(normalize(locale), key);
+            if (message != null) {
+                return message.format(args);
             }
         }
         // Use default.
-        I18nExtension extension = getExtension(InternationalizationService.DEFAULT_LOCALE, key);
-        if (extension != null) {
-            return extension.get(key, args);
+        CompiledMessage message = messages.get(InternationalizationService.DEFAULT_LOCALE, key);
+        if (message != null) {
+            return message.format(args);
         }
 
         return null;
@@ -174,21 +187,16 @@ public class InternationalizationServiceSingleton implements Internationalizatio
      */
     @Override
     public String get(Locale locale, String key, Object... args) {
-        I18nExtension extension = getExtension(locale, key);
-        if (extension != null) {
-            return extension.get(key, args);
+        CompiledMessage message = table.get(normalize(locale), key);
+        if (message != null) {
+            return message.format(args);
         }
-        extension = getExtension(InternationalizationService.DEFAULT_LOCALE, key);
-        if (extension != null) {
-            return extension.get(key, args);
-        }
-
         return null;
     }
 
     /**
      * Gets all the messages defined in the given locale AND default locale (for messages not defined in the given
-     * locale). The returned map is composed pair of key:message.
+     * locale). The returned map is composed pair of key:message, and cannot be modified.
      *
      * @param locale the locale
      * @return the set of defined messages.
@@ -200,27 +208,19 @@ public class InternationalizationServiceSingleton implements Internationalizatio
     /**
      * Gets all the messages defined in the given locales AND default locale (for messages not defined in the given
      * any locale). The message are added to the map only if they are not provided in the previous locale,
-     * meaning that the order is important. The returned map is composed pair of key:message.
+     * meaning that the order is important. The returned map is composed pair of key:message, and cannot be
+     * modified. The maps are computed once per set of locales, until the provided resource bundles change.
      *
      * @param locales the ordered set of locales
      * @return the set of defined messages.
      */
     @Override
     public Map<String, String> getAllMessages(Locale... locales) {
-        Map<String, String> messages = new HashMap<>();
-        List<I18nExtension> extensionForLocale;
-        for (Locale locale : locales) {
-            extensionForLocale = getExtension(locale);
-            for (I18nExtension extension : extensionForLocale) {
-                merge(messages, extension.map());
-            }
+        Locale[] normalized = new Locale[locales.length];
+        for (int i = 0; i < locales.length; i++) {
+            normalized[i] = normalize(locales[i]);
         }
-        // Now add the messages for the default locale
-        extensionForLocale = getExtension(DEFAULT_LOCALE);
-        for (I18nExtension extension : extensionForLocale) {
-            merge(messages, extension.map());
-        }
-        return messages;
+        return table.getAll(normalized);
     }
 
     /**
@@ -244,40 +244,14 @@ public class InternationalizationServiceSingleton implements Internationalizatio
         }
     }
 
-    private void merge(Map<String, String> map1, Map<String, String> map2) {
-        for (Map.Entry<String, String> entry : map2.entrySet()) {
-            if (!map1.containsKey(entry.getKey())) {
-                map1.put(entry.getKey(), entry.getValue());
-            }
-        }
-    }
-
-    private List<I18nExtension> getExtension(Locale locale) {
-        if (locale.equals(defaultLocale)) {
-            locale = InternationalizationService.DEFAULT_LOCALE;
-        }
-        List<I18nExtension> list = new ArrayList<>();
-        for (I18nExtension extension : extensions) {
-            if (extension.locale().equals(locale)) {
-                list.add(extension);
-            } else if (locale.equals(defaultLocale)  && extension.locale().equals(DEFAULT_LOCALE)) {
-                list.add(extension);
-            }
-        }
-        return list;
-    }
-
-    private I18nExtension getExtension(Locale locale, String key) {
+    /**
+     * Messages of the application default locale are provided by the resource bundles without locale.
+     */
+    private Locale normalize(Locale locale) {
         if (locale.equals(defaultLocale)) {
-            locale = InternationalizationService.DEFAULT_LOCALE;
-        }
-        for (I18nExtension extension : extensions) {
-            if (extension.locale().equals(locale)
-                    && extension.keys().contains(key)) {
-                return extension;
-            }
+            return InternationalizationService.DEFAULT_LOCALE;
         }
-        return null;
+        return locale;
     }
 
     /**
@@ -309,9 +283,12 @@ public class InternationalizationServiceSingleton implements Internationalizatio
         String current = Long.toString(System.currentTimeMillis());
         LOGGER.info(list.size() + " resource bundle(s) loaded from {} ({})", bundle.getSymbolicName(),
                 bundle.getBundleId());
-        for (I18nExtension extension : list) {
-            extensions.add(extension);
-            etags.put(extension.locale(), current);
+        synchronized (this) {
+            extensions.addAll(list);
+            table = new MessageTable(extensions);
+            for (I18nExtension extension : list) {
+                etags.put(extension.locale(), current);
+            }
         }
         return list;
     }
@@ -351,9 +328,12 @@ public class InternationalizationServiceSingleton implements Internationalizatio
     @Override
     public void removedBundle(Bundle bundle, BundleEvent event, List<I18nExtension> list) {
         String current = Long.toString(System.currentTimeMillis());
-        for (I18nExtension extension : list) {
-            synchronized (this) {
+        synchronized (this) {
+            for (I18nExtension extension : list) {
                 extensions.remove(extension);
+            }
+            table = new MessageTable(extensions);
+            for (I18nExtension extension : list) {
                 etags.put(extension.locale(), current);
             }
         }
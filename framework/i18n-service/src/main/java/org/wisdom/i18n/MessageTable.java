@@ -0,0 +1,160 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.i18n;
+
+import org.wisdom.api.i18n.InternationalizationService;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An immutable view of the messages provided by a set of {@link I18nExtension}. Messages are indexed by locale and
+ * key, and the default locale messages are merged into the messages of the other locales, so retrieving a message
+ * is a single lookup. A new table is built when extensions arrive or leave.
+ * <p>
+ * The locales given to this class must already have been normalized: the default locale of the application is
+ * represented by {@link InternationalizationService#DEFAULT_LOCALE}.
+ */
+final class MessageTable {
+
+    /**
+     * The maximum number of locale sets for which the result of {@link #getAll(Locale[])} is kept. Locales come from
+     * requests, so the number of combinations is not bounded.
+     */
+    static final int MAX_CACHED_LOCALE_SETS = 256;
+
+    /**
+     * Locale -> key -> message, for the messages provided in the locale.
+     */
+    private final Map<Locale, Map<String, CompiledMessage>> provided;
+
+    /**
+     * Locale -> key -> message, for the messages provided in the locale and in the default locale.
+     */
+    private final Map<Locale, Map<String, CompiledMessage>> resolved;
+
+    /**
+     * The messages provided in the default locale.
+     */
+    private final Map<String, CompiledMessage> defaults;
+
+    /**
+     * Ordered locales -> messages, computed lazily.
+     */
+    private final ConcurrentMap<List<Locale>, Map<String, String>> all = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the table. When several extensions provide the same key for the same locale, the first one wins.
+     *
+     * @param extensions the extensions
+     */
+    MessageTable(Collection<I18nExtension> extensions) {
+        Map<Locale, Map<String, CompiledMessage>> messages = new HashMap<>();
+        for (I18nExtension extension : extensions) {
+            Map<String, CompiledMessage> map = messages.get(extension.locale());
+            if (map == null) {
+                map = new HashMap<>();
+                messages.put(extension.locale(), map);
+            }
+            for (String key : extension.keys()) {
+                if (!map.containsKey(key)) {
+                    map.put(key, new CompiledMessage(extension.bundle().getString(key)));
+                }
+            }
+        }
+
+        Map<String, CompiledMessage> def = messages.get(InternationalizationService.DEFAULT_LOCALE);
+        this.defaults = def == null ? Collections.<String, CompiledMessage>emptyMap() : def;
+        this.provided = messages;
+        this.resolved = new HashMap<>();
+        for (Map.Entry<Locale, Map<String, CompiledMessage>> entry : messages.entrySet()) {
+            Map<String, CompiledMessage> map = new HashMap<>(defaults);
+            map.putAll(entry.getValue());
+            resolved.put(entry.getKey(), map);
+        }
+    }
+
+    /**
+     * Gets a message provided in the given locale, or in the default locale.
+     *
+     * @param locale the locale
+     * @param key    the key
+     * @return the message, {@code null} if not provided
+     */
+    CompiledMessage get(Locale locale, String key) {
+        Map<String, CompiledMessage> map = resolved.get(locale);
+        if (map == null) {
+            map = defaults;
+        }
+        return map.get(key);
+    }
+
+    /**
+     * Gets a message provided in the given locale, without using the default locale.
+     *
+     * @param locale the locale
+     * @param key    the key
+     * @return the message, {@code null} if not provided
+     */
+    CompiledMessage getProvided(Locale locale, String key) {
+        Map<String, CompiledMessage> map = provided.get(locale);
+        if (map == null) {
+            return null;
+        }
+        return map.get(key);
+    }
+
+    /**
+     * Gets the messages provided in the given locales, and in the default locale. Earlier locales win.
+     *
+     * @param locales the ordered locales
+     * @return the unmodifiable key -> raw message map
+     */
+    Map<String, String> getAll(Locale[] locales) {
+        List<Locale> key = Arrays.asList(locales);
+        Map<String, String> messages = all.get(key);
+        if (messages != null) {
+            return messages;
+        }
+
+        Map<String, String> computed = new HashMap<>();
+        for (Locale locale : locales) {
+            addMissing(computed, provided.get(locale));
+        }
+        addMissing(computed, defaults);
+        messages = Collections.unmodifiableMap(computed);
+        if (all.size() < MAX_CACHED_LOCALE_SETS) {
+            all.putIfAbsent(new ArrayList<>(key), messages);
+        }
+        return messages;
+    }
+
+    private static void addMissing(Map<String, String> messages, Map<String, CompiledMessage> source) {
+        if (source == null) {
+            return;
+        }
+        for (Map.Entry<String, CompiledMessage> entry : source.entrySet()) {
+            if (!messages.containsKey(entry.getKey())) {
+                messages.put(entry.getKey(), entry.getValue().pattern());
+            }
+        }
+    }
+}
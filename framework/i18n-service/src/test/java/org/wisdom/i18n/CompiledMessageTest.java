@@ -0,0 +1,56 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.i18n;
+
+import org.junit.Test;
+
+import java.text.MessageFormat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the messages are formatted as {@link MessageFormat} does.
+ */
+public class CompiledMessageTest {
+
+    @Test
+    public void testFormatting() {
+        assertThat(new CompiledMessage("hello {0}").format("wisdom")).isEqualTo("hello wisdom");
+        assertThat(new CompiledMessage("{0} and {1}").format("a", "b")).isEqualTo("a and b");
+        assertThat(new CompiledMessage("{0,number,#.##} items").format(1.234))
+                .isEqualTo(MessageFormat.format("{0,number,#.##} items", 1.234));
+        // Formatting twice must not alter the parsed pattern.
+        CompiledMessage message = new CompiledMessage("{0,number,integer}/{1}");
+        assertThat(message.format(1, 2)).isEqualTo(message.format(1, 2));
+    }
+
+    @Test
+    public void testThatTheRawMessageIsReturnedWithoutArguments() {
+        assertThat(new CompiledMessage("it''s {0}").format()).isEqualTo("it''s {0}");
+        assertThat(new CompiledMessage("it''s {0}").format("ok")).isEqualTo("it's ok");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPattern() {
+        CompiledMessage message = new CompiledMessage("broken {0");
+        assertThat(message.format()).isEqualTo("broken {0");
+        message.format("arg");
+    }
+}
@@ -128,6 +128,21 @@ public class InternationalizationServiceSingletonTest {
         assertThat(value).isEqualTo("autre");
     }
 
+    @Test
+    public void testThatAllMessagesAreComputedOnce() {
+        Bundle bundle = getMockBundle();
+        List<I18nExtension> extensions = svc.addingBundle(bundle, null);
+
+        Map<String, String> messages = svc.getAllMessages(Locale.FRENCH, Locale.ENGLISH);
+        assertThat(svc.getAllMessages(Locale.FRENCH, Locale.ENGLISH)).isSameAs(messages);
+        assertThat(svc.getAllMessages(Locale.ENGLISH, Locale.FRENCH)).isNotSameAs(messages)
+                .containsEntry("welcome", "bonjour");
+
+        svc.removedBundle(bundle, null, extensions);
+        assertThat(svc.getAllMessages(Locale.FRENCH, Locale.ENGLISH)).isEmpty();
+        assertThat(svc.get(Locale.FRENCH, "welcome")).isNull();
+    }
+
     public static Bundle getMockBundle() {
         List<String> structure = Arrays.asList(
                 "/i18n/messages.properties",
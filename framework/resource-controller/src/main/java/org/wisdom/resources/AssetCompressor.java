@@ -0,0 +1,340 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.resources;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wisdom.api.configuration.ApplicationConfiguration;
+import org.wisdom.api.http.MimeTypes;
+import org.wisdom.resources.AssetIndex.IndexedAsset;
+
+import java.io.*;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses assets lazily (on first hit) and keeps the compressed version in a disk cache. The compressed file
+ * becomes the {@literal gzip} variant of the asset, and is sent directly for the next requests. Requests do not wait
+ * for the compression: it is scheduled on an executor (see {@link #schedule(IndexedAsset, Executor)}), and the
+ * requests received meanwhile get the uncompressed asset (compressed on the fly by the engine).
+ * <p>
+ * Only textual assets having a size in the range of the engine compression bounds
+ * ({@link ApplicationConfiguration#ENCODING_MIN_SIZE} and {@link ApplicationConfiguration#ENCODING_MAX_SIZE}) are
+ * compressed. When the size of an asset is unknown (assets embedded in bundles), it is checked while compressing. The
+ * compression can be disabled using {@link CacheUtils#HTTP_COMPRESS_ASSETS}.
+ * <p>
+ * The outcome of the compression is kept per asset path and stamp (source, last modification date and size), so an
+ * asset is compressed once even if several requests ask for it concurrently, the assets that cannot be compressed are
+ * not checked again, and the compressed file of a previous version of the asset is deleted.
+ */
+public class AssetCompressor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AssetCompressor.class);
+
+    private final File cache;
+
+    private final boolean enabled;
+
+    private final long min;
+
+    private final long max;
+
+    private final AtomicLong counter = new AtomicLong();
+
+    /**
+     * Asset path -> outcome of the compression of the current version of the asset.
+     */
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new asset compressor.
+     *
+     * @param cache         the directory in which compressed assets are written, cleaned on creation
+     * @param configuration the application configuration
+     */
+    public AssetCompressor(File cache, ApplicationConfiguration configuration) {
+        this.cache = cache;
+        this.enabled = cache != null
+                && configuration.getBooleanWithDefault(CacheUtils.HTTP_COMPRESS_ASSETS,
+                CacheUtils.HTTP_COMPRESS_ASSETS_DEFAULT)
+                && configuration.getBooleanWithDefault(ApplicationConfiguration.ENCODING_GLOBAL,
+                ApplicationConfiguration.DEFAULT_ENCODING_GLOBAL);
+        this.min = configuration.getBytes(ApplicationConfiguration.ENCODING_MIN_SIZE,
+                ApplicationConfiguration.DEFAULT_ENCODING_MIN_SIZE);
+        this.max = configuration.getBytes(ApplicationConfiguration.ENCODING_MAX_SIZE,
+                ApplicationConfiguration.DEFAULT_ENCODING_MAX_SIZE);
+        if (cache != null) {
+            FileUtils.deleteQuietly(cache);
+        }
+    }
+
+    /**
+     * @return whether or not the lazy compression is enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Checks whether the given asset should be compressed. It must not have a gzip variant already, have a
+     * compressible mime type, and a size in the compression bounds (or an unknown size).
+     *
+     * @param asset the asset
+     * @return {@code true} if the asset should be compressed
+     */
+    public boolean shouldCompress(IndexedAsset<?> asset) {
+        if (!enabled || asset.getVariant(CacheUtils.GZIP) != null) {
+            return false;
+        }
+        long size = asset.getSize();
+        if (size < 0 && asset.getContent() instanceof File) {
+            size = ((File) asset.getContent()).length();
+        }
+        return (size < 0 || size >= min && size <= max) && isCompressible(getMimeType(asset));
+    }
+
+    /**
+     * Sets the compressed file as {@literal gzip} variant of the given asset if the current version of the asset has
+     * already been compressed, otherwise schedules its compression on the given executor (once per version of the
+     * asset). This method does not read or write any file, so it can be called from the request threads.
+     *
+     * @param asset    the asset
+     * @param executor the executor running the compression
+     * @return the compressed file if it is already available, {@code null} otherwise
+     */
+    public File schedule(IndexedAsset<?> asset, Executor executor) {
+        if (!enabled || asset.getVariant(CacheUtils.GZIP) != null) {
+            return null;
+        }
+        Entry entry = entry(asset);
+        if (entry.done) {
+            return apply(asset, entry);
+        }
+        if (entry.scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> compress(asset));
+            } catch (RejectedExecutionException e) { //NOSONAR
+                // Retried on the next request.
+                entry.scheduled.set(false);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compresses the given asset and sets the compressed file as {@literal gzip} variant of the asset. The compressed
+     * file is first written to a temporary file, and then moved, so a partially written file is never served. If the
+     * same version of the asset has already been compressed, the compressed file is reused.
+     *
+     * @param asset the asset
+     * @return the compressed file, {@code null} if the asset already has a {@literal gzip} variant or cannot be
+     * compressed
+     */
+    public File compress(IndexedAsset<?> asset) {
+        if (!enabled || asset.getVariant(CacheUtils.GZIP) != null) {
+            return null;
+        }
+        Entry entry = entry(asset);
+        if (!entry.done) {
+            synchronized (entry) {
+                if (!entry.done) {
+                    entry.setFile(shouldCompress(asset) ? write(asset) : null);
+                    entry.done = true;
+                }
+            }
+        }
+        return apply(asset, entry);
+    }
+
+    /**
+     * Sets the compressed file of the entry as {@literal gzip} variant of the asset.
+     */
+    private static File apply(IndexedAsset<?> asset, Entry entry) {
+        File file = entry.file;
+        if (file == null || entry.discarded) {
+            return null;
+        }
+        asset.setVariant(CacheUtils.GZIP, file);
+        return file;
+    }
+
+    /**
+     * Forgets the compressed version of the asset having the given path, and deletes it.
+     *
+     * @param path the path of the asset
+     */
+    public void invalidate(String path) {
+        Entry entry = entries.remove(path);
+        if (entry != null) {
+            entry.discard();
+        }
+    }
+
+    /**
+     * Gets the entry of the current version of the given asset, replacing the entry of a previous version.
+     */
+    private Entry entry(IndexedAsset<?> asset) {
+        String stamp = asset.getSource() + "@" + asset.getBundleId() + ":" + asset.getLastModified() + ":"
+                + asset.getSize();
+        while (true) {
+            Entry entry = entries.get(asset.getPath());
+            if (entry != null && entry.stamp.equals(stamp)) {
+                return entry;
+            }
+            Entry created = new Entry(stamp);
+            if (entry == null ? entries.putIfAbsent(asset.getPath(), created) == null
+                    : entries.replace(asset.getPath(), entry, created)) {
+                if (entry != null) {
+                    entry.discard();
+                }
+                return created;
+            }
+        }
+    }
+
+    /**
+     * Writes the compressed version of the given asset.
+     *
+     * @return the compressed file, {@code null} if the asset cannot be compressed, or is not in the size bounds
+     */
+    private File write(IndexedAsset<?> asset) {
+        File output = new File(cache, counter.incrementAndGet() + ".gz");
+        File temp = new File(cache, output.getName() + ".tmp");
+        try {
+            FileUtils.forceMkdir(cache);
+            long size = 0;
+            try (InputStream in = open(asset);
+                 OutputStream out = new GZIPOutputStream(new FileOutputStream(temp))) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    size += read;
+                    if (size > max) {
+                        break;
+                    }
+                    out.write(buffer, 0, read);
+                }
+            }
+            if (size < min || size > max) {
+                FileUtils.deleteQuietly(temp);
+                return null;
+            }
+            Files.move(temp.toPath(), output.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Cannot compress the asset {}", asset.getPath(), e);
+            FileUtils.deleteQuietly(temp);
+            return null;
+        }
+        return output;
+    }
+
+    private static InputStream open(IndexedAsset<?> asset) throws IOException {
+        Object content = asset.getContent();
+        if (content instanceof File) {
+            return new FileInputStream((File) content);
+        } else if (content instanceof URL) {
+            return ((URL) content).openStream();
+        }
+        throw new IOException("Unsupported asset content: " + content);
+    }
+
+    private static String getMimeType(IndexedAsset<?> asset) {
+        Object content = asset.getContent();
+        if (content instanceof File) {
+            return MimeTypes.getMimeTypeForFile((File) content);
+        } else if (content instanceof URL) {
+            return MimeTypes.getMimeTypeForFile((URL) content);
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether the given mime type denotes a textual content, worth compressing.
+     *
+     * @param mime the mime type, may be {@code null}
+     * @return {@code true} if the content is compressible
+     */
+    static boolean isCompressible(String mime) {
+        if (mime == null) {
+            return false;
+        }
+        return mime.startsWith("text/")
+                || mime.contains("javascript")
+                || mime.contains("json")
+                || mime.contains("xml");
+    }
+
+    /**
+     * The outcome of the compression of a version of an asset.
+     */
+    private static final class Entry {
+
+        private final String stamp;
+
+        /**
+         * Whether or not the compression was attempted, guarded by the entry while compressing.
+         */
+        private volatile boolean done;
+
+        /**
+         * Whether or not the compression was scheduled.
+         */
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        /**
+         * The compressed file, {@code null} if the asset cannot be compressed.
+         */
+        private volatile File file;
+
+        /**
+         * Set when a newer version of the asset replaces this one.
+         */
+        private volatile boolean discarded;
+
+        private Entry(String stamp) {
+            this.stamp = stamp;
+        }
+
+        private void setFile(File file) {
+            this.file = file;
+            if (file != null && discarded) {
+                // Superseded while compressing.
+                FileUtils.deleteQuietly(file);
+            }
+        }
+
+        private void discard() {
+            discarded = true;
+            File current = file;
+            if (current != null) {
+                FileUtils.deleteQuietly(current);
+            }
+        }
+    }
+}
@@ -26,18 +26,27 @@ import org.apache.commons.io.filefilter.TrueFileFilter;
 import org.apache.felix.ipojo.annotations.*;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.util.tracker.BundleTracker;
+import org.osgi.util.tracker.BundleTrackerCustomizer;
+import org.ow2.chameleon.core.services.AbstractDeployer;
+import org.ow2.chameleon.core.services.Deployer;
+import org.ow2.chameleon.core.services.Watcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wisdom.api.DefaultController;
 import org.wisdom.api.asset.Asset;
 import org.wisdom.api.asset.AssetProvider;
-import org.wisdom.api.asset.DefaultAsset;
+import org.wisdom.api.concurrent.ManagedExecutorService;
 import org.wisdom.api.configuration.ApplicationConfiguration;
 import org.wisdom.api.crypto.Crypto;
+import org.wisdom.api.http.HeaderNames;
 import org.wisdom.api.http.HttpMethod;
 import org.wisdom.api.http.Result;
 import org.wisdom.api.router.Route;
 import org.wisdom.api.router.RouteBuilder;
+import org.wisdom.resources.AssetIndex.IndexedAsset;
 
 import java.io.File;
 import java.net.URL;
@@ -45,6 +54,17 @@ import java.util.*;
 
 /**
  * A controller publishing the resources found in a folder and in bundles.
+ * <p>
+ * Assets are served from an in-memory index ({@link AssetIndex}) built on start from the asset directory and the
+ * bundles, and maintained using a Chameleon deployer (for the directory) and a bundle tracker (for the bundles). So,
+ * serving an asset is a single index lookup, without file system accesses or bundle scans, and ETags are computed
+ * once. As the deployer requires the {@link Watcher}, the files of the asset directory are only indexed when the
+ * watcher is available. Otherwise, they are read from the file system on each request, so they are never stale.
+ * <p>
+ * Precompressed variants of the assets (sibling {@literal .br} and {@literal .gz} files) are linked to the asset, and
+ * sent to the clients accepting them. Assets without a gzip variant are compressed in background (on the system
+ * executor) after their first hit, and the result is kept in a disk cache (see {@link AssetCompressor}) until the
+ * asset changes or is removed.
  */
 @Component(immediate = true)
 @Provides
@@ -63,11 +83,38 @@ public class AssetController extends DefaultController implements AssetProvider
     private final String pathInBundles;
     private final String root;
 
+    private final AssetIndex index = new AssetIndex();
+
+    private BundleTracker<Map<String, IndexedAsset<?>>> tracker;
+
+    private ServiceRegistration<Deployer> deployer;
+
+    private AssetCompressor compressor;
+
+    private final AssetFingerprints fingerprints = new AssetFingerprints();
+
+    /**
+     * Whether or not the files of the asset directory are indexed (only when they are watched).
+     */
+    private volatile boolean indexFiles;
+
     @Requires
     ApplicationConfiguration configuration;
     @Requires
     Crypto crypto;
 
+    /**
+     * The executor compressing the assets and computing their fingerprints.
+     */
+    @Requires(filter = "(name=" + ManagedExecutorService.SYSTEM + ")")
+    ManagedExecutorService executor;
+
+    /**
+     * The watcher used to track the changes in the asset directory.
+     */
+    @Requires(optional = true)
+    Watcher watcher;
+
     /**
      * Constructor used for testing purpose only.
      *
@@ -100,6 +147,7 @@ public class AssetController extends DefaultController implements AssetProvider
         this.manageAssetsFromBundles = manageAssetsFromBundles;
         this.pathInBundles = computePathInBundle(pathInBundles);
         this.root = computeRoot(url);
+        start();
     }
 
     /**
@@ -131,6 +179,54 @@ public class AssetController extends DefaultController implements AssetProvider
                 path, root);
     }
 
+    /**
+     * Builds the asset index, and starts tracking the asset directory and the bundles.
+     */
+    @Validate
+    public void start() {
+        index.clear();
+        Bundle bundle = context.getBundle();
+        compressor = new AssetCompressor(bundle == null ? null : bundle.getDataFile("compressed-assets" + root),
+                configuration);
+        indexFiles = directory != null && watcher != null;
+        if (indexFiles) {
+            for (File file : listFiles()) {
+                indexFile(file);
+            }
+            deployer = context.registerService(Deployer.class, new AssetDeployer(), null);
+            watcher.add(directory, true);
+        }
+        if (manageAssetsFromBundles) {
+            // Resolved bundles can provide resources too.
+            tracker = new BundleTracker<>(context, Bundle.RESOLVED | Bundle.STARTING | Bundle.ACTIVE
+                    | Bundle.STOPPING, new BundleAssetTracker());
+            tracker.open();
+        }
+        LOGGER.debug("{} assets indexed for {}", index.size(), root);
+    }
+
+    /**
+     * Stops tracking the asset directory and the bundles.
+     */
+    @Invalidate
+    public void stop() {
+        if (deployer != null) {
+            deployer.unregister();
+            deployer = null;
+            try {
+                watcher.removeAndStopIfNeeded(directory);
+            } catch (RuntimeException e) { //NOSONAR
+                // An exception can be thrown when the platform is shutting down, ignore it.
+            }
+        }
+        if (tracker != null) {
+            tracker.close();
+            tracker = null;
+        }
+        index.clear();
+        fingerprints.clear();
+    }
+
     private String computeRoot(String url) {
         if (url != null) {
             if (!url.startsWith("/")) {
@@ -168,123 +264,285 @@ public class AssetController extends DefaultController implements AssetProvider
      * @return the result serving the asset.
      */
     public Result serve() {
-        String path = context().parameterFromPath("path");
-        if (path.startsWith("/")) {
-            path = path.substring(1);
+        AssetFingerprints.Resolution resolution = fingerprints.resolve(context().parameterFromPath("path"),
+                this::assetAt, executor);
+        if (resolution == null) {
+            return notFound();
+        }
+        Asset<?> asset = resolution.getAsset();
+        if (asset instanceof IndexedAsset && compressor != null && executor != null
+                && CacheUtils.isEncodingAccepted(context().header(HeaderNames.ACCEPT_ENCODING), CacheUtils.GZIP)) {
+            // Meanwhile, the engine compresses the response on the fly.
+            compressor.schedule((IndexedAsset<?>) asset, executor);
         }
+        return resolution.complete(CacheUtils.fromAsset(context(), asset, configuration));
+    }
 
-        Asset<?> asset = getAssetFromFS(path);
-        if (asset == null && manageAssetsFromBundles) {
-            asset = getAssetFromBundle(path);
+    /**
+     * Gets the fingerprinted url of the given asset if it is served by this controller.
+     *
+     * @param asset the asset
+     * @return the fingerprinted url, {@code null} if the asset is not served by this controller
+     */
+    @Override
+    public String getFingerprintedPath(Asset<?> asset) {
+        if (!asset.getPath().startsWith(root + "/")) {
+            return null;
         }
+        return fingerprints.getFingerprintedPath(asset, executor);
+    }
 
-        if (asset != null) {
-            return CacheUtils.fromAsset(context(), asset, configuration);
+    /**
+     * Computes the path of a file from the asset directory, relative to the root url. As these path may contain
+     * \ on Windows we replace them by /. The paths are normalized, so {@literal ..} segments cannot escape the
+     * asset directory.
+     *
+     * @param file the file
+     * @return the path, {@code null} if the file is not in the asset directory or is hidden
+     */
+    private String getPathOfFile(File file) {
+        String base = directory.getAbsoluteFile().toPath().normalize().toString() + File.separator;
+        String absolute = file.getAbsoluteFile().toPath().normalize().toString();
+        if (!absolute.startsWith(base) || file.getName().startsWith(".")) {
+            // Skip file starting with . - there are hidden.
+            return null;
         }
-        return notFound();
+        return absolute.substring(base.length()).replace("\\", "/");
     }
 
-    private Asset<URL> getAssetFromBundle(String path) {
-        Bundle[] bundles = context.getBundles();
-        // Skip bundle 0 as it cannot contain assets
-        for (int i = 1; i < bundles.length; i++) {
-            URL url = bundles[i].getResource(pathInBundles + path);
-            if (url != null) {
-                return new DefaultAsset<>(root + "/" + path, url, bundles[i].getSymbolicName(),
-                        bundles[i].getLastModified(),
-                        CacheUtils.computeEtag(bundles[i].getLastModified(), configuration, crypto));
-            }
+    private Collection<File> listFiles() {
+        if (directory == null || !directory.isDirectory()) {
+            return Collections.emptyList();
         }
-        return null; // Asset not found, just returning null.
+        return FileUtils.listFiles(directory, TrueFileFilter.INSTANCE, TrueFileFilter.INSTANCE);
     }
 
-    private Asset<File> getAssetFromFS(String path) {
-        if (directory == null) {
+    /**
+     * Creates the asset of a file from the asset directory.
+     *
+     * @param file the file
+     * @return the asset, {@code null} if the file is not in the asset directory or is hidden
+     */
+    private IndexedAsset<File> fileAsset(File file) {
+        String path = getPathOfFile(file);
+        if (path == null) {
             return null;
         }
-        File file = new File(directory, path);
-        if (!file.exists()) {
-            return null;
+        long lastModified = file.lastModified();
+        IndexedAsset<File> asset = new IndexedAsset<>(root + "/" + path, file, file.getAbsolutePath(), lastModified,
+                CacheUtils.computeEtag(lastModified, configuration, crypto), file.length(), -1);
+        for (String[] variant : CacheUtils.VARIANTS) {
+            asset.setVariant(variant[0], CacheUtils.getVariantFile(file, variant[1]));
         }
-        return new DefaultAsset<>(root + "/" + path, file, file.getAbsolutePath(), file.lastModified(),
-                CacheUtils.computeEtag(file.lastModified(), configuration, crypto));
+        return asset;
+    }
+
+    private void indexFile(File file) {
+        IndexedAsset<File> asset = fileAsset(file);
+        if (asset == null) {
+            return;
+        }
+        String path = asset.getPath().substring(root.length() + 1);
+        index.putFileAsset(path, asset);
+        linkFileVariant(path, file, true);
+        fingerprints.evict(asset.getPath());
     }
 
     /**
-     * @return the list of provided assets.
+     * If the given file is a precompressed variant ({@literal .br} or {@literal .gz} file) of an indexed asset,
+     * links it to (or unlinks it from) this asset.
+     *
+     * @param path the path of the file
+     * @param file the file
+     * @param add  {@code true} if the file was created or updated, {@code false} if it was deleted
      */
-    @Override
-    public Collection<Asset<?>> assets() {
-        Map<String, Asset<?>> map = new HashMap<>();
-        if (directory != null && directory.isDirectory()) {
-            // First insert the FS assets
-            // For this iterate over the file present on the file system.
-            Collection<File> files = FileUtils.listFiles(directory, TrueFileFilter.INSTANCE, TrueFileFilter.INSTANCE);
-            for (File file : files) {
-                if (file.getName().startsWith(".")) {
-                    // Skip file starting with . - there are hidden.
-                    continue;
-                }
-                if (file.getName().startsWith(".")) {
-                    // Skip file starting with . - there are hidden.
-                    continue;
-                }
-
-                // The path is computed as follows:
-                // root (ending with /) and the path of the file relative to the directory. As these path may contain
-                // \ on Windows we replace them by /.
-                String path = root
-                        + file.getAbsolutePath().substring(directory.getAbsolutePath().length()).replace("\\", "/");
-                // TODO Do we really need computing the ETAG here ?
-                map.put(path, new DefaultAsset<>(path, file, file.getAbsolutePath(), file.lastModified(), null));
+    private void linkFileVariant(String path, File file, boolean add) {
+        for (String[] variant : CacheUtils.VARIANTS) {
+            if (!path.endsWith(variant[1])) {
+                continue;
+            }
+            IndexedAsset<?> base = index.get(path.substring(0, path.length() - variant[1].length()));
+            if (base == null || !(base.getContent() instanceof File)) {
+                continue;
+            }
+            if (add) {
+                base.setVariant(variant[0], CacheUtils.getVariantFile((File) base.getContent(), variant[1]));
+            } else if (file.equals(base.getVariant(variant[0]))) {
+                base.setVariant(variant[0], null);
             }
         }
+    }
 
-        if (!manageAssetsFromBundles) {
-            return map.values();
+    private Map<String, IndexedAsset<?>> indexBundle(Bundle bundle) {
+        Enumeration<URL> urls = bundle.findEntries(pathInBundles, "*", true);
+        if (urls == null) {
+            return null;
         }
-
-        // No add the bundle things.
-        Bundle[] bundles = context.getBundles();
-        // Skip bundle 0
-        for (int i = 1; i < bundles.length; i++) {
-            // Remove the last "/" - we are sure to have one.
-            URL root = bundles[i].getEntry(pathInBundles.substring(0, pathInBundles.length() - 1));
-            Enumeration<URL> urls = bundles[i].findEntries(pathInBundles, "*", true);
-
-            if (urls != null) {
-                while (urls.hasMoreElements()) {
-                    URL url = urls.nextElement();
-                    String path = url.toExternalForm().substring(root.toExternalForm().length());
-                    if (path.startsWith("/")) {
-                        path = this.root + path;
-                    } else {
-                        path = this.root + "/" + path;
-                    }
-                    if (!map.containsKey(path)) {
-                        // We should not replace assets overridden by files.
-                        map.put(path, new DefaultAsset<>(path, url, url.toExternalForm(),
-                                bundles[i].getLastModified(), null));
+        Map<String, IndexedAsset<?>> assets = new HashMap<>();
+        long lastModified = bundle.getLastModified();
+        String etag = CacheUtils.computeEtag(lastModified, configuration, crypto);
+        while (urls.hasMoreElements()) {
+            URL url = urls.nextElement();
+            String path = url.getPath();
+            if (path.endsWith("/") || !path.startsWith(pathInBundles)) {
+                // Directory.
+                continue;
+            }
+            path = path.substring(pathInBundles.length());
+            IndexedAsset<URL> asset = new IndexedAsset<>(root + "/" + path, url, bundle.getSymbolicName(),
+                    lastModified, etag, -1, bundle.getBundleId());
+            assets.put(path, asset);
+            index.putBundleAsset(path, asset);
+        }
+        // Link the precompressed variants.
+        for (Map.Entry<String, IndexedAsset<?>> entry : assets.entrySet()) {
+            for (String[] variant : CacheUtils.VARIANTS) {
+                String path = entry.getKey();
+                if (path.endsWith(variant[1])) {
+                    IndexedAsset<?> base = assets.get(path.substring(0, path.length() - variant[1].length()));
+                    if (base != null) {
+                        base.setVariant(variant[0], entry.getValue().getContent());
                     }
                 }
             }
         }
+        return assets;
+    }
 
-        return map.values();
+    /**
+     * @return the list of provided assets.
+     */
+    @Override
+    public Collection<Asset<?>> assets() {
+        if (indexFiles) {
+            return index.all();
+        }
+        Map<String, Asset<?>> all = new LinkedHashMap<>();
+        for (Asset<?> asset : index.all()) {
+            all.put(asset.getPath(), asset);
+        }
+        for (File file : listFiles()) {
+            IndexedAsset<File> asset = fileAsset(file);
+            if (asset != null) {
+                all.put(asset.getPath(), asset);
+            }
+        }
+        return new ArrayList<>(all.values());
     }
 
     /**
-     * Retrieves an asset.
+     * Retrieves an asset. Assets are retrieved from the index, which is authoritative: unknown paths are not looked
+     * up on the file system. When the files of the asset directory are not indexed (no watcher), they are read from
+     * the file system, and take precedence over the assets from bundles.
      *
      * @param path the asset path
      * @return the Asset object, or {@literal null} if the current provider can't serve this asset.
      */
     @Override
     public Asset<?> assetAt(String path) {
-        Asset<?> asset = getAssetFromFS(path);
-        if (asset == null) {
-            asset = getAssetFromBundle(path);
+        if (path == null) {
+            return null;
+        }
+        if (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        if (!indexFiles && directory != null) {
+            File file = new File(directory, path);
+            if (file.isFile()) {
+                IndexedAsset<File> asset = fileAsset(file);
+                if (asset != null) {
+                    return asset;
+                }
+            }
+        }
+        return index.get(path);
+    }
+
+    /**
+     * Deletes the compressed version and forgets the fingerprint of the asset having the given path.
+     *
+     * @param path the path of the asset, relative to the root url
+     */
+    private void invalidate(String path) {
+        AssetCompressor current = compressor;
+        if (current != null) {
+            current.invalidate(root + "/" + path);
+        }
+        fingerprints.evict(root + "/" + path);
+    }
+
+    /**
+     * The deployer tracking the files of the asset directory.
+     */
+    private class AssetDeployer extends AbstractDeployer {
+
+        @Override
+        public boolean accept(File file) {
+            return getPathOfFile(file) != null;
+        }
+
+        @Override
+        public void onFileCreate(File file) {
+            indexFile(file);
+        }
+
+        @Override
+        public void onFileChange(File file) {
+            indexFile(file);
+        }
+
+        @Override
+        public void onFileDelete(File file) {
+            String path = getPathOfFile(file);
+            if (path != null) {
+                index.removeFileAsset(path);
+                linkFileVariant(path, file, false);
+                invalidate(path);
+            }
+        }
+    }
+
+    /**
+     * The bundle tracker indexing the assets embedded in bundles.
+     */
+    private class BundleAssetTracker implements BundleTrackerCustomizer<Map<String, IndexedAsset<?>>> {
+
+        @Override
+        public Map<String, IndexedAsset<?>> addingBundle(Bundle bundle, BundleEvent event) {
+            if (bundle.getBundleId() == 0) {
+                // Skip bundle 0 as it cannot contain assets
+                return null;
+            }
+            return indexBundle(bundle);
+        }
+
+        @Override
+        public void modifiedBundle(Bundle bundle, BundleEvent event, Map<String, IndexedAsset<?>> assets) {
+            // Nothing to do, updates are notified as removal followed by addition.
+        }
+
+        @Override
+        public void removedBundle(Bundle bundle, BundleEvent event, Map<String, IndexedAsset<?>> assets) {
+            index.removeBundleAssets(bundle.getBundleId(), assets.keySet());
+            for (String path : assets.keySet()) {
+                invalidate(path);
+            }
+            // Other bundles may provide the removed assets.
+            BundleTracker<Map<String, IndexedAsset<?>>> current = tracker;
+            if (current == null) {
+                return;
+            }
+            for (Map.Entry<Bundle, Map<String, IndexedAsset<?>>> entry : current.getTracked().entrySet()) {
+                if (entry.getKey().getBundleId() == bundle.getBundleId()) {
+                    continue;
+                }
+                for (String path : assets.keySet()) {
+                    IndexedAsset<?> asset = entry.getValue().get(path);
+                    if (asset != null) {
+                        index.putBundleAsset(path, asset);
+                    }
+                }
+            }
         }
-        return asset;
     }
 }
@@ -0,0 +1,351 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.resources;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wisdom.api.asset.Asset;
+import org.wisdom.api.http.HeaderNames;
+import org.wisdom.api.http.Result;
+
+import java.io.*;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Computes and resolves fingerprinted asset urls. A fingerprinted url contains a hash of the asset content before
+ * the extension, such as {@literal /assets/app.3f9ac1e2b4.js} for {@literal /assets/app.js}. As the url changes
+ * when the content changes, responses to fingerprinted urls can be cached forever by browsers.
+ * <p>
+ * Hashes are computed once per asset (and recomputed when the asset is modified), on an executor: requests only
+ * compare against the stored hashes. Until the hash of an asset is available, its plain url is returned, and it is
+ * served without the immutable cache header. Each asset provider owns an instance, and evicts the hashes of the
+ * assets that are modified or removed (see {@link #evict(String)}).
+ */
+public final class AssetFingerprints {
+
+    /**
+     * The configuration key enabling the fingerprinted urls (returned by {@link AssetsSingleton}). Fingerprinted
+     * urls are served even if this option is disabled.
+     */
+    public static final String HTTP_FINGERPRINT_ASSETS = "http.fingerprintAssets";
+
+    /**
+     * Fingerprinted urls are enabled by default.
+     */
+    public static final boolean HTTP_FINGERPRINT_ASSETS_DEFAULT = true;
+
+    /**
+     * The {@literal Cache-Control} header value sent with assets requested using their fingerprinted url.
+     */
+    public static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    /**
+     * The number of hexadecimal characters of the hash inserted in the urls.
+     */
+    static final int HASH_LENGTH = 10;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AssetFingerprints.class);
+
+    private static final Pattern FINGERPRINTED_PATH = Pattern.compile("(.+)\\.([0-9a-f]{" + HASH_LENGTH + "})" +
+            "((\\.[^./]+)?)");
+
+    /**
+     * Asset path -> hash of the content.
+     */
+    private final ConcurrentMap<String, Fingerprint> fingerprints = new ConcurrentHashMap<>();
+
+    /**
+     * The paths of the assets whose hash is being computed.
+     */
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Gets the fingerprinted url of the given asset. If the hash of the asset is not available yet, its computation
+     * is scheduled.
+     *
+     * @param asset    the asset
+     * @param executor the executor computing the hash
+     * @return the fingerprinted url, the path of the asset if its hash is not available (yet)
+     */
+    public String getFingerprintedPath(Asset<?> asset, Executor executor) {
+        String hash = lookup(asset, executor);
+        if (hash == null) {
+            return asset.getPath();
+        }
+        return fingerprint(asset.getPath(), hash);
+    }
+
+    /**
+     * Inserts the hash in the given path, before the extension of the last segment.
+     *
+     * @param path the path
+     * @param hash the hash
+     * @return the fingerprinted path
+     */
+    static String fingerprint(String path, String hash) {
+        int slash = path.lastIndexOf('/');
+        int dot = path.lastIndexOf('.');
+        if (dot <= slash + 1) {
+            // No extension (or hidden file).
+            return path + "." + hash;
+        }
+        return path.substring(0, dot) + "." + hash + path.substring(dot);
+    }
+
+    /**
+     * Parses a fingerprinted path.
+     *
+     * @param path the path
+     * @return an array containing the path without the fingerprint and the hash, {@code null} if the path is not
+     * fingerprinted
+     */
+    static String[] parse(String path) {
+        if (path == null) {
+            return null;
+        }
+        Matcher matcher = FINGERPRINTED_PATH.matcher(path);
+        if (!matcher.matches() || matcher.group(1).endsWith("/")) {
+            return null;
+        }
+        return new String[]{matcher.group(1) + matcher.group(3), matcher.group(2)};
+    }
+
+    /**
+     * Checks whether the given hash matches the stored hash of the asset. If the hash of the asset is not available
+     * yet, its computation is scheduled.
+     *
+     * @param asset    the asset
+     * @param hash     the hash extracted from a fingerprinted url
+     * @param executor the executor computing the hash
+     * @return {@code true} if the hash matches the asset's content
+     */
+    boolean matches(Asset<?> asset, String hash, Executor executor) {
+        return asset != null && hash.equals(lookup(asset, executor));
+    }
+
+    /**
+     * Finds the asset requested using the given path, which may be a fingerprinted path. The fingerprint is ignored
+     * if it does not match the current content of the asset, or if the hash of the asset is not available yet.
+     *
+     * @param path     the requested path
+     * @param lookup   the function retrieving the asset having a given path
+     * @param executor the executor computing the hashes
+     * @return the resolution, {@code null} if there are no asset matching the path
+     */
+    Resolution resolve(String path, Function<String, Asset<?>> lookup, Executor executor) {
+        Asset<?> asset = lookup.apply(path);
+        if (asset != null) {
+            return new Resolution(asset, false);
+        }
+        String[] fingerprinted = parse(path);
+        if (fingerprinted == null) {
+            return null;
+        }
+        asset = lookup.apply(fingerprinted[0]);
+        return asset == null ? null : new Resolution(asset, matches(asset, fingerprinted[1], executor));
+    }
+
+    /**
+     * Forgets the hash of the asset having the given path, because it was modified or removed.
+     *
+     * @param path the path of the asset
+     */
+    void evict(String path) {
+        fingerprints.remove(path);
+    }
+
+    /**
+     * Forgets the hashes of the assets whose path starts with the given prefix.
+     *
+     * @param prefix the prefix
+     */
+    void evictAll(String prefix) {
+        fingerprints.keySet().removeIf(path -> path.startsWith(prefix));
+    }
+
+    /**
+     * Forgets all the hashes.
+     */
+    void clear() {
+        fingerprints.clear();
+    }
+
+    /**
+     * @return the number of hashes kept.
+     */
+    int size() {
+        return fingerprints.size();
+    }
+
+    /**
+     * Sets the {@literal Cache-Control} header of the result to {@link #IMMUTABLE_CACHE_CONTROL}.
+     *
+     * @param result the result
+     * @return the result
+     */
+    static Result immutable(Result result) {
+        return result.with(HeaderNames.CACHE_CONTROL, IMMUTABLE_CACHE_CONTROL);
+    }
+
+    /**
+     * Gets the stored hash of the given asset, without reading its content. The hashes are stamped with the last
+     * modification date of the asset, kept up to date by the providers.
+     *
+     * @param asset the asset
+     * @return the hash, {@code null} if not computed yet
+     */
+    String stored(Asset<?> asset) {
+        Fingerprint fingerprint = fingerprints.get(asset.getPath());
+        if (fingerprint != null && fingerprint.stamp == asset.getLastModified()) {
+            return fingerprint.hash;
+        }
+        return null;
+    }
+
+    /**
+     * Gets the stored hash of the given asset, and schedules its computation if it is not available.
+     */
+    private String lookup(final Asset<?> asset, Executor executor) {
+        String hash = stored(asset);
+        if (hash != null || executor == null || !pending.add(asset.getPath())) {
+            return hash;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    hash(asset);
+                } finally {
+                    pending.remove(asset.getPath());
+                }
+            });
+        } catch (RejectedExecutionException e) { //NOSONAR
+            // Retried on the next request.
+            pending.remove(asset.getPath());
+        }
+        // Available if the executor runs the tasks directly.
+        return stored(asset);
+    }
+
+    /**
+     * Computes and stores the hash of the content of the given asset, unless it is already stored.
+     *
+     * @param asset the asset
+     * @return the first {@link #HASH_LENGTH} characters of the hexadecimal SHA-1 hash of the content, {@code null}
+     * if the content cannot be read
+     */
+    String hash(Asset<?> asset) {
+        String hash = stored(asset);
+        if (hash != null) {
+            return hash;
+        }
+        try {
+            hash = digest(asset.getContent());
+        } catch (IOException e) {
+            LOGGER.warn("Cannot compute the fingerprint of the asset {}", asset.getPath(), e);
+            return null;
+        }
+        if (hash != null) {
+            fingerprints.put(asset.getPath(), new Fingerprint(asset.getLastModified(), hash));
+        }
+        return hash;
+    }
+
+    private static String digest(Object content) throws IOException {
+        InputStream stream;
+        if (content instanceof File) {
+            stream = new FileInputStream((File) content);
+        } else if (content instanceof URL) {
+            stream = ((URL) content).openStream();
+        } else if (content instanceof byte[]) {
+            stream = new ByteArrayInputStream((byte[]) content);
+        } else {
+            return null;
+        }
+        try (InputStream in = stream) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+                if (hex.length() >= HASH_LENGTH) {
+                    break;
+                }
+            }
+            return hex.substring(0, HASH_LENGTH);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not supported", e);
+        }
+    }
+
+    /**
+     * The asset matching a requested path.
+     */
+    static final class Resolution {
+        private final Asset<?> asset;
+        private final boolean immutable;
+
+        private Resolution(Asset<?> asset, boolean immutable) {
+            this.asset = asset;
+            this.immutable = immutable;
+        }
+
+        /**
+         * @return the asset.
+         */
+        Asset<?> getAsset() {
+            return asset;
+        }
+
+        /**
+         * Completes the result serving the asset: when the asset was requested using a fingerprinted path matching
+         * its content, the result can be cached forever.
+         *
+         * @param result the result serving the asset
+         * @return the result
+         */
+        Result complete(Result result) {
+            return immutable ? immutable(result) : result;
+        }
+    }
+
+    private static class Fingerprint {
+        private final long stamp;
+        private final String hash;
+
+        private Fingerprint(long stamp, String hash) {
+            this.stamp = stamp;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.resources;
+
+import org.wisdom.api.asset.Asset;
+import org.wisdom.api.asset.DefaultAsset;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An in-memory index of assets, mapping the path of the asset (relative to the root url) to the resolved asset.
+ * <p>
+ * Assets coming from the file system take precedence over assets embedded in bundles. When several bundles
+ * contain the same asset, the bundle with the lowest id wins. The index is thread-safe, lookups are a single hash
+ * lookup (two at most for bundle assets).
+ */
+public class AssetIndex {
+
+    private final ConcurrentMap<String, IndexedAsset<?>> files = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, IndexedAsset<?>> bundles = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the asset at the given path.
+     *
+     * @param path the path, relative to the root url, without leading {@literal /}
+     * @return the asset, {@code null} if not indexed
+     */
+    public IndexedAsset<?> get(String path) {
+        IndexedAsset<?> asset = files.get(path);
+        if (asset == null) {
+            asset = bundles.get(path);
+        }
+        return asset;
+    }
+
+    /**
+     * Indexes an asset from the file system, replacing the previous one (if any).
+     *
+     * @param path  the path, relative to the root url
+     * @param asset the asset
+     */
+    public void putFileAsset(String path, IndexedAsset<?> asset) {
+        files.put(path, asset);
+    }
+
+    /**
+     * Removes an asset from the file system.
+     *
+     * @param path the path, relative to the root url
+     */
+    public void removeFileAsset(String path) {
+        files.remove(path);
+    }
+
+    /**
+     * Indexes an asset embedded in a bundle. If another bundle with a lower id already provides the same path, the
+     * asset is ignored.
+     *
+     * @param path  the path, relative to the root url
+     * @param asset the asset
+     */
+    public void putBundleAsset(String path, IndexedAsset<?> asset) {
+        bundles.merge(path, asset, (current, candidate) ->
+                current.getBundleId() <= candidate.getBundleId() ? current : candidate);
+    }
+
+    /**
+     * Removes the assets provided by the given bundle.
+     *
+     * @param bundleId the bundle id
+     * @param paths    the paths provided by the bundle
+     */
+    public void removeBundleAssets(long bundleId, Collection<String> paths) {
+        for (String path : paths) {
+            bundles.computeIfPresent(path, (key, current) -> current.getBundleId() == bundleId ? null : current);
+        }
+    }
+
+    /**
+     * @return the indexed assets (without the bundle assets hidden by file assets)
+     */
+    public Collection<Asset<?>> all() {
+        Map<String, Asset<?>> all = new LinkedHashMap<>(bundles);
+        all.putAll(files);
+        return new ArrayList<>(all.values());
+    }
+
+    /**
+     * @return the number of indexed assets (including the bundle assets hidden by file assets)
+     */
+    public int size() {
+        return files.size() + bundles.size();
+    }
+
+    /**
+     * Clears the index.
+     */
+    public void clear() {
+        files.clear();
+        bundles.clear();
+    }
+
+    /**
+     * An indexed asset. In addition to the {@link DefaultAsset} data, it stores the size of the asset, the id of
+     * the bundle containing it, and its precompressed variants.
+     *
+     * @param <T> the type of content
+     */
+    public static class IndexedAsset<T> extends DefaultAsset<T> {
+
+        private final long size;
+
+        private final long bundleId;
+
+        /**
+         * The precompressed variants (file or url) of the asset, indexed by content encoding.
+         */
+        private final ConcurrentMap<String, Object> variants = new ConcurrentHashMap<>(2);
+
+        /**
+         * Creates a new indexed asset.
+         *
+         * @param path         the path
+         * @param content      the content
+         * @param source       the source
+         * @param lastModified the last modification date
+         * @param etag         the etag (may be {@code null})
+         * @param size         the size in bytes, {@literal -1} if unknown
+         * @param bundleId     the id of the bundle containing the asset, {@literal -1} for files
+         */
+        public IndexedAsset(String path, T content, String source, long lastModified, String etag, long size,
+                            long bundleId) {
+            super(path, content, source, lastModified, etag);
+            this.size = size;
+            this.bundleId = bundleId;
+        }
+
+        /**
+         * @return the size in bytes, {@literal -1} if unknown.
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * @return the id of the bundle containing the asset, {@literal -1} for files.
+         */
+        public long getBundleId() {
+            return bundleId;
+        }
+
+        /**
+         * Gets the precompressed variant of the asset for the given content encoding.
+         *
+         * @param encoding the encoding ({@literal gzip} or {@literal br})
+         * @return the file or url of the variant, {@code null} if none
+         */
+        public Object getVariant(String encoding) {
+            return variants.get(encoding);
+        }
+
+        /**
+         * Sets the precompressed variant of the asset for the given content encoding.
+         *
+         * @param encoding the encoding ({@literal gzip} or {@literal br})
+         * @param content  the file or url of the variant, {@code null} to remove the variant
+         */
+        public void setVariant(String encoding, Object content) {
+            if (content == null) {
+                variants.remove(encoding);
+            } else {
+                variants.put(encoding, content);
+            }
+        }
+
+        /**
+         * @return whether or not the asset has precompressed variants.
+         */
+        public boolean hasVariants() {
+            return !variants.isEmpty();
+        }
+    }
+}
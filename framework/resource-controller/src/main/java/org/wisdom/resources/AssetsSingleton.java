@@ -136,4 +136,27 @@ public class AssetsSingleton extends DefaultController implements Assets {
         return assets();
 
     }
+
+    /**
+     * Gets the fingerprinted url of the given asset, unless disabled using
+     * {@link AssetFingerprints#HTTP_FINGERPRINT_ASSETS}. The url is computed by the provider serving the asset, which
+     * serves it with a far-future {@literal Cache-Control} header.
+     *
+     * @param asset the asset
+     * @return the url to retrieve the asset
+     */
+    @Override
+    public String getFingerprintedPath(Asset<?> asset) {
+        if (!configuration.getBooleanWithDefault(AssetFingerprints.HTTP_FINGERPRINT_ASSETS,
+                AssetFingerprints.HTTP_FINGERPRINT_ASSETS_DEFAULT)) {
+            return asset.getPath();
+        }
+        for (AssetProvider provider : providers) {
+            String path = provider.getFingerprintedPath(asset);
+            if (path != null) {
+                return path;
+            }
+        }
+        return asset.getPath();
+    }
 }
@@ -52,6 +52,32 @@ public class CacheUtils {
      */
     public static final boolean HTTP_USE_ETAG_DEFAULT = true;
 
+    /**
+     * Enable / disable the lazy compression of assets (the compressed assets are cached on disk).
+     */
+    public static final String HTTP_COMPRESS_ASSETS = "http.compressAssets";
+
+    /**
+     * Default value / lazy compression enabled by default.
+     */
+    public static final boolean HTTP_COMPRESS_ASSETS_DEFAULT = true;
+
+    /**
+     * The gzip content encoding.
+     */
+    public static final String GZIP = "gzip";
+
+    /**
+     * The brotli content encoding.
+     */
+    public static final String BROTLI = "br";
+
+    /**
+     * The supported precompressed variants: the content encoding and the extension of the variant file, in
+     * preference order.
+     */
+    static final String[][] VARIANTS = {{BROTLI, ".br"}, {GZIP, ".gz"}};
+
     /**
      * Add the last modified header to the given result. This method handle the HTTP Date format.
      *
@@ -180,22 +206,144 @@ public class CacheUtils {
         }
     }
 
+    /**
+     * Computes the result to send the given asset. Cache headers are automatically set by this method.
+     * <p>
+     * If the asset has a precompressed variant (a sibling {@literal .br} or {@literal .gz} file) accepted by the
+     * client, the variant is sent with the {@literal Content-Encoding} header set, and the on-the-fly compression
+     * disabled. The ETag of the variant is the ETag of the asset suffixed by the encoding. When the asset has
+     * variants, the {@literal Vary} header is set.
+     *
+     * @param context       the context
+     * @param asset         the asset
+     * @param configuration the application configuration
+     * @return the result, it can be a NOT_MODIFIED if the asset was not modified since the last request,
+     * or an OK result with the cache headers set.
+     */
     public static Result fromAsset(Context context, Asset asset, ApplicationConfiguration configuration) {
-        if (CacheUtils.isNotModified(context, asset.getLastModified(), asset.getEtag())) {
-            return new Result(Status.NOT_MODIFIED);
+        // Select the variant to send.
+        String acceptEncoding = context.header(HeaderNames.ACCEPT_ENCODING);
+        boolean hasVariants = false;
+        String encoding = null;
+        Object content = asset.getContent();
+        for (String[] variant : VARIANTS) {
+            Object candidate = getVariant(asset, variant[0], variant[1]);
+            if (candidate != null) {
+                hasVariants = true;
+                if (encoding == null && isEncodingAccepted(acceptEncoding, variant[0])) {
+                    encoding = variant[0];
+                    content = candidate;
+                }
+            }
+        }
+        String etag = asset.getEtag();
+        if (etag != null && encoding != null) {
+            etag = etag + "-" + encoding;
+        }
+
+        Result result;
+        if (CacheUtils.isNotModified(context, asset.getLastModified(), etag)) {
+            result = new Result(Status.NOT_MODIFIED);
         } else {
-            Result result;
-            if (asset.getContent() instanceof File) {
-                result = Results.ok((File) asset.getContent());
-            } else if (asset.getContent() instanceof URL) {
-                result = Results.ok((URL) asset.getContent());
+            if (content instanceof File) {
+                result = Results.ok((File) content);
+            } else if (content instanceof URL) {
+                result = Results.ok((URL) content);
+            } else if (content instanceof byte[]) {
+                // In-memory content (such as the entries of WebJars served from jar files), the mime type is
+                // computed from the asset path.
+                result = Results.ok((byte[]) content).as(MimeTypes.getMimeTypeForFile(new File(asset.getPath())));
             } else {
                 // Use object, probably won't work.
-                result = Results.ok(asset.getContent());
+                result = Results.ok(content);
+            }
+            if (encoding != null) {
+                // The content type is the one of the asset, not the one of the compressed file.
+                if (asset.getContent() instanceof File) {
+                    result.as(MimeTypes.getMimeTypeForFile((File) asset.getContent()));
+                } else if (asset.getContent() instanceof URL) {
+                    result.as(MimeTypes.getMimeTypeForFile((URL) asset.getContent()));
+                }
+                result.with(HeaderNames.CONTENT_ENCODING, encoding).withoutCompression();
             }
             addLastModified(result, asset.getLastModified());
-            addCacheControlAndEtagToResult(result, asset.getEtag(), configuration);
-            return result;
+            addCacheControlAndEtagToResult(result, etag, configuration);
+        }
+        if (hasVariants) {
+            result.with(HeaderNames.VARY, HeaderNames.ACCEPT_ENCODING);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the precompressed variant of the given asset. Indexed assets know their variants. For other assets
+     * backed by a file, a sibling file (with the given extension) is looked up. It must not be older than the
+     * asset.
+     *
+     * @param asset     the asset
+     * @param encoding  the encoding
+     * @param extension the extension of the variant file
+     * @return the variant (file or url), {@code null} if none
+     */
+    static Object getVariant(Asset asset, String encoding, String extension) {
+        if (asset instanceof AssetIndex.IndexedAsset) {
+            return ((AssetIndex.IndexedAsset) asset).getVariant(encoding);
+        }
+        if (asset.getContent() instanceof File) {
+            return getVariantFile((File) asset.getContent(), extension);
+        }
+        return null;
+    }
+
+    /**
+     * Gets the precompressed variant of the given file.
+     *
+     * @param file      the file
+     * @param extension the extension of the variant file
+     * @return the variant, {@code null} if there are no up to date variant
+     */
+    static File getVariantFile(File file, String extension) {
+        File variant = new File(file.getParentFile(), file.getName() + extension);
+        if (variant.isFile() && variant.lastModified() >= file.lastModified()) {
+            return variant;
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether the given content encoding is accepted according to the given {@literal Accept-Encoding}
+     * header. Encodings with a quality of {@literal 0} are refused.
+     *
+     * @param acceptEncoding the value of the {@literal Accept-Encoding} header, may be {@code null}
+     * @param encoding       the encoding
+     * @return {@code true} if the encoding is accepted
+     */
+    public static boolean isEncodingAccepted(String acceptEncoding, String encoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean wildcard = false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] segments = part.split(";");
+            String name = segments[0].trim();
+            boolean refused = false;
+            for (int i = 1; i < segments.length; i++) {
+                String parameter = segments[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        refused = Double.parseDouble(parameter.substring(2).trim()) <= 0;
+                    } catch (NumberFormatException e) { //NOSONAR
+                        refused = true;
+                    }
+                }
+            }
+            if (name.equalsIgnoreCase(encoding)) {
+                return !refused;
+            }
+            if ("*".equals(name)) {
+                wildcard = !refused;
+            }
         }
+        return wildcard;
     }
 }
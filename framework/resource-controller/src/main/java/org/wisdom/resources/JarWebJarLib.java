@@ -0,0 +1,214 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.resources;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wisdom.api.configuration.ApplicationConfiguration;
+import org.wisdom.api.crypto.Crypto;
+import org.wisdom.api.http.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Represents and serves a web jar library contained in a jar file, without unpacking it.
+ * <p>
+ * The jar file is kept open while the library is deployed, and the entries of the library are indexed on creation.
+ * The content of an entry is read (and decompressed) on first access, and then served from memory. The cached
+ * contents are bounded to {@link #MAX_CACHED_BYTES} bytes, the least recently used entries being evicted, and the
+ * entries larger than {@link #MAX_CACHED_ENTRY_SIZE} are read from the jar file on every access.
+ */
+class JarWebJarLib extends WebJarLib {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JarWebJarLib.class);
+
+    /**
+     * The maximum number of bytes cached per library.
+     */
+    static final int MAX_CACHED_BYTES = 4 * 1024 * 1024;
+
+    /**
+     * The size above which an entry is not cached.
+     */
+    static final int MAX_CACHED_ENTRY_SIZE = 256 * 1024;
+
+    /**
+     * The jar file containing the library.
+     */
+    public final File file;
+
+    private final JarFile jar;
+
+    private final long lastModified;
+
+    private final Map<String, JarEntry> index = new TreeMap<>();
+
+    /**
+     * The cached contents, in access order. Guarded by itself.
+     */
+    private final LinkedHashMap<String, byte[]> contents = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The number of cached bytes. Guarded by {@link #contents}.
+     */
+    private int cachedBytes;
+
+    private volatile boolean closed;
+
+    /**
+     * Creates a new instance of {@link JarWebJarLib}.
+     *
+     * @param name    the name
+     * @param version the version
+     * @param file    the jar file
+     * @param jar     the opened jar file, closed by {@link #close()}
+     */
+    JarWebJarLib(String name, String version, File file, JarFile jar) {
+        super(name, version);
+        this.file = file;
+        this.jar = jar;
+        this.lastModified = file.lastModified();
+        index();
+    }
+
+    @Override
+    public Collection<String> names() {
+        return index.keySet();
+    }
+
+    @Override
+    public Result get(String path, Context context, ApplicationConfiguration configuration, Crypto crypto) {
+        byte[] content = get(path);
+        if (content == null) {
+            return Results.notFound();
+        }
+        String etag = CacheUtils.computeEtag(lastModified, configuration, crypto);
+        if (CacheUtils.isNotModified(context, lastModified, etag)) {
+            return new Result(Status.NOT_MODIFIED);
+        }
+        Result result = Results.ok(content).as(MimeTypes.getMimeTypeForFile(new File(path)));
+        CacheUtils.addLastModified(result, lastModified);
+        CacheUtils.addCacheControlAndEtagToResult(result, etag, configuration);
+        return result;
+    }
+
+    /**
+     * Gets the content of the given entry. It is read from the jar file on first access, and when it is not cached
+     * anymore.
+     *
+     * @param path the resource's path
+     * @return the content, {@code null} if the library does not contain the entry or if it cannot be read
+     */
+    @Override
+    public byte[] get(String path) {
+        final JarEntry entry = index.get(path);
+        if (entry == null || closed) {
+            return null;
+        }
+        synchronized (contents) {
+            byte[] content = contents.get(path);
+            if (content != null) {
+                return content;
+            }
+        }
+
+        // Read outside of the lock, concurrent misses may read the entry twice.
+        byte[] content;
+        try (InputStream stream = jar.getInputStream(entry)) {
+            content = IOUtils.toByteArray(stream);
+        } catch (IOException | IllegalStateException e) {
+            // IllegalStateException is thrown when the jar file has been closed in the meantime.
+            LOGGER.error("Cannot read {} from {}", entry.getName(), file.getName(), e);
+            return null;
+        }
+        if (content.length <= MAX_CACHED_ENTRY_SIZE && !closed) {
+            cache(path, content);
+        }
+        return content;
+    }
+
+    private void cache(String path, byte[] content) {
+        synchronized (contents) {
+            byte[] previous = contents.put(path, content);
+            cachedBytes += content.length - (previous == null ? 0 : previous.length);
+            Iterator<byte[]> iterator = contents.values().iterator();
+            while (cachedBytes > MAX_CACHED_BYTES && iterator.hasNext()) {
+                cachedBytes -= iterator.next().length;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the number of cached bytes.
+     */
+    int getCachedBytes() {
+        synchronized (contents) {
+            return cachedBytes;
+        }
+    }
+
+    @Override
+    public long lastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Releases the jar file and the cached contents.
+     */
+    public void close() {
+        closed = true;
+        synchronized (contents) {
+            contents.clear();
+            cachedBytes = 0;
+        }
+        IOUtils.closeQuietly(jar);
+    }
+
+    private void index() {
+        String root = WebJarController.WEBJAR_LOCATION + name + "/" + version + "/";
+        // If the jar is named component-version.jar (eg: polymer-0.5.4.jar) and contains an inner folder named
+        // after the component ("polymer" in the example), only this folder is indexed.
+        String base = root;
+        int dash = file.getName().lastIndexOf('-');
+        if (dash > 0 && jar.getEntry(root + file.getName().substring(0, dash) + "/") != null) {
+            base = root + file.getName().substring(0, dash) + "/";
+        }
+        LOGGER.debug("Indexing files for WebJar library {}-{} / {}", name, version, file.getName());
+        Enumeration<JarEntry> entries = jar.entries();
+        while (entries.hasMoreElements()) {
+            JarEntry entry = entries.nextElement();
+            if (!entry.isDirectory() && entry.getName().startsWith(base)) {
+                index.put(entry.getName().substring(root.length()), entry);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + '-' + file.getName();
+    }
+}
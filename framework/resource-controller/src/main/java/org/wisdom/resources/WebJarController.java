@@ -31,6 +31,7 @@ import org.wisdom.api.DefaultController;
 import org.wisdom.api.asset.Asset;
 import org.wisdom.api.asset.AssetProvider;
 import org.wisdom.api.asset.DefaultAsset;
+import org.wisdom.api.concurrent.ManagedExecutorService;
 import org.wisdom.api.configuration.ApplicationConfiguration;
 import org.wisdom.api.crypto.Crypto;
 import org.wisdom.api.http.HttpMethod;
@@ -42,6 +43,8 @@ import java.io.File;
 import java.io.FileFilter;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -95,18 +98,48 @@ public class WebJarController extends DefaultController implements BundleTracker
 
     private final BundleTracker<List<BundleWebJarLib>> tracker;
 
-    Set<WebJarLib> libraries = new TreeSet<>(new Comparator<WebJarLib>() {
+    /**
+     * Orders the libraries: the exploded ones first, then the ones served from jar files, and finally the ones
+     * embedded in bundles.
+     */
+    private static final Comparator<WebJarLib> LIBRARY_ORDER = new Comparator<WebJarLib>() {
         @Override
         public int compare(WebJarLib o1, WebJarLib o2) {
-            if (o1 instanceof FileWebJarLib && o2 instanceof BundleWebJarLib) {
-                return -1;
+            int diff = rank(o1) - rank(o2);
+            if (diff != 0) {
+                return diff;
             }
-            if (o1 instanceof BundleWebJarLib && o2 instanceof FileWebJarLib) {
+            return o1.toString().compareTo(o2.toString());
+        }
+
+        private int rank(WebJarLib lib) {
+            if (lib instanceof FileWebJarLib) {
+                return 0;
+            }
+            if (lib instanceof JarWebJarLib) {
                 return 1;
             }
-            return o1.toString().compareTo(o2.toString());
+            return 2;
         }
-    });
+    };
+
+    Set<WebJarLib> libraries = new TreeSet<>(LIBRARY_ORDER);
+
+    /**
+     * The libraries containing a path (relative to the library's root), sorted using {@link #LIBRARY_ORDER}. The
+     * lists are immutable and replaced on update (under the controller's lock), so lookups do not lock.
+     */
+    private final ConcurrentMap<String, List<WebJarLib>> pathIndex = new ConcurrentHashMap<>();
+
+    /**
+     * The libraries by name, sorted using {@link #LIBRARY_ORDER}. Managed as {@link #pathIndex}.
+     */
+    private final ConcurrentMap<String, List<WebJarLib>> nameIndex = new ConcurrentHashMap<>();
+
+    /**
+     * The hashes of the assets, used to resolve the fingerprinted urls. Evicted when the libraries leave.
+     */
+    private final AssetFingerprints fingerprints = new AssetFingerprints();
 
     @Requires
     Crypto crypto;
@@ -114,6 +147,12 @@ public class WebJarController extends DefaultController implements BundleTracker
     @Requires
     ApplicationConfiguration configuration;
 
+    /**
+     * The executor computing the fingerprints of the assets.
+     */
+    @Requires(filter = "(name=" + ManagedExecutorService.SYSTEM + ")")
+    ManagedExecutorService executor;
+
     /**
      * Constructor used for testing purpose only.
      *
@@ -170,7 +209,12 @@ public class WebJarController extends DefaultController implements BundleTracker
         if (tracker != null) {
             tracker.close();
         }
-        libraries.clear();
+        synchronized (this) {
+            libraries.clear();
+            pathIndex.clear();
+            nameIndex.clear();
+        }
+        fingerprints.clear();
     }
 
     private void buildFileIndex() {
@@ -206,6 +250,7 @@ public class WebJarController extends DefaultController implements BundleTracker
                     FileWebJarLib lib = new FileWebJarLib(library, version, ver);
                     logger().info("Exploded web jar libraries detected : {}", lib);
                     libraries.add(lib);
+                    index(lib);
                 }
             }
         }
@@ -225,23 +270,72 @@ public class WebJarController extends DefaultController implements BundleTracker
     }
 
     private List<WebJarLib> findLibsContaining(String path) {
-        List<WebJarLib> list = new ArrayList<>();
-        for (WebJarLib lib : libs()) {
-            if (lib.contains(path)) {
-                list.add(lib);
-            }
+        return lookup(pathIndex, path);
+    }
+
+    private List<WebJarLib> find(String name) {
+        return lookup(nameIndex, name);
+    }
+
+    private static List<WebJarLib> lookup(Map<String, List<WebJarLib>> index, String key) {
+        List<WebJarLib> list = index.get(key);
+        if (list == null) {
+            return Collections.emptyList();
         }
         return list;
     }
 
-    private List<WebJarLib> find(String name) {
-        List<WebJarLib> list = new ArrayList<>();
-        for (WebJarLib lib : libs()) {
-            if (lib.name.equals(name)) {
-                list.add(lib);
+    /**
+     * Adds the given library to the indexes. Must be called while holding the controller's lock.
+     *
+     * @param lib the library
+     */
+    private void index(WebJarLib lib) {
+        for (String path : lib.names()) {
+            pathIndex.put(path, with(pathIndex.get(path), lib));
+        }
+        nameIndex.put(lib.name, with(nameIndex.get(lib.name), lib));
+    }
+
+    /**
+     * Removes the given library from the indexes. Must be called while holding the controller's lock.
+     *
+     * @param lib the library
+     */
+    private void unindex(WebJarLib lib) {
+        for (String path : lib.names()) {
+            List<WebJarLib> list = without(pathIndex.get(path), lib);
+            if (list.isEmpty()) {
+                pathIndex.remove(path);
+            } else {
+                pathIndex.put(path, list);
             }
         }
-        return list;
+        List<WebJarLib> list = without(nameIndex.get(lib.name), lib);
+        if (list.isEmpty()) {
+            nameIndex.remove(lib.name);
+        } else {
+            nameIndex.put(lib.name, list);
+        }
+        fingerprints.evictAll("/libs/" + lib.name + "/" + lib.version + "/");
+    }
+
+    private static List<WebJarLib> with(List<WebJarLib> list, WebJarLib lib) {
+        List<WebJarLib> copy = list == null ? new ArrayList<WebJarLib>() : new ArrayList<>(list);
+        if (!copy.contains(lib)) {
+            copy.add(lib);
+            Collections.sort(copy, LIBRARY_ORDER);
+        }
+        return Collections.unmodifiableList(copy);
+    }
+
+    private static List<WebJarLib> without(List<WebJarLib> list, WebJarLib lib) {
+        if (list == null) {
+            return Collections.emptyList();
+        }
+        List<WebJarLib> copy = new ArrayList<>(list);
+        copy.remove(lib);
+        return Collections.unmodifiableList(copy);
     }
 
     /**
@@ -267,17 +361,30 @@ public class WebJarController extends DefaultController implements BundleTracker
             return badRequest();
         }
 
-        Asset<?> asset = assetAt(path);
-        if (asset == null) {
+        AssetFingerprints.Resolution resolution = fingerprints.resolve(path, this::assetAt, executor);
+        if (resolution == null) {
             return notFound();
         }
+        return resolution.complete(CacheUtils.fromAsset(context(), resolution.getAsset(), configuration));
+    }
 
-        return CacheUtils.fromAsset(context(), asset, configuration);
+    /**
+     * Gets the fingerprinted url of the given asset if it is embedded in a web jar.
+     *
+     * @param asset the asset
+     * @return the fingerprinted url, {@code null} if the asset is not served by this controller
+     */
+    @Override
+    public String getFingerprintedPath(Asset<?> asset) {
+        if (!asset.getPath().startsWith("/libs/")) {
+            return null;
+        }
+        return fingerprints.getFingerprintedPath(asset, executor);
     }
 
     private WebJarLib find(String name, String version) {
-        for (WebJarLib lib : libs()) {
-            if (lib.name.equals(name) && lib.version.equals(version)) {
+        for (WebJarLib lib : find(name)) {
+            if (lib.version.equals(version)) {
                 return lib;
             }
         }
@@ -326,7 +433,11 @@ public class WebJarController extends DefaultController implements BundleTracker
      */
     public void addWebJarLibs(Collection<? extends WebJarLib> list) {
         synchronized (this) {
-            libraries.addAll(list);
+            for (WebJarLib lib : list) {
+                if (libraries.add(lib)) {
+                    index(lib);
+                }
+            }
         }
     }
 
@@ -358,9 +469,17 @@ public class WebJarController extends DefaultController implements BundleTracker
         removeWebJarLibs(webJarLibs);
     }
 
+    /**
+     * Removes the given set of {@link WebJarLib} from the managed libraries.
+     * @param webJarLibs the set to remove
+     */
     public void removeWebJarLibs(Collection<? extends WebJarLib> webJarLibs) {
         synchronized (this) {
-            libraries.removeAll(webJarLibs);
+            for (WebJarLib lib : webJarLibs) {
+                if (libraries.remove(lib)) {
+                    unindex(lib);
+                }
+            }
         }
     }
 
@@ -370,7 +489,7 @@ public class WebJarController extends DefaultController implements BundleTracker
     @Override
     public Collection<Asset<?>> assets() {
         List<Asset<?>> assets = new ArrayList<>();
-        for (WebJarLib lib : libraries) {
+        for (WebJarLib lib : libs()) {
             for (String path : lib.names()) {
                 if (path.endsWith("/") || path.startsWith(".")) {
                     continue;
@@ -430,9 +549,9 @@ public class WebJarController extends DefaultController implements BundleTracker
                 // We have a name and a version
                 // Try to find the matching library
                 WebJarLib lib = find(name, version);
-                if (lib != null) {
+                if (lib != null && lib.contains(rel)) {
                     return new DefaultAsset<>(
-                            rel,
+                            "/libs/" + lib.name + "/" + lib.version + "/" + rel,
                             lib.get(rel),
                             lib.toString(),
                             lib.lastModified(),
@@ -19,7 +19,6 @@
  */
 package org.wisdom.resources;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceRegistration;
@@ -31,15 +30,14 @@ import org.slf4j.LoggerFactory;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.*;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.regex.Matcher;
-import java.util.zip.ZipEntry;
 
 /**
- * Tracks the webjars from the 'hot' directories (managed by Chameleon) and manage them.
+ * Tracks the webjars from the 'hot' directories (managed by Chameleon) and manage them. The libraries are served
+ * directly from the jar files (see {@link JarWebJarLib}), nothing is unpacked.
  */
 public class WebJarDeployer extends ExtensionBasedDeployer {
 
@@ -47,10 +45,9 @@ public class WebJarDeployer extends ExtensionBasedDeployer {
 
     private final BundleContext context;
 
-    private final File cache;
     private final WebJarController controller;
 
-    private Set<FileWebJarLib> libs = new LinkedHashSet<>();
+    private Set<JarWebJarLib> libs = new LinkedHashSet<>();
     private ServiceRegistration<Deployer> reg;
 
     /**
@@ -63,16 +60,11 @@ public class WebJarDeployer extends ExtensionBasedDeployer {
         super("jar");
         this.context = context;
         this.controller = webJarController;
-        cache = context.getBundle().getDataFile("webjars");
-        if (!cache.isDirectory()) {
-            boolean made = cache.mkdirs();
-            LOGGER.debug("Creating webjars directory : {}", made);
-        }
     }
 
     /**
      * A new file was created. It checks whether or not this file contained web jar libraries,
-     * and if so proceed to their installation (i.e. un-packaking and indexation).
+     * and if so proceed to their installation (i.e. indexation).
      *
      * @param file the file
      */
@@ -80,54 +72,22 @@ public class WebJarDeployer extends ExtensionBasedDeployer {
     public synchronized void onFileCreate(File file) {
         final Set<DetectedWebJar> listOfDetectedWebJarLib = isWebJar(file);
         if (listOfDetectedWebJarLib != null) {
-            JarFile jar = null;
-            try {
-                jar = new JarFile(file);
-                List<FileWebJarLib> installed = new ArrayList<>();
-                for (DetectedWebJar detected : listOfDetectedWebJarLib) {
-                    FileWebJarLib lib = expand(detected, jar);
-                    if (lib != null) {
-                        libs.add(lib);
-                        installed.add(lib);
-                        LOGGER.info("{} unpacked to {}", lib.name, lib.root.getAbsolutePath());
-                    }
-                }
-                controller.addWebJarLibs(installed);
-            } catch (IOException e) {
-                LOGGER.error("Cannot open the jar file {}", file.getAbsolutePath(), e);
-            } finally {
-                IOUtils.closeQuietly(jar);
-            }
-
-        }
-    }
-
-    private FileWebJarLib expand(DetectedWebJar lib, JarFile jar) {
-        File out = new File(cache, lib.id);
-        Enumeration<? extends ZipEntry> entries = jar.entries();
-        while (entries.hasMoreElements()) {
-            ZipEntry entry = entries.nextElement();
-            if (entry.getName().startsWith(WebJarController.WEBJAR_LOCATION) && !entry.isDirectory()) {
-                // Compute destination.
-                File output = new File(out,
-                        entry.getName().substring(WebJarController.WEBJAR_LOCATION.length()));
-                InputStream stream = null;
+            List<JarWebJarLib> installed = new ArrayList<>();
+            for (DetectedWebJar detected : listOfDetectedWebJarLib) {
+                JarFile jar = null;
                 try {
-                    stream = jar.getInputStream(entry);
-                    boolean made = output.getParentFile().mkdirs();
-                    LOGGER.debug("{} directory created : {} ",
-                            output.getParentFile().getAbsolutePath(), made);
-                    FileUtils.copyInputStreamToFile(stream, output);
-                } catch (IOException e) {
-                    LOGGER.error("Cannot unpack " + entry.getName() + " from " + lib.file.getName(), e);
-                    return null;
-                } finally {
-                    IOUtils.closeQuietly(stream);
+                    jar = new JarFile(file);
+                    JarWebJarLib lib = new JarWebJarLib(detected.name, detected.version, file, jar);
+                    libs.add(lib);
+                    installed.add(lib);
+                    LOGGER.info("{} served from {}", lib.name, file.getAbsolutePath());
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.error("Cannot open the jar file {}", file.getAbsolutePath(), e);
+                    IOUtils.closeQuietly(jar);
                 }
             }
+            controller.addWebJarLibs(installed);
         }
-        File root = new File(out, lib.name + "/" + lib.version);
-        return new FileWebJarLib(lib.name, lib.version, root, lib.file.getName());
     }
 
     /**
@@ -143,31 +103,29 @@ public class WebJarDeployer extends ExtensionBasedDeployer {
     }
 
     /**
-     * An accepted file was deleted. We remove the contained libraries from the list and delete the directory in
-     * which the library was contained.
+     * An accepted file was deleted. We remove the contained libraries from the list and release the jar file.
      * <p>
-     * We can't open it to find the contained web jars,
-     * to we need to use the 'source' we set when the {@link org.wisdom.resources.FileWebJarLib} instances were created.
+     * We can't open it to find the contained web jars, so we use the file from which the
+     * {@link org.wisdom.resources.JarWebJarLib} instances were created.
      *
      * @param file the file
      */
     @Override
     public synchronized void onFileDelete(File file) {
-        // The file is already deleted, so we can't open it.
-        // So we use the source.
-        Set<FileWebJarLib> copy = new LinkedHashSet<>(libs);
-        List<FileWebJarLib> toRemove = new ArrayList<>();
-        for (FileWebJarLib lib : copy) {
-            if (lib.source != null && lib.source.equals(file.getName())) {
+        Set<JarWebJarLib> copy = new LinkedHashSet<>(libs);
+        List<JarWebJarLib> toRemove = new ArrayList<>();
+        for (JarWebJarLib lib : copy) {
+            if (lib.file.getName().equals(file.getName())) {
                 // Found, remove it.
                 libs.remove(lib);
                 toRemove.add(lib);
-                // Delete the directory
-                FileUtils.deleteQuietly(lib.root);
             }
         }
 
         controller.removeWebJarLibs(toRemove);
+        for (JarWebJarLib lib : toRemove) {
+            lib.close();
+        }
     }
 
     /**
@@ -238,6 +196,10 @@ public class WebJarDeployer extends ExtensionBasedDeployer {
         if (reg != null) {
             reg.unregister();
         }
+        for (JarWebJarLib lib : libs) {
+            lib.close();
+        }
+        libs.clear();
     }
 
     /**
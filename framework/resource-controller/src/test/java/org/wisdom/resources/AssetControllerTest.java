@@ -19,17 +19,34 @@
  */
 package org.wisdom.resources;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
+import org.ow2.chameleon.core.services.Deployer;
+import org.ow2.chameleon.core.services.Watcher;
+import org.wisdom.api.asset.Asset;
 import org.wisdom.api.configuration.ApplicationConfiguration;
 import org.wisdom.api.crypto.Crypto;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
 
 /**
  * Checks the Asset Controller behavior
@@ -111,4 +128,259 @@ public class AssetControllerTest {
                 "/foo");
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testAssetsFromBundlesAreIndexed() throws IOException {
+        ApplicationConfiguration configuration = mock(ApplicationConfiguration.class);
+        when(configuration.getBaseDir()).thenReturn(new File("target/test-classes"));
+        when(configuration.getBooleanWithDefault(CacheUtils.HTTP_USE_ETAG, CacheUtils.HTTP_USE_ETAG_DEFAULT))
+                .thenReturn(true);
+        Crypto crypto = mock(Crypto.class);
+        when(crypto.hexSHA1(anyString())).thenReturn("etag");
+        BundleContext context = mock(BundleContext.class);
+        Bundle bundle = mock(Bundle.class);
+        when(bundle.getBundleId()).thenReturn(1L);
+        when(bundle.getState()).thenReturn(Bundle.ACTIVE);
+        when(bundle.getSymbolicName()).thenReturn("bundle");
+        when(bundle.getLastModified()).thenReturn(1000L);
+        URL directory = new URL("file:/bundle/assets/js/");
+        URL script = new URL("file:/bundle/assets/js/app.js");
+        when(bundle.findEntries("/bundle/assets/", "*", true)).thenReturn(Collections.enumeration(
+                Arrays.asList(directory, script)));
+        when(context.getBundles()).thenReturn(new Bundle[]{bundle});
+
+        AssetController controller = new AssetController(configuration, crypto, context, "/public", true,
+                "/bundle/assets/", "/assets");
+
+        Asset<?> asset = controller.assetAt("js/app.js");
+        assertThat(asset).isNotNull();
+        assertThat(asset.getContent()).isEqualTo(script);
+        assertThat(asset.getPath()).isEqualTo("/assets/js/app.js");
+        assertThat(asset.getEtag()).isEqualTo("etag");
+        assertThat(controller.assetAt("/js/app.js")).isSameAs(asset);
+        // Files are still served.
+        assertThat(controller.assetAt("my-asset.js")).isNotNull();
+        assertThat(controller.assets()).hasSize(2);
+
+        // Missing assets do not scan the bundles.
+        assertThat(controller.assetAt("js/missing.js")).isNull();
+        verify(bundle, never()).getResource(anyString());
+        verify(bundle, times(1)).findEntries("/bundle/assets/", "*", true);
+        controller.stop();
+    }
+
+    @Test
+    public void testThatFilesCreatedAfterTheIndexationAreServed() throws IOException {
+        ApplicationConfiguration configuration = mock(ApplicationConfiguration.class);
+        when(configuration.getBaseDir()).thenReturn(new File("target/test-classes"));
+        Crypto crypto = mock(Crypto.class);
+        BundleContext context = mock(BundleContext.class);
+        when(context.getBundles()).thenReturn(new Bundle[0]);
+        AssetController controller = new AssetController(configuration, crypto, context, "/public", false, null,
+                "/public");
+        File file = new File("target/test-classes/public/created.js");
+        FileUtils.write(file, "var created = true;");
+        try {
+            Asset<?> asset = controller.assetAt("created.js");
+            assertThat(asset).isNotNull();
+            assertThat(((File) asset.getContent()).getAbsolutePath()).isEqualTo(file.getAbsolutePath());
+            assertThat(((AssetIndex.IndexedAsset) asset).getSize()).isEqualTo(file.length());
+        } finally {
+            FileUtils.deleteQuietly(file);
+        }
+    }
+
+    @Test
+    public void testThatTheIndexIsAuthoritativeWhenFilesAreWatched() throws IOException {
+        ApplicationConfiguration configuration = mock(ApplicationConfiguration.class);
+        when(configuration.getBaseDir()).thenReturn(new File("target/test-classes"));
+        Crypto crypto = mock(Crypto.class);
+        BundleContext context = mock(BundleContext.class);
+        when(context.getBundles()).thenReturn(new Bundle[0]);
+        AssetController controller = new AssetController(configuration, crypto, context, "/public", false, null,
+                "/public");
+        controller.stop();
+        controller.watcher = mock(Watcher.class);
+        controller.start();
+        ArgumentCaptor<Deployer> deployer = ArgumentCaptor.forClass(Deployer.class);
+        verify(context).registerService(eq(Deployer.class), deployer.capture(), any());
+
+        Asset<?> asset = controller.assetAt("my-asset.js");
+        assertThat(asset).isNotNull();
+        assertThat(controller.assetAt("my-asset.js")).isSameAs(asset);
+
+        File file = new File("target/test-classes/public/created.js");
+        FileUtils.write(file, "var created = true;");
+        try {
+            // Not looked up on the file system, nor indexed.
+            assertThat(controller.assetAt("created.js")).isNull();
+            assertThat(controller.assets()).hasSize(1);
+
+            deployer.getValue().onFileCreate(file);
+            assertThat(controller.assetAt("created.js")).isNotNull();
+            assertThat(controller.assets()).hasSize(2);
+
+            deployer.getValue().onFileDelete(file);
+            assertThat(controller.assetAt("created.js")).isNull();
+        } finally {
+            FileUtils.deleteQuietly(file);
+        }
+    }
+
+    @Test
+    public void testThatPrecompressedVariantsAreLinked() throws IOException {
+        ApplicationConfiguration configuration = mock(ApplicationConfiguration.class);
+        when(configuration.getBaseDir()).thenReturn(new File("target/test-classes"));
+        Crypto crypto = mock(Crypto.class);
+        BundleContext context = mock(BundleContext.class);
+        File directory = new File("target/test-classes/variants");
+        File script = new File(directory, "app.js");
+        File gzip = new File(directory, "app.js.gz");
+        FileUtils.write(script, "var app = {};");
+        FileUtils.write(gzip, "gzip");
+        try {
+            AssetController controller = new AssetController(configuration, crypto, context, "/variants", false,
+                    null, "/variants");
+            AssetIndex.IndexedAsset<?> asset = (AssetIndex.IndexedAsset<?>) controller.assetAt("app.js");
+            assertThat(((File) asset.getVariant(CacheUtils.GZIP)).getAbsolutePath())
+                    .isEqualTo(gzip.getAbsolutePath());
+            assertThat(asset.getVariant(CacheUtils.BROTLI)).isNull();
+        } finally {
+            FileUtils.deleteQuietly(directory);
+        }
+    }
+
+    @Test
+    public void testThatPathsCannotEscapeTheAssetDirectory() {
+        ApplicationConfiguration configuration = mock(ApplicationConfiguration.class);
+        when(configuration.getBaseDir()).thenReturn(new File("target/test-classes"));
+        Crypto crypto = mock(Crypto.class);
+        BundleContext context = mock(BundleContext.class);
+        AssetController controller = new AssetController(configuration, crypto, context, "/public", false, null,
+                "/public");
+        assertThat(new File("target/test-classes/public/../webjars/acorn-0.5.0.jar")).isFile();
+        assertThat(controller.assetAt("../webjars/acorn-0.5.0.jar")).isNull();
+        assertThat(controller.assetAt("../public/my-asset.js")).isNotNull();
+    }
+
+    @Test
+    public void testLazyCompression() throws IOException {
+        ApplicationConfiguration configuration = mock(ApplicationConfiguration.class);
+        when(configuration.getBooleanWithDefault(CacheUtils.HTTP_COMPRESS_ASSETS,
+                CacheUtils.HTTP_COMPRESS_ASSETS_DEFAULT)).thenReturn(true);
+        when(configuration.getBooleanWithDefault(ApplicationConfiguration.ENCODING_GLOBAL,
+                ApplicationConfiguration.DEFAULT_ENCODING_GLOBAL)).thenReturn(true);
+        when(configuration.getBytes(ApplicationConfiguration.ENCODING_MIN_SIZE,
+                ApplicationConfiguration.DEFAULT_ENCODING_MIN_SIZE)).thenReturn(10L);
+        when(configuration.getBytes(ApplicationConfiguration.ENCODING_MAX_SIZE,
+                ApplicationConfiguration.DEFAULT_ENCODING_MAX_SIZE)).thenReturn(1000L);
+        File cache = new File("target/compressed-assets");
+        AssetCompressor compressor = new AssetCompressor(cache, configuration);
+        assertThat(compressor.isEnabled()).isTrue();
+
+        File file = new File("target/test-classes/public/my-asset.js");
+        AssetIndex.IndexedAsset<File> asset = new AssetIndex.IndexedAsset<>("/public/my-asset.js", file,
+                file.getAbsolutePath(), file.lastModified(), null, file.length(), -1);
+        File compressed = compressor.compress(asset);
+        assertThat(compressed).isFile();
+        assertThat(asset.getVariant(CacheUtils.GZIP)).isEqualTo(compressed);
+        try (InputStream in = new GZIPInputStream(new FileInputStream(compressed))) {
+            assertThat(IOUtils.toByteArray(in)).isEqualTo(FileUtils.readFileToByteArray(file));
+        }
+        // Already compressed.
+        assertThat(compressor.compress(asset)).isNull();
+
+        // Not a textual content.
+        AssetIndex.IndexedAsset<File> image = new AssetIndex.IndexedAsset<>("/public/image.png",
+                new File("image.png"), "image.png", 0, null, 100, -1);
+        assertThat(compressor.shouldCompress(image)).isFalse();
+        FileUtils.deleteQuietly(cache);
+    }
+
+    @Test
+    public void testThatCompressedAssetsAreReusedAndReplaced() throws IOException {
+        ApplicationConfiguration configuration = mock(ApplicationConfiguration.class);
+        when(configuration.getBooleanWithDefault(CacheUtils.HTTP_COMPRESS_ASSETS,
+                CacheUtils.HTTP_COMPRESS_ASSETS_DEFAULT)).thenReturn(true);
+        when(configuration.getBooleanWithDefault(ApplicationConfiguration.ENCODING_GLOBAL,
+                ApplicationConfiguration.DEFAULT_ENCODING_GLOBAL)).thenReturn(true);
+        when(configuration.getBytes(ApplicationConfiguration.ENCODING_MIN_SIZE,
+                ApplicationConfiguration.DEFAULT_ENCODING_MIN_SIZE)).thenReturn(10L);
+        when(configuration.getBytes(ApplicationConfiguration.ENCODING_MAX_SIZE,
+                ApplicationConfiguration.DEFAULT_ENCODING_MAX_SIZE)).thenReturn(1000L);
+        File cache = new File("target/compressed-assets-reuse");
+        AssetCompressor compressor = new AssetCompressor(cache, configuration);
+
+        File file = new File("target/test-classes/public/my-asset.js");
+        File compressed = compressor.compress(new AssetIndex.IndexedAsset<>("/public/my-asset.js", file,
+                file.getAbsolutePath(), file.lastModified(), null, file.length(), -1));
+        assertThat(compressed).isFile();
+
+        // Same version, indexed again.
+        AssetIndex.IndexedAsset<File> same = new AssetIndex.IndexedAsset<>("/public/my-asset.js", file,
+                file.getAbsolutePath(), file.lastModified(), null, file.length(), -1);
+        assertThat(compressor.compress(same)).isEqualTo(compressed);
+        assertThat(same.getVariant(CacheUtils.GZIP)).isEqualTo(compressed);
+
+        // New version, the previous compressed file is deleted.
+        File updated = compressor.compress(new AssetIndex.IndexedAsset<>("/public/my-asset.js", file,
+                file.getAbsolutePath(), file.lastModified() + 1000, null, file.length(), -1));
+        assertThat(updated).isFile().isNotEqualTo(compressed);
+        assertThat(compressed).doesNotExist();
+
+        compressor.invalidate("/public/my-asset.js");
+        assertThat(updated).doesNotExist();
+
+        // Unknown size (bundle entry), checked while compressing.
+        URL url = file.toURI().toURL();
+        AssetIndex.IndexedAsset<URL> embedded = new AssetIndex.IndexedAsset<>("/public/embedded.js", url, "bundle",
+                0, null, -1, 1);
+        assertThat(compressor.compress(embedded)).isFile();
+
+        when(configuration.getBytes(ApplicationConfiguration.ENCODING_MAX_SIZE,
+                ApplicationConfiguration.DEFAULT_ENCODING_MAX_SIZE)).thenReturn(file.length() - 1);
+        compressor = new AssetCompressor(cache, configuration);
+        embedded = new AssetIndex.IndexedAsset<>("/public/embedded.js", url, "bundle", 0, null, -1, 1);
+        assertThat(compressor.compress(embedded)).isNull();
+        assertThat(embedded.getVariant(CacheUtils.GZIP)).isNull();
+        assertThat(cache.list()).isEmpty();
+        FileUtils.deleteQuietly(cache);
+    }
+
+    @Test
+    public void testThatCompressionIsScheduled() throws IOException {
+        ApplicationConfiguration configuration = mock(ApplicationConfiguration.class);
+        when(configuration.getBooleanWithDefault(CacheUtils.HTTP_COMPRESS_ASSETS,
+                CacheUtils.HTTP_COMPRESS_ASSETS_DEFAULT)).thenReturn(true);
+        when(configuration.getBooleanWithDefault(ApplicationConfiguration.ENCODING_GLOBAL,
+                ApplicationConfiguration.DEFAULT_ENCODING_GLOBAL)).thenReturn(true);
+        when(configuration.getBytes(ApplicationConfiguration.ENCODING_MIN_SIZE,
+                ApplicationConfiguration.DEFAULT_ENCODING_MIN_SIZE)).thenReturn(10L);
+        when(configuration.getBytes(ApplicationConfiguration.ENCODING_MAX_SIZE,
+                ApplicationConfiguration.DEFAULT_ENCODING_MAX_SIZE)).thenReturn(1000L);
+        File cache = new File("target/compressed-assets-scheduled");
+        AssetCompressor compressor = new AssetCompressor(cache, configuration);
+        List<Runnable> tasks = new ArrayList<>();
+
+        File file = new File("target/test-classes/public/my-asset.js");
+        AssetIndex.IndexedAsset<File> asset = new AssetIndex.IndexedAsset<>("/public/my-asset.js", file,
+                file.getAbsolutePath(), file.lastModified(), null, file.length(), -1);
+        // Scheduled once, nothing written while serving.
+        assertThat(compressor.schedule(asset, tasks::add)).isNull();
+        assertThat(compressor.schedule(asset, tasks::add)).isNull();
+        assertThat(tasks).hasSize(1);
+        assertThat(asset.getVariant(CacheUtils.GZIP)).isNull();
+        assertThat(cache).doesNotExist();
+
+        tasks.get(0).run();
+        File compressed = (File) asset.getVariant(CacheUtils.GZIP);
+        assertThat(compressed).isFile();
+
+        // The same version, indexed again, gets the compressed file directly.
+        AssetIndex.IndexedAsset<File> same = new AssetIndex.IndexedAsset<>("/public/my-asset.js", file,
+                file.getAbsolutePath(), file.lastModified(), null, file.length(), -1);
+        assertThat(compressor.schedule(same, tasks::add)).isEqualTo(compressed);
+        assertThat(tasks).hasSize(1);
+        FileUtils.deleteQuietly(cache);
+    }
+
+}
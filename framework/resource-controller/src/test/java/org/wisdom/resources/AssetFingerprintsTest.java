@@ -0,0 +1,143 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.resources;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+import org.wisdom.api.asset.Asset;
+import org.wisdom.api.asset.DefaultAsset;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the computation and the parsing of fingerprinted asset urls.
+ */
+public class AssetFingerprintsTest {
+
+    private File directory = new File("target/fingerprints");
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(directory);
+    }
+
+    @Test
+    public void testFingerprintAndParse() {
+        assertThat(AssetFingerprints.fingerprint("/assets/app.js", "3f9ac1e2b4"))
+                .isEqualTo("/assets/app.3f9ac1e2b4.js");
+        assertThat(AssetFingerprints.fingerprint("/libs/jquery/jquery.min.js", "3f9ac1e2b4"))
+                .isEqualTo("/libs/jquery/jquery.min.3f9ac1e2b4.js");
+        assertThat(AssetFingerprints.fingerprint("/assets/v1.0/LICENSE", "3f9ac1e2b4"))
+                .isEqualTo("/assets/v1.0/LICENSE.3f9ac1e2b4");
+
+        assertThat(AssetFingerprints.parse("app.3f9ac1e2b4.js")).containsExactly("app.js", "3f9ac1e2b4");
+        assertThat(AssetFingerprints.parse("js/jquery.min.3f9ac1e2b4.js"))
+                .containsExactly("js/jquery.min.js", "3f9ac1e2b4");
+        assertThat(AssetFingerprints.parse("v1.0/LICENSE.3f9ac1e2b4")).containsExactly("v1.0/LICENSE", "3f9ac1e2b4");
+        assertThat(AssetFingerprints.parse("app.js")).isNull();
+        assertThat(AssetFingerprints.parse("app.3f9ac1.js")).isNull();
+        assertThat(AssetFingerprints.parse("js/.3f9ac1e2b4")).isNull();
+        assertThat(AssetFingerprints.parse(null)).isNull();
+    }
+
+    @Test
+    public void testThatTheHashFollowsTheContent() throws IOException {
+        File file = new File(directory, "app.js");
+        FileUtils.write(file, "var app = {};");
+        DefaultAsset<File> asset = new DefaultAsset<>("/assets/app.js", file, file.getAbsolutePath(),
+                file.lastModified(), null);
+
+        AssetFingerprints fingerprints = new AssetFingerprints();
+        String hash = fingerprints.hash(asset);
+        assertThat(hash).hasSize(AssetFingerprints.HASH_LENGTH);
+        assertThat(fingerprints.getFingerprintedPath(asset, null)).isEqualTo("/assets/app." + hash + ".js");
+        assertThat(fingerprints.matches(asset, hash, null)).isTrue();
+
+        FileUtils.write(file, "var app = { version : 2 };");
+        assertThat(file.setLastModified(file.lastModified() + 2000)).isTrue();
+        DefaultAsset<File> updated = new DefaultAsset<>("/assets/app.js", file, file.getAbsolutePath(),
+                file.lastModified(), null);
+        assertThat(fingerprints.matches(updated, hash, null)).isFalse();
+        assertThat(fingerprints.hash(updated)).isNotEqualTo(hash);
+        assertThat(fingerprints.matches(updated, hash, null)).isFalse();
+
+        // In-memory content.
+        DefaultAsset<byte[]> bytes = new DefaultAsset<>("/libs/app.js", "var app = {};".getBytes(), "lib", 0, null);
+        assertThat(fingerprints.hash(bytes)).isEqualTo(hash);
+    }
+
+    @Test
+    public void testResolutionAndEviction() throws IOException {
+        File file = new File(directory, "app.js");
+        FileUtils.write(file, "var app = {};");
+        final DefaultAsset<File> asset = new DefaultAsset<>("/assets/app.js", file, file.getAbsolutePath(),
+                file.lastModified(), null);
+        Function<String, Asset<?>> lookup = path -> "app.js".equals(path) ? asset : null;
+
+        AssetFingerprints fingerprints = new AssetFingerprints();
+        assertThat(fingerprints.resolve("app.js", lookup, null).getAsset()).isSameAs(asset);
+        assertThat(fingerprints.size()).isEqualTo(0);
+        String hash = fingerprints.hash(asset);
+        assertThat(fingerprints.resolve("app." + hash + ".js", lookup, null).getAsset()).isSameAs(asset);
+        assertThat(fingerprints.resolve("app.0000000000.js", lookup, null).getAsset()).isSameAs(asset);
+        assertThat(fingerprints.resolve("missing.js", lookup, null)).isNull();
+        assertThat(fingerprints.resolve("missing." + hash + ".js", lookup, null)).isNull();
+
+        assertThat(fingerprints.size()).isEqualTo(1);
+        fingerprints.evict("/assets/app.js");
+        assertThat(fingerprints.size()).isEqualTo(0);
+
+        fingerprints.hash(asset);
+        fingerprints.hash(new DefaultAsset<>("/libs/lib/1.0/lib.js", "var lib;".getBytes(), "lib", 0, null));
+        fingerprints.evictAll("/libs/lib/1.0/");
+        assertThat(fingerprints.size()).isEqualTo(1);
+        fingerprints.clear();
+        assertThat(fingerprints.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testThatHashesAreComputedOnTheExecutor() throws IOException {
+        File file = new File(directory, "app.js");
+        FileUtils.write(file, "var app = {};");
+        DefaultAsset<File> asset = new DefaultAsset<>("/assets/app.js", file, file.getAbsolutePath(),
+                file.lastModified(), null);
+        String hash = new AssetFingerprints().hash(asset);
+        List<Runnable> tasks = new ArrayList<>();
+
+        // Nothing is read while serving, the computation is scheduled once.
+        AssetFingerprints fingerprints = new AssetFingerprints();
+        assertThat(fingerprints.getFingerprintedPath(asset, tasks::add)).isEqualTo("/assets/app.js");
+        assertThat(fingerprints.matches(asset, hash, tasks::add)).isFalse();
+        assertThat(tasks).hasSize(1);
+        assertThat(fingerprints.size()).isEqualTo(0);
+
+        tasks.get(0).run();
+        assertThat(fingerprints.getFingerprintedPath(asset, tasks::add)).isEqualTo("/assets/app." + hash + ".js");
+        assertThat(fingerprints.matches(asset, hash, tasks::add)).isTrue();
+        assertThat(tasks).hasSize(1);
+    }
+}
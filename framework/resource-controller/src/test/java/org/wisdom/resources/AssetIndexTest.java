@@ -0,0 +1,85 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.resources;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.wisdom.resources.AssetIndex.IndexedAsset;
+
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the asset index.
+ */
+public class AssetIndexTest {
+
+    @Test
+    public void testThatFilesTakePrecedenceOverBundles() {
+        AssetIndex index = new AssetIndex();
+        IndexedAsset<String> fromBundle = asset("bundle", 1);
+        IndexedAsset<String> fromFile = asset("file", -1);
+        index.putBundleAsset("app.js", fromBundle);
+        assertThat(index.get("app.js")).isSameAs(fromBundle);
+
+        index.putFileAsset("app.js", fromFile);
+        assertThat(index.get("app.js")).isSameAs(fromFile);
+        assertThat(index.all()).containsExactly(fromFile);
+
+        index.removeFileAsset("app.js");
+        assertThat(index.get("app.js")).isSameAs(fromBundle);
+    }
+
+    @Test
+    public void testThatTheBundleWithTheLowestIdWins() {
+        AssetIndex index = new AssetIndex();
+        IndexedAsset<String> b2 = asset("b2", 2);
+        IndexedAsset<String> b1 = asset("b1", 1);
+        IndexedAsset<String> b3 = asset("b3", 3);
+        index.putBundleAsset("app.js", b2);
+        index.putBundleAsset("app.js", b1);
+        index.putBundleAsset("app.js", b3);
+        assertThat(index.get("app.js")).isSameAs(b1);
+
+        // Removing another bundle does not remove the asset.
+        index.removeBundleAssets(2, ImmutableList.of("app.js"));
+        assertThat(index.get("app.js")).isSameAs(b1);
+
+        index.removeBundleAssets(1, ImmutableList.of("app.js"));
+        assertThat(index.get("app.js")).isNull();
+        assertThat(index.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testClear() {
+        AssetIndex index = new AssetIndex();
+        index.putFileAsset("a.js", new IndexedAsset<>("/assets/a.js", new File("a.js"), "a.js", 0, null, 10, -1));
+        index.putBundleAsset("b.js", asset("b", 1));
+        assertThat(index.size()).isEqualTo(2);
+        index.clear();
+        assertThat(index.size()).isEqualTo(0);
+        assertThat(index.get("a.js")).isNull();
+    }
+
+    private static IndexedAsset<String> asset(String content, long bundle) {
+        return new IndexedAsset<>("/assets/app.js", content, content, 0, null, -1, bundle);
+    }
+}
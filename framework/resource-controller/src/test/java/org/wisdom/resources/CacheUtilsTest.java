@@ -0,0 +1,151 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.resources;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wisdom.api.asset.DefaultAsset;
+import org.wisdom.api.configuration.ApplicationConfiguration;
+import org.wisdom.api.http.Context;
+import org.wisdom.api.http.HeaderNames;
+import org.wisdom.api.http.Result;
+import org.wisdom.api.http.Status;
+import org.wisdom.resources.AssetIndex.IndexedAsset;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks the selection of the precompressed variants of the assets.
+ */
+public class CacheUtilsTest {
+
+    private File directory = new File("target/cache-utils");
+    private File script;
+    private ApplicationConfiguration configuration;
+
+    @Before
+    public void setUp() throws IOException {
+        FileUtils.deleteQuietly(directory);
+        script = new File(directory, "app.js");
+        FileUtils.write(script, "var app = {};");
+        configuration = mock(ApplicationConfiguration.class);
+        when(configuration.getWithDefault(CacheUtils.HTTP_CACHE_CONTROL_MAX_AGE, CacheUtils.HTTP_CACHE_CONTROL_DEFAULT))
+                .thenReturn("3600");
+        when(configuration.getBooleanWithDefault(CacheUtils.HTTP_USE_ETAG, CacheUtils.HTTP_USE_ETAG_DEFAULT))
+                .thenReturn(true);
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(directory);
+    }
+
+    @Test
+    public void testAcceptEncodingParsing() {
+        assertThat(CacheUtils.isEncodingAccepted(null, "gzip")).isFalse();
+        assertThat(CacheUtils.isEncodingAccepted("gzip, deflate", "gzip")).isTrue();
+        assertThat(CacheUtils.isEncodingAccepted("gzip, deflate", "br")).isFalse();
+        assertThat(CacheUtils.isEncodingAccepted("GZIP;q=0.5", "gzip")).isTrue();
+        assertThat(CacheUtils.isEncodingAccepted("gzip;q=0", "gzip")).isFalse();
+        assertThat(CacheUtils.isEncodingAccepted("*", "br")).isTrue();
+        assertThat(CacheUtils.isEncodingAccepted("*, br;q=0", "br")).isFalse();
+        assertThat(CacheUtils.isEncodingAccepted("identity", "gzip")).isFalse();
+    }
+
+    @Test
+    public void testThatThePreferredAcceptedVariantIsSent() throws IOException {
+        File gzip = new File(directory, "app.js.gz");
+        File brotli = new File(directory, "app.js.br");
+        FileUtils.write(gzip, "gzip");
+        FileUtils.write(brotli, "br");
+        IndexedAsset<File> asset = asset();
+        asset.setVariant(CacheUtils.GZIP, gzip);
+        asset.setVariant(CacheUtils.BROTLI, brotli);
+
+        Result result = CacheUtils.fromAsset(context("gzip, deflate, br", null), asset, configuration);
+        assertThat(result.getStatusCode()).isEqualTo(Status.OK);
+        assertThat(result.getHeaders().get(HeaderNames.CONTENT_ENCODING)).isEqualTo("br");
+        assertThat(result.getHeaders().get(HeaderNames.ETAG)).isEqualTo("etag-br");
+        assertThat(result.getHeaders().get(HeaderNames.VARY)).isEqualTo(HeaderNames.ACCEPT_ENCODING);
+        assertThat(result.getHeaders().get(HeaderNames.CONTENT_LENGTH)).isEqualTo("2");
+        assertThat(result.getHeaders()).containsKey(HeaderNames.X_WISDOM_DISABLED_ENCODING_HEADER);
+        assertThat(result.getContentType()).isEqualTo("application/javascript");
+
+        result = CacheUtils.fromAsset(context("gzip, br;q=0", null), asset, configuration);
+        assertThat(result.getHeaders().get(HeaderNames.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(result.getHeaders().get(HeaderNames.ETAG)).isEqualTo("etag-gzip");
+
+        result = CacheUtils.fromAsset(context(null, null), asset, configuration);
+        assertThat(result.getHeaders().get(HeaderNames.CONTENT_ENCODING)).isNull();
+        assertThat(result.getHeaders().get(HeaderNames.ETAG)).isEqualTo("etag");
+        assertThat(result.getHeaders().get(HeaderNames.VARY)).isEqualTo(HeaderNames.ACCEPT_ENCODING);
+        assertThat(result.getHeaders()).doesNotContainKey(HeaderNames.X_WISDOM_DISABLED_ENCODING_HEADER);
+    }
+
+    @Test
+    public void testNotModifiedVariant() throws IOException {
+        File gzip = new File(directory, "app.js.gz");
+        FileUtils.write(gzip, "gzip");
+        IndexedAsset<File> asset = asset();
+        asset.setVariant(CacheUtils.GZIP, gzip);
+
+        Result result = CacheUtils.fromAsset(context("gzip", "etag-gzip"), asset, configuration);
+        assertThat(result.getStatusCode()).isEqualTo(Status.NOT_MODIFIED);
+        assertThat(result.getHeaders().get(HeaderNames.VARY)).isEqualTo(HeaderNames.ACCEPT_ENCODING);
+
+        // The etag of the identity representation does not match the gzip one.
+        result = CacheUtils.fromAsset(context("gzip", "etag"), asset, configuration);
+        assertThat(result.getStatusCode()).isEqualTo(Status.OK);
+    }
+
+    @Test
+    public void testSiblingVariantsOfNonIndexedAssets() throws IOException {
+        File gzip = new File(directory, "app.js.gz");
+        FileUtils.write(gzip, "gzip");
+        DefaultAsset<File> asset = new DefaultAsset<>("/assets/app.js",
+                script, script.getAbsolutePath(), script.lastModified(), "etag");
+        Result result = CacheUtils.fromAsset(context("gzip", null), asset, configuration);
+        assertThat(result.getHeaders().get(HeaderNames.CONTENT_ENCODING)).isEqualTo("gzip");
+
+        // Outdated variants are ignored.
+        assertThat(gzip.setLastModified(script.lastModified() - 10000)).isTrue();
+        result = CacheUtils.fromAsset(context("gzip", null), asset, configuration);
+        assertThat(result.getHeaders().get(HeaderNames.CONTENT_ENCODING)).isNull();
+    }
+
+    private IndexedAsset<File> asset() {
+        return new IndexedAsset<>("/assets/app.js", script, script.getAbsolutePath(), script.lastModified(), "etag",
+                script.length(), -1);
+    }
+
+    private static Context context(String acceptEncoding, String ifNoneMatch) {
+        Context context = mock(Context.class);
+        when(context.header(HeaderNames.ACCEPT_ENCODING)).thenReturn(acceptEncoding);
+        when(context.header(HeaderNames.IF_NONE_MATCH)).thenReturn(ifNoneMatch);
+        return context;
+    }
+}
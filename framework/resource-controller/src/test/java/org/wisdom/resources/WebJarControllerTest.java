@@ -30,6 +30,8 @@ import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.osgi.framework.Bundle;
+import org.wisdom.api.asset.DefaultAsset;
+import org.wisdom.api.concurrent.ManagedExecutorService;
 import org.wisdom.api.configuration.ApplicationConfiguration;
 import org.wisdom.api.crypto.Crypto;
 import org.wisdom.api.crypto.Hash;
@@ -45,9 +47,12 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.security.MessageDigest;
 import java.util.List;
+import java.util.jar.JarFile;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.wisdom.test.parents.Action.action;
@@ -848,4 +853,96 @@ public class WebJarControllerTest {
         assertThat(FileUtils.readFileToString((File) result.getResult().getRenderable().content())).contains("0.2.5");
     }
 
+
+    @Test
+    public void testServingLibraryFromJarFile() throws IOException {
+        ApplicationConfiguration configuration = mock(ApplicationConfiguration.class);
+        Crypto crypto = mock(Crypto.class);
+        root = new File("target/wisdom-test");
+        when(configuration.getBaseDir()).thenReturn(root);
+        when(configuration.getWithDefault(CacheUtils.HTTP_CACHE_CONTROL_MAX_AGE,
+                CacheUtils.HTTP_CACHE_CONTROL_DEFAULT)).thenReturn(CacheUtils.HTTP_CACHE_CONTROL_DEFAULT);
+
+        final WebJarController controller = new WebJarController(crypto, configuration, "assets/libs");
+        File file = new File("src/test/resources/webjars/acorn-0.5.0.jar");
+        JarWebJarLib lib = new JarWebJarLib("acorn", "0.5.0", file, new JarFile(file));
+        controller.addWebJarLibs(ImmutableList.of(lib));
+        assertThat(controller.indexSize()).isEqualTo(2);
+
+        Action.ActionResult result = action(new Invocation() {
+            @Override
+            public Result invoke() throws Throwable {
+                return controller.serve();
+            }
+        }).parameter("path", "acorn/acorn.js").invoke();
+        assertThat(result.getResult().getStatusCode()).isEqualTo(200);
+        assertThat(result.getResult().getContentType()).isEqualTo("application/javascript");
+        assertThat(result.getResult().getHeaders().get("Last-Modified")).isNotNull();
+
+        // The same content is served for the next requests.
+        assertThat(lib.get("acorn.js")).isSameAs(lib.get("acorn.js"));
+
+        // Exploded libraries are preferred.
+        FileUtils.write(new File(webjars, "acorn/0.5.0/acorn.js"), "// exploded");
+        controller.stop();
+        controller.start();
+        controller.addWebJarLibs(ImmutableList.of(lib));
+        assertThat(controller.libs()).hasSize(2);
+        assertThat(controller.assetAt("acorn.js").getContent()).isInstanceOf(File.class);
+        assertThat(controller.assetAt("package.json").getContent()).isInstanceOf(byte[].class);
+
+        controller.removeWebJarLibs(ImmutableList.of(lib));
+        lib.close();
+        assertThat(controller.assetAt("package.json")).isNull();
+    }
+
+    @Test
+    public void testFingerprintedUrls() throws IOException {
+        ApplicationConfiguration configuration = mock(ApplicationConfiguration.class);
+        Crypto crypto = mock(Crypto.class);
+        root = new File("target/wisdom-test");
+        when(configuration.getBaseDir()).thenReturn(root);
+        when(configuration.getWithDefault(CacheUtils.HTTP_CACHE_CONTROL_MAX_AGE,
+                CacheUtils.HTTP_CACHE_CONTROL_DEFAULT)).thenReturn(CacheUtils.HTTP_CACHE_CONTROL_DEFAULT);
+
+        final WebJarController controller = new WebJarController(crypto, configuration, "assets/libs");
+        // The fingerprints are computed directly.
+        controller.executor = mock(ManagedExecutorService.class);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArguments()[0]).run();
+            return null;
+        }).when(controller.executor).execute(any(Runnable.class));
+        File file = new File("src/test/resources/webjars/acorn-0.5.0.jar");
+        JarWebJarLib lib = new JarWebJarLib("acorn", "0.5.0", file, new JarFile(file));
+        controller.addWebJarLibs(ImmutableList.of(lib));
+
+        String url = controller.getFingerprintedPath(controller.assetAt("acorn.js"));
+        assertThat(url).matches("/libs/acorn/0\\.5\\.0/acorn\\.[0-9a-f]{10}\\.js");
+
+        Action.ActionResult result = action(new Invocation() {
+            @Override
+            public Result invoke() throws Throwable {
+                return controller.serve();
+            }
+        }).parameter("path", url.substring("/libs/".length())).invoke();
+        assertThat(result.getResult().getStatusCode()).isEqualTo(200);
+        assertThat(result.getResult().getContentType()).isEqualTo("application/javascript");
+        assertThat(result.getResult().getHeaders().get("Cache-Control"))
+                .isEqualTo(AssetFingerprints.IMMUTABLE_CACHE_CONTROL);
+
+        // Outdated fingerprint, served with the regular cache headers.
+        result = action(new Invocation() {
+            @Override
+            public Result invoke() throws Throwable {
+                return controller.serve();
+            }
+        }).parameter("path", "acorn/0.5.0/acorn.0123456789.js").invoke();
+        assertThat(result.getResult().getStatusCode()).isEqualTo(200);
+        assertThat(result.getResult().getHeaders().get("Cache-Control")).isEqualTo("max-age=3600");
+
+        // Not served by this controller.
+        assertThat(controller.getFingerprintedPath(new DefaultAsset<>("/assets/app.js", "var app;".getBytes(),
+                "app", 0, null))).isNull();
+        lib.close();
+    }
 }
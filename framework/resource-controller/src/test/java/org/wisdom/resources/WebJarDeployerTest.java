@@ -26,6 +26,9 @@ import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceRegistration;
 import org.ow2.chameleon.core.services.Deployer;
+import org.wisdom.api.asset.Asset;
+import org.wisdom.api.configuration.ApplicationConfiguration;
+import org.wisdom.api.crypto.Crypto;
 
 import java.io.File;
 
@@ -64,24 +67,42 @@ public class WebJarDeployerTest {
         File acorn = new File("src/test/resources/webjars/acorn-0.5.0.jar");
         assertThat(acorn).isFile();
         assertThat(WebJarDeployer.isWebJar(acorn)).isNotEmpty().hasSize(1);
+        dir = new File("target/junk/webjars");
+        FileUtils.deleteQuietly(dir);
         BundleContext context = mock(BundleContext.class);
         Bundle bundle = mock(Bundle.class);
-        when(bundle.getDataFile("webjars")).thenReturn(new File("target/junk/webjars"));
         when(context.getBundle()).thenReturn(bundle);
-        WebJarController controller = mock(WebJarController.class);
+        ApplicationConfiguration configuration = mock(ApplicationConfiguration.class);
+        when(configuration.getBaseDir()).thenReturn(new File("target/junk"));
+        WebJarController controller = new WebJarController(mock(Crypto.class), configuration, "assets/libs");
         WebJarDeployer deployer = new WebJarDeployer(context, controller);
 
         deployer.onFileCreate(acorn);
 
-        // acorn should have been expanded
-        File expanded = new File("target/junk/webjars/acorn-0.5.0/acorn/0.5.0");
-        assertThat(expanded).isDirectory();
+        // acorn is served from the jar file, nothing is unpacked.
+        assertThat(controller.libs()).hasSize(1);
+        assertThat(controller.libs().get(0)).isInstanceOf(JarWebJarLib.class);
+        assertThat(controller.indexSize()).isEqualTo(2);
+        assertThat(dir).doesNotExist();
+        Asset<?> asset = controller.assetAt("acorn.js");
+        assertThat(asset).isNotNull();
+        assertThat(asset.getPath()).isEqualTo("/libs/acorn/0.5.0/acorn.js");
+        assertThat((byte[]) asset.getContent()).hasSize(69379);
+        assertThat(controller.assetAt("acorn/0.5.0/package.json")).isNotNull();
+        JarWebJarLib lib = (JarWebJarLib) controller.libs().get(0);
+        assertThat(lib.getCachedBytes()).isGreaterThanOrEqualTo(69379)
+                .isLessThanOrEqualTo(JarWebJarLib.MAX_CACHED_BYTES);
 
         deployer.onFileChange(acorn);
+        // The replaced library has released the jar file and its cache.
+        assertThat(lib.getCachedBytes()).isEqualTo(0);
+        assertThat(lib.get("acorn.js")).isNull();
 
         // Undeploy it.
         deployer.onFileDelete(acorn);
-        assertThat(expanded).doesNotExist();
+        assertThat(controller.libs()).isEmpty();
+        assertThat(controller.indexSize()).isEqualTo(0);
+        assertThat(controller.assetAt("acorn.js")).isNull();
     }
 
 }
\ No newline at end of file
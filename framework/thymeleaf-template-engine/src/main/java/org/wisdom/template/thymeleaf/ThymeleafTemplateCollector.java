@@ -30,10 +30,14 @@ import org.thymeleaf.dialect.IDialect;
 import org.thymeleaf.messageresolver.IMessageResolver;
 import org.thymeleaf.templateresolver.TemplateResolver;
 import org.wisdom.api.asset.Assets;
+import org.wisdom.api.cache.Cache;
 import org.wisdom.api.configuration.ApplicationConfiguration;
 import org.wisdom.api.router.Router;
 import org.wisdom.api.templates.Template;
 import org.wisdom.api.templates.TemplateEngine;
+import org.wisdom.template.thymeleaf.dialect.ExtendedOGNLExpressionEvaluator;
+import org.wisdom.template.thymeleaf.impl.FragmentCache;
+import org.wisdom.template.thymeleaf.impl.TemplateDependencies;
 import org.wisdom.template.thymeleaf.impl.ThymeLeafTemplateImplementation;
 import org.wisdom.template.thymeleaf.impl.WisdomTemplateEngine;
 import org.wisdom.template.thymeleaf.impl.WisdomURLResourceResolver;
@@ -77,10 +81,11 @@ public class ThymeleafTemplateCollector implements TemplateEngine {
     private Map<ThymeLeafTemplateImplementation, ServiceRegistration<Template>> registrations = new ConcurrentHashMap<>();
 
     /**
-     * The internal engine. Accesses need to be synchronized as we change the engine instance when
-     * dialects arrive and leave.
+     * The internal engine. The engine instance is replaced when dialects arrive and leave: a new engine is fully
+     * initialized and then published, so readers never lock. Writers (configuration and dialect changes) are
+     * synchronized.
      */
-    WisdomTemplateEngine engine;
+    volatile WisdomTemplateEngine engine;
 
     @Requires
     private Router router;
@@ -88,6 +93,19 @@ public class ThymeleafTemplateCollector implements TemplateEngine {
     @Requires(optional = true)
     private Assets assets;
 
+    @Requires(optional = true)
+    Cache cache;
+
+    /**
+     * The dependencies between templates, shared by the successive engines.
+     */
+    private final TemplateDependencies dependencies = new TemplateDependencies();
+
+    /**
+     * The rendered fragments (see the {@literal th:cache} attribute).
+     */
+    private final FragmentCache fragments = new FragmentCache();
+
     Set<IDialect> dialects = new HashSet<>();
 
 
@@ -126,7 +144,7 @@ public class ThymeleafTemplateCollector implements TemplateEngine {
         ThymeLeafTemplateImplementation template = getTemplateByFile(templateFile);
         if (template != null) {
             LOGGER.debug("Thymeleaf template updated for {} ({})", templateFile.getAbsoluteFile(), template.fullName());
-            updatedTemplate();
+            updatedTemplate(template);
         } else {
             try {
                 addTemplate(bundle, templateFile.toURI().toURL());
@@ -192,14 +210,13 @@ public class ThymeleafTemplateCollector implements TemplateEngine {
             // Already existing.
             return template;
         }
-        synchronized (this) {
-            // need to be synchronized because of the access to engine.
-            template = new ThymeLeafTemplateImplementation(engine, templateURL,
-                    router, assets, bundle);
-        }
+        template = new ThymeLeafTemplateImplementation(engine, templateURL,
+                router, assets, bundle);
         ServiceRegistration<Template> reg = context.registerService(Template.class, template,
                 template.getServiceProperties());
         registrations.put(template, reg);
+        // The engine may have been replaced before the template was added to the registrations.
+        template.updateEngine(engine);
         LOGGER.debug("Thymeleaf template added for {}", templateURL.toExternalForm());
         return template;
     }
@@ -228,9 +245,10 @@ public class ThymeleafTemplateCollector implements TemplateEngine {
         // we don't really care.
 
         final ClassLoader orig = Thread.currentThread().getContextClassLoader();
+        WisdomTemplateEngine newEngine;
         try {
             Thread.currentThread().setContextClassLoader(this.getClass().getClassLoader());
-            engine = new WisdomTemplateEngine(dialects);
+            newEngine = new WisdomTemplateEngine(new HashSet<>(dialects));
         } finally {
             Thread.currentThread().setContextClassLoader(orig);
         }
@@ -240,10 +258,20 @@ public class ThymeleafTemplateCollector implements TemplateEngine {
         resolver.setResourceResolver(new WisdomURLResourceResolver(this));
         resolver.setTemplateMode(mode);
         resolver.setCacheTTLMs((long) ttl);
-        engine.setTemplateResolver(resolver);
-
-        engine.setMessageResolver(messageResolver);
-        engine.initialize();
+        newEngine.setTemplateResolver(resolver);
+
+        newEngine.setMessageResolver(messageResolver);
+        newEngine.setDependencies(dependencies);
+        fragments.setCache(cache);
+        if (engine != null) {
+            // The dialects have changed, so may the rendered fragments.
+            fragments.clear();
+        }
+        newEngine.setFragmentCache(fragments);
+        newEngine.setStreaming(configuration.getBooleanWithDefault("application.template.thymeleaf.streaming", false));
+        newEngine.initialize();
+        // Publish the engine once fully initialized.
+        engine = newEngine;
     }
 
     /**
@@ -328,15 +356,43 @@ public class ThymeleafTemplateCollector implements TemplateEngine {
     }
 
     /**
-     * Clears the cache when a template have been updated.
+     * @return the dependency graph between templates.
+     */
+    public TemplateDependencies getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * Clears all the caches. Prefer {@link #updatedTemplate(ThymeLeafTemplateImplementation)} when the modified
+     * template is known.
      */
-    public synchronized void updatedTemplate() {
-        // Synchronized because of the access to engine.
+    public void updatedTemplate() {
         engine.getCacheManager().clearAllCaches();
+        fragments.clear();
+    }
+
+    /**
+     * Evicts the given template, and the templates using it (as layout, fragment or include) from the caches. The
+     * other templates stay cached.
+     *
+     * @param template the modified template
+     */
+    public void updatedTemplate(ThymeLeafTemplateImplementation template) {
+        evict(dependencies.invalidate(template.fullName()));
+    }
+
+    private void evict(Set<String> names) {
+        LOGGER.debug("Evicting the templates {} from the caches", names);
+        WisdomTemplateEngine current = engine;
+        for (String name : names) {
+            current.clearTemplateCacheFor(name);
+        }
+        fragments.invalidate(names);
     }
 
     /**
-     * Deletes the given template. The service is unregistered, and the cache is cleared.
+     * Deletes the given template. The service is unregistered, and the template and the templates using it are
+     * evicted from the caches.
      *
      * @param template the template
      */
@@ -351,15 +407,24 @@ public class ThymeleafTemplateCollector implements TemplateEngine {
             // May already have been unregistered during the shutdown sequence.
         }
 
-        // 2 - as templates can have dependencies, and expressions kept in memory, we clear all caches.
-        // Despite this may really impact performance, it should not happen too often on real systems.
-        synchronized (this) {
-            engine.getCacheManager().clearAllCaches();
+        // 2 - evict the template and the templates depending on it.
+        evict(dependencies.remove(template.fullName()));
+
+        // 3 - when the template comes from a bundle (leaving), expressions kept in memory may reference classes from
+        // this bundle, so the OGNL caches are cleared. It's not required for external templates.
+        if (template.getBundle() != null && template.getBundle().getBundleId() != 0) {
+            OgnlRuntime.clearCache();
+            // Unfortunately, the previous method do not clear the get and set method cache
+            // (ognl.OgnlRuntime.cacheGetMethod and ognl.OgnlRuntime.cacheSetMethod)
+            clearMethodCaches();
+            // The compiled expressions keep the accessors of the classes they have been evaluated on.
+            WisdomTemplateEngine current = engine;
+            if (current != null && current.getCacheManager() != null
+                    && current.getCacheManager().getExpressionCache() != null) {
+                current.getCacheManager().getExpressionCache().clear();
+            }
+            ExtendedOGNLExpressionEvaluator.clearCompiledExpressions();
         }
-        OgnlRuntime.clearCache();
-        // Unfortunately, the previous method do not clear the get and set method cache
-        // (ognl.OgnlRuntime.cacheGetMethod and ognl.OgnlRuntime.cacheSetMethod)
-        clearMethodCaches();
     }
 
     private void clearMethodCaches() {
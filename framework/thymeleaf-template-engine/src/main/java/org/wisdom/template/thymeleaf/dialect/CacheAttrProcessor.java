@@ -0,0 +1,167 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.template.thymeleaf.dialect;
+
+import org.thymeleaf.Arguments;
+import org.thymeleaf.Configuration;
+import org.thymeleaf.dom.Attribute;
+import org.thymeleaf.dom.Element;
+import org.thymeleaf.dom.Macro;
+import org.thymeleaf.dom.Node;
+import org.thymeleaf.exceptions.TemplateProcessingException;
+import org.thymeleaf.processor.ProcessorResult;
+import org.thymeleaf.processor.attr.AbstractAttrProcessor;
+import org.thymeleaf.standard.expression.StandardExpressions;
+import org.wisdom.template.thymeleaf.impl.FragmentCache;
+import org.wisdom.template.thymeleaf.impl.WisdomTemplateEngine;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Processes the {@literal th:cache} attribute. The rendered body of the element is stored in the cache service
+ * under the key computed from the attribute value (a standard expression). The time to live of the entry is
+ * given (in seconds) by the {@literal th:cache-ttl} attribute, and is {@link #DEFAULT_TTL} by default:
+ * <pre>
+ * {@code <nav th:cache="'menu-' + ${user}" th:cache-ttl="600">...</nav>}
+ * </pre>
+ * The key is scoped by the template containing the element and the locale, so the same key can be used in several
+ * templates. When the fragment is cached, the body is replaced by the cached content without being processed.
+ * Otherwise, a marker is appended to the body, so the rendered body is stored once processed
+ * (see {@link CacheStoreAttrProcessor}). The fragment is evicted when the template containing it, or a template used
+ * to render it, is modified.
+ * <p>
+ * The attributes replacing or repeating the element or its body ({@literal th:include}, {@literal th:replace},
+ * {@literal th:text}...) cannot be used on the same element, as they would drop the marker or the cached content.
+ * They must be moved to a child element (see {@link #CONFLICTING_ATTRIBUTES}).
+ */
+public class CacheAttrProcessor extends AbstractAttrProcessor {
+
+    /**
+     * The attribute name.
+     */
+    public static final String ATTR_NAME = "cache";
+
+    /**
+     * The name of the attribute giving the time to live of the entry.
+     */
+    public static final String TTL_ATTR_NAME = "cache-ttl";
+
+    /**
+     * The default time to live of the cached fragments, in seconds.
+     */
+    public static final int DEFAULT_TTL = 60;
+
+    /**
+     * Executed before the other attributes (such as {@literal th:if} or {@literal th:with}), so the body is not
+     * computed when cached.
+     */
+    public static final int ATTR_PRECEDENCE = 10;
+
+    /**
+     * The attributes that cannot be used on an element having a {@literal th:cache} attribute.
+     */
+    public static final List<String> CONFLICTING_ATTRIBUTES = Collections.unmodifiableList(Arrays.asList(
+            "include", "replace", "substituteby", "text", "utext", "each"));
+
+    /**
+     * Creates the processor.
+     */
+    public CacheAttrProcessor() {
+        super(ATTR_NAME);
+    }
+
+    @Override
+    public int getPrecedence() {
+        return ATTR_PRECEDENCE;
+    }
+
+    @Override
+    protected ProcessorResult processAttribute(Arguments arguments, Element element, String attributeName) {
+        String prefix = Attribute.getPrefixFromAttributeName(attributeName);
+        for (String conflicting : CONFLICTING_ATTRIBUTES) {
+            if (element.hasNormalizedAttribute(prefix, conflicting)) {
+                throw new TemplateProcessingException("The " + attributeName + " attribute cannot be used with "
+                        + Node.applyDialectPrefix(conflicting, prefix) + " on the same element <"
+                        + element.getOriginalName() + "> in " + element.getDocumentName()
+                        + ", move it to a child element");
+            }
+        }
+        String expression = element.getAttributeValue(attributeName);
+        String ttlExpression = element.getAttributeValueFromNormalizedName(prefix, TTL_ATTR_NAME);
+        element.removeAttribute(attributeName);
+        if (ttlExpression != null) {
+            element.removeAttribute(element.getAttributeOriginalNameFromNormalizedName(
+                    Node.applyDialectPrefix(TTL_ATTR_NAME, prefix)));
+        }
+
+        if (!(arguments.getTemplateEngine() instanceof WisdomTemplateEngine)) {
+            return ProcessorResult.OK;
+        }
+        WisdomTemplateEngine engine = (WisdomTemplateEngine) arguments.getTemplateEngine();
+        FragmentCache cache = engine.getFragmentCache();
+        if (cache == null || !cache.isEnabled()) {
+            return ProcessorResult.OK;
+        }
+
+        Object key = evaluate(arguments, expression);
+        if (key == null) {
+            // No key, the fragment is not cached.
+            return ProcessorResult.OK;
+        }
+
+        String fragment = FragmentCache.key(element.getDocumentName(), arguments.getContext().getLocale(),
+                key.toString());
+        String cached = cache.get(fragment);
+        if (cached != null) {
+            element.clearChildren();
+            element.addChild(new Macro(cached));
+            return ProcessorResult.OK;
+        }
+
+        int ttl = DEFAULT_TTL;
+        if (ttlExpression != null) {
+            Object value = evaluate(arguments, ttlExpression);
+            try {
+                ttl = value instanceof Number ? ((Number) value).intValue() : Integer.parseInt(String.valueOf(value));
+            } catch (NumberFormatException e) {
+                throw new TemplateProcessingException("Invalid time to live for the cached fragment " + key + ": "
+                        + value, e);
+            }
+        }
+
+        Element marker = new Element(CacheStoreAttrProcessor.MARKER_ELEMENT);
+        marker.setAttribute(Node.applyDialectPrefix(CacheStoreAttrProcessor.ATTR_NAME, prefix), fragment);
+        marker.setNodeProperty(CacheStoreAttrProcessor.TTL_PROPERTY, ttl);
+        String root = engine.getDependencies() == null ? null : engine.getDependencies().current();
+        marker.setNodeProperty(CacheStoreAttrProcessor.TEMPLATES_PROPERTY,
+                Arrays.asList(element.getDocumentName(), root));
+        element.addChild(marker);
+        return ProcessorResult.OK;
+    }
+
+    private static Object evaluate(Arguments arguments, String expression) {
+        Configuration configuration = arguments.getConfiguration();
+        return StandardExpressions.getExpressionParser(configuration)
+                .parseExpression(configuration, arguments, expression)
+                .execute(configuration, arguments);
+    }
+}
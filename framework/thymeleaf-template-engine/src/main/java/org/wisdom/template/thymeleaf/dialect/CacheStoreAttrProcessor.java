@@ -0,0 +1,102 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.template.thymeleaf.dialect;
+
+import org.thymeleaf.Arguments;
+import org.thymeleaf.dom.Element;
+import org.thymeleaf.dom.NestableNode;
+import org.thymeleaf.dom.Node;
+import org.thymeleaf.processor.ProcessorResult;
+import org.thymeleaf.processor.attr.AbstractAttrProcessor;
+import org.thymeleaf.templatewriter.AbstractGeneralTemplateWriter;
+import org.thymeleaf.templatewriter.ITemplateWriter;
+import org.thymeleaf.util.DOMUtils;
+import org.wisdom.template.thymeleaf.impl.WisdomTemplateEngine;
+
+import java.util.List;
+
+/**
+ * Stores the body of an element having a {@literal th:cache} attribute. The {@link CacheAttrProcessor} appends a
+ * marker element to the body of the element. As children are processed in order, the other children have been
+ * processed when the marker is reached: they are written to the cache, and the marker is removed.
+ */
+public class CacheStoreAttrProcessor extends AbstractAttrProcessor {
+
+    /**
+     * The attribute name.
+     */
+    public static final String ATTR_NAME = "cache-store";
+
+    /**
+     * The name of the marker element.
+     */
+    static final String MARKER_ELEMENT = "wisdom-cache";
+
+    /**
+     * The node property containing the time to live of the entry.
+     */
+    static final String TTL_PROPERTY = "wisdom.cache.ttl";
+
+    /**
+     * The node property containing the templates having produced the fragment.
+     */
+    static final String TEMPLATES_PROPERTY = "wisdom.cache.templates";
+
+    /**
+     * Creates the processor.
+     */
+    public CacheStoreAttrProcessor() {
+        super(ATTR_NAME);
+    }
+
+    @Override
+    public int getPrecedence() {
+        return CacheAttrProcessor.ATTR_PRECEDENCE;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected ProcessorResult processAttribute(Arguments arguments, Element element, String attributeName) {
+        String key = element.getAttributeValue(attributeName);
+        NestableNode parent = element.getParent();
+        parent.removeChild(element);
+
+        if (!element.hasNodeProperty(TEMPLATES_PROPERTY)
+                || !(arguments.getTemplateEngine() instanceof WisdomTemplateEngine)) {
+            // Not a marker.
+            return ProcessorResult.OK;
+        }
+
+        ITemplateWriter writer = arguments.getConfiguration()
+                .getTemplateModeHandler(arguments.getTemplateResolution().getTemplateMode())
+                .getTemplateWriter();
+        if (!(writer instanceof AbstractGeneralTemplateWriter)) {
+            return ProcessorResult.OK;
+        }
+        StringBuilder content = new StringBuilder();
+        for (Node child : parent.getChildren()) {
+            content.append(DOMUtils.getOutputFor(arguments, child, (AbstractGeneralTemplateWriter) writer));
+        }
+        ((WisdomTemplateEngine) arguments.getTemplateEngine()).getFragmentCache().put(key, content.toString(),
+                (Integer) element.getNodeProperty(TTL_PROPERTY),
+                (List<String>) element.getNodeProperty(TEMPLATES_PROPERTY));
+        return ProcessorResult.OK;
+    }
+}
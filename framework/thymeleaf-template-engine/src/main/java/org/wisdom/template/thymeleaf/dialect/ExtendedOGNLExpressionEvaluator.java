@@ -44,7 +44,7 @@ public class ExtendedOGNLExpressionEvaluator implements IStandardVariableExpress
 
     public static final ExtendedOGNLExpressionEvaluator INSTANCE = new ExtendedOGNLExpressionEvaluator();
     private static final Logger LOGGER = LoggerFactory.getLogger(OgnlVariableExpressionEvaluator.class);
-    private static final String OGNL_CACHE_PREFIX = "{ognl}";
+    private static final String OGNL_CACHE_PREFIX = "{wisdom-ognl}";
 
     public static final String BUNDLE_VAR_KEY = "__bundle__";
 
@@ -77,7 +77,7 @@ public class ExtendedOGNLExpressionEvaluator implements IStandardVariableExpress
                 LOGGER.trace("OGNL expression: evaluating expression \"{}\" on target", expression);
             }
 
-            Object expressionTree = null;
+            CompiledExpression compiled = null;
             ICache<String, Object> cache = null;
 
             if (configuration != null) {
@@ -88,14 +88,27 @@ public class ExtendedOGNLExpressionEvaluator implements IStandardVariableExpress
             }
 
             if (cache != null) {
-                expressionTree = cache.get(OGNL_CACHE_PREFIX + expression);
+                compiled = (CompiledExpression) cache.get(OGNL_CACHE_PREFIX + expression);
             }
 
+            if (compiled == null) {
+                compiled = new CompiledExpression(ognl.Ognl.parseExpression(expression),
+                        PropertyChain.compile(expression));
+                if (cache != null) {
+                    cache.put(OGNL_CACHE_PREFIX + expression, compiled);
+                }
+            }
+
+            final Object evaluationRoot =
+                    (useSelectionAsRoot ?
+                            processingContext.getExpressionSelectionEvaluationRoot() :
+                            processingContext.getExpressionEvaluationRoot());
 
-            if (expressionTree == null) {
-                expressionTree = ognl.Ognl.parseExpression(expression);
-                if (cache != null && null != expressionTree) {
-                    cache.put(OGNL_CACHE_PREFIX + expression, expressionTree);
+            // Simple property chains do not need the OGNL context.
+            if (compiled.chain != null) {
+                final Object result = getValue(compiled.chain, evaluationRoot, expression);
+                if (result != PropertyChain.UNRESOLVED) {
+                    return convert(configuration, processingContext, expContext, result);
                 }
             }
 
@@ -107,11 +120,6 @@ public class ExtendedOGNLExpressionEvaluator implements IStandardVariableExpress
                 ctxt.putAll(additionalContextVariables);
             }
 
-            final Object evaluationRoot =
-                    (useSelectionAsRoot ?
-                            processingContext.getExpressionSelectionEvaluationRoot() :
-                            processingContext.getExpressionEvaluationRoot());
-
             // If we have a bundle set, customize the class loading.
             if ((ctxt.get("vars") instanceof Map) && ((Map) ctxt.get("vars")).containsKey(BUNDLE_VAR_KEY)) {
                 final Bundle bundle = (Bundle) ((Map) ctxt.get("vars")).get(BUNDLE_VAR_KEY);
@@ -151,22 +159,58 @@ public class ExtendedOGNLExpressionEvaluator implements IStandardVariableExpress
                 });
             }
 
-            final Object result = Ognl.getValue(expressionTree, ctxt, evaluationRoot);
+            final Object result = Ognl.getValue(compiled.tree, ctxt, evaluationRoot);
+            return convert(configuration, processingContext, expContext, result);
 
-            if (!expContext.getPerformTypeConversion()) {
-                return result;
-            }
+        } catch (final OgnlException e) {
+            throw new TemplateProcessingException(
+                    "Exception evaluating OGNL expression: \"" + expression + "\"", e);
+        }
 
-            final IStandardConversionService conversionService =
-                    StandardExpressions.getConversionService(configuration);
+    }
 
-            return conversionService.convert(configuration, processingContext, result, String.class);
+    /**
+     * Clears the property accessors of the compiled expressions. This method must be called when the classes used
+     * by the templates may have changed (bundles leaving), after having cleared the expression cache.
+     */
+    public static void clearCompiledExpressions() {
+        PropertyChain.clear();
+    }
 
-        } catch (final OgnlException e) {
+    private static Object getValue(PropertyChain chain, Object root, String expression) {
+        try {
+            return chain.getValue(root);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
             throw new TemplateProcessingException(
                     "Exception evaluating OGNL expression: \"" + expression + "\"", e);
         }
+    }
+
+    private static Object convert(Configuration configuration, IProcessingContext processingContext,
+                                  StandardExpressionExecutionContext expContext, Object result) {
+        if (!expContext.getPerformTypeConversion()) {
+            return result;
+        }
 
+        final IStandardConversionService conversionService =
+                StandardExpressions.getConversionService(configuration);
+
+        return conversionService.convert(configuration, processingContext, result, String.class);
+    }
+
+    /**
+     * A parsed expression, stored in the expression cache.
+     */
+    private static final class CompiledExpression {
+        private final Object tree;
+        private final PropertyChain chain;
+
+        private CompiledExpression(Object tree, PropertyChain chain) {
+            this.tree = tree;
+            this.chain = chain;
+        }
     }
 
 }
@@ -0,0 +1,267 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.template.thymeleaf.dialect;
+
+import ognl.ObjectPropertyAccessor;
+import ognl.OgnlException;
+import ognl.OgnlRuntime;
+import ognl.PropertyAccessor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * A compiled version of the OGNL expressions that are simple property chains, such as {@code user.address.city}.
+ * Each property is read using a {@link MethodHandle} resolved once per receiver class, instead of walking the OGNL
+ * tree. The last receiver class of each property is kept inline, so monomorphic chains (the most common case in
+ * templates) do not even look up the per-class accessors.
+ * <p>
+ * Only the cases where the result is guaranteed to be the same as the OGNL result are handled: public getters of
+ * objects using the default OGNL property accessor and entries of maps (including the Thymeleaf variables maps). A
+ * null intermediate value fails the way OGNL does. Anything else (collections, arrays, fields, custom property
+ * accessors...) is reported as {@link #UNRESOLVED}, letting the caller use the interpreted OGNL evaluation.
+ * <p>
+ * The accessors are attached to the receiver classes (using a {@link ClassValue}), so they do not prevent the classes
+ * of departed bundles from being unloaded.
+ */
+final class PropertyChain {
+
+    /**
+     * Returned when the chain cannot be evaluated without OGNL.
+     */
+    static final Object UNRESOLVED = new Object();
+
+    private static final Pattern CHAIN = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*(\\.[A-Za-z_$][A-Za-z0-9_$]*)*");
+
+    /**
+     * The OGNL keywords, that cannot be used as property names.
+     */
+    private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+            "shl", "shr", "ushr", "and", "band", "or", "bor", "xor", "eq", "neq", "lt", "gt", "lte", "gte", "not",
+            "in", "instanceof", "new", "true", "false", "null"));
+
+    /**
+     * The properties the OGNL map accessor computes instead of reading the map.
+     */
+    private static final Set<String> MAP_PROPERTIES = new HashSet<>(Arrays.asList(
+            "size", "keys", "keySet", "values", "isEmpty"));
+
+    /**
+     * The OGNL property accessors reading the map entries, except for the {@link #MAP_PROPERTIES}. Thymeleaf registers
+     * its own (package-private) accessor for its {@code VariablesMap}, the evaluation root of the templates, only
+     * changing how {@code size} is computed.
+     */
+    private static final Set<String> MAP_ACCESSORS = new HashSet<>(Arrays.asList(
+            "ognl.MapPropertyAccessor", "org.thymeleaf.context.OGNLVariablesMapPropertyAccessor"));
+
+    private static final MethodHandle MAP_GET;
+
+    static {
+        try {
+            MAP_GET = MethodHandles.publicLookup().findVirtual(Map.class, "get",
+                    MethodType.methodType(Object.class, Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Receiver class -> property name -> accessor ({@code null} handle when not supported). Replaced by
+     * {@link #clear()}.
+     */
+    private static volatile ClassValue<ConcurrentMap<String, Accessor>> accessors = newAccessors();
+
+    private final String[] properties;
+
+    private final Accessor[] inline;
+
+    private PropertyChain(String[] properties) {
+        this.properties = properties;
+        this.inline = new Accessor[properties.length];
+    }
+
+    /**
+     * Compiles the given expression.
+     *
+     * @param expression the OGNL expression
+     * @return the compiled chain, {@code null} if the expression is not a simple property chain
+     */
+    static PropertyChain compile(String expression) {
+        String trimmed = expression.trim();
+        if (!CHAIN.matcher(trimmed).matches()) {
+            return null;
+        }
+        String[] properties = trimmed.split("\\.");
+        for (String property : properties) {
+            if (KEYWORDS.contains(property)) {
+                return null;
+            }
+        }
+        return new PropertyChain(properties);
+    }
+
+    private static ClassValue<ConcurrentMap<String, Accessor>> newAccessors() {
+        return new ClassValue<ConcurrentMap<String, Accessor>>() {
+            @Override
+            protected ConcurrentMap<String, Accessor> computeValue(Class<?> type) {
+                return new ConcurrentHashMap<>();
+            }
+        };
+    }
+
+    /**
+     * Clears the accessors resolved for all classes, as the OGNL property accessors may have changed. Chains already
+     * compiled keep their inline accessors, so they must be discarded too (they are stored in the expression cache).
+     */
+    static void clear() {
+        accessors = newAccessors();
+    }
+
+    /**
+     * Evaluates the chain.
+     *
+     * @param root the evaluation root
+     * @return the value, {@link #UNRESOLVED} if OGNL must be used instead
+     * @throws OgnlException if an intermediate value is {@code null}, as OGNL does
+     * @throws Throwable     if a getter throws an exception
+     */
+    Object getValue(Object root) throws Throwable {
+        Object current = root;
+        for (int i = 0; i < properties.length; i++) {
+            if (current == null) {
+                throw new OgnlException("source is null for getProperty(null, \"" + properties[i] + "\")");
+            }
+            if (current instanceof Class) {
+                return UNRESOLVED;
+            }
+            Class<?> clazz = current.getClass();
+            Accessor accessor = inline[i];
+            if (accessor == null || accessor.clazz != clazz) {
+                accessor = lookup(clazz, properties[i]);
+                inline[i] = accessor;
+            }
+            if (accessor.handle == null) {
+                return UNRESOLVED;
+            }
+            current = accessor.getValue(current);
+        }
+        return current;
+    }
+
+    private static Accessor lookup(Class<?> clazz, String property) {
+        ConcurrentMap<String, Accessor> map = accessors.get(clazz);
+        Accessor accessor = map.get(property);
+        if (accessor == null) {
+            accessor = new Accessor(clazz, property, resolve(clazz, property));
+            map.put(property, accessor);
+        }
+        return accessor;
+    }
+
+    private static MethodHandle resolve(Class<?> clazz, String property) {
+        final PropertyAccessor accessor;
+        try {
+            accessor = OgnlRuntime.getPropertyAccessor(clazz);
+        } catch (OgnlException e) { //NOSONAR
+            return null;
+        }
+        if (accessor == null) {
+            return null;
+        }
+        if (MAP_ACCESSORS.contains(accessor.getClass().getName())) {
+            return MAP_PROPERTIES.contains(property) ? null : MAP_GET;
+        }
+        if (accessor.getClass() != ObjectPropertyAccessor.class) {
+            return null;
+        }
+
+        String name = capitalize(property);
+        Method getter = getter(clazz, "get" + name);
+        Method is = getter(clazz, "is" + name);
+        if (getter != null && is != null) {
+            // Let OGNL choose.
+            return null;
+        }
+        Method method = getter != null ? getter : is;
+        if (method == null || !Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+            return null;
+        }
+        try {
+            return MethodHandles.publicLookup().unreflect(method)
+                    .asType(MethodType.methodType(Object.class, Object.class));
+        } catch (IllegalAccessException e) { //NOSONAR
+            return null;
+        }
+    }
+
+    private static Method getter(Class<?> clazz, String name) {
+        try {
+            Method method = clazz.getMethod(name);
+            return method.getReturnType() == Void.TYPE ? null : method;
+        } catch (NoSuchMethodException e) { //NOSONAR
+            return null;
+        }
+    }
+
+    /**
+     * Capitalizes the property name the way OGNL does: names such as {@code xCoord} are kept as they are.
+     */
+    private static String capitalize(String property) {
+        if (property.length() == 1) {
+            return property.toUpperCase();
+        }
+        if (Character.isLowerCase(property.charAt(0)) && Character.isUpperCase(property.charAt(1))) {
+            return property;
+        }
+        return Character.toUpperCase(property.charAt(0)) + property.substring(1);
+    }
+
+    /**
+     * The accessor of a property for a given receiver class.
+     */
+    private static final class Accessor {
+        private final Class<?> clazz;
+        private final String property;
+        private final MethodHandle handle;
+
+        private Accessor(Class<?> clazz, String property, MethodHandle handle) {
+            this.clazz = clazz;
+            this.property = property;
+            this.handle = handle;
+        }
+
+        private Object getValue(Object target) throws Throwable {
+            if (handle == MAP_GET) {
+                return (Object) handle.invokeExact((Map) target, (Object) property);
+            }
+            return (Object) handle.invokeExact(target);
+        }
+    }
+}
@@ -369,7 +369,8 @@ public class Routes {
     }
 
     /**
-     * Gets the url of the given asset. Throws an exception if the asset cannot be found.
+     * Gets the url of the given asset. Throws an exception if the asset cannot be found. The returned url is
+     * fingerprinted (see {@link Assets#getFingerprintedPath(Asset)}), so it can be cached forever by browsers.
      *
      * @param path the asset's path
      * @return the url
@@ -384,6 +385,6 @@ public class Routes {
             // Not found.
             throw new TemplateProcessingException("Cannot find the URL of the asset " + path);
         }
-        return asset.getPath();
+        return assets.getFingerprintedPath(asset);
     }
 }
@@ -19,16 +19,20 @@
  */
 package org.wisdom.template.thymeleaf.dialect;
 
+import org.thymeleaf.processor.IProcessor;
 import org.thymeleaf.standard.StandardDialect;
 import org.thymeleaf.standard.expression.IStandardVariableExpressionEvaluator;
 
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Wisdom Themeleaf dialect.
  * <p/>
  * Wisdom does not use the standard Thymeleaf dialect directly. First, injecting 'expression' object is not possible,
  * while we need to inject `routes`. In addition, the OGNL boolean fix use a method not compatible with OSGi.
+ * <p/>
+ * It also adds the {@literal th:cache} attribute, caching rendered fragments.
  */
 public class WisdomStandardDialect extends StandardDialect {
 
@@ -41,6 +45,14 @@ public class WisdomStandardDialect extends StandardDialect {
         return attributes;
     }
 
+    @Override
+    public Set<IProcessor> getProcessors() {
+        Set<IProcessor> processors = super.getProcessors();
+        processors.add(new CacheAttrProcessor());
+        processors.add(new CacheStoreAttrProcessor());
+        return processors;
+    }
+
 
 
 
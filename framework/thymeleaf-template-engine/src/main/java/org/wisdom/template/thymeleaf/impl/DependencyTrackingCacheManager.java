@@ -0,0 +1,107 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.template.thymeleaf.impl;
+
+import org.thymeleaf.Template;
+import org.thymeleaf.cache.AbstractCacheManager;
+import org.thymeleaf.cache.ICache;
+import org.thymeleaf.cache.ICacheEntryValidityChecker;
+import org.thymeleaf.cache.StandardCacheManager;
+import org.thymeleaf.dom.Node;
+
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * A cache manager recording the templates used during the rendering of each template. Every template (layouts,
+ * fragments, includes...) is retrieved from the template cache, so each lookup is recorded in the
+ * {@link TemplateDependencies}. The caches are the standard Thymeleaf caches.
+ */
+public class DependencyTrackingCacheManager extends AbstractCacheManager {
+
+    private final StandardCacheManager delegate = new StandardCacheManager();
+
+    private final TemplateDependencies dependencies;
+
+    /**
+     * Creates a new cache manager.
+     *
+     * @param dependencies the dependency graph
+     */
+    public DependencyTrackingCacheManager(TemplateDependencies dependencies) {
+        this.dependencies = dependencies;
+    }
+
+    @Override
+    protected ICache<String, Template> initializeTemplateCache() {
+        return new TrackingCache(delegate.getTemplateCache());
+    }
+
+    @Override
+    protected ICache<String, List<Node>> initializeFragmentCache() {
+        return delegate.getFragmentCache();
+    }
+
+    @Override
+    protected ICache<String, Properties> initializeMessageCache() {
+        return delegate.getMessageCache();
+    }
+
+    @Override
+    protected ICache<String, Object> initializeExpressionCache() {
+        return delegate.getExpressionCache();
+    }
+
+    private class TrackingCache implements ICache<String, Template> {
+
+        private final ICache<String, Template> cache;
+
+        private TrackingCache(ICache<String, Template> cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public void put(String key, Template value) {
+            cache.put(key, value);
+        }
+
+        @Override
+        public Template get(String key) {
+            dependencies.used(key);
+            return cache.get(key);
+        }
+
+        @Override
+        public Template get(String key, ICacheEntryValidityChecker<? super String, ? super Template> validityChecker) {
+            dependencies.used(key);
+            return cache.get(key, validityChecker);
+        }
+
+        @Override
+        public void clear() {
+            cache.clear();
+        }
+
+        @Override
+        public void clearKey(String key) {
+            cache.clearKey(key);
+        }
+    }
+}
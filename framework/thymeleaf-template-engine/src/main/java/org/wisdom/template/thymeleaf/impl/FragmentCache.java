@@ -0,0 +1,202 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.template.thymeleaf.impl;
+
+import org.wisdom.api.cache.Cache;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores rendered template fragments (see the {@literal th:cache} attribute) in the {@link Cache} service. The
+ * cached fragments are associated with the templates having produced them, so they are evicted when one of these
+ * templates is modified. The associations of the expired fragments are pruned periodically.
+ */
+public class FragmentCache {
+
+    /**
+     * The prefix of the keys used in the {@link Cache} service.
+     */
+    public static final String KEY_PREFIX = "thymeleaf.fragment.";
+
+    /**
+     * The minimal delay between two prunings of the expired fragments, in nanoseconds.
+     */
+    static final long PRUNE_PERIOD = TimeUnit.MINUTES.toNanos(1);
+
+    /**
+     * Template name -> keys of the fragments it produced -> expiration time (in nanoseconds).
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, Long>> fragments = new ConcurrentHashMap<>();
+
+    /**
+     * The time of the next pruning, in nanoseconds.
+     */
+    private final AtomicLong nextPrune = new AtomicLong(System.nanoTime() + PRUNE_PERIOD);
+
+    private volatile Cache cache;
+
+    /**
+     * Sets the cache service storing the fragments.
+     *
+     * @param cache the cache service, {@code null} to disable the cache
+     */
+    public void setCache(Cache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * @return whether or not fragments can be cached.
+     */
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Computes the key of a fragment. The key given by the template is scoped by the template containing the
+     * fragment and the locale used to render it, so fragments from different templates or in different languages do
+     * not collide.
+     *
+     * @param template the name of the template containing the fragment
+     * @param locale   the locale used to render the fragment, may be {@code null}
+     * @param key      the key given by the template
+     * @return the fragment key
+     */
+    public static String key(String template, Locale locale, String key) {
+        return template + '|' + locale + '|' + key;
+    }
+
+    /**
+     * Gets a cached fragment.
+     *
+     * @param key the fragment key
+     * @return the rendered fragment, {@code null} if not cached
+     */
+    public String get(String key) {
+        Cache current = cache;
+        if (current == null) {
+            return null;
+        }
+        return current.get(KEY_PREFIX + key);
+    }
+
+    /**
+     * Stores a rendered fragment.
+     *
+     * @param key        the fragment key
+     * @param content    the rendered fragment
+     * @param expiration the time to live in seconds (0 means eternity)
+     * @param templates  the names of the templates having produced the fragment
+     */
+    public void put(String key, String content, int expiration, Collection<String> templates) {
+        Cache current = cache;
+        if (current == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        Long expires = expiration > 0 ? now + TimeUnit.SECONDS.toNanos(expiration) : Long.MAX_VALUE;
+        for (String template : templates) {
+            if (template != null) {
+                ConcurrentMap<String, Long> keys = fragments.get(template);
+                if (keys == null) {
+                    ConcurrentMap<String, Long> newKeys = new ConcurrentHashMap<>();
+                    keys = fragments.putIfAbsent(template, newKeys);
+                    if (keys == null) {
+                        keys = newKeys;
+                    }
+                }
+                keys.put(key, expires);
+            }
+        }
+        long next = nextPrune.get();
+        if (now - next >= 0 && nextPrune.compareAndSet(next, now + PRUNE_PERIOD)) {
+            prune(now);
+        }
+        current.set(KEY_PREFIX + key, content, expiration);
+    }
+
+    /**
+     * Evicts the fragments produced by the given templates.
+     *
+     * @param templates the template names
+     */
+    public void invalidate(Collection<String> templates) {
+        for (String template : templates) {
+            Map<String, Long> keys = fragments.remove(template);
+            if (keys != null) {
+                evict(keys.keySet());
+            }
+        }
+    }
+
+    /**
+     * Evicts all the cached fragments.
+     */
+    public void clear() {
+        for (String template : fragments.keySet()) {
+            Map<String, Long> keys = fragments.remove(template);
+            if (keys != null) {
+                evict(keys.keySet());
+            }
+        }
+    }
+
+    /**
+     * Forgets the expired fragments, they have been evicted by the cache service.
+     *
+     * @param now the current time, in nanoseconds
+     */
+    void prune(long now) {
+        // The (empty) sets are kept, the number of templates is bounded.
+        for (ConcurrentMap<String, Long> keys : fragments.values()) {
+            Iterator<Long> iterator = keys.values().iterator();
+            while (iterator.hasNext()) {
+                long expires = iterator.next();
+                if (expires != Long.MAX_VALUE && now - expires > 0) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of fragments associated with the given template.
+     */
+    int size(String template) {
+        Map<String, Long> keys = fragments.get(template);
+        return keys == null ? 0 : keys.size();
+    }
+
+    private void evict(Collection<String> keys) {
+        Cache current = cache;
+        if (current == null) {
+            return;
+        }
+        for (String key : keys) {
+            current.remove(KEY_PREFIX + key);
+        }
+    }
+}
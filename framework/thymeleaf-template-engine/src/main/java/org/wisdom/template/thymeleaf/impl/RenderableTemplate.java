@@ -0,0 +1,191 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.template.thymeleaf.impl;
+
+import com.google.common.base.Charsets;
+import org.thymeleaf.context.IContext;
+import org.wisdom.api.http.*;
+
+import java.io.*;
+import java.nio.charset.Charset;
+
+/**
+ * A template rendered while being sent to the client. Thymeleaf writes through a charset encoder directly to the
+ * stream given by the engine, so the page is never materialized in memory.
+ * <p>
+ * If the content is requested (using {@link #content()} or {@link #render(Context, Result)}), the template is
+ * rendered in memory, once.
+ */
+public class RenderableTemplate implements StreamingRenderable<String> {
+
+    private final WisdomTemplateEngine engine;
+
+    private final String templateName;
+
+    private final IContext context;
+
+    /**
+     * The HTTP context of the request having triggered the rendering.
+     */
+    private final Context http;
+
+    /**
+     * The content rendered in memory, written under the lock but read without it.
+     */
+    private volatile String rendered;
+
+    /**
+     * Creates a new instance of {@link RenderableTemplate}.
+     *
+     * @param engine       the engine
+     * @param templateName the template name
+     * @param context      the Thymeleaf context, containing the template variables
+     * @param http         the HTTP context of the request
+     */
+    public RenderableTemplate(WisdomTemplateEngine engine, String templateName, IContext context, Context http) {
+        this.engine = engine;
+        this.templateName = templateName;
+        this.context = context;
+        this.http = http;
+    }
+
+    /**
+     * Writes the template to the given stream, using the charset of the result.
+     *
+     * @param context the HTTP context
+     * @param result  the result having built this renderable object
+     * @param out     the stream sending the content to the client
+     * @throws RenderableException if the template cannot be rendered, or the content cannot be written
+     */
+    @Override
+    public void write(Context context, Result result, OutputStream out) throws RenderableException {
+        Writer writer = new OutputStreamWriter(out, getCharset(result));
+        try {
+            String content = rendered;
+            if (content != null) {
+                writer.write(content);
+            } else {
+                process(writer);
+            }
+            writer.flush();
+        } catch (IOException | RuntimeException e) {
+            throw new RenderableException("Cannot render the template " + templateName, e);
+        }
+    }
+
+    /**
+     * Renders the template in memory.
+     *
+     * @param context the HTTP context
+     * @param result  the result having built this renderable object
+     * @return an input stream on the rendered content
+     * @throws RenderableException if the template cannot be rendered
+     */
+    @Override
+    public InputStream render(Context context, Result result) throws RenderableException {
+        try {
+            return new ByteArrayInputStream(content().getBytes(getCharset(result)));
+        } catch (RuntimeException e) {
+            throw new RenderableException("Cannot render the template " + templateName, e);
+        }
+    }
+
+    private static Charset getCharset(Result result) {
+        if (result == null) {
+            return Charsets.UTF_8;
+        }
+        if (result.getCharset() == null) {
+            // No charset provided, use default encoding (UTF-8).
+            result.with(Charsets.UTF_8);
+        }
+        return result.getCharset();
+    }
+
+    private void process(Writer writer) {
+        // The rendering may happen in another thread than the one having created this object.
+        Context current = Context.CONTEXT.get();
+        if (current == null && http != null) {
+            Context.CONTEXT.set(http);
+        }
+        try {
+            engine.write(templateName, context, writer);
+        } finally {
+            if (current == null) {
+                Context.CONTEXT.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the length of the rendered content, {@literal -1} if not rendered in memory yet.
+     */
+    @Override
+    public long length() {
+        String content = rendered;
+        if (content == null) {
+            return -1;
+        }
+        return content.length();
+    }
+
+    /**
+     * @return {@link MimeTypes#HTML}.
+     */
+    @Override
+    public String mimetype() {
+        return MimeTypes.HTML;
+    }
+
+    /**
+     * Renders the template in memory (on first call only).
+     *
+     * @return the rendered template
+     */
+    @Override
+    public synchronized String content() {
+        if (rendered == null) {
+            StringWriter writer = new StringWriter();
+            process(writer);
+            rendered = writer.toString();
+        }
+        return rendered;
+    }
+
+    /**
+     * @return {@literal false}, the template produces the final content.
+     */
+    @Override
+    public boolean requireSerializer() {
+        return false;
+    }
+
+    @Override
+    public void setSerializedForm(String serialized) {
+        // Nothing because serialization is not supported for this renderable class.
+    }
+
+    /**
+     * @return {@literal false}, engines stream the content using {@link #write(Context, Result, OutputStream)}.
+     */
+    @Override
+    public boolean mustBeChunked() {
+        return false;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.template.thymeleaf.impl;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The dependency graph between templates. Templates are identified by the names used by Thymeleaf to cache them:
+ * the full name for the rendered templates, and the name written in the template for layouts, fragments and
+ * includes (such as {@literal fragments/menu}).
+ * <p>
+ * Two kinds of information are collected:
+ * <ul>
+ * <li>the resolutions: the template names resolved to each template file (by the
+ * {@link WisdomURLResourceResolver})</li>
+ * <li>the usages: the templates used while rendering a template (recorded by the template cache, see
+ * {@link DependencyTrackingCacheManager})</li>
+ * </ul>
+ * So, when a template file is modified, only this template and the templates using it are invalidated.
+ */
+public class TemplateDependencies {
+
+    /**
+     * Template file (full name) -> names resolved to this file.
+     */
+    private final ConcurrentMap<String, Set<String>> resolutions = new ConcurrentHashMap<>();
+
+    /**
+     * Template name -> names of the (rendered) templates using it.
+     */
+    private final ConcurrentMap<String, Set<String>> dependents = new ConcurrentHashMap<>();
+
+    /**
+     * The name of the template rendered by the current thread.
+     */
+    private final ThreadLocal<String> rendering = new ThreadLocal<>();
+
+    /**
+     * Notifies that the current thread starts rendering the given template.
+     *
+     * @param name the template name
+     * @return the name of the template the thread was rendering before, to be given to {@link #exit(String)}
+     */
+    public String enter(String name) {
+        String previous = rendering.get();
+        rendering.set(name);
+        return previous;
+    }
+
+    /**
+     * Notifies that the current thread has completed the rendering of a template.
+     *
+     * @param previous the value returned by {@link #enter(String)}
+     */
+    public void exit(String previous) {
+        if (previous == null) {
+            rendering.remove();
+        } else {
+            rendering.set(previous);
+        }
+    }
+
+    /**
+     * @return the name of the template rendered by the current thread, {@code null} if none.
+     */
+    public String current() {
+        return rendering.get();
+    }
+
+    /**
+     * Records that the given name has been resolved to the given template file.
+     *
+     * @param name     the name used to reference the template
+     * @param fullName the full name of the template file
+     */
+    public void resolved(String name, String fullName) {
+        get(resolutions, fullName).add(name);
+    }
+
+    /**
+     * Records that the given template is used by the template rendered by the current thread.
+     *
+     * @param name the template name
+     */
+    public void used(String name) {
+        String root = rendering.get();
+        if (root != null && !root.equals(name)) {
+            Set<String> users = get(dependents, name);
+            // Called on every template lookup, avoid the write when the usage is already known.
+            if (!users.contains(root)) {
+                users.add(root);
+            }
+        }
+    }
+
+    /**
+     * Invalidates the given template file. The usages recorded for the affected templates are removed, they are
+     * recorded again during their next rendering.
+     *
+     * @param fullName the full name of the modified template file
+     * @return the names of the template file, and of all the templates using it (directly or not)
+     */
+    public Set<String> invalidate(String fullName) {
+        Set<String> affected = new LinkedHashSet<>();
+        Set<String> visited = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+        queue.add(fullName);
+        while (!queue.isEmpty()) {
+            String file = queue.poll();
+            if (!visited.add(file)) {
+                continue;
+            }
+            Set<String> names = names(file, resolutions.get(file));
+            affected.addAll(names);
+            for (String name : names) {
+                Set<String> users = dependents.get(name);
+                if (users != null) {
+                    queue.addAll(users);
+                }
+            }
+        }
+        for (Set<String> users : dependents.values()) {
+            users.removeAll(affected);
+        }
+        return affected;
+    }
+
+    /**
+     * Removes the given template file from the graph.
+     *
+     * @param fullName the full name of the deleted template file
+     * @return the names of the template file, and of all the templates using it (directly or not)
+     */
+    public Set<String> remove(String fullName) {
+        Set<String> affected = invalidate(fullName);
+        Set<String> names = resolutions.remove(fullName);
+        for (String name : names(fullName, names)) {
+            dependents.remove(name);
+        }
+        return affected;
+    }
+
+    private static Set<String> names(String fullName, Set<String> names) {
+        Set<String> all = new HashSet<>();
+        all.add(fullName);
+        if (names != null) {
+            all.addAll(names);
+        }
+        return all;
+    }
+
+    private static Set<String> get(ConcurrentMap<String, Set<String>> map, String key) {
+        Set<String> set = map.get(key);
+        if (set == null) {
+            Set<String> newSet = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+            set = map.putIfAbsent(key, newSet);
+            if (set == null) {
+                set = newSet;
+            }
+        }
+        return set;
+    }
+}
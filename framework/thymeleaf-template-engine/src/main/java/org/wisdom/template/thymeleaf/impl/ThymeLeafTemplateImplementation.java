@@ -37,6 +37,9 @@ import java.util.*;
 
 /**
  * Template implementation for ThymeLeaf template.
+ * <p>
+ * Renderings are not synchronized: the template engine is thread-safe once initialized. When the engine is
+ * replaced (dialect arrival or departure), the new engine is published atomically, so renderings never take a lock.
  */
 public class ThymeLeafTemplateImplementation implements Template {
 
@@ -60,7 +63,7 @@ public class ThymeLeafTemplateImplementation implements Template {
      */
     private final Bundle bundle;
 
-    private WisdomTemplateEngine templateEngine;
+    private volatile WisdomTemplateEngine templateEngine;
 
     public ThymeLeafTemplateImplementation(WisdomTemplateEngine templateEngine, File templateFile, Router router,
                                            Assets assets, Bundle source
@@ -87,10 +90,22 @@ public class ThymeLeafTemplateImplementation implements Template {
         this.assets = assets;
     }
 
-    public synchronized void updateEngine(WisdomTemplateEngine engine) {
+    /**
+     * Replaces the engine used to render this template. Renderings in progress complete with the previous engine.
+     *
+     * @param engine the new engine, must be initialized
+     */
+    public void updateEngine(WisdomTemplateEngine engine) {
         this.templateEngine = engine;
     }
 
+    /**
+     * @return the bundle containing the template, the system bundle for external templates.
+     */
+    public Bundle getBundle() {
+        return bundle;
+    }
+
     /**
      * Gets the template source url.
      *
@@ -140,12 +155,12 @@ public class ThymeLeafTemplateImplementation implements Template {
      * @return the rendered object.
      */
     @Override
-    public synchronized Renderable<?> render(Controller controller, Map<String, Object> variables) {
+    public Renderable<?> render(Controller controller, Map<String, Object> variables) {
         HashMap<String, Object> map = new HashMap<>(variables);
         if (!map.containsKey(ExtendedOGNLExpressionEvaluator.BUNDLE_VAR_KEY)) {
             map.put(ExtendedOGNLExpressionEvaluator.BUNDLE_VAR_KEY, bundle);
         }
-        return templateEngine.process(this, controller, router, assets, map);
+        return templateEngine.render(this, controller, router, assets, map);
     }
 
     /**
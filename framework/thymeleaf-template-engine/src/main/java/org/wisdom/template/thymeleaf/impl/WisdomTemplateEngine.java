@@ -22,18 +22,23 @@ package org.wisdom.template.thymeleaf.impl;
 import nz.net.ultraq.thymeleaf.LayoutDialect;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
+import org.thymeleaf.context.IContext;
 import org.thymeleaf.dialect.IDialect;
 import org.thymeleaf.exceptions.TemplateProcessingException;
 import org.wisdom.api.Controller;
 import org.wisdom.api.asset.Assets;
 import org.wisdom.api.bodies.RenderableString;
 import org.wisdom.api.http.MimeTypes;
+import org.wisdom.api.http.Renderable;
 import org.wisdom.api.router.Router;
 import org.wisdom.api.templates.Template;
+import org.wisdom.api.tracing.Span;
+import org.wisdom.api.tracing.Tracing;
 import org.wisdom.template.thymeleaf.dialect.Routes;
 import org.wisdom.template.thymeleaf.dialect.WisdomStandardDialect;
 
 import java.io.StringWriter;
+import java.io.Writer;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -43,6 +48,12 @@ import java.util.Set;
  */
 public class WisdomTemplateEngine extends TemplateEngine {
 
+    private boolean streaming;
+
+    private TemplateDependencies dependencies;
+
+    private FragmentCache fragmentCache;
+
     public WisdomTemplateEngine(Set<IDialect> dialects) {
         super();
         // We clear the dialects as we are using our own standard dialect.
@@ -55,6 +66,79 @@ public class WisdomTemplateEngine extends TemplateEngine {
         }
     }
 
+    /**
+     * Enables or disables the streaming mode. In this mode, {@link #render(Template, Controller, Router, Assets,
+     * Map)} returns a {@link RenderableTemplate}, rendered while being sent to the client. It must be set before the
+     * engine is used.
+     *
+     * @param streaming whether or not the templates are streamed
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * @return whether or not the templates are streamed.
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Sets the dependency graph recording the templates used by each rendering. It replaces the cache manager, so
+     * it must be set before the engine is initialized.
+     *
+     * @param dependencies the dependency graph
+     */
+    public void setDependencies(TemplateDependencies dependencies) {
+        this.dependencies = dependencies;
+        setCacheManager(new DependencyTrackingCacheManager(dependencies));
+    }
+
+    /**
+     * @return the dependency graph, {@code null} if dependencies are not tracked.
+     */
+    public TemplateDependencies getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * Sets the cache storing the fragments rendered with the {@literal th:cache} attribute.
+     *
+     * @param fragmentCache the fragment cache
+     */
+    public void setFragmentCache(FragmentCache fragmentCache) {
+        this.fragmentCache = fragmentCache;
+    }
+
+    /**
+     * @return the cache storing the fragments rendered with the {@literal th:cache} attribute, {@code null} if not
+     * set.
+     */
+    public FragmentCache getFragmentCache() {
+        return fragmentCache;
+    }
+
+    /**
+     * Renders the given template, or prepares its streamed rendering if the streaming mode is enabled.
+     *
+     * @param template   the template
+     * @param controller the template asking for the rendering
+     * @param router     the router service
+     * @param assets     the assets service
+     * @param variables  the template parameters
+     * @return the rendered HTML page, or the {@link RenderableTemplate} rendering it
+     */
+    public Renderable<String> render(Template template, Controller controller, Router router, Assets assets,
+                                     Map<String, Object> variables) {
+        if (!streaming) {
+            return process(template, controller, router, assets, variables);
+        }
+        return new RenderableTemplate(this, template.fullName(),
+                createContext(template, controller, router, assets, variables),
+                org.wisdom.api.http.Context.CONTEXT.get());
+    }
+
     /**
      * Renders the given template.
      * <p>
@@ -68,6 +152,25 @@ public class WisdomTemplateEngine extends TemplateEngine {
      */
     public RenderableString process(Template template, Controller controller, Router router, Assets assets, Map<String,
             Object> variables) {
+        Context ctx = createContext(template, controller, router, assets, variables);
+        StringWriter writer = new StringWriter();
+        write(template.fullName(), ctx, writer);
+        return new RenderableString(writer, MimeTypes.HTML);
+    }
+
+    /**
+     * Creates the Thymeleaf context used to render a template. Variables from the session, flash and request
+     * parameters are added to the given parameters.
+     *
+     * @param template   the template
+     * @param controller the template asking for the rendering
+     * @param router     the router service
+     * @param assets     the assets service
+     * @param variables  the template parameters
+     * @return the context
+     */
+    private Context createContext(Template template, Controller controller, Router router, Assets assets,
+                                  Map<String, Object> variables) {
         Context ctx = new Context();
         // Add session
         final org.wisdom.api.http.Context http = org.wisdom.api.http.Context.CONTEXT.get();
@@ -96,10 +199,24 @@ public class WisdomTemplateEngine extends TemplateEngine {
         // This variable let us resolve template using relative path (in the same directory as the current template).
         // It's mainly used for 'layout', so we can compute the full url.
         ctx.setVariable("__TEMPLATE__", template);
-        StringWriter writer = new StringWriter();
+        return ctx;
+    }
+
+    /**
+     * Processes the given template, and writes the result to the given writer. Unlike
+     * {@link #process(String, IContext, Writer)}, exceptions are rebuilt around their useful message.
+     *
+     * @param templateName the template name
+     * @param ctx          the context
+     * @param writer       the writer
+     */
+    void write(String templateName, IContext ctx, Writer writer) {
+        String previous = dependencies == null ? null : dependencies.enter(templateName);
+        Span span = Tracing.start("template").tag("template", templateName);
         try {
-            this.process(template.fullName(), ctx, writer);
+            this.process(templateName, ctx, writer);
         } catch (TemplateProcessingException e) {
+            span.fail(e);
             // If we have a nested cause having a nested cause, heuristics say that it's the useful message.
             // Rebuild an exception using this data.
             if (e.getCause() != null && e.getCause().getCause() != null) {
@@ -110,8 +227,15 @@ public class WisdomTemplateEngine extends TemplateEngine {
             } else {
                 throw e;
             }
+        } catch (RuntimeException e) {
+            span.fail(e);
+            throw e;
+        } finally {
+            span.finish();
+            if (dependencies != null) {
+                dependencies.exit(previous);
+            }
         }
-        return new RenderableString(writer, MimeTypes.HTML);
     }
 
 }
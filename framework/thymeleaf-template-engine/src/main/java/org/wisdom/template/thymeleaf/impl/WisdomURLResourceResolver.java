@@ -84,6 +84,10 @@ public class WisdomURLResourceResolver implements IResourceResolver {
                             "neither {} nor {}.thl.html exist in the template directory or is available in bundles.",
                     resourceName, resourceName, resourceName);
         } else {
+            TemplateDependencies dependencies = engine.getDependencies();
+            if (dependencies != null) {
+                dependencies.resolved(resourceName, template.fullName());
+            }
             try {
                 return template.getURL().openStream();
             } catch (IOException e) {
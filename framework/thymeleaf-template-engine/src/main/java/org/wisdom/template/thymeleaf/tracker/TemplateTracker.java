@@ -94,7 +94,7 @@ public class TemplateTracker implements BundleTrackerCustomizer<List<ThymeLeafTe
     @Override
     public void modifiedBundle(Bundle bundle, BundleEvent bundleEvent, List<ThymeLeafTemplateImplementation> o) {
         for (ThymeLeafTemplateImplementation template : o) {
-            engine.updatedTemplate();
+            engine.updatedTemplate(template);
         }
     }
 
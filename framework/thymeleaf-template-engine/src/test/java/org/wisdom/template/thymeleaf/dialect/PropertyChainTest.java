@@ -0,0 +1,164 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.template.thymeleaf.dialect;
+
+import ognl.Ognl;
+import ognl.OgnlException;
+import org.junit.Test;
+import org.thymeleaf.context.VariablesMap;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * Checks the compiled property chains against the OGNL evaluation.
+ */
+public class PropertyChainTest {
+
+    @Test
+    public void testCompilation() {
+        assertThat(PropertyChain.compile("user")).isNotNull();
+        assertThat(PropertyChain.compile("user.address.city")).isNotNull();
+        assertThat(PropertyChain.compile(" user.name ")).isNotNull();
+
+        assertThat(PropertyChain.compile("true")).isNull();
+        assertThat(PropertyChain.compile("user.name + 1")).isNull();
+        assertThat(PropertyChain.compile("#vars.user")).isNull();
+        assertThat(PropertyChain.compile("user.getName()")).isNull();
+        assertThat(PropertyChain.compile("users[0]")).isNull();
+        assertThat(PropertyChain.compile("user.null")).isNull();
+    }
+
+    @Test
+    public void testPropertyChains() throws Throwable {
+        Map<String, Object> root = new HashMap<>();
+        root.put("user", new User("wisdom", true, new Address("Grenoble")));
+        root.put("map", Collections.singletonMap("key", "value"));
+
+        check(root, "user.name");
+        check(root, "user.admin");
+        check(root, "user.address.city");
+        check(root, "user.class");
+        check(root, "map.key");
+        check(root, "missing");
+
+        // Evaluate twice to use the inline accessors.
+        PropertyChain chain = PropertyChain.compile("user.address.city");
+        assertThat(chain.getValue(root)).isEqualTo("Grenoble");
+        assertThat(chain.getValue(root)).isEqualTo("Grenoble");
+        root.put("user", Collections.singletonMap("address", new Address("Paris")));
+        assertThat(chain.getValue(root)).isEqualTo("Paris");
+    }
+
+    @Test
+    public void testVariablesMapRoot() throws Throwable {
+        // The evaluation root of the templates, using the Thymeleaf OGNL property accessor.
+        VariablesMap<String, Object> root = new VariablesMap<>();
+        root.put("user", new User("wisdom", true, new Address("Grenoble")));
+        root.put("vars", new VariablesMap<>(Collections.singletonMap("key", "value")));
+
+        check(root, "user.name");
+        check(root, "user.address.city");
+        check(root, "vars.key");
+        check(root, "missing");
+
+        // Computed by the Thymeleaf accessor.
+        assertThat(PropertyChain.compile("size").getValue(root)).isSameAs(PropertyChain.UNRESOLVED);
+        assertThat(PropertyChain.compile("vars.size").getValue(root)).isSameAs(PropertyChain.UNRESOLVED);
+    }
+
+    @Test
+    public void testUnresolvedChains() throws Throwable {
+        Map<String, Object> root = new HashMap<>();
+        root.put("user", new User("wisdom", true, null));
+        root.put("map", Collections.singletonMap("key", "value"));
+
+        // Public field.
+        assertThat(PropertyChain.compile("user.nickname").getValue(root)).isSameAs(PropertyChain.UNRESOLVED);
+        // Computed by the OGNL map accessor.
+        assertThat(PropertyChain.compile("map.size").getValue(root)).isSameAs(PropertyChain.UNRESOLVED);
+        assertThat(Ognl.getValue("map.size", root)).isEqualTo(1);
+    }
+
+    @Test
+    public void testNullIntermediateValue() throws Throwable {
+        Map<String, Object> root = new HashMap<>();
+        root.put("user", new User("wisdom", true, null));
+        for (String expression : new String[]{"user.address.city", "missing.city"}) {
+            try {
+                PropertyChain.compile(expression).getValue(root);
+                fail("OgnlException expected");
+            } catch (OgnlException e) {
+                try {
+                    Ognl.getValue(expression, root);
+                    fail("OgnlException expected");
+                } catch (OgnlException expected) {
+                    assertThat(e.getMessage()).isEqualTo(expected.getMessage());
+                }
+            }
+        }
+    }
+
+    private void check(Map<String, Object> root, String expression) throws Throwable {
+        assertThat(PropertyChain.compile(expression).getValue(root))
+                .isEqualTo(Ognl.getValue(expression, root));
+    }
+
+    public static class User {
+        public String nickname = "w";
+        private final String name;
+        private final boolean admin;
+        private final Address address;
+
+        public User(String name, boolean admin, Address address) {
+            this.name = name;
+            this.admin = admin;
+            this.address = address;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isAdmin() {
+            return admin;
+        }
+
+        public Address getAddress() {
+            return address;
+        }
+    }
+
+    public static class Address {
+        private final String city;
+
+        public Address(String city) {
+            this.city = city;
+        }
+
+        public String getCity() {
+            return city;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2015 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.template.thymeleaf.impl;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the dependency graph between templates.
+ */
+public class TemplateDependenciesTest {
+
+    private static final String PAGE = "file:/templates/page.thl.html";
+    private static final String OTHER = "file:/templates/other.thl.html";
+    private static final String LAYOUT = "file:/templates/layout.thl.html";
+    private static final String MENU = "file:/templates/menu.thl.html";
+
+    @Test
+    public void testInvalidation() {
+        TemplateDependencies dependencies = new TemplateDependencies();
+        dependencies.resolved(PAGE, PAGE);
+        dependencies.resolved(OTHER, OTHER);
+        dependencies.resolved("layout", LAYOUT);
+        dependencies.resolved("menu", MENU);
+        dependencies.resolved("/menu", MENU);
+
+        // page uses the layout, which includes the menu. other only uses the menu.
+        render(dependencies, PAGE, "layout", "menu");
+        render(dependencies, OTHER, "/menu");
+        assertThat(dependencies.current()).isNull();
+
+        assertThat(dependencies.invalidate(MENU))
+                .containsOnly(MENU, "menu", "/menu", PAGE, OTHER);
+        // The usages are recorded again by the next renderings.
+        assertThat(dependencies.invalidate(MENU)).containsOnly(MENU, "menu", "/menu");
+
+        render(dependencies, PAGE, "layout", "menu");
+        render(dependencies, OTHER, "/menu");
+        assertThat(dependencies.invalidate(LAYOUT)).containsOnly(LAYOUT, "layout", PAGE);
+        assertThat(dependencies.invalidate(OTHER)).containsOnly(OTHER);
+
+        render(dependencies, OTHER, "/menu");
+        assertThat(dependencies.remove(MENU)).containsOnly(MENU, "menu", "/menu", OTHER);
+        assertThat(dependencies.invalidate(MENU)).containsOnly(MENU);
+    }
+
+    private static void render(TemplateDependencies dependencies, String template, String... used) {
+        String previous = dependencies.enter(template);
+        try {
+            dependencies.used(template);
+            for (String name : used) {
+                dependencies.used(name);
+            }
+        } finally {
+            dependencies.exit(previous);
+        }
+    }
+}
@@ -19,13 +19,16 @@
  */
 package org.wisdom.template.thymeleaf.impl;
 
+import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import org.joda.time.Duration;
 import org.junit.After;
 import org.junit.Test;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
 import org.thymeleaf.dialect.IDialect;
+import org.thymeleaf.exceptions.TemplateProcessingException;
 import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
 import org.wisdom.api.Controller;
 import org.wisdom.api.asset.Assets;
@@ -36,12 +39,20 @@ import org.wisdom.test.parents.Action;
 import org.wisdom.test.parents.FakeContext;
 import org.wisdom.test.parents.Invocation;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.StringWriter;
 import java.net.MalformedURLException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.wisdom.api.http.Results.ok;
@@ -155,6 +166,44 @@ public class WisdomTemplateEngineTest {
                 .contains("<span>KEY2</span> = <span>ongoing</span>");
     }
 
+    @Test
+    public void testStreaming() throws Exception {
+        final WisdomTemplateEngine engine = createWisdomEngine();
+        engine.setStreaming(true);
+        engine.initialize();
+        final Template template = mock(Template.class);
+        when(template.fullName()).thenReturn("templates/var.thl.html");
+
+        final FakeRouter router = new FakeRouter();
+        final Controller controller = new FakeController();
+        router.addController(controller);
+        final Assets assets = mock(Assets.class);
+
+        Action.ActionResult result = action(new Invocation() {
+            @Override
+            public Result invoke() throws Throwable {
+                context().session().put("key2", "ongoing");
+                return ok(engine.render(template, controller, router, assets, ImmutableMap.<String, Object>of()));
+            }
+        }).parameter("key", "param").invoke();
+
+        // The rendering happens outside of the action, as the engine would do.
+        org.wisdom.api.http.Context.CONTEXT.remove();
+        RenderableTemplate renderable = (RenderableTemplate) result.getResult().getRenderable();
+        assertThat(renderable.length()).isEqualTo(-1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        renderable.write(null, result.getResult(), out);
+        assertThat(result.getResult().getCharset()).isEqualTo(Charsets.UTF_8);
+        assertThat(out.toString("UTF-8"))
+                .contains("<span>KEY</span> = <span>param</span>")
+                .contains("<span>KEY2</span> = <span>ongoing</span>");
+        assertThat(org.wisdom.api.http.Context.CONTEXT.get()).isNull();
+
+        // Materialized on demand.
+        assertThat(renderable.content()).isEqualTo(out.toString("UTF-8"));
+        assertThat(renderable.length()).isEqualTo(renderable.content().length());
+    }
+
     @Test
     public void testCustomDialect() {
         MyDialect dialect = new MyDialect();
@@ -224,6 +273,50 @@ public class WisdomTemplateEngineTest {
         assertThat(content).doesNotContain("Hello, World!").contains("Hi ya!");
     }
 
+    @Test
+    public void testConcurrentRenderingsWhileTheEngineIsReplaced() throws Exception {
+        MyFileTemplateResolver resolver = new MyFileTemplateResolver();
+        final WisdomTemplateEngine engine = createWisdomEngine(ImmutableSet.<IDialect>of(new MyDialect()));
+        engine.setTemplateResolver(resolver);
+        engine.initialize();
+        final WisdomTemplateEngine engine2 = createWisdomEngine();
+        engine2.setTemplateResolver(resolver);
+        engine2.initialize();
+        File file = new File("src/test/resources/templates/dialect.thl.html");
+
+        final FakeRouter router = new FakeRouter();
+        final Controller controller = new FakeController();
+        router.addController(controller);
+        final ThymeLeafTemplateImplementation template = new ThymeLeafTemplateImplementation(engine, file, router,
+                mock(Assets.class), null);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> renderings = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                if (i % 20 == 0) {
+                    template.updateEngine(i % 40 == 0 ? engine2 : engine);
+                }
+                renderings.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return (String) action(new Invocation() {
+                            @Override
+                            public Result invoke() throws Throwable {
+                                return ok(template.render(controller));
+                            }
+                        }).invoke().getResult().getRenderable().content();
+                    }
+                }));
+            }
+            for (Future<String> rendering : renderings) {
+                assertThat(rendering.get(10, TimeUnit.SECONDS)).matches("(?s).*(Hello, World!|Hi ya!).*");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @After
     public void tearDown() {
         org.wisdom.api.http.Context.CONTEXT.remove();
@@ -258,6 +351,101 @@ public class WisdomTemplateEngineTest {
                 .contains("<span>request</span>");
     }
 
+    @Test
+    public void testFragmentCache() {
+        TemplateDependencies dependencies = new TemplateDependencies();
+        FragmentCache fragments = new FragmentCache();
+        fragments.setCache(new MapCache());
+        WisdomTemplateEngine engine = createWisdomEngine();
+        engine.setDependencies(dependencies);
+        engine.setFragmentCache(fragments);
+        engine.initialize();
+
+        String page = render(engine, "templates/cache.thl.html", "first");
+        assertThat(page).contains("<li>first</li>").contains("<p>first</p>")
+                .doesNotContain("cache").doesNotContain("MENU");
+
+        // The menu comes from the cache.
+        page = render(engine, "templates/cache.thl.html", "second");
+        assertThat(page).contains("<li>first</li>").contains("<p>second</p>").doesNotContain("cache");
+
+        // The menu template is modified.
+        Set<String> affected = dependencies.invalidate("templates/menu.thl.html");
+        assertThat(affected).contains("templates/menu.thl.html", "templates/cache.thl.html");
+        fragments.invalidate(affected);
+        page = render(engine, "templates/cache.thl.html", "third");
+        assertThat(page).contains("<li>third</li>").contains("<p>third</p>");
+
+        // The fragments are scoped by locale.
+        page = render(engine, "templates/cache.thl.html", "fourth", Locale.FRENCH);
+        assertThat(page).contains("<li>fourth</li>").contains("<p>fourth</p>");
+        page = render(engine, "templates/cache.thl.html", "fifth");
+        assertThat(page).contains("<li>third</li>").contains("<p>fifth</p>");
+
+        // Expired fragments are forgotten.
+        assertThat(fragments.size("templates/cache.thl.html")).isEqualTo(2);
+        fragments.prune(System.nanoTime() + TimeUnit.SECONDS.toNanos(601));
+        assertThat(fragments.size("templates/cache.thl.html")).isEqualTo(0);
+        assertThat(fragments.size("templates/menu.thl.html")).isEqualTo(0);
+    }
+
+    @Test
+    public void testFragmentCacheWithConflictingAttributes() {
+        FragmentCache fragments = new FragmentCache();
+        fragments.setCache(new MapCache());
+        WisdomTemplateEngine engine = createWisdomEngine();
+        engine.setFragmentCache(fragments);
+        engine.initialize();
+
+        try {
+            render(engine, "templates/cache-conflict.thl.html", "first");
+            fail("th:cache and th:text cannot be used on the same element");
+        } catch (TemplateProcessingException e) {
+            assertThat(e.getMessage()).contains("th:text");
+        }
+    }
+
+    private String render(WisdomTemplateEngine engine, String name, String item) {
+        return render(engine, name, item, Locale.ENGLISH);
+    }
+
+    private String render(WisdomTemplateEngine engine, String name, String item, Locale locale) {
+        Context context = new Context(locale);
+        context.setVariable("user", "alice");
+        context.setVariable("item", item);
+        StringWriter writer = new StringWriter();
+        engine.write(name, context, writer);
+        return writer.toString();
+    }
+
+    /**
+     * A cache service storing entries in a map, ignoring expiration.
+     */
+    private static class MapCache implements org.wisdom.api.cache.Cache {
+        private final Map<String, Object> entries = new ConcurrentHashMap<>();
+
+        @Override
+        public <T> void set(String key, T value, int expiration) {
+            entries.put(key, value);
+        }
+
+        @Override
+        public <T> void set(String key, T value, Duration expiration) {
+            entries.put(key, value);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(String key) {
+            return (T) entries.get(key);
+        }
+
+        @Override
+        public boolean remove(String key) {
+            return entries.remove(key) != null;
+        }
+    }
+
     private WisdomTemplateEngine createWisdomEngine(Set<IDialect> dialects) {
         WisdomTemplateEngine engine = new WisdomTemplateEngine(dialects);
         engine.setTemplateResolver(new ClassLoaderTemplateResolver());